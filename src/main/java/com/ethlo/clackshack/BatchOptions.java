@@ -0,0 +1,178 @@
+package com.ethlo.clackshack;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Options of a {@link BatchingInserter}
+ */
+public class BatchOptions
+{
+    public static final BatchOptions DEFAULT = new BatchOptions(100_000, 16 * 1024 * 1024, Duration.ofSeconds(1), 1_000_000, 2, OverflowPolicy.BLOCK, QueryOptions.DEFAULT);
+
+    private final int maxRows;
+    private final long maxBytes;
+    private final Duration maxDelay;
+    private final int maxPendingRows;
+    private final int flushThreads;
+    private final OverflowPolicy overflowPolicy;
+    private final QueryOptions queryOptions;
+
+    private BatchOptions(final int maxRows, final long maxBytes, final Duration maxDelay, final int maxPendingRows, final int flushThreads, final OverflowPolicy overflowPolicy, final QueryOptions queryOptions)
+    {
+        if (maxRows < 1 || maxBytes < 1 || maxPendingRows < 1 || flushThreads < 1)
+        {
+            throw new IllegalArgumentException("Batch sizes, pending rows and flush threads must be positive");
+        }
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        this.maxDelay = Objects.requireNonNull(maxDelay, "maxDelay cannot be null");
+        this.maxPendingRows = maxPendingRows;
+        this.flushThreads = flushThreads;
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "overflowPolicy cannot be null");
+        this.queryOptions = Objects.requireNonNull(queryOptions, "queryOptions cannot be null");
+    }
+
+    public static BatchOptions create()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * The number of buffered rows that triggers a flush, which is also the maximum number of rows per insert
+     *
+     * @return The number of buffered rows that triggers a flush
+     */
+    public int maxRows()
+    {
+        return maxRows;
+    }
+
+    /**
+     * The encoded size of buffered rows that triggers a flush
+     *
+     * @return The encoded size of buffered rows that triggers a flush
+     */
+    public long maxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * The longest time a row is buffered before it is flushed
+     *
+     * @return The longest time a row is buffered before it is flushed
+     */
+    public Duration maxDelay()
+    {
+        return maxDelay;
+    }
+
+    /**
+     * The number of rows that may be buffered or in flight before the {@link #overflowPolicy()} applies
+     *
+     * @return The number of rows that may be buffered or in flight
+     */
+    public int maxPendingRows()
+    {
+        return maxPendingRows;
+    }
+
+    /**
+     * The number of inserts that may run concurrently
+     *
+     * @return The number of inserts that may run concurrently
+     */
+    public int flushThreads()
+    {
+        return flushThreads;
+    }
+
+    /**
+     * What to do with a row when {@link #maxPendingRows()} are pending
+     *
+     * @return What to do with a row when the buffer is full
+     */
+    public OverflowPolicy overflowPolicy()
+    {
+        return overflowPolicy;
+    }
+
+    /**
+     * The options of each insert
+     *
+     * @return The options of each insert
+     */
+    public QueryOptions queryOptions()
+    {
+        return queryOptions;
+    }
+
+    public BatchOptions maxRows(final int maxRows)
+    {
+        return new BatchOptions(maxRows, this.maxBytes, this.maxDelay, this.maxPendingRows, this.flushThreads, this.overflowPolicy, this.queryOptions);
+    }
+
+    public BatchOptions maxBytes(final long maxBytes)
+    {
+        return new BatchOptions(this.maxRows, maxBytes, this.maxDelay, this.maxPendingRows, this.flushThreads, this.overflowPolicy, this.queryOptions);
+    }
+
+    public BatchOptions maxDelay(final Duration maxDelay)
+    {
+        return new BatchOptions(this.maxRows, this.maxBytes, maxDelay, this.maxPendingRows, this.flushThreads, this.overflowPolicy, this.queryOptions);
+    }
+
+    public BatchOptions maxPendingRows(final int maxPendingRows)
+    {
+        return new BatchOptions(this.maxRows, this.maxBytes, this.maxDelay, maxPendingRows, this.flushThreads, this.overflowPolicy, this.queryOptions);
+    }
+
+    public BatchOptions flushThreads(final int flushThreads)
+    {
+        return new BatchOptions(this.maxRows, this.maxBytes, this.maxDelay, this.maxPendingRows, flushThreads, this.overflowPolicy, this.queryOptions);
+    }
+
+    public BatchOptions overflowPolicy(final OverflowPolicy overflowPolicy)
+    {
+        return new BatchOptions(this.maxRows, this.maxBytes, this.maxDelay, this.maxPendingRows, this.flushThreads, overflowPolicy, this.queryOptions);
+    }
+
+    public BatchOptions queryOptions(final QueryOptions queryOptions)
+    {
+        return new BatchOptions(this.maxRows, this.maxBytes, this.maxDelay, this.maxPendingRows, this.flushThreads, this.overflowPolicy, queryOptions);
+    }
+
+    public enum OverflowPolicy
+    {
+        /**
+         * Block the caller until there is room for the row
+         */
+        BLOCK,
+
+        /**
+         * Discard the row, counting it as dropped
+         */
+        DROP
+    }
+}
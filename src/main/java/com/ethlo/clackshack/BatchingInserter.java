@@ -0,0 +1,586 @@
+package com.ethlo.clackshack;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ethlo.clackshack.format.RowBinaryWriter;
+import com.ethlo.clackshack.model.MetaEntry;
+import com.ethlo.clackshack.model.TableDescription;
+
+/**
+ * Thread-safe inserter that collects rows from any number of threads and inserts them in batches. Each row is encoded in
+ * the <code>RowBinary</code> format by the calling thread, so invalid values are rejected immediately and the size of a
+ * batch is known exactly. The encoded rows are buffered in lock-free queues, striped by thread, and flushed when
+ * {@link BatchOptions#maxRows()} rows or {@link BatchOptions#maxBytes()} bytes are buffered, or approximately when the
+ * oldest row has waited {@link BatchOptions#maxDelay()}. Inserts run on a fixed number of threads. When
+ * {@link BatchOptions#maxPendingRows()} rows are buffered or in flight, for example because ClickHouse falls behind, new
+ * rows are handled according to the {@link BatchOptions#overflowPolicy()}.
+ * <p>
+ * Failed inserts are logged and counted in the {@link Statistics}. The first failure since the previous flush, including
+ * inserts that were triggered by size or time, is reported by {@link #flush()} and {@link #close()}. Rows must not be
+ * added while the inserter is being closed.
+ */
+public class BatchingInserter implements AutoCloseable
+{
+    private static final Logger logger = LoggerFactory.getLogger(BatchingInserter.class);
+    private static final int ROW_BUFFER_SIZE = 512;
+    private static final long NONE = Long.MIN_VALUE;
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private final ClackShack clackShack;
+    private final String table;
+    private final List<String> columns;
+    private final BatchOptions options;
+    private final List<MetaEntry> types;
+    private final ZoneId timeZone;
+    private final Queue<RowEncoder> encoders = new ConcurrentLinkedQueue<>();
+    private final List<Queue<byte[]>> stripes;
+    private final AtomicInteger nextStripe = new AtomicInteger();
+    private final AtomicLong pendingRows = new AtomicLong();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicLong oldestPendingNanos = new AtomicLong(NONE);
+    private final Semaphore capacity;
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final ThreadPoolExecutor flushExecutor;
+    private final ScheduledExecutorService timer;
+    private final Set<CompletableFuture<Void>> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private volatile boolean closed;
+
+    private final LongAdder insertedRows = new LongAdder();
+    private final LongAdder droppedRows = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder failedFlushCount = new LongAdder();
+    private final LongAdder totalFlushNanos = new LongAdder();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+
+    /**
+     * Create an inserter. The column types are looked up with <code>DESCRIBE TABLE</code>.
+     *
+     * @param clackShack The client to insert with, which remains owned by the caller
+     * @param table      The table to insert into
+     * @param columns    The columns to insert, in the order of the values of a row
+     * @param options    The batch options
+     */
+    public BatchingInserter(final ClackShack clackShack, final String table, final List<String> columns, final BatchOptions options)
+    {
+        this.clackShack = clackShack;
+        this.table = table;
+        this.columns = List.copyOf(columns);
+        this.options = options;
+
+        final TableDescription description = clackShack.describe(table, this.columns, options.queryOptions());
+        this.types = description.columns();
+        this.timeZone = description.timeZone();
+
+        final int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        final List<Queue<byte[]>> queues = new ArrayList<>(stripeCount);
+        for (int i = 0; i < stripeCount; i++)
+        {
+            queues.add(new ConcurrentLinkedQueue<>());
+        }
+        this.stripes = List.copyOf(queues);
+        this.capacity = new Semaphore(options.maxPendingRows());
+
+        final int instance = INSTANCES.incrementAndGet();
+        this.flushExecutor = new ThreadPoolExecutor(options.flushThreads(), options.flushThreads(), 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), daemonThreads("clackshack-batch-" + instance + "-flush-"));
+        this.timer = Executors.newSingleThreadScheduledExecutor(daemonThreads("clackshack-batch-" + instance + "-timer-"));
+        final long tickNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), options.maxDelay().toNanos() / 4);
+        timer.scheduleAtFixedRate(this::flushExpired, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Add a row, see {@link RowBinaryWriter} for the supported row types. Depending on the {@link BatchOptions#overflowPolicy()}
+     * this blocks or drops the row while the buffer is full.
+     *
+     * @param row The row to insert
+     * @return True if the row was buffered, false if it was dropped
+     * @throws IllegalArgumentException if the row cannot be encoded for the columns
+     */
+    public boolean add(final Object row)
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("The inserter for " + table + " is closed");
+        }
+
+        final byte[] data = encode(row);
+        if (!acquire())
+        {
+            droppedRows.increment();
+            return false;
+        }
+
+        stripes.get((int) Thread.currentThread().getId() & (stripes.size() - 1)).offer(data);
+        oldestPendingNanos.compareAndSet(NONE, System.nanoTime());
+        final long rows = pendingRows.incrementAndGet();
+        final long bytes = pendingBytes.addAndGet(data.length);
+        if (rows >= options.maxRows() || bytes >= options.maxBytes())
+        {
+            drain(false);
+        }
+        return true;
+    }
+
+    /**
+     * Insert all buffered rows and wait for all inserts in flight to complete
+     *
+     * @throws RuntimeException the error of the first insert that failed since the previous flush, if any
+     */
+    public void flush()
+    {
+        drain(true);
+        for (CompletableFuture<Void> future : List.copyOf(inFlight))
+        {
+            try
+            {
+                future.join();
+            }
+            catch (CompletionException exc)
+            {
+                // Recorded by the insert
+            }
+        }
+
+        // Includes inserts triggered by size or by the timer that completed before this call
+        final RuntimeException error = failure.getAndSet(null);
+        if (error != null)
+        {
+            throw error;
+        }
+    }
+
+    /**
+     * The number of rows that are buffered and not yet sent
+     *
+     * @return The number of rows that are buffered and not yet sent
+     */
+    public long getQueueDepth()
+    {
+        return Math.max(0, pendingRows.get());
+    }
+
+    /**
+     * A snapshot of the statistics of this inserter
+     *
+     * @return A snapshot of the statistics of this inserter
+     */
+    public Statistics getStatistics()
+    {
+        final long flushes = flushCount.sum();
+        return new Statistics(getQueueDepth(), Math.max(0, pendingBytes.get()), flushExecutor.getQueue().size(), flushExecutor.getActiveCount(),
+                insertedRows.sum(), droppedRows.sum(), failedRows.sum(), flushes, failedFlushCount.sum(),
+                Duration.ofNanos(lastFlushNanos.get()), Duration.ofNanos(maxFlushNanos.get()), Duration.ofNanos(flushes > 0 ? totalFlushNanos.sum() / flushes : 0));
+    }
+
+    /**
+     * Insert all buffered rows and stop the flush threads
+     *
+     * @throws RuntimeException the error of the first insert that failed since the previous flush, if any
+     */
+    @Override
+    public void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        timer.shutdownNow();
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            flushExecutor.shutdown();
+        }
+    }
+
+    private byte[] encode(final Object row)
+    {
+        // Encoders are pooled rather than held per thread, as there may be a great many short-lived virtual threads
+        final RowEncoder encoder = Optional.ofNullable(encoders.poll()).orElseGet(() -> new RowEncoder(types, timeZone));
+        final byte[] data = encoder.encode(row);
+
+        // The writer may hold part of a row that failed, so only reuse it on success
+        encoders.offer(encoder);
+        return data;
+    }
+
+    private boolean acquire()
+    {
+        if (options.overflowPolicy() == BatchOptions.OverflowPolicy.DROP)
+        {
+            return capacity.tryAcquire();
+        }
+
+        try
+        {
+            capacity.acquire();
+            return true;
+        }
+        catch (InterruptedException exc)
+        {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new IOException(exc));
+        }
+    }
+
+    private void flushExpired()
+    {
+        final long oldest = oldestPendingNanos.get();
+        if (oldest != NONE && System.nanoTime() - oldest >= options.maxDelay().toNanos())
+        {
+            drain(true);
+        }
+    }
+
+    private void drain(final boolean all)
+    {
+        if (all)
+        {
+            drainLock.lock();
+        }
+        else if (!drainLock.tryLock())
+        {
+            // Another thread is draining, and re-checks the thresholds before it stops
+            return;
+        }
+
+        try
+        {
+            boolean full;
+            do
+            {
+                final List<byte[]> batch = new ArrayList<>();
+                long bytes = 0;
+                final int start = nextStripe.getAndIncrement();
+                for (int i = 0; i < stripes.size() && batch.size() < options.maxRows() && bytes < options.maxBytes(); i++)
+                {
+                    final Queue<byte[]> stripe = stripes.get((start + i) & (stripes.size() - 1));
+                    byte[] data;
+                    while (batch.size() < options.maxRows() && bytes < options.maxBytes() && (data = stripe.poll()) != null)
+                    {
+                        batch.add(data);
+                        bytes += data.length;
+                    }
+                }
+                if (batch.isEmpty())
+                {
+                    break;
+                }
+
+                pendingRows.addAndGet(-batch.size());
+                pendingBytes.addAndGet(-bytes);
+                submit(batch);
+                full = batch.size() >= options.maxRows() || bytes >= options.maxBytes();
+            }
+            while (all ? full : pendingRows.get() >= options.maxRows() || pendingBytes.get() >= options.maxBytes());
+
+            oldestPendingNanos.set(pendingRows.get() > 0 ? System.nanoTime() : NONE);
+        }
+        finally
+        {
+            drainLock.unlock();
+        }
+    }
+
+    private void submit(final List<byte[]> batch)
+    {
+        final CompletableFuture<Void> future = CompletableFuture.runAsync(() -> insert(batch), flushExecutor);
+        inFlight.add(future);
+        future.whenComplete((result, exc) -> inFlight.remove(future));
+    }
+
+    private void insert(final List<byte[]> batch)
+    {
+        final long started = System.nanoTime();
+        try
+        {
+            clackShack.insert(table, columns, RowBinaryWriter.FORMAT_NAME, new ChunkInputStream(batch), options.queryOptions());
+            insertedRows.add(batch.size());
+        }
+        catch (RuntimeException exc)
+        {
+            failedFlushCount.increment();
+            failedRows.add(batch.size());
+            logger.warn("Failed to insert {} rows into {}: {}", batch.size(), table, exc.getMessage());
+            failure.compareAndSet(null, exc);
+            throw exc;
+        }
+        finally
+        {
+            final long elapsed = System.nanoTime() - started;
+            flushCount.increment();
+            totalFlushNanos.add(elapsed);
+            lastFlushNanos.set(elapsed);
+            maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+            capacity.release(batch.size());
+        }
+    }
+
+    private static ThreadFactory daemonThreads(final String prefix)
+    {
+        final AtomicInteger counter = new AtomicInteger();
+        return runnable ->
+        {
+            final Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Encodes single rows, reusing the writer
+     */
+    private static class RowEncoder
+    {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(ROW_BUFFER_SIZE);
+        private final RowBinaryWriter writer;
+
+        RowEncoder(final List<MetaEntry> types, final ZoneId timeZone)
+        {
+            this.writer = new RowBinaryWriter(buffer, types, timeZone, ROW_BUFFER_SIZE);
+        }
+
+        byte[] encode(final Object row)
+        {
+            buffer.reset();
+            writer.write(row);
+            writer.flush();
+            return buffer.toByteArray();
+        }
+    }
+
+    /**
+     * Reads a batch of encoded rows as one stream, without copying them
+     */
+    private static class ChunkInputStream extends InputStream
+    {
+        private final List<byte[]> chunks;
+        private int chunk;
+        private int position;
+
+        ChunkInputStream(final List<byte[]> chunks)
+        {
+            this.chunks = chunks;
+        }
+
+        @Override
+        public int read()
+        {
+            final byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] target, final int offset, final int length)
+        {
+            if (length == 0)
+            {
+                return 0;
+            }
+
+            int read = 0;
+            while (read < length && chunk < chunks.size())
+            {
+                final byte[] current = chunks.get(chunk);
+                final int count = Math.min(length - read, current.length - position);
+                System.arraycopy(current, position, target, offset + read, count);
+                read += count;
+                position += count;
+                if (position == current.length)
+                {
+                    chunk++;
+                    position = 0;
+                }
+            }
+            return read == 0 ? -1 : read;
+        }
+    }
+
+    /**
+     * Statistics of a {@link BatchingInserter}
+     */
+    public static final class Statistics
+    {
+        private final long pendingRows;
+        private final long pendingBytes;
+        private final int queuedBatches;
+        private final int activeFlushes;
+        private final long insertedRows;
+        private final long droppedRows;
+        private final long failedRows;
+        private final long flushCount;
+        private final long failedFlushCount;
+        private final Duration lastFlushLatency;
+        private final Duration maxFlushLatency;
+        private final Duration averageFlushLatency;
+
+        Statistics(final long pendingRows, final long pendingBytes, final int queuedBatches, final int activeFlushes,
+                   final long insertedRows, final long droppedRows, final long failedRows, final long flushCount, final long failedFlushCount,
+                   final Duration lastFlushLatency, final Duration maxFlushLatency, final Duration averageFlushLatency)
+        {
+            this.pendingRows = pendingRows;
+            this.pendingBytes = pendingBytes;
+            this.queuedBatches = queuedBatches;
+            this.activeFlushes = activeFlushes;
+            this.insertedRows = insertedRows;
+            this.droppedRows = droppedRows;
+            this.failedRows = failedRows;
+            this.flushCount = flushCount;
+            this.failedFlushCount = failedFlushCount;
+            this.lastFlushLatency = lastFlushLatency;
+            this.maxFlushLatency = maxFlushLatency;
+            this.averageFlushLatency = averageFlushLatency;
+        }
+
+        /**
+         * @return The number of rows that are buffered and not yet sent
+         */
+        public long getPendingRows()
+        {
+            return pendingRows;
+        }
+
+        /**
+         * @return The encoded size of the rows that are buffered and not yet sent
+         */
+        public long getPendingBytes()
+        {
+            return pendingBytes;
+        }
+
+        /**
+         * @return The number of batches waiting for a flush thread
+         */
+        public int getQueuedBatches()
+        {
+            return queuedBatches;
+        }
+
+        /**
+         * @return The number of inserts in progress
+         */
+        public int getActiveFlushes()
+        {
+            return activeFlushes;
+        }
+
+        public long getInsertedRows()
+        {
+            return insertedRows;
+        }
+
+        /**
+         * @return The number of rows dropped by {@link BatchOptions.OverflowPolicy#DROP}
+         */
+        public long getDroppedRows()
+        {
+            return droppedRows;
+        }
+
+        /**
+         * @return The number of rows of failed inserts
+         */
+        public long getFailedRows()
+        {
+            return failedRows;
+        }
+
+        public long getFlushCount()
+        {
+            return flushCount;
+        }
+
+        public long getFailedFlushCount()
+        {
+            return failedFlushCount;
+        }
+
+        public Duration getLastFlushLatency()
+        {
+            return lastFlushLatency;
+        }
+
+        public Duration getMaxFlushLatency()
+        {
+            return maxFlushLatency;
+        }
+
+        public Duration getAverageFlushLatency()
+        {
+            return averageFlushLatency;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Statistics{" +
+                    "pendingRows=" + pendingRows +
+                    ", pendingBytes=" + pendingBytes +
+                    ", queuedBatches=" + queuedBatches +
+                    ", activeFlushes=" + activeFlushes +
+                    ", insertedRows=" + insertedRows +
+                    ", droppedRows=" + droppedRows +
+                    ", failedRows=" + failedRows +
+                    ", flushCount=" + flushCount +
+                    ", failedFlushCount=" + failedFlushCount +
+                    ", lastFlushLatency=" + lastFlushLatency +
+                    ", maxFlushLatency=" + maxFlushLatency +
+                    ", averageFlushLatency=" + averageFlushLatency +
+                    '}';
+        }
+    }
+}
@@ -21,12 +21,28 @@ package com.ethlo.clackshack;
  */
 
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
 
+import com.ethlo.clackshack.format.RowBinaryWriter;
+import com.ethlo.clackshack.model.ColumnarResultSet;
 import com.ethlo.clackshack.model.QueryParam;
 import com.ethlo.clackshack.model.ResultSet;
+import com.ethlo.clackshack.model.Row;
+import com.ethlo.clackshack.model.RowMapper;
+import com.ethlo.clackshack.model.TableDescription;
 import com.ethlo.clackshack.util.QueryParams;
 
 public interface ClackShack extends AutoCloseable
@@ -99,6 +115,299 @@ public interface ClackShack extends AutoCloseable
      */
     ResultSet query(final String query, final List<QueryParam> params, final QueryOptions queryOptions);
 
+    /**
+     * Query method mapping each row to a record or class, see {@link RowMapper#of(Class)}
+     *
+     * @param query        The SQL query
+     * @param params       The named parameters for the query
+     * @param queryOptions The query options for this query
+     * @param type         The type to map each row to
+     * @param <T>          The type to map each row to
+     * @return The mapped rows
+     */
+    default <T> List<T> query(final String query, final List<QueryParam> params, final QueryOptions queryOptions, final Class<T> type)
+    {
+        return query(query, params, queryOptions).map(type);
+    }
+
+    /**
+     * Query method mapping each row to a record or class
+     *
+     * @param query  The SQL query
+     * @param params The named parameters for the query
+     * @param type   The type to map each row to
+     * @param <T>    The type to map each row to
+     * @return The mapped rows
+     */
+    default <T> List<T> query(final String query, final Map<String, Object> params, final Class<T> type)
+    {
+        return query(query, QueryParams.asList(params), QueryOptions.DEFAULT, type);
+    }
+
+    /**
+     * Streaming query method. Rows are decoded incrementally as they arrive, so memory use does not grow with the size of the result.
+     * The returned stream holds an open HTTP response and must be closed, preferably using try-with-resources.
+     *
+     * @param query        The SQL query
+     * @param params       The named parameters for the query
+     * @param queryOptions The query options for this query
+     * @return A stream of the rows in the result
+     */
+    Stream<Row> queryStream(final String query, final List<QueryParam> params, final QueryOptions queryOptions);
+
+    /**
+     * Streaming query method. The returned stream must be closed.
+     *
+     * @param query  The SQL query
+     * @param params The named parameters for the query
+     * @return A stream of the rows in the result
+     */
+    default Stream<Row> queryStream(final String query, final Map<String, Object> params)
+    {
+        return queryStream(query, QueryParams.asList(params), QueryOptions.DEFAULT);
+    }
+
+    /**
+     * Streaming query method. The returned stream must be closed.
+     *
+     * @param query The SQL query
+     * @return A stream of the rows in the result
+     */
+    default Stream<Row> queryStream(final String query)
+    {
+        return queryStream(query, Collections.emptyList(), QueryOptions.DEFAULT);
+    }
+
+    /**
+     * Asynchronous query method. No thread is blocked while the query runs: the result is tokenized as its content arrives
+     * and decoded when it is complete, on a thread of the HTTP client. Cancelling the returned future aborts the request,
+     * and ClickHouse then cancels a read-only query. Responses are not compressed. As for
+     * {@link #query(String, List, QueryOptions)}, the timeout of the client applies until the response headers arrive.
+     *
+     * @param query        The SQL query
+     * @param params       The named parameters for the query
+     * @param queryOptions The query options for this query
+     * @return A future of the result of the query
+     */
+    CompletableFuture<ResultSet> queryAsync(final String query, final List<QueryParam> params, final QueryOptions queryOptions);
+
+    /**
+     * Asynchronous query method
+     *
+     * @param query  The SQL query
+     * @param params The named parameters for the query
+     * @return A future of the result of the query
+     */
+    default CompletableFuture<ResultSet> queryAsync(final String query, final Map<String, Object> params)
+    {
+        return queryAsync(query, QueryParams.asList(params), QueryOptions.DEFAULT);
+    }
+
+    /**
+     * Asynchronous query method
+     *
+     * @param query The SQL query
+     * @return A future of the result of the query
+     */
+    default CompletableFuture<ResultSet> queryAsync(final String query)
+    {
+        return queryAsync(query, Collections.emptyList(), QueryOptions.DEFAULT);
+    }
+
+    /**
+     * Reactive query method. Every subscription runs the query, and rows are read from the connection only as the
+     * subscriber requests them, so a slow subscriber slows down the transfer instead of having rows buffered in memory.
+     * Rows are signalled on a thread of the HTTP client or on the thread requesting them. Cancelling the subscription
+     * aborts the request, and ClickHouse then cancels a read-only query. Responses are not compressed. The timeout of
+     * the client applies until the response headers arrive.
+     *
+     * @param query        The SQL query
+     * @param params       The named parameters for the query
+     * @param queryOptions The query options for this query
+     * @return A publisher of the rows in the result
+     */
+    Flow.Publisher<Row> queryPublisher(final String query, final List<QueryParam> params, final QueryOptions queryOptions);
+
+    /**
+     * Reactive query method
+     *
+     * @param query  The SQL query
+     * @param params The named parameters for the query
+     * @return A publisher of the rows in the result
+     */
+    default Flow.Publisher<Row> queryPublisher(final String query, final Map<String, Object> params)
+    {
+        return queryPublisher(query, QueryParams.asList(params), QueryOptions.DEFAULT);
+    }
+
+    /**
+     * Reactive query method
+     *
+     * @param query The SQL query
+     * @return A publisher of the rows in the result
+     */
+    default Flow.Publisher<Row> queryPublisher(final String query)
+    {
+        return queryPublisher(query, Collections.emptyList(), QueryOptions.DEFAULT);
+    }
+
+    /**
+     * Columnar query method. The result is transferred in the ClickHouse <code>Native</code> format and kept in primitive
+     * arrays per column, which is considerably more compact than {@link ResultSet} for large numeric results.
+     *
+     * @param query        The SQL query
+     * @param params       The named parameters for the query
+     * @param queryOptions The query options for this query
+     * @return The result, column by column
+     */
+    ColumnarResultSet queryColumnar(final String query, final List<QueryParam> params, final QueryOptions queryOptions);
+
+    /**
+     * Columnar query method
+     *
+     * @param query  The SQL query
+     * @param params The named parameters for the query
+     * @return The result, column by column
+     */
+    default ColumnarResultSet queryColumnar(final String query, final Map<String, Object> params)
+    {
+        return queryColumnar(query, QueryParams.asList(params), QueryOptions.DEFAULT);
+    }
+
+    /**
+     * Columnar query method
+     *
+     * @param query The SQL query
+     * @return The result, column by column
+     */
+    default ColumnarResultSet queryColumnar(final String query)
+    {
+        return queryColumnar(query, Collections.emptyList(), QueryOptions.DEFAULT);
+    }
+
+    /**
+     * Look up the types of columns with <code>DESCRIBE TABLE</code>, along with the time zone that the server applies to
+     * date-time values of the session
+     *
+     * @param table        The table
+     * @param columns      The columns to look up
+     * @param queryOptions The query options for the lookup
+     * @return The column types, in the order of the columns, and the time zone
+     * @throws IllegalArgumentException if a column is not in the table
+     */
+    TableDescription describe(final String table, final List<String> columns, final QueryOptions queryOptions);
+
+    /**
+     * Streaming insert. Rows are encoded in the ClickHouse <code>RowBinary</code> format as they are taken from the iterator
+     * and sent in a chunked request body through a fixed size buffer, so memory use does not grow with the number of rows.
+     * The column types are looked up with <code>DESCRIBE TABLE</code>. See {@link RowBinaryWriter} for the supported row types.
+     * Table and column names are quoted as identifiers, so a table in another database is selected with
+     * {@link QueryOptions#database(String)} rather than a qualified name.
+     *
+     * @param table        The table to insert into
+     * @param columns      The columns to insert, in the order of the values of a row
+     * @param rows         The rows to insert
+     * @param queryOptions The query options for this insert
+     * @return The number of rows inserted
+     */
+    long insert(final String table, final List<String> columns, final Iterator<?> rows, final QueryOptions queryOptions);
+
+    /**
+     * Streaming insert
+     *
+     * @param table   The table to insert into
+     * @param columns The columns to insert, in the order of the values of a row
+     * @param rows    The rows to insert
+     * @return The number of rows inserted
+     */
+    default long insert(final String table, final List<String> columns, final Iterable<?> rows)
+    {
+        return insert(table, columns, rows.iterator(), QueryOptions.DEFAULT);
+    }
+
+    /**
+     * Streaming insert. The stream is closed when done.
+     *
+     * @param table   The table to insert into
+     * @param columns The columns to insert, in the order of the values of a row
+     * @param rows    The rows to insert
+     * @return The number of rows inserted
+     */
+    default long insert(final String table, final List<String> columns, final Stream<?> rows)
+    {
+        try (rows)
+        {
+            return insert(table, columns, rows.iterator(), QueryOptions.DEFAULT);
+        }
+    }
+
+    /**
+     * Insert of data already encoded in a ClickHouse input format, for example <code>RowBinary</code> or <code>CSV</code>.
+     * The data is streamed to the server as it is read, and the input stream is closed when done.
+     *
+     * @param table        The table to insert into
+     * @param columns      The columns of the data, or an empty list for all columns of the table
+     * @param format       The name of the ClickHouse input format of the data
+     * @param data         The encoded data
+     * @param queryOptions The query options for this insert
+     * @return The number of bytes sent
+     */
+    long insert(final String table, final List<String> columns, final String format, final InputStream data, final QueryOptions queryOptions);
+
+    /**
+     * Bulk load of a file in a ClickHouse input format, for example <code>CSV</code>, <code>TSV</code> or <code>Parquet</code>.
+     * The file is streamed into the request body in fixed size chunks, so it is never held on the heap. Upload progress
+     * is reported to the progress listener of the options as {@link com.ethlo.clackshack.model.QueryProgress#getBytesSent()},
+     * and returning false from the listener aborts the upload.
+     *
+     * @param table        The table to insert into
+     * @param format       The name of the ClickHouse input format of the file
+     * @param file         The file to load
+     * @param queryOptions The query options for this insert
+     * @return The number of bytes read from the file
+     */
+    default long insertFrom(final String table, final String format, final Path file, final QueryOptions queryOptions)
+    {
+        try
+        {
+            return insertFrom(table, format, Files.newInputStream(file), queryOptions);
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    /**
+     * Bulk load of a stream in a ClickHouse input format, which is closed when done
+     *
+     * @param table        The table to insert into
+     * @param format       The name of the ClickHouse input format of the data
+     * @param data         The data to load
+     * @param queryOptions The query options for this insert
+     * @return The number of bytes read from the stream
+     * @see #insertFrom(String, String, Path, QueryOptions)
+     */
+    default long insertFrom(final String table, final String format, final InputStream data, final QueryOptions queryOptions)
+    {
+        return insert(table, Collections.emptyList(), format, data, queryOptions);
+    }
+
+    /**
+     * Bulk load of a channel in a ClickHouse input format, which is closed when done
+     *
+     * @param table        The table to insert into
+     * @param format       The name of the ClickHouse input format of the data
+     * @param channel      The data to load
+     * @param queryOptions The query options for this insert
+     * @return The number of bytes read from the channel
+     * @see #insertFrom(String, String, Path, QueryOptions)
+     */
+    default long insertFrom(final String table, final String format, final ReadableByteChannel channel, final QueryOptions queryOptions)
+    {
+        return insertFrom(table, format, Channels.newInputStream(channel), queryOptions);
+    }
+
     /**
      * Close any resources held by the client
      */
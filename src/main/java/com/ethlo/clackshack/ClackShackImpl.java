@@ -23,36 +23,80 @@ package com.ethlo.clackshack;
 
 import static com.ethlo.clackshack.util.JsonUtil.readJson;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.Deflater;
 
+import org.eclipse.jetty.client.BytesRequestContent;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.InputStreamResponseListener;
+import org.eclipse.jetty.client.OutputStreamRequestContent;
+import org.eclipse.jetty.client.PathRequestContent;
 import org.eclipse.jetty.client.Request;
 import org.eclipse.jetty.client.Response;
+import org.eclipse.jetty.client.Result;
 import org.eclipse.jetty.client.StringRequestContent;
+import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.io.Content;
+import org.eclipse.jetty.util.VirtualThreads;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.util.thread.VirtualThreadPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ethlo.clackshack.format.AsyncCompactJsonRowReader;
+import com.ethlo.clackshack.format.AsyncJsonResultReader;
+import com.ethlo.clackshack.format.CompactJsonRowReader;
+import com.ethlo.clackshack.format.JsonResultReader;
+import com.ethlo.clackshack.format.NativeReader;
+import com.ethlo.clackshack.format.RowBinaryReader;
+import com.ethlo.clackshack.format.RowBinaryWriter;
+import com.ethlo.clackshack.format.RowReader;
+import com.ethlo.clackshack.model.ColumnarResultSet;
+import com.ethlo.clackshack.model.MetaEntry;
 import com.ethlo.clackshack.model.QueryParam;
 import com.ethlo.clackshack.model.QueryProgress;
-import com.ethlo.clackshack.model.QueryResult;
 import com.ethlo.clackshack.model.ResultSet;
+import com.ethlo.clackshack.model.Row;
+import com.ethlo.clackshack.model.TableDescription;
 import com.ethlo.clackshack.util.QueryUtil;
 
 public class ClackShackImpl implements ClackShack
@@ -61,6 +105,7 @@ public class ClackShackImpl implements ClackShack
     public static final String CLICKHOUSE_QUERY_ID_HEADER_NAME = "X-ClickHouse-Query-Id";
     public static final String CLICKHOUSE_SUMMARY_HEADER_NAME = "X-ClickHouse-Summary";
     public static final String CLICKHOUSE_EXCEPTION_CODE_HEADER_NAME = "X-ClickHouse-Exception-Code";
+    public static final String CLICKHOUSE_TIMEZONE_HEADER_NAME = "X-ClickHouse-Timezone";
 
     public static final String WAIT_END_OF_QUERY_PARAM = "wait_end_of_query";
     public static final String SEND_PROGRESS_IN_HTTP_HEADERS_PARAM = "send_progress_in_http_headers";
@@ -70,6 +115,12 @@ public class ClackShackImpl implements ClackShack
     public static final String REPLACE_RUNNING_QUERY_PARAM = "replace_running_query";
     public static final String PARAM_PREFIX = "param_";
     public static final String MAX_EXECUTION_TIME_PARAM = "max_execution_time";
+    public static final String QUERY_PARAM = "query";
+    public static final String ENABLE_HTTP_COMPRESSION_PARAM = "enable_http_compression";
+    public static final String HTTP_ZLIB_COMPRESSION_LEVEL_PARAM = "http_zlib_compression_level";
+    public static final String CANCEL_ON_CLIENT_CLOSE_PARAM = "cancel_http_readonly_queries_on_client_close";
+
+    private static final String OCTET_STREAM_CONTENT_TYPE = "application/octet-stream";
 
 
     private static final Logger logger = LoggerFactory.getLogger(ClackShackImpl.class);
@@ -85,12 +136,35 @@ public class ClackShackImpl implements ClackShack
     }
 
     public ClackShackImpl(String baseUrl, final String database, final Duration timeout)
+    {
+        this(baseUrl, database, timeout, ClientOptions.DEFAULT);
+    }
+
+    public ClackShackImpl(String baseUrl, final String database, final Duration timeout, final ClientOptions clientOptions)
     {
         this.baseUrl = baseUrl;
         this.database = database;
         this.timeout = timeout;
         this.client = new HttpClient();
         this.client.setName("clackshack");
+        this.client.setMaxConnectionsPerDestination(clientOptions.maxConnections());
+        this.client.setMaxRequestsQueuedPerDestination(clientOptions.maxQueuedRequests());
+        if (clientOptions.virtualThreads())
+        {
+            if (VirtualThreads.areSupported())
+            {
+                // Every task of the client, including response listeners, then runs on its own virtual thread
+                final VirtualThreadPool threadPool = new VirtualThreadPool();
+                threadPool.setName("clackshack");
+                this.client.setExecutor(threadPool);
+            }
+            else
+            {
+                logger.warn("Virtual threads are not supported by this Java runtime, using platform threads");
+            }
+        }
+        // Responses are decompressed by the readers, as requested by the query options
+        this.client.getContentDecoderFactories().clear();
         try
         {
             client.start();
@@ -101,11 +175,11 @@ public class ClackShackImpl implements ClackShack
         }
     }
 
-    private String getString(final InputStreamResponseListener response)
+    private String getString(final InputStream content)
     {
-        try
+        try (content)
         {
-            return new String(response.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            return new String(content.readAllBytes(), StandardCharsets.UTF_8);
         }
         catch (IOException e)
         {
@@ -120,37 +194,450 @@ public class ClackShackImpl implements ClackShack
     {
         final QueryProgressListener queryProgressListener = queryOptions.progressListener().orElse(QueryProgressListener.NOP);
         queryProgressListener.progress(new QueryProgress(0, 0, 0));
-        final ResponseData responseData = sendRequest(query, params, queryOptions);
+        if (queryOptions.resultFormat() == ResultFormat.ROW_BINARY)
+        {
+            try (final RowBinaryReader reader = openRowBinaryReader(query, params, queryOptions))
+            {
+                return reader.readResultSet();
+            }
+        }
+
+        final ResponseData responseData = sendRequest(query, params, queryOptions, JsonResultReader.FORMAT_NAME, Map.of());
+        final JsonResultReader reader = new JsonResultReader(openContent(responseData, queryOptions), queryOptions, getTimeZone(responseData));
+        final ResultSet resultSet = reader.read();
+        Optional.ofNullable(reader.getStatistics()).ifPresent(statistics ->
+                queryProgressListener.progress(new QueryProgress(statistics.getRowsRead(), statistics.getBytesRead(), statistics.getTotalRowsToRead())));
+        return resultSet;
+    }
+
+    @Override
+    public Stream<Row> queryStream(final String query,
+                                   final List<QueryParam> params,
+                                   final QueryOptions queryOptions)
+    {
+        final RowReader reader = openReader(query, params, queryOptions);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(reader::close);
+    }
+
+    @Override
+    public CompletableFuture<ResultSet> queryAsync(final String query,
+                                                   final List<QueryParam> params,
+                                                   final QueryOptions queryOptions)
+    {
+        // The result is tokenized as it arrives, which does not combine with compressed responses
+        final QueryRequest queryRequest = newQueryRequest(query, params, queryOptions.responseCompression(Compression.NONE), JsonResultReader.FORMAT_NAME, Map.of(CANCEL_ON_CLIENT_CLOSE_PARAM, "1"), true);
+        final Request req = queryRequest.request();
+        abortWithoutHeaders(queryRequest);
+        final CompletableFuture<ResultSet> future = new CompletableFuture<>();
+        future.whenComplete((resultSet, exc) ->
+        {
+            if (exc instanceof CancellationException)
+            {
+                req.abort(exc);
+            }
+        });
+        req.send(new AsyncQueryListener(queryRequest, future));
+        return future;
+    }
+
+    @Override
+    public Flow.Publisher<Row> queryPublisher(final String query,
+                                              final List<QueryParam> params,
+                                              final QueryOptions queryOptions)
+    {
+        return subscriber ->
+        {
+            Objects.requireNonNull(subscriber, "subscriber must not be null");
+            final QueryRequest queryRequest;
+            try
+            {
+                // Rows are decoded as they arrive, which does not combine with compressed responses
+                queryRequest = newQueryRequest(query, params, queryOptions.responseCompression(Compression.NONE), CompactJsonRowReader.FORMAT_NAME, Map.of(CANCEL_ON_CLIENT_CLOSE_PARAM, "1"), true);
+            }
+            catch (RuntimeException exc)
+            {
+                subscriber.onSubscribe(new Flow.Subscription()
+                {
+                    @Override
+                    public void request(final long n)
+                    {
+                    }
+
+                    @Override
+                    public void cancel()
+                    {
+                    }
+                });
+                subscriber.onError(exc);
+                return;
+            }
+            abortWithoutHeaders(queryRequest);
+            new RowSubscription(queryRequest, subscriber).start();
+        };
+    }
+
+    @Override
+    public ColumnarResultSet queryColumnar(final String query,
+                                           final List<QueryParam> params,
+                                           final QueryOptions queryOptions)
+    {
+        final ResponseData responseData = sendRequest(query, params, queryOptions, NativeReader.FORMAT_NAME, Map.of(NativeReader.LOW_CARDINALITY_SETTING, "0"));
+        return NativeReader.read(openContent(responseData, queryOptions), getTimeZone(responseData), queryOptions);
+    }
+
+    /**
+     * Run a query and return the response body in the given ClickHouse format, decompressed but otherwise as sent by the
+     * server. This is the entry point for result formats that are decoded outside of this client, such as
+     * {@link com.ethlo.clackshack.arrow.ArrowQueries}. The returned stream holds an open HTTP response and must be closed.
+     *
+     * @param query        The SQL query
+     * @param params       The named parameters for the query
+     * @param queryOptions The query options for this query
+     * @param format       The ClickHouse output format
+     * @param settings     Additional ClickHouse settings for the query
+     * @return The response body
+     */
+    public InputStream queryRaw(final String query, final List<QueryParam> params, final QueryOptions queryOptions, final String format, final Map<String, String> settings)
+    {
+        final ResponseData responseData = sendRequest(query, params, queryOptions, QueryUtil.checkFormatName(format), settings);
+        return openContent(responseData, queryOptions);
+    }
+
+    @Override
+    public long insert(final String table, final List<String> columns, final Iterator<?> rows, QueryOptions queryOptions)
+    {
+        if (queryOptions.getDatabase().isEmpty() && database != null)
+        {
+            queryOptions = queryOptions.database(database);
+        }
+        final TableDescription target = describe(table, columns, queryOptions);
+        return executeInsert(table, columns, RowBinaryWriter.FORMAT_NAME, queryOptions, out ->
+        {
+            final RowBinaryWriter writer = new RowBinaryWriter(out, target.columns(), target.timeZone());
+            while (rows.hasNext())
+            {
+                writer.write(rows.next());
+            }
+            writer.close();
+            return writer.getRowCount();
+        });
+    }
+
+    @Override
+    public long insert(final String table, final List<String> columns, final String format, final InputStream data, QueryOptions queryOptions)
+    {
+        if (queryOptions.getDatabase().isEmpty() && database != null)
+        {
+            queryOptions = queryOptions.database(database);
+        }
+        return executeInsert(table, columns, format, queryOptions, out ->
+        {
+            try (data; out)
+            {
+                return data.transferTo(out);
+            }
+            catch (IOException exc)
+            {
+                throw new UncheckedIOException(exc);
+            }
+        });
+    }
+
+    @Override
+    public long insertFrom(final String table, final String format, final Path file, QueryOptions queryOptions)
+    {
+        if (queryOptions.getDatabase().isEmpty() && database != null)
+        {
+            queryOptions = queryOptions.database(database);
+        }
+        if (queryOptions.requestCompression() != Compression.NONE)
+        {
+            try
+            {
+                return insert(table, List.of(), format, Files.newInputStream(file), queryOptions);
+            }
+            catch (IOException exc)
+            {
+                throw new UncheckedIOException(exc);
+            }
+        }
+
+        // Read by Jetty through a file channel into pooled buffers, never held on the heap as a whole
+        final long size;
+        final PathRequestContent content;
+        try
+        {
+            size = Files.size(file);
+            content = new PathRequestContent(OCTET_STREAM_CONTENT_TYPE, file, client.getByteBufferPool());
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException(exc);
+        }
+        awaitInsertResponse(sendInsert(table, List.of(), format, queryOptions, content), queryOptions);
+        return size;
+    }
+
+    private long executeInsert(final String table, final List<String> columns, final String format, final QueryOptions queryOptions, final InsertBody body)
+    {
+        final OutputStreamRequestContent content = new OutputStreamRequestContent(OCTET_STREAM_CONTENT_TYPE);
+        final PendingInsert insert = sendInsert(table, columns, format, queryOptions, content);
+
+        final long written;
+        try
+        {
+            written = body.write(compress(content.getOutputStream(), queryOptions));
+        }
+        catch (UncheckedIOException exc)
+        {
+            // The server may have rejected the insert, in which case the response holds the reason
+            try
+            {
+                awaitInsertResponse(insert, queryOptions);
+            }
+            catch (RuntimeException serverError)
+            {
+                serverError.addSuppressed(exc);
+                throw serverError;
+            }
+            throw exc;
+        }
+        catch (RuntimeException exc)
+        {
+            // Abort rather than complete the request, so a partial row is never inserted
+            insert.request().abort(exc);
+            throw exc;
+        }
+
+        awaitInsertResponse(insert, queryOptions);
+        return written;
+    }
+
+    private PendingInsert sendInsert(final String table, final List<String> columns, final String format, final QueryOptions queryOptions, final Request.Content content)
+    {
+        final String queryId = queryOptions.queryId().orElse(UUID.randomUUID().toString());
+        final String columnList = columns.isEmpty() ? "" : " (" + columns.stream().map(QueryUtil::quoteIdentifier).collect(Collectors.joining(", ")) + ")";
+        final String statement = "INSERT INTO " + QueryUtil.quoteIdentifier(table) + columnList + " FORMAT " + QueryUtil.checkFormatName(format);
+        logger.debug("Running insert with id {}: {}", queryId, statement);
+
+        final Request req = client.newRequest(baseUrl)
+                .method(HttpMethod.POST)
+                .param(QUERY_PARAM, statement)
+                .param(QUERY_ID_PARAM, queryId)
+                .param(REPLACE_RUNNING_QUERY_PARAM, queryOptions.replaceQuery() ? "1" : "0")
+                .body(content)
+                // A large upload may take any time, so the timeout applies while no data is sent or received
+                .idleTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        queryOptions.getDatabase().ifPresent(db -> req.param(DATABASE_PARAM, db));
+        queryOptions.maxExecutionTime().ifPresent(duration -> req.param(MAX_EXECUTION_TIME_PARAM, Long.toString(duration.toSeconds())));
+        setContentEncoding(req, queryOptions.requestCompression());
+
+        // Report upload progress, counting the bytes sent
+        final AtomicLong bytesSent = new AtomicLong();
+        queryOptions.progressListener().ifPresent(progressListener -> req.onRequestContent((request, buffer) ->
+        {
+            final QueryProgress progress = new QueryProgress(0, 0, 0, 0, bytesSent.addAndGet(buffer.remaining()));
+            if (!progressListener.progress(progress))
+            {
+                logger.info("Progress listener returned false for insert {}, aborting upload", queryId);
+                request.abort(new QueryAbortedException(queryId));
+            }
+        }));
+
+        final CompletableFuture<Void> uploaded = new CompletableFuture<>();
+        req.onRequestSuccess(request -> uploaded.complete(null));
+        req.onRequestFailure((request, failure) -> uploaded.complete(null));
+
+        final InputStreamResponseListener listener = new InputStreamResponseListener();
+        req.send(listener);
+        return new PendingInsert(req, listener, queryId, uploaded, bytesSent);
+    }
 
-        // Process response
+    private Request.Content queryContent(final String query, final QueryOptions queryOptions)
+    {
+        if (queryOptions.requestCompression() == Compression.NONE)
+        {
+            return new StringRequestContent(query);
+        }
+
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (final OutputStream out = compress(buffer, queryOptions))
+        {
+            out.write(query.getBytes(StandardCharsets.UTF_8));
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException(exc);
+        }
+        return new BytesRequestContent("text/plain;charset=UTF-8", buffer.toByteArray());
+    }
+
+    private OutputStream compress(final OutputStream target, final QueryOptions queryOptions)
+    {
+        return queryOptions.requestCompression().compress(target, queryOptions.compressionLevel().orElse(Deflater.DEFAULT_COMPRESSION));
+    }
+
+    private void setContentEncoding(final Request req, final Compression compression)
+    {
+        if (compression != Compression.NONE)
+        {
+            req.headers(headers -> headers.put(HttpHeader.CONTENT_ENCODING, compression.getEncoding()));
+        }
+    }
+
+    @Override
+    public TableDescription describe(final String table, final List<String> columns, final QueryOptions queryOptions)
+    {
+        final QueryOptions describeOptions = queryOptions.getDatabase().map(QueryOptions.DEFAULT::database).orElse(QueryOptions.DEFAULT);
+        final ResponseData responseData = sendRequest("DESCRIBE TABLE " + QueryUtil.quoteIdentifier(table), null, describeOptions, JsonResultReader.FORMAT_NAME, Map.of());
+        final ZoneId timeZone = getTimeZone(responseData);
+        final ResultSet description = new JsonResultReader(openContent(responseData, describeOptions), describeOptions, timeZone).read();
+        final Map<String, String> types = new HashMap<>();
+        description.forEach(row -> types.put(row.get("name", String.class), row.get("type", String.class)));
+
+        final List<MetaEntry> entries = new ArrayList<>(columns.size());
+        for (String column : columns)
+        {
+            final String type = types.get(column);
+            if (type == null)
+            {
+                throw new IllegalArgumentException("No column " + column + " in table " + table);
+            }
+            entries.add(new MetaEntry(column, type));
+        }
+        return new TableDescription(entries, timeZone);
+    }
+
+    private void awaitInsertResponse(final PendingInsert insert, final QueryOptions queryOptions)
+    {
+        final String queryId = insert.queryId();
+        try
+        {
+            // Bounded by the idle timeout of the request, the timeout then applies to the response as well
+            insert.uploaded().get();
+            final Response response = insert.listener().get(timeout.getSeconds(), TimeUnit.SECONDS);
+            final ResponseData responseData = new ResponseData(response, insert.listener());
+            final String body = getString(insert.listener().getInputStream());
+            assertSuccess(responseData.response(), body, queryOptions);
+
+            queryOptions.progressListener().ifPresent(progressListener ->
+                    Optional.ofNullable(response.getHeaders().get(CLICKHOUSE_SUMMARY_HEADER_NAME))
+                            .map(summary -> readJson(summary, QueryProgress.class))
+                            .ifPresent(summary -> progressListener.progress(new QueryProgress(0, 0, 0, summary.getWrittenRows(), insert.bytesSent().get()))));
+        }
+        catch (InterruptedException exc)
+        {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new IOException(exc));
+        }
+        catch (TimeoutException exc)
+        {
+            throw new QueryTimeoutException(queryId, timeout, null, "Insert " + queryId + " timed out after " + timeout.getSeconds() + " seconds");
+        }
+        catch (ExecutionException exc)
+        {
+            if (exc.getCause() instanceof QueryAbortedException aborted)
+            {
+                throw aborted;
+            }
+            if (exc.getCause() instanceof TimeoutException)
+            {
+                throw new QueryTimeoutException(queryId, timeout, null, "Insert " + queryId + " sent or received no data for " + timeout.getSeconds() + " seconds");
+            }
+            throw new UncheckedIOException(new IOException(exc.getCause()));
+        }
+    }
+
+    private RowReader openReader(final String query, final List<QueryParam> params, final QueryOptions queryOptions)
+    {
+        if (queryOptions.resultFormat() == ResultFormat.ROW_BINARY)
+        {
+            return openRowBinaryReader(query, params, queryOptions);
+        }
+        final ResponseData responseData = sendRequest(query, params, queryOptions, CompactJsonRowReader.FORMAT_NAME, Map.of());
+        return new CompactJsonRowReader(openContent(responseData, queryOptions), queryOptions);
+    }
+
+    private RowBinaryReader openRowBinaryReader(final String query, final List<QueryParam> params, final QueryOptions queryOptions)
+    {
+        final ResponseData responseData = sendRequest(query, params, queryOptions, RowBinaryReader.FORMAT_NAME, Map.of());
+        return new RowBinaryReader(openContent(responseData, queryOptions), getTimeZone(responseData), queryOptions);
+    }
+
+    private InputStream openContent(final ResponseData responseData, final QueryOptions queryOptions)
+    {
         final int status = responseData.response().getStatus();
-        final String body = getString(responseData.contentListener());
-        logger.trace("Response body data: {}", body);
+        if (status != HttpStatus.OK_200 || responseData.response().getHeaders().contains(CLICKHOUSE_EXCEPTION_CODE_HEADER_NAME))
+        {
+            assertSuccess(responseData.response(), getString(decompress(responseData)), queryOptions);
+        }
+        return decompress(responseData);
+    }
+
+    private InputStream decompress(final ResponseData responseData)
+    {
+        final String encoding = responseData.response().getHeaders().get(HttpHeader.CONTENT_ENCODING);
+        return Compression.forEncoding(encoding).decompress(responseData.contentListener().getInputStream());
+    }
 
-        final Optional<Integer> errorCode = Optional.ofNullable(responseData.response().getHeaders().get(CLICKHOUSE_EXCEPTION_CODE_HEADER_NAME)).map(Integer::parseInt);
+    private ZoneId getTimeZone(final ResponseData responseData)
+    {
+        return getTimeZone(responseData.response());
+    }
+
+    private ZoneId getTimeZone(final Response response)
+    {
+        return Optional.ofNullable(response.getHeaders().get(CLICKHOUSE_TIMEZONE_HEADER_NAME)).map(ZoneId::of).orElse(ZoneOffset.UTC);
+    }
+
+    private void assertSuccess(final Response response, final String body, final QueryOptions queryOptions)
+    {
+        final int status = response.getStatus();
+        final Optional<Integer> errorCode = Optional.ofNullable(response.getHeaders().get(CLICKHOUSE_EXCEPTION_CODE_HEADER_NAME)).map(Integer::parseInt);
         if (errorCode.isPresent())
         {
             final Optional<AbstractMap.SimpleImmutableEntry<Integer, String>> error = ClickHouseErrorParser.parseError(body);
-            throw ClickHouseErrorParser.handle(errorCode.get(), error.map(Map.Entry::getValue).orElse("Unknown error"), queryOptions, responseData.response());
+            throw ClickHouseErrorParser.handle(errorCode.get(), error.map(Map.Entry::getValue).orElse("Unknown error"), queryOptions, response);
         }
 
         if (status != HttpStatus.OK_200)
         {
             throw new UncheckedIOException(new IOException("No " + CLICKHOUSE_EXCEPTION_CODE_HEADER_NAME + " present and HTTP status was " + status + ": " + body));
         }
+    }
+
+    private ResponseData sendRequest(final String query, final List<QueryParam> params, final QueryOptions queryOptions, final String format, final Map<String, String> settings)
+    {
+        final QueryRequest queryRequest = newQueryRequest(query, params, queryOptions, format, settings, false);
+        final String queryId = queryRequest.queryId();
+        final AtomicReference<QueryProgress> lastSentProgress = queryRequest.lastSentProgress();
 
-        if (body.trim().isEmpty())
+        // Perform request
+        try
         {
-            logger.debug("No response body data");
-            return new ResultSet(QueryResult.EMPTY);
+            final InputStreamResponseListener listener = new InputStreamResponseListener();
+            queryRequest.request().send(listener);
+            final Response response = listener.get(timeout.getSeconds(), TimeUnit.SECONDS);
+            reportSummary(queryRequest, response);
+            return new ResponseData(response, listener);
+        }
+        catch (InterruptedException exc)
+        {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new IOException(exc));
+        }
+        catch (TimeoutException exc)
+        {
+            throw new QueryTimeoutException(queryId, timeout, lastSentProgress.get(), "Query " + queryId + " timed out after " + timeout.getSeconds() + " seconds with a query progress of " + lastSentProgress.get().getPercentDone() + "%");
+        }
+        catch (ExecutionException exc)
+        {
+            throw new UncheckedIOException(new IOException(exc.getCause()));
         }
-
-        final QueryResult jsonResult = readJson(body, QueryResult.class);
-        queryProgressListener.progress(new QueryProgress(jsonResult.getQueryStatistics().getRowsRead(), jsonResult.getQueryStatistics().getBytesRead(), jsonResult.getQueryStatistics().getTotalRowsToRead()));
-        return new ResultSet(jsonResult);
     }
 
-    private ResponseData sendRequest(final String query, final List<QueryParam> params, QueryOptions queryOptions)
+    private QueryRequest newQueryRequest(final String query, final List<QueryParam> params, QueryOptions queryOptions, final String format, final Map<String, String> settings, final boolean async)
     {
         final String queryId = queryOptions.queryId().orElse(UUID.randomUUID().toString());
         final String q = params != null ? QueryUtil.format(query, params) : query;
@@ -164,10 +651,21 @@ public class ClackShackImpl implements ClackShack
 
         final Request req = client.newRequest(baseUrl)
                 .method(HttpMethod.POST)
-                .param(QUERY_DEFAULT_FORMAT, "JSON")
+                .param(QUERY_DEFAULT_FORMAT, format)
                 .param(QUERY_ID_PARAM, Objects.requireNonNull(queryId, "queryId must not be null"))
                 .param(REPLACE_RUNNING_QUERY_PARAM, queryOptions.replaceQuery() ? "1" : "0")
-                .body(new StringRequestContent(q));
+                .body(queryContent(q, queryOptions));
+        settings.forEach(req::param);
+        setContentEncoding(req, queryOptions.requestCompression());
+
+        // Enable response compression
+        final Compression responseCompression = queryOptions.responseCompression();
+        if (responseCompression != Compression.NONE)
+        {
+            req.param(ENABLE_HTTP_COMPRESSION_PARAM, "1");
+            queryOptions.compressionLevel().ifPresent(level -> req.param(HTTP_ZLIB_COMPRESSION_LEVEL_PARAM, Integer.toString(level)));
+            req.headers(headers -> headers.put(HttpHeader.ACCEPT_ENCODING, responseCompression.getEncoding()));
+        }
 
         queryOptions.getDatabase().ifPresent(db ->
         {
@@ -195,7 +693,15 @@ public class ClackShackImpl implements ClackShack
                         if (!continueProcessing && !killedMarker.get())
                         {
                             logger.info("Progress listener returned false for query {}, attempting to kill query", queryId);
-                            killQuery(queryId, true);
+                            if (async)
+                            {
+                                // Listeners run on a thread of the HTTP client, which an asynchronous query must not block
+                                killQueryAsync(queryId);
+                            }
+                            else
+                            {
+                                killQuery(queryId, true);
+                            }
                             killedMarker.set(true);
                             throw new QueryAbortedException(queryId);
                         }
@@ -217,42 +723,59 @@ public class ClackShackImpl implements ClackShack
                                 .orElse(null)
                 )));
 
-        // Perform request
-        try
-        {
-            final InputStreamResponseListener listener = new InputStreamResponseListener();
-            req.send(listener);
-            final Response response = listener.get(timeout.getSeconds(), TimeUnit.SECONDS);
+        return new QueryRequest(req, queryId, queryOptions, killedMarker, lastSentProgress);
+    }
 
-            // Send final notification when done
-            if (!killedMarker.get())
+    private void killQueryAsync(final String queryId)
+    {
+        queryAsync("KILL QUERY WHERE query_id = :queryId SYNC", Map.of("queryId", queryId)).whenComplete((resultSet, exc) ->
+        {
+            if (exc != null)
             {
-                Optional.ofNullable(response).flatMap(contentResponse -> Optional.ofNullable(contentResponse.getHeaders().get(CLICKHOUSE_SUMMARY_HEADER_NAME))
-                        .map(summary -> readJson(summary, QueryProgress.class))).ifPresent(summary ->
-                {
-                    final QueryProgress finalProgress = new QueryProgress(summary.getReadRows(), summary.getReadBytes(), summary.getTotalRowsToRead());
-                    if (!finalProgress.equals(lastSentProgress.get()))
-                    {
-                        queryProgressListener.progress(finalProgress);
-                    }
-                });
+                logger.warn("Unable to kill query {}", queryId, exc);
             }
+        });
+    }
 
-            return new ResponseData(response, listener);
-        }
-        catch (InterruptedException exc)
-        {
-            Thread.currentThread().interrupt();
-            throw new UncheckedIOException(new IOException(exc));
-        }
-        catch (TimeoutException exc)
+    /**
+     * Abort the request if the response headers have not arrived within the timeout, which is how the blocking query
+     * methods apply it as well. Reading the content is not limited in time.
+     */
+    private void abortWithoutHeaders(final QueryRequest queryRequest)
+    {
+        final Request req = queryRequest.request();
+        final Scheduler.Task task = client.getScheduler().schedule(() ->
+                req.abort(new TimeoutException("No response headers received within " + timeout)), timeout);
+        req.onResponseHeaders(response -> task.cancel());
+        req.onComplete(result -> task.cancel());
+    }
+
+    private void reportSummary(final QueryRequest queryRequest, final Response response)
+    {
+        // Send final notification when done
+        final QueryProgressListener queryProgressListener = queryRequest.queryOptions().progressListener().orElse(QueryProgressListener.NOP);
+        if (!queryRequest.killedMarker().get())
         {
-            throw new QueryTimeoutException(queryId, timeout, lastSentProgress.get(), "Query " + queryId + " timed out after " + timeout.getSeconds() + " seconds with a query progress of " + lastSentProgress.get().getPercentDone() + "%");
+            Optional.ofNullable(response).flatMap(contentResponse -> Optional.ofNullable(contentResponse.getHeaders().get(CLICKHOUSE_SUMMARY_HEADER_NAME))
+                    .map(summary -> readJson(summary, QueryProgress.class))).ifPresent(summary ->
+            {
+                final QueryProgress finalProgress = new QueryProgress(summary.getReadRows(), summary.getReadBytes(), summary.getTotalRowsToRead(), summary.getWrittenRows(), 0);
+                if (!finalProgress.equals(queryRequest.lastSentProgress().get()))
+                {
+                    queryProgressListener.progress(finalProgress);
+                }
+            });
         }
-        catch (ExecutionException exc)
+    }
+
+    private RuntimeException toQueryException(final QueryRequest queryRequest, final Throwable failure)
+    {
+        if (failure instanceof TimeoutException)
         {
-            throw new UncheckedIOException(new IOException(exc.getCause()));
+            final String queryId = queryRequest.queryId();
+            return new QueryTimeoutException(queryId, timeout, queryRequest.lastSentProgress().get(), "Query " + queryId + " timed out after " + timeout.getSeconds() + " seconds");
         }
+        return failure instanceof RuntimeException ? (RuntimeException) failure : new UncheckedIOException(new IOException(failure));
     }
 
     @Override
@@ -267,4 +790,334 @@ public class ClackShackImpl implements ClackShack
             throw new UncheckedIOException(new IOException("Error while closing HTTP client", e));
         }
     }
+
+    @FunctionalInterface
+    private interface InsertBody
+    {
+        /**
+         * Write the request body and close the stream
+         *
+         * @param out The request body
+         * @return The number of rows or bytes written
+         */
+        long write(OutputStream out);
+    }
+
+    private record PendingInsert(Request request, InputStreamResponseListener listener, String queryId, CompletableFuture<Void> uploaded, AtomicLong bytesSent)
+    {
+    }
+
+    private record QueryRequest(Request request, String queryId, QueryOptions queryOptions, AtomicBoolean killedMarker, AtomicReference<QueryProgress> lastSentProgress)
+    {
+    }
+
+    /**
+     * Decodes a result as its content arrives, completing a future rather than blocking a thread
+     */
+    private class AsyncQueryListener implements Response.Listener
+    {
+        private final QueryRequest queryRequest;
+        private final CompletableFuture<ResultSet> future;
+        private AsyncJsonResultReader reader;
+        private ByteArrayOutputStream errorBody;
+
+        AsyncQueryListener(final QueryRequest queryRequest, final CompletableFuture<ResultSet> future)
+        {
+            this.queryRequest = queryRequest;
+            this.future = future;
+        }
+
+        @Override
+        public void onHeaders(final Response response)
+        {
+            if (response.getStatus() != HttpStatus.OK_200 || response.getHeaders().contains(CLICKHOUSE_EXCEPTION_CODE_HEADER_NAME))
+            {
+                errorBody = new ByteArrayOutputStream();
+            }
+            else
+            {
+                reader = new AsyncJsonResultReader(queryRequest.queryOptions(), getTimeZone(response));
+            }
+        }
+
+        @Override
+        public void onContent(final Response response, final ByteBuffer content)
+        {
+            if (errorBody != null)
+            {
+                final byte[] data = new byte[content.remaining()];
+                content.get(data);
+                errorBody.writeBytes(data);
+            }
+            else
+            {
+                reader.feed(content);
+            }
+        }
+
+        @Override
+        public void onComplete(final Result result)
+        {
+            if (result.isFailed())
+            {
+                future.completeExceptionally(toQueryException(queryRequest, result.getFailure()));
+                return;
+            }
+
+            try
+            {
+                final Response response = result.getResponse();
+                if (errorBody != null)
+                {
+                    assertSuccess(response, errorBody.toString(StandardCharsets.UTF_8), queryRequest.queryOptions());
+                }
+                reportSummary(queryRequest, response);
+                final ResultSet resultSet = reader.finish();
+                queryRequest.queryOptions().progressListener().ifPresent(listener -> Optional.ofNullable(reader.getStatistics()).ifPresent(statistics ->
+                        listener.progress(new QueryProgress(statistics.getRowsRead(), statistics.getBytesRead(), statistics.getTotalRowsToRead()))));
+                future.complete(resultSet);
+            }
+            catch (RuntimeException exc)
+            {
+                future.completeExceptionally(exc);
+            }
+        }
+    }
+
+    /**
+     * Reads the response content only while the subscriber has outstanding demand, so that the TCP receive window, and
+     * not memory, absorbs a slow subscriber. All signals are serialized through {@link #drain()}.
+     */
+    private class RowSubscription implements Flow.Subscription
+    {
+        private final QueryRequest queryRequest;
+        private final Flow.Subscriber<? super Row> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final Queue<Row> rows = new ArrayDeque<>();
+        private volatile Response response;
+        private volatile Content.Source source;
+        private volatile Result result;
+        private volatile RuntimeException invalidRequest;
+        private volatile boolean cancelled;
+        private volatile boolean awaitingContent;
+        private AsyncCompactJsonRowReader reader;
+        private ByteArrayOutputStream errorBody;
+        private boolean endOfContent;
+        private boolean done;
+
+        RowSubscription(final QueryRequest queryRequest, final Flow.Subscriber<? super Row> subscriber)
+        {
+            this.queryRequest = queryRequest;
+            this.subscriber = subscriber;
+        }
+
+        void start()
+        {
+            final Request req = queryRequest.request();
+            req.onResponseContentSource((response, source) ->
+            {
+                this.response = response;
+                this.source = source;
+                drain();
+            });
+            subscriber.onSubscribe(this);
+            if (!cancelled)
+            {
+                req.send(result ->
+                {
+                    this.result = result;
+                    drain();
+                });
+            }
+        }
+
+        @Override
+        public void request(final long n)
+        {
+            if (n <= 0)
+            {
+                invalidRequest = new IllegalArgumentException("Requested number of rows must be positive, was " + n);
+            }
+            else
+            {
+                requested.getAndUpdate(current -> Long.MAX_VALUE - current < n ? Long.MAX_VALUE : current + n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel()
+        {
+            if (!cancelled)
+            {
+                cancelled = true;
+                queryRequest.request().abort(new CancellationException("Subscription cancelled"));
+                drain();
+            }
+        }
+
+        private void drain()
+        {
+            if (pending.getAndIncrement() != 0)
+            {
+                return;
+            }
+
+            int missed = 1;
+            do
+            {
+                try
+                {
+                    pump();
+                }
+                catch (RuntimeException exc)
+                {
+                    fail(exc);
+                }
+                missed = pending.addAndGet(-missed);
+            }
+            while (missed != 0);
+        }
+
+        private void pump()
+        {
+            while (!done)
+            {
+                if (cancelled)
+                {
+                    done = true;
+                    rows.clear();
+                    return;
+                }
+
+                if (invalidRequest != null)
+                {
+                    fail(invalidRequest);
+                    return;
+                }
+
+                if (!rows.isEmpty())
+                {
+                    if (requested.get() == 0)
+                    {
+                        return;
+                    }
+                    if (requested.get() != Long.MAX_VALUE)
+                    {
+                        requested.decrementAndGet();
+                    }
+                    subscriber.onNext(rows.poll());
+                    continue;
+                }
+
+                final Result completed = result;
+                if (completed != null && completed.isFailed())
+                {
+                    fail(toQueryException(queryRequest, completed.getFailure()));
+                    return;
+                }
+
+                if (endOfContent)
+                {
+                    if (completed != null)
+                    {
+                        complete(completed.getResponse());
+                    }
+                    return;
+                }
+
+                final Content.Source content = source;
+                if (content == null || awaitingContent || (errorBody == null && reader != null && requested.get() == 0))
+                {
+                    return;
+                }
+                read(content);
+            }
+        }
+
+        private void read(final Content.Source content)
+        {
+            if (reader == null && errorBody == null)
+            {
+                if (response.getStatus() != HttpStatus.OK_200 || response.getHeaders().contains(CLICKHOUSE_EXCEPTION_CODE_HEADER_NAME))
+                {
+                    errorBody = new ByteArrayOutputStream();
+                }
+                else
+                {
+                    reader = new AsyncCompactJsonRowReader(queryRequest.queryOptions(), rows::add);
+                }
+                return;
+            }
+
+            final Content.Chunk chunk = content.read();
+            if (chunk == null)
+            {
+                awaitingContent = true;
+                content.demand(() ->
+                {
+                    awaitingContent = false;
+                    drain();
+                });
+                return;
+            }
+
+            if (Content.Chunk.isFailure(chunk))
+            {
+                fail(toQueryException(queryRequest, chunk.getFailure()));
+                return;
+            }
+
+            try
+            {
+                final ByteBuffer data = chunk.getByteBuffer();
+                if (errorBody != null)
+                {
+                    final byte[] bytes = new byte[data.remaining()];
+                    data.get(bytes);
+                    errorBody.writeBytes(bytes);
+                }
+                else
+                {
+                    reader.feed(data);
+                }
+
+                if (chunk.isLast())
+                {
+                    endOfContent = true;
+                    if (reader != null)
+                    {
+                        reader.finish();
+                    }
+                }
+            }
+            finally
+            {
+                chunk.release();
+            }
+        }
+
+        private void complete(final Response completedResponse)
+        {
+            if (errorBody != null)
+            {
+                assertSuccess(completedResponse, errorBody.toString(StandardCharsets.UTF_8), queryRequest.queryOptions());
+            }
+            reportSummary(queryRequest, completedResponse);
+            done = true;
+            subscriber.onComplete();
+        }
+
+        private void fail(final RuntimeException exc)
+        {
+            if (!done)
+            {
+                done = true;
+                rows.clear();
+                queryRequest.request().abort(exc);
+                subscriber.onError(exc);
+            }
+        }
+    }
 }
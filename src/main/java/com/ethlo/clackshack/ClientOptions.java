@@ -0,0 +1,95 @@
+package com.ethlo.clackshack;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Options of the HTTP client of a {@link ClackShackImpl}
+ */
+public class ClientOptions
+{
+    public static final ClientOptions DEFAULT = new ClientOptions(false, 64, 1024);
+
+    private final boolean virtualThreads;
+    private final int maxConnections;
+    private final int maxQueuedRequests;
+
+    private ClientOptions(final boolean virtualThreads, final int maxConnections, final int maxQueuedRequests)
+    {
+        if (maxConnections < 1 || maxQueuedRequests < 1)
+        {
+            throw new IllegalArgumentException("Max connections and queued requests must be positive");
+        }
+        this.virtualThreads = virtualThreads;
+        this.maxConnections = maxConnections;
+        this.maxQueuedRequests = maxQueuedRequests;
+    }
+
+    public static ClientOptions create()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Whether the HTTP client, and thereby progress listeners and kill requests, runs its tasks on virtual threads.
+     * Requires Java 21 or later, and is ignored with a warning on earlier versions.
+     *
+     * @return Whether the HTTP client runs its tasks on virtual threads
+     */
+    public boolean virtualThreads()
+    {
+        return virtualThreads;
+    }
+
+    /**
+     * The maximum number of connections to the server
+     *
+     * @return The maximum number of connections to the server
+     */
+    public int maxConnections()
+    {
+        return maxConnections;
+    }
+
+    /**
+     * The number of requests that may wait for a connection before new requests are rejected
+     *
+     * @return The number of requests that may wait for a connection
+     */
+    public int maxQueuedRequests()
+    {
+        return maxQueuedRequests;
+    }
+
+    public ClientOptions virtualThreads(final boolean virtualThreads)
+    {
+        return new ClientOptions(virtualThreads, this.maxConnections, this.maxQueuedRequests);
+    }
+
+    public ClientOptions maxConnections(final int maxConnections)
+    {
+        return new ClientOptions(this.virtualThreads, maxConnections, this.maxQueuedRequests);
+    }
+
+    public ClientOptions maxQueuedRequests(final int maxQueuedRequests)
+    {
+        return new ClientOptions(this.virtualThreads, this.maxConnections, maxQueuedRequests);
+    }
+}
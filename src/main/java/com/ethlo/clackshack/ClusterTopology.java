@@ -0,0 +1,108 @@
+package com.ethlo.clackshack;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The shards of a ClickHouse cluster and the HTTP endpoints of their replicas, in the order of the cluster definition.
+ * Rows are assigned to shards the way a <code>Distributed</code> table does it: the sharding key, taken as an unsigned
+ * 64-bit value, modulo the total weight selects a slot, and each shard owns as many consecutive slots as its weight.
+ */
+public class ClusterTopology
+{
+    private final List<Shard> shards;
+    private final int[] slotToShard;
+
+    private ClusterTopology(final List<Shard> shards)
+    {
+        if (shards.isEmpty())
+        {
+            throw new IllegalArgumentException("A cluster must have at least one shard");
+        }
+        this.shards = List.copyOf(shards);
+
+        final int totalWeight = shards.stream().mapToInt(Shard::weight).sum();
+        this.slotToShard = new int[totalWeight];
+        int slot = 0;
+        for (int i = 0; i < shards.size(); i++)
+        {
+            Arrays.fill(slotToShard, slot, slot + shards.get(i).weight(), i);
+            slot += shards.get(i).weight();
+        }
+    }
+
+    public static ClusterTopology of(final List<Shard> shards)
+    {
+        return new ClusterTopology(shards);
+    }
+
+    public static ClusterTopology of(final Shard... shards)
+    {
+        return new ClusterTopology(Arrays.asList(shards));
+    }
+
+    public List<Shard> getShards()
+    {
+        return shards;
+    }
+
+    /**
+     * The shard a row with the given sharding key is inserted into
+     *
+     * @param shardingKey The value of the sharding key expression, taken as unsigned
+     * @return The index of the shard
+     */
+    public int shardOf(final long shardingKey)
+    {
+        return slotToShard[(int) Long.remainderUnsigned(shardingKey, slotToShard.length)];
+    }
+
+    /**
+     * A shard and the endpoints of its replicas
+     *
+     * @param weight    The weight of the shard, as in the cluster definition
+     * @param endpoints The base URLs of the HTTP interface of each replica, tried in turn when one fails
+     */
+    public record Shard(int weight, List<String> endpoints)
+    {
+        public Shard
+        {
+            if (weight < 1)
+            {
+                throw new IllegalArgumentException("Shard weight must be positive: " + weight);
+            }
+            if (endpoints.isEmpty())
+            {
+                throw new IllegalArgumentException("A shard must have at least one endpoint");
+            }
+            endpoints = List.copyOf(endpoints);
+        }
+
+        public static Shard of(final int weight, final String... endpoints)
+        {
+            return new Shard(weight, new ArrayList<>(Arrays.asList(Objects.requireNonNull(endpoints))));
+        }
+    }
+}
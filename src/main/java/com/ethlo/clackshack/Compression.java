@@ -0,0 +1,183 @@
+package com.ethlo.clackshack;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * HTTP content encodings supported for data sent to and received from ClickHouse
+ */
+public enum Compression
+{
+    NONE(null),
+
+    GZIP("gzip"),
+
+    /**
+     * The zlib format, as used by the HTTP <code>deflate</code> content encoding
+     */
+    DEFLATE("deflate");
+
+    private static final int BUFFER_SIZE = 65_536;
+
+    private final String encoding;
+
+    Compression(final String encoding)
+    {
+        this.encoding = encoding;
+    }
+
+    /**
+     * The value of the <code>Content-Encoding</code> header
+     *
+     * @return The value of the <code>Content-Encoding</code> header, or null if not compressed
+     */
+    public String getEncoding()
+    {
+        return encoding;
+    }
+
+    /**
+     * Find the compression of a <code>Content-Encoding</code> header
+     *
+     * @param encoding The value of the header, may be null
+     * @return The compression of the encoding
+     * @throws IllegalArgumentException if the encoding is not supported
+     */
+    public static Compression forEncoding(final String encoding)
+    {
+        if (encoding == null || encoding.isEmpty() || "identity".equalsIgnoreCase(encoding))
+        {
+            return NONE;
+        }
+        for (Compression compression : values())
+        {
+            if (encoding.equalsIgnoreCase(compression.encoding))
+            {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported content encoding: " + encoding);
+    }
+
+    /**
+     * Wrap a stream so data written to it is compressed, with the default compression level
+     *
+     * @param target The target of the compressed data
+     * @return The stream to write uncompressed data to
+     * @see #compress(OutputStream, int)
+     */
+    public OutputStream compress(final OutputStream target)
+    {
+        return compress(target, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Wrap a stream so data written to it is compressed. Compressed data is passed on in large chunks, and closing the
+     * returned stream finishes the compressed data and closes the target.
+     *
+     * @param target The target of the compressed data
+     * @param level  The compression level, from 1 (fastest) to 9 (smallest)
+     * @return The stream to write uncompressed data to
+     */
+    public OutputStream compress(final OutputStream target, final int level)
+    {
+        try
+        {
+            return switch (this)
+            {
+                case NONE -> target;
+                case GZIP -> new GZIPOutputStream(new BufferedOutputStream(target, BUFFER_SIZE), BUFFER_SIZE)
+                {
+                    {
+                        def.setLevel(level);
+                    }
+                };
+                case DEFLATE -> new DeflaterOutputStream(new BufferedOutputStream(target, BUFFER_SIZE), new Deflater(level), BUFFER_SIZE)
+                {
+                    @Override
+                    public void close() throws IOException
+                    {
+                        try
+                        {
+                            super.close();
+                        }
+                        finally
+                        {
+                            def.end();
+                        }
+                    }
+                };
+            };
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    /**
+     * Wrap a stream of compressed data so it is decompressed incrementally as it is read
+     *
+     * @param source The compressed data
+     * @return The stream to read uncompressed data from
+     */
+    public InputStream decompress(final InputStream source)
+    {
+        try
+        {
+            return switch (this)
+            {
+                case NONE -> source;
+                case GZIP -> new GZIPInputStream(source, BUFFER_SIZE);
+                case DEFLATE -> new InflaterInputStream(source, new Inflater(), BUFFER_SIZE)
+                {
+                    @Override
+                    public void close() throws IOException
+                    {
+                        try
+                        {
+                            super.close();
+                        }
+                        finally
+                        {
+                            inf.end();
+                        }
+                    }
+                };
+            };
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException(exc);
+        }
+    }
+}
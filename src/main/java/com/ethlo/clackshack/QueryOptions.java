@@ -21,25 +21,53 @@ package com.ethlo.clackshack;
  */
 
 import java.time.Duration;
+import java.util.Objects;
 import java.util.Optional;
 
 public class QueryOptions
 {
-    public static final QueryOptions DEFAULT = new QueryOptions(null, null, false, null, null);
+    public static final QueryOptions DEFAULT = new QueryOptions(null, null, false, null, null, ResultFormat.JSON, false, false, false, false, false, Compression.NONE, Compression.NONE, null);
 
     private final String database;
     private final String queryId;
     private final boolean replaceQuery;
     private final Duration maxExecutionTime;
     private final QueryProgressListener progressListener;
+    private final ResultFormat resultFormat;
+    private final boolean lazyConversion;
+    private final boolean typedCollections;
+    private final boolean rawUnsignedLongs;
+    private final boolean scaledDecimals;
+    private final boolean dictionaryStrings;
+    private final Compression requestCompression;
+    private final Compression responseCompression;
+    private final Integer compressionLevel;
 
     public QueryOptions(final String database, final String queryId, final boolean replaceQuery, final Duration maxExecutionTime, final QueryProgressListener progressListener)
+    {
+        this(database, queryId, replaceQuery, maxExecutionTime, progressListener, ResultFormat.JSON, false, false, false, false, false, Compression.NONE, Compression.NONE, null);
+    }
+
+    private QueryOptions(final String database, final String queryId, final boolean replaceQuery, final Duration maxExecutionTime, final QueryProgressListener progressListener, final ResultFormat resultFormat, final boolean lazyConversion, final boolean typedCollections, final boolean rawUnsignedLongs, final boolean scaledDecimals, final boolean dictionaryStrings, final Compression requestCompression, final Compression responseCompression, final Integer compressionLevel)
     {
         this.database = database;
         this.queryId = queryId;
         this.replaceQuery = replaceQuery;
         this.maxExecutionTime = maxExecutionTime;
         this.progressListener = progressListener;
+        this.resultFormat = Objects.requireNonNull(resultFormat, "resultFormat cannot be null");
+        this.lazyConversion = lazyConversion;
+        this.typedCollections = typedCollections;
+        this.rawUnsignedLongs = rawUnsignedLongs;
+        this.scaledDecimals = scaledDecimals;
+        this.dictionaryStrings = dictionaryStrings;
+        this.requestCompression = Objects.requireNonNull(requestCompression, "requestCompression cannot be null");
+        this.responseCompression = Objects.requireNonNull(responseCompression, "responseCompression cannot be null");
+        if (compressionLevel != null && (compressionLevel < 1 || compressionLevel > 9))
+        {
+            throw new IllegalArgumentException("compressionLevel must be between 1 and 9: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
     }
 
     public static QueryOptions create()
@@ -92,19 +120,110 @@ public class QueryOptions
         return Optional.ofNullable(progressListener);
     }
 
+    /**
+     * The wire format used for the query result
+     *
+     * @return The wire format used for the query result
+     */
+    public ResultFormat resultFormat()
+    {
+        return resultFormat;
+    }
+
+    /**
+     * Whether values of non-numeric columns are kept in their raw form and only converted on first access
+     *
+     * @return True if conversion is deferred until a value is read
+     */
+    public boolean lazyConversion()
+    {
+        return lazyConversion;
+    }
+
+    /**
+     * Whether <code>Array</code>, <code>Map</code>, <code>Tuple</code> and <code>Nested</code> values of JSON results
+     * are decoded into typed collections and primitive arrays rather than JSON nodes
+     *
+     * @return True if nested values are decoded by their type
+     */
+    public boolean typedCollections()
+    {
+        return typedCollections;
+    }
+
+    /**
+     * Whether <code>UInt64</code> values are returned as a <code>Long</code> holding the raw 64 bits, rather than a {@link java.math.BigInteger}
+     *
+     * @return True if unsigned 64-bit values are returned as their raw bits
+     */
+    public boolean rawUnsignedLongs()
+    {
+        return rawUnsignedLongs;
+    }
+
+    /**
+     * Whether <code>Decimal</code> values of up to 18 digits in JSON results are kept as unscaled <code>long</code>s
+     *
+     * @return True if decimals are kept as unscaled values
+     */
+    public boolean scaledDecimals()
+    {
+        return scaledDecimals;
+    }
+
+    /**
+     * Whether all string columns are dictionary encoded, not only <code>LowCardinality</code> and <code>Enum</code> columns
+     *
+     * @return True if all string columns are dictionary encoded
+     */
+    public boolean dictionaryStrings()
+    {
+        return dictionaryStrings;
+    }
+
+    /**
+     * The content encoding of request bodies, both query text and insert data
+     *
+     * @return The content encoding of request bodies
+     */
+    public Compression requestCompression()
+    {
+        return requestCompression;
+    }
+
+    /**
+     * The content encoding requested for responses, which are decompressed as they are read
+     *
+     * @return The content encoding requested for responses
+     */
+    public Compression responseCompression()
+    {
+        return responseCompression;
+    }
+
+    /**
+     * The compression level, from 1 (fastest) to 9 (smallest), if other than the default
+     *
+     * @return The compression level, if other than the default
+     */
+    public Optional<Integer> compressionLevel()
+    {
+        return Optional.ofNullable(compressionLevel);
+    }
+
     public QueryOptions progressListener(QueryProgressListener progressListener)
     {
-        return new QueryOptions(this.database, this.queryId, this.replaceQuery, this.maxExecutionTime, progressListener);
+        return new QueryOptions(this.database, this.queryId, this.replaceQuery, this.maxExecutionTime, progressListener, this.resultFormat, this.lazyConversion, this.typedCollections, this.rawUnsignedLongs, this.scaledDecimals, this.dictionaryStrings, this.requestCompression, this.responseCompression, this.compressionLevel);
     }
 
     public QueryOptions queryId(final String queryId)
     {
-        return new QueryOptions(this.database, queryId, this.replaceQuery, this.maxExecutionTime, progressListener);
+        return new QueryOptions(this.database, queryId, this.replaceQuery, this.maxExecutionTime, progressListener, this.resultFormat, this.lazyConversion, this.typedCollections, this.rawUnsignedLongs, this.scaledDecimals, this.dictionaryStrings, this.requestCompression, this.responseCompression, this.compressionLevel);
     }
 
     public QueryOptions maxExecutionTime(final Duration maxExecutionTime)
     {
-        return new QueryOptions(this.database, queryId, this.replaceQuery, maxExecutionTime, progressListener);
+        return new QueryOptions(this.database, queryId, this.replaceQuery, maxExecutionTime, progressListener, this.resultFormat, this.lazyConversion, this.typedCollections, this.rawUnsignedLongs, this.scaledDecimals, this.dictionaryStrings, this.requestCompression, this.responseCompression, this.compressionLevel);
     }
 
     public QueryOptions replaceQuery(final boolean replaceQuery)
@@ -113,11 +232,113 @@ public class QueryOptions
         {
             throw new IllegalStateException("queryId is required when using replaceQuery");
         }
-        return new QueryOptions(this.database, this.queryId, replaceQuery, maxExecutionTime, progressListener);
+        return new QueryOptions(this.database, this.queryId, replaceQuery, maxExecutionTime, progressListener, this.resultFormat, this.lazyConversion, this.typedCollections, this.rawUnsignedLongs, this.scaledDecimals, this.dictionaryStrings, this.requestCompression, this.responseCompression, this.compressionLevel);
     }
 
     public QueryOptions database(String database)
     {
-        return new QueryOptions(database, this.queryId, this.replaceQuery, this.maxExecutionTime, this.progressListener);
+        return new QueryOptions(database, this.queryId, this.replaceQuery, this.maxExecutionTime, this.progressListener, this.resultFormat, this.lazyConversion, this.typedCollections, this.rawUnsignedLongs, this.scaledDecimals, this.dictionaryStrings, this.requestCompression, this.responseCompression, this.compressionLevel);
+    }
+
+    public QueryOptions resultFormat(ResultFormat resultFormat)
+    {
+        return new QueryOptions(this.database, this.queryId, this.replaceQuery, this.maxExecutionTime, this.progressListener, resultFormat, this.lazyConversion, this.typedCollections, this.rawUnsignedLongs, this.scaledDecimals, this.dictionaryStrings, this.requestCompression, this.responseCompression, this.compressionLevel);
+    }
+
+    /**
+     * Defer type conversion of non-numeric columns until a value is first read. Converted values are memoised, so the
+     * cost is proportional to the cells actually accessed. Applies to {@link ResultFormat#JSON} results.
+     *
+     * @param lazyConversion True to convert on first access
+     * @return The new options
+     */
+    public QueryOptions lazyConversion(final boolean lazyConversion)
+    {
+        return new QueryOptions(this.database, this.queryId, this.replaceQuery, this.maxExecutionTime, this.progressListener, this.resultFormat, lazyConversion, this.typedCollections, this.rawUnsignedLongs, this.scaledDecimals, this.dictionaryStrings, this.requestCompression, this.responseCompression, this.compressionLevel);
+    }
+
+    /**
+     * Decode nested values of JSON results by their type, see {@link com.ethlo.clackshack.format.JsonDecoders}
+     *
+     * @param typedCollections True to decode into typed collections and primitive arrays
+     * @return The new options
+     */
+    public QueryOptions typedCollections(final boolean typedCollections)
+    {
+        return new QueryOptions(this.database, this.queryId, this.replaceQuery, this.maxExecutionTime, this.progressListener, this.resultFormat, this.lazyConversion, typedCollections, this.rawUnsignedLongs, this.scaledDecimals, this.dictionaryStrings, this.requestCompression, this.responseCompression, this.compressionLevel);
+    }
+
+    /**
+     * Return <code>UInt64</code> values as a <code>Long</code> holding the raw 64 bits, avoiding a {@link java.math.BigInteger}
+     * per value. Values above {@link Long#MAX_VALUE} appear negative, use {@link com.ethlo.clackshack.util.UnsignedLongs}
+     * to print or compare them as unsigned.
+     *
+     * @param rawUnsignedLongs True to return the raw bits
+     * @return The new options
+     */
+    public QueryOptions rawUnsignedLongs(final boolean rawUnsignedLongs)
+    {
+        return new QueryOptions(this.database, this.queryId, this.replaceQuery, this.maxExecutionTime, this.progressListener, this.resultFormat, this.lazyConversion, this.typedCollections, rawUnsignedLongs, this.scaledDecimals, this.dictionaryStrings, this.requestCompression, this.responseCompression, this.compressionLevel);
+    }
+
+    /**
+     * Keep <code>Decimal</code> values of up to 18 digits in JSON results as unscaled <code>long</code>s with the scale of
+     * the column type, see {@link com.ethlo.clackshack.model.Column.DecimalColumn}. A <code>BigDecimal</code> is only
+     * created when a value is read, and always has the scale of the column type.
+     *
+     * @param scaledDecimals True to keep decimals as unscaled values
+     * @return The new options
+     */
+    public QueryOptions scaledDecimals(final boolean scaledDecimals)
+    {
+        return new QueryOptions(this.database, this.queryId, this.replaceQuery, this.maxExecutionTime, this.progressListener, this.resultFormat, this.lazyConversion, this.typedCollections, this.rawUnsignedLongs, scaledDecimals, this.dictionaryStrings, this.requestCompression, this.responseCompression, this.compressionLevel);
+    }
+
+    /**
+     * Decode all string columns through a per-column dictionary, so equal values share one instance. This is always done
+     * for <code>LowCardinality</code> and <code>Enum</code> columns, and pays off for other columns with few distinct values.
+     *
+     * @param dictionaryStrings True to dictionary encode all string columns
+     * @return The new options
+     */
+    public QueryOptions dictionaryStrings(final boolean dictionaryStrings)
+    {
+        return new QueryOptions(this.database, this.queryId, this.replaceQuery, this.maxExecutionTime, this.progressListener, this.resultFormat, this.lazyConversion, this.typedCollections, this.rawUnsignedLongs, this.scaledDecimals, dictionaryStrings, this.requestCompression, this.responseCompression, this.compressionLevel);
+    }
+
+    /**
+     * Compress request bodies, which mainly pays off for inserts of text heavy data over slow links. Insert data is
+     * compressed as it is streamed, so compression overlaps with sending.
+     *
+     * @param requestCompression The content encoding of request bodies
+     * @return The new options
+     */
+    public QueryOptions requestCompression(final Compression requestCompression)
+    {
+        return new QueryOptions(this.database, this.queryId, this.replaceQuery, this.maxExecutionTime, this.progressListener, this.resultFormat, this.lazyConversion, this.typedCollections, this.rawUnsignedLongs, this.scaledDecimals, this.dictionaryStrings, requestCompression, this.responseCompression, this.compressionLevel);
+    }
+
+    /**
+     * Ask ClickHouse to compress responses, using <code>enable_http_compression</code>. The response is decompressed
+     * incrementally as it streams in, which pays off for large results over slow links.
+     *
+     * @param responseCompression The content encoding requested for responses
+     * @return The new options
+     */
+    public QueryOptions responseCompression(final Compression responseCompression)
+    {
+        return new QueryOptions(this.database, this.queryId, this.replaceQuery, this.maxExecutionTime, this.progressListener, this.resultFormat, this.lazyConversion, this.typedCollections, this.rawUnsignedLongs, this.scaledDecimals, this.dictionaryStrings, this.requestCompression, responseCompression, this.compressionLevel);
+    }
+
+    /**
+     * The compression level of both compressed requests and responses, sent as <code>http_zlib_compression_level</code>
+     * for the latter
+     *
+     * @param compressionLevel The compression level, from 1 (fastest) to 9 (smallest)
+     * @return The new options
+     */
+    public QueryOptions compressionLevel(final int compressionLevel)
+    {
+        return new QueryOptions(this.database, this.queryId, this.replaceQuery, this.maxExecutionTime, this.progressListener, this.resultFormat, this.lazyConversion, this.typedCollections, this.rawUnsignedLongs, this.scaledDecimals, this.dictionaryStrings, this.requestCompression, this.responseCompression, compressionLevel);
     }
 }
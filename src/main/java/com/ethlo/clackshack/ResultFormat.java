@@ -0,0 +1,39 @@
+package com.ethlo.clackshack;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * The wire format requested from ClickHouse for query results
+ */
+public enum ResultFormat
+{
+    /**
+     * Text based JSON formats. Values are rendered as text by ClickHouse and parsed back by {@link com.ethlo.clackshack.model.DataTypes}.
+     */
+    JSON,
+
+    /**
+     * The <code>RowBinaryWithNamesAndTypes</code> format. Values are read directly from their binary representation, which
+     * is considerably cheaper for numeric data both on the server and the client. Note that <code>Array</code>,
+     * <code>Map</code> and <code>Tuple</code> values are returned as {@link java.util.List} and {@link java.util.Map}.
+     */
+    ROW_BINARY
+}
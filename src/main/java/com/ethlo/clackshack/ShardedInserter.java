@@ -0,0 +1,214 @@
+package com.ethlo.clackshack;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Inserts directly into the local tables of the shards of a cluster, rather than through a <code>Distributed</code> table
+ * that would have to split and forward every block. Each batch is partitioned by the sharding key, see
+ * {@link ClusterTopology}, and the partitions are inserted in parallel, each over the connection of its own shard.
+ * When a replica fails with an I/O error, the next replica of the shard is tried. Rows may then be inserted twice unless
+ * the local tables are replicated with insert deduplication, which is the ClickHouse default.
+ *
+ * @param <T> The type of the rows, see {@link com.ethlo.clackshack.format.RowBinaryWriter} for the supported types
+ */
+public class ShardedInserter<T> implements AutoCloseable
+{
+    private static final Logger logger = LoggerFactory.getLogger(ShardedInserter.class);
+
+    private final ClusterTopology topology;
+    private final String localTable;
+    private final List<String> columns;
+    private final ToLongFunction<? super T> shardingKey;
+    private final QueryOptions queryOptions;
+    private final ClackShack[][] replicas;
+    private final AtomicInteger[] preferredReplica;
+    private final ExecutorService executor;
+
+    /**
+     * @param topology     The shards of the cluster
+     * @param localTable   The local table on each shard
+     * @param columns      The columns to insert, in the order of the values of a row
+     * @param shardingKey  The sharding key of the <code>Distributed</code> table, evaluated for a row
+     * @param queryOptions The query options for each insert
+     * @param timeout      The timeout of each insert
+     */
+    public ShardedInserter(final ClusterTopology topology, final String localTable, final List<String> columns, final ToLongFunction<? super T> shardingKey, final QueryOptions queryOptions, final Duration timeout)
+    {
+        this(topology, localTable, columns, shardingKey, queryOptions, endpoint -> new ClackShackImpl(endpoint, null, timeout));
+    }
+
+    /**
+     * @param topology      The shards of the cluster
+     * @param localTable    The local table on each shard
+     * @param columns       The columns to insert, in the order of the values of a row
+     * @param shardingKey   The sharding key of the <code>Distributed</code> table, evaluated for a row
+     * @param queryOptions  The query options for each insert
+     * @param clientFactory Creates the client of an endpoint. The clients are closed with this inserter.
+     */
+    public ShardedInserter(final ClusterTopology topology, final String localTable, final List<String> columns, final ToLongFunction<? super T> shardingKey, final QueryOptions queryOptions, final Function<String, ClackShack> clientFactory)
+    {
+        this.topology = topology;
+        this.localTable = localTable;
+        this.columns = List.copyOf(columns);
+        this.shardingKey = shardingKey;
+        this.queryOptions = queryOptions;
+
+        final List<ClusterTopology.Shard> shards = topology.getShards();
+        this.replicas = new ClackShack[shards.size()][];
+        this.preferredReplica = new AtomicInteger[shards.size()];
+        for (int i = 0; i < shards.size(); i++)
+        {
+            replicas[i] = shards.get(i).endpoints().stream().map(clientFactory).toArray(ClackShack[]::new);
+            preferredReplica[i] = new AtomicInteger();
+        }
+
+        final AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(shards.size(), runnable ->
+        {
+            final Thread thread = new Thread(runnable, "clackshack-shard-insert-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Insert a batch of rows, waiting for all shards to complete
+     *
+     * @param rows The rows to insert
+     * @return The number of rows inserted
+     * @throws RuntimeException the error of the first shard that failed, with those of other failed shards suppressed.
+     *                          The rows of other shards are inserted regardless.
+     */
+    public long insert(final Iterable<? extends T> rows)
+    {
+        final List<List<T>> partitions = partition(rows);
+        final List<CompletableFuture<Long>> inserts = new ArrayList<>(partitions.size());
+        for (int shard = 0; shard < partitions.size(); shard++)
+        {
+            final List<T> partition = partitions.get(shard);
+            if (!partition.isEmpty())
+            {
+                final int shardIndex = shard;
+                inserts.add(CompletableFuture.supplyAsync(() -> insert(shardIndex, partition), executor));
+            }
+        }
+
+        long inserted = 0;
+        RuntimeException error = null;
+        for (CompletableFuture<Long> insert : inserts)
+        {
+            try
+            {
+                inserted += insert.join();
+            }
+            catch (CompletionException exc)
+            {
+                final RuntimeException cause = exc.getCause() instanceof RuntimeException runtimeException ? runtimeException : exc;
+                if (error == null)
+                {
+                    error = cause;
+                }
+                else
+                {
+                    error.addSuppressed(cause);
+                }
+            }
+        }
+        if (error != null)
+        {
+            throw error;
+        }
+        return inserted;
+    }
+
+    List<List<T>> partition(final Iterable<? extends T> rows)
+    {
+        final int shardCount = topology.getShards().size();
+        final List<List<T>> partitions = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++)
+        {
+            partitions.add(new ArrayList<>());
+        }
+        for (T row : rows)
+        {
+            partitions.get(topology.shardOf(shardingKey.applyAsLong(row))).add(row);
+        }
+        return partitions;
+    }
+
+    private long insert(final int shard, final List<T> rows)
+    {
+        final ClackShack[] shardReplicas = replicas[shard];
+        final int first = preferredReplica[shard].get();
+        UncheckedIOException lastError = null;
+        for (int attempt = 0; attempt < shardReplicas.length; attempt++)
+        {
+            final int replica = (first + attempt) % shardReplicas.length;
+            try
+            {
+                final long inserted = shardReplicas[replica].insert(localTable, columns, rows.iterator(), queryOptions);
+                preferredReplica[shard].set(replica);
+                return inserted;
+            }
+            catch (UncheckedIOException exc)
+            {
+                logger.warn("Insert of {} rows into shard {} failed on {}: {}", rows.size(), shard + 1, topology.getShards().get(shard).endpoints().get(replica), exc.getMessage());
+                if (lastError != null)
+                {
+                    exc.addSuppressed(lastError);
+                }
+                lastError = exc;
+            }
+        }
+        throw lastError;
+    }
+
+    /**
+     * Close the clients of all endpoints
+     */
+    @Override
+    public void close()
+    {
+        executor.shutdown();
+        for (ClackShack[] shardReplicas : replicas)
+        {
+            for (ClackShack replica : shardReplicas)
+            {
+                replica.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.ethlo.clackshack.arrow;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.arrow.memory.BufferAllocator;
+
+import com.ethlo.clackshack.ClackShackImpl;
+import com.ethlo.clackshack.QueryOptions;
+import com.ethlo.clackshack.model.QueryParam;
+
+/**
+ * Arrow queries. The result is transferred in the ClickHouse <code>ArrowStream</code> format and exposed as off-heap
+ * Arrow vectors, one record batch at a time. Kept apart from the {@link com.ethlo.clackshack.ClackShack} interface, so
+ * that only users of this class need Apache Arrow on the classpath.
+ */
+public final class ArrowQueries
+{
+    private ArrowQueries()
+    {
+    }
+
+    /**
+     * Arrow query method. The returned result holds an open HTTP response and must be closed.
+     *
+     * @param clackShack   The client to query with
+     * @param query        The SQL query
+     * @param params       The named parameters for the query
+     * @param queryOptions The query options for this query
+     * @param allocator    The allocator for the vector memory, which remains owned by the caller
+     * @return The result as Arrow record batches
+     */
+    public static ArrowResultSet query(final ClackShackImpl clackShack, final String query, final List<QueryParam> params, final QueryOptions queryOptions, final BufferAllocator allocator)
+    {
+        return new ArrowResultSet(clackShack.queryRaw(query, params, queryOptions, ArrowResultSet.FORMAT_NAME, settings()), allocator);
+    }
+
+    /**
+     * Arrow query method, using an allocator that is released when the result is closed
+     *
+     * @param clackShack   The client to query with
+     * @param query        The SQL query
+     * @param params       The named parameters for the query
+     * @param queryOptions The query options for this query
+     * @return The result as Arrow record batches
+     */
+    public static ArrowResultSet query(final ClackShackImpl clackShack, final String query, final List<QueryParam> params, final QueryOptions queryOptions)
+    {
+        return new ArrowResultSet(clackShack.queryRaw(query, params, queryOptions, ArrowResultSet.FORMAT_NAME, settings()));
+    }
+
+    /**
+     * Arrow query method, using an allocator that is released when the result is closed
+     *
+     * @param clackShack The client to query with
+     * @param query      The SQL query
+     * @return The result as Arrow record batches
+     */
+    public static ArrowResultSet query(final ClackShackImpl clackShack, final String query)
+    {
+        return query(clackShack, query, Collections.emptyList(), QueryOptions.DEFAULT);
+    }
+
+    private static Map<String, String> settings()
+    {
+        return Map.of(ArrowResultSet.STRING_AS_STRING_SETTING, "1");
+    }
+}
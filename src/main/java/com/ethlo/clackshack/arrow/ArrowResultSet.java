@@ -0,0 +1,159 @@
+package com.ethlo.clackshack.arrow;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowReader;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+/**
+ * A query result in the ClickHouse <code>ArrowStream</code> format. Record batches are read one at a time from the
+ * response into off-heap Arrow vectors, so the values never exist as Java objects and can be handed to other Arrow
+ * consumers without copying.
+ * <p>
+ * The vectors of the current batch are only valid until the next call to {@link #loadNextBatch()} or {@link #close()}.
+ * Apache Arrow requires <code>--add-opens=java.base/java.nio=ALL-UNNAMED</code> on Java 17 and later.
+ */
+public class ArrowResultSet implements AutoCloseable
+{
+    public static final String FORMAT_NAME = "ArrowStream";
+    public static final String STRING_AS_STRING_SETTING = "output_format_arrow_string_as_string";
+
+    private final BufferAllocator allocator;
+    private final boolean ownsAllocator;
+    private final ArrowStreamReader reader;
+
+    /**
+     * Read the stream using a new allocator that is released when this result is closed
+     *
+     * @param inputStream The response body
+     */
+    public ArrowResultSet(final InputStream inputStream)
+    {
+        this(inputStream, new RootAllocator(), true);
+    }
+
+    /**
+     * Read the stream using the given allocator, which remains owned by the caller
+     *
+     * @param inputStream The response body
+     * @param allocator   The allocator for the vector memory
+     */
+    public ArrowResultSet(final InputStream inputStream, final BufferAllocator allocator)
+    {
+        this(inputStream, allocator, false);
+    }
+
+    private ArrowResultSet(final InputStream inputStream, final BufferAllocator allocator, final boolean ownsAllocator)
+    {
+        this.allocator = allocator;
+        this.ownsAllocator = ownsAllocator;
+        this.reader = new ArrowStreamReader(inputStream, allocator);
+    }
+
+    public Schema getSchema()
+    {
+        try
+        {
+            return reader.getVectorSchemaRoot().getSchema();
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException("Unable to read Arrow schema", exc);
+        }
+    }
+
+    /**
+     * Load the next record batch into the {@link #getVectorSchemaRoot()}
+     *
+     * @return true if a batch was loaded, false at the end of the result
+     */
+    public boolean loadNextBatch()
+    {
+        try
+        {
+            return reader.loadNextBatch();
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException("Unable to read Arrow record batch", exc);
+        }
+    }
+
+    /**
+     * The vectors of the current record batch
+     *
+     * @return The vectors of the current record batch
+     */
+    public VectorSchemaRoot getVectorSchemaRoot()
+    {
+        try
+        {
+            return reader.getVectorSchemaRoot();
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException("Unable to read Arrow schema", exc);
+        }
+    }
+
+    /**
+     * The underlying reader, for handing the stream to other Arrow based consumers
+     *
+     * @return The underlying reader
+     */
+    public ArrowReader getReader()
+    {
+        return reader;
+    }
+
+    public BufferAllocator getAllocator()
+    {
+        return allocator;
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            reader.close();
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException(exc);
+        }
+        finally
+        {
+            if (ownsAllocator)
+            {
+                allocator.close();
+            }
+        }
+    }
+}
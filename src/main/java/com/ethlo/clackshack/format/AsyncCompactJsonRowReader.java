@@ -0,0 +1,167 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.ethlo.clackshack.QueryOptions;
+import com.ethlo.clackshack.model.MetaEntry;
+import com.ethlo.clackshack.model.Row;
+import com.ethlo.clackshack.model.RowSchema;
+import com.ethlo.clackshack.util.JsonUtil;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Reads the <code>JSONCompactEachRowWithNamesAndTypes</code> format from chunks that are pushed as they arrive. The
+ * tokens of each line are collected by a non-blocking parser, and every row is decoded and passed on as soon as its
+ * line is complete, so only the row currently being received is buffered.
+ */
+public class AsyncCompactJsonRowReader
+{
+    private final QueryOptions queryOptions;
+    private final Consumer<Row> rowConsumer;
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+    private TokenBuffer line;
+    private int depth;
+    private String[] names;
+    private List<MetaEntry> meta;
+    private RowSchema schema;
+    private JsonDecoder[] decoders;
+
+    /**
+     * @param queryOptions The options controlling decoding of nested values
+     * @param rowConsumer  Receives every row as soon as it is decoded
+     */
+    public AsyncCompactJsonRowReader(final QueryOptions queryOptions, final Consumer<Row> rowConsumer)
+    {
+        this.queryOptions = queryOptions;
+        this.rowConsumer = rowConsumer;
+        this.parser = JsonUtil.createNonBlockingParser();
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Read the next chunk of the result. The chunk is fully consumed, and the rows completed by it are passed on, before
+     * this method returns.
+     *
+     * @param chunk The next chunk of the result
+     */
+    public void feed(final ByteBuffer chunk)
+    {
+        try
+        {
+            feeder.feedInput(chunk);
+            drain();
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException("Unable to read row data", exc);
+        }
+    }
+
+    /**
+     * Signal the end of the result
+     */
+    public void finish()
+    {
+        try (parser)
+        {
+            feeder.endOfInput();
+            drain();
+            if (depth != 0)
+            {
+                throw new IOException("Unexpected end of row data");
+            }
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException("Unable to read row data", exc);
+        }
+    }
+
+    /**
+     * The column names and types, available once the header lines are read
+     *
+     * @return The columns, or null if the header is not yet read
+     */
+    public List<MetaEntry> getMeta()
+    {
+        return meta;
+    }
+
+    private void drain() throws IOException
+    {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE)
+        {
+            if (depth == 0)
+            {
+                line = new TokenBuffer(parser);
+            }
+            line.copyCurrentEvent(parser);
+            if (token.isStructStart())
+            {
+                depth++;
+            }
+            else if (token.isStructEnd())
+            {
+                depth--;
+            }
+
+            if (depth == 0)
+            {
+                complete(line);
+                line = null;
+            }
+        }
+    }
+
+    private void complete(final TokenBuffer tokens) throws IOException
+    {
+        try (JsonParser lineParser = tokens.asParser())
+        {
+            lineParser.nextToken();
+            if (names == null)
+            {
+                names = JsonUtil.readValue(lineParser, String[].class);
+            }
+            else if (meta == null)
+            {
+                final String[] types = JsonUtil.readValue(lineParser, String[].class);
+                meta = CompactJsonRowReader.meta(names, types);
+                schema = RowSchema.of(meta);
+                decoders = CompactJsonRowReader.decoders(types, queryOptions);
+            }
+            else
+            {
+                rowConsumer.accept(CompactJsonRowReader.readRow(lineParser, schema, decoders));
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.ZoneId;
+
+import com.ethlo.clackshack.QueryOptions;
+import com.ethlo.clackshack.model.QueryStatistics;
+import com.ethlo.clackshack.model.ResultSet;
+import com.ethlo.clackshack.util.JsonUtil;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Reads a <code>JSON</code> result that is pushed in chunks as they arrive, without blocking a thread while waiting for
+ * data. Each chunk is tokenized right away by a non-blocking parser, so text and numbers are decoded as the content
+ * arrives, and the columns are built from the compact token buffer when the result is complete.
+ */
+public class AsyncJsonResultReader
+{
+    private final JsonResultReader reader;
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+    private final TokenBuffer tokens;
+
+    /**
+     * @param queryOptions The options controlling lazy conversion and decoding of nested values
+     * @param timeZone     The time zone of date-time values without an explicit time zone parameter
+     */
+    public AsyncJsonResultReader(final QueryOptions queryOptions, final ZoneId timeZone)
+    {
+        this.reader = new JsonResultReader(null, queryOptions, timeZone);
+        this.parser = JsonUtil.createNonBlockingParser();
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+        this.tokens = new TokenBuffer(parser);
+    }
+
+    /**
+     * Tokenize the next chunk of the result. The chunk is fully consumed before this method returns.
+     *
+     * @param chunk The next chunk of the result
+     */
+    public void feed(final ByteBuffer chunk)
+    {
+        try
+        {
+            feeder.feedInput(chunk);
+            drain();
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException("Unable to read JSON result", exc);
+        }
+    }
+
+    /**
+     * Signal the end of the result and build it from the tokens read
+     *
+     * @return The result
+     */
+    public ResultSet finish()
+    {
+        try (parser)
+        {
+            feeder.endOfInput();
+            drain();
+            return reader.read(tokens.asParser());
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException("Unable to read JSON result", exc);
+        }
+    }
+
+    /**
+     * The statistics section of the result, available after {@link #finish()}
+     *
+     * @return The statistics, or null if none was present
+     */
+    public QueryStatistics getStatistics()
+    {
+        return reader.getStatistics();
+    }
+
+    private void drain() throws IOException
+    {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE)
+        {
+            tokens.copyCurrentEvent(parser);
+        }
+    }
+}
@@ -0,0 +1,514 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+
+import com.ethlo.clackshack.QueryOptions;
+import com.ethlo.clackshack.model.Column;
+import com.ethlo.clackshack.model.ColumnType;
+import com.ethlo.clackshack.util.IpAddresses;
+import com.ethlo.clackshack.util.UnsignedLongs;
+
+/**
+ * Collects the values of one column of a binary result, keeping the built-in numeric and string types in primitive
+ * arrays. Values are read a block at a time from the <code>Native</code> format, or a row at a time from the
+ * <code>RowBinary</code> format, which share the layout of a single scalar value.
+ */
+abstract class BinaryColumnBuilder
+{
+    private static final int INITIAL_CAPACITY = 1024;
+
+    protected final String name;
+    protected final String type;
+    private final boolean nullable;
+    protected BitSet nulls;
+    protected int size;
+
+    BinaryColumnBuilder(final String name, final String type, final boolean nullable)
+    {
+        this.name = name;
+        this.type = type;
+        this.nullable = nullable;
+        this.nulls = nullable ? new BitSet() : null;
+    }
+
+    static BinaryColumnBuilder of(final String name, final String typeName, final ColumnType outer, final ZoneId timeZone, final QueryOptions queryOptions)
+    {
+        final boolean nullable = outer.getName().equals("Nullable");
+        final ColumnType type = nullable ? outer.getNestedType(0) : outer;
+        return switch (type.getName())
+        {
+            case "UInt8" -> new IntBuilder(name, typeName, nullable, in -> in.readUnsignedByte(), v -> (short) v);
+            case "Int8" -> new IntBuilder(name, typeName, nullable, BinaryInput::readByte, v -> (byte) v);
+            case "UInt16" -> new IntBuilder(name, typeName, nullable, BinaryInput::readUnsignedShort, Integer::valueOf);
+            case "Int16" -> new IntBuilder(name, typeName, nullable, BinaryInput::readShort, Integer::valueOf);
+            case "Int32" -> new IntBuilder(name, typeName, nullable, BinaryInput::readInt, Integer::valueOf);
+            case "UInt32" -> new LongBuilder(name, typeName, nullable, BinaryInput::readUnsignedInt, Long::valueOf);
+            case "Int64" -> new LongBuilder(name, typeName, nullable, BinaryInput::readLong, Long::valueOf);
+            case "UInt64" -> new LongBuilder(name, typeName, nullable, BinaryInput::readLong, queryOptions.rawUnsignedLongs() ? Long::valueOf : UnsignedLongs::toBigInteger);
+            case "Int128" -> new WideIntegerBuilder(name, typeName, nullable, 2, false);
+            case "UInt128" -> new WideIntegerBuilder(name, typeName, nullable, 2, true);
+            case "Int256" -> new WideIntegerBuilder(name, typeName, nullable, 4, false);
+            case "UInt256" -> new WideIntegerBuilder(name, typeName, nullable, 4, true);
+            case "Float32" -> new DoubleBuilder(name, typeName, nullable, true);
+            case "Float64" -> new DoubleBuilder(name, typeName, nullable, false);
+            case "Bool" -> new IntBuilder(name, typeName, nullable, in -> in.readUnsignedByte(), v -> v != 0);
+            case "Date" -> new IntBuilder(name, typeName, nullable, BinaryInput::readUnsignedShort, LocalDate::ofEpochDay);
+            case "Date32" -> new IntBuilder(name, typeName, nullable, BinaryInput::readInt, LocalDate::ofEpochDay);
+            case "DateTime" ->
+            {
+                final LongFunction<Object> converter = BinaryDecoders.dateTime(type, timeZone)::apply;
+                yield new LongBuilder(name, typeName, nullable, BinaryInput::readUnsignedInt, converter);
+            }
+            case "DateTime64" ->
+            {
+                final LongFunction<Object> converter = BinaryDecoders.dateTime64(type, timeZone)::apply;
+                yield new LongBuilder(name, typeName, nullable, BinaryInput::readLong, converter);
+            }
+            case "IPv4" -> new IntBuilder(name, typeName, nullable, BinaryInput::readInt, IpAddresses::toInet4Address);
+            case "IPv6" -> new Ipv6Builder(name, typeName, nullable);
+            case "Enum8" ->
+            {
+                final Map<Integer, String> names = BinaryDecoders.enumValues(type);
+                yield new IntBuilder(name, typeName, nullable, BinaryInput::readByte, names::get);
+            }
+            case "Enum16" ->
+            {
+                final Map<Integer, String> names = BinaryDecoders.enumValues(type);
+                yield new IntBuilder(name, typeName, nullable, BinaryInput::readShort, names::get);
+            }
+            case "Decimal", "Decimal32", "Decimal64" ->
+            {
+                final int precision = BinaryDecoders.decimalPrecision(type);
+                final int scale = BinaryDecoders.decimalScale(type);
+                if (precision <= 18)
+                {
+                    yield new DecimalBuilder(name, typeName, nullable, precision <= 9 ? BinaryInput::readInt : BinaryInput::readLong, scale);
+                }
+                yield new ObjectBuilder(name, typeName, outer, timeZone, queryOptions);
+            }
+            case "String" -> new DictionaryBuilder(name, typeName, nullable, BinaryInput::readString);
+            case "FixedString" ->
+            {
+                final int length = type.getIntParameter(0);
+                yield new DictionaryBuilder(name, typeName, nullable, in -> in.readFixedString(length));
+            }
+            default -> new ObjectBuilder(name, typeName, outer, timeZone, queryOptions);
+        };
+    }
+
+    /**
+     * Read a block of the <code>Native</code> format, where the null map of a nullable column precedes its values
+     */
+    void readBlock(final BinaryInput in, final int rows) throws IOException
+    {
+        if (nullable)
+        {
+            for (int i = 0; i < rows; i++)
+            {
+                if (in.readUnsignedByte() != 0)
+                {
+                    nulls.set(size + i);
+                }
+            }
+        }
+        ensureCapacity(size + rows);
+        readValues(in, size, size + rows);
+        size += rows;
+    }
+
+    /**
+     * Read a value of the <code>RowBinary</code> format, where a null flag precedes each value of a nullable column and
+     * a null is not followed by a value
+     */
+    void readRow(final BinaryInput in) throws IOException
+    {
+        ensureCapacity(size + 1);
+        if (nullable && in.readUnsignedByte() != 0)
+        {
+            nulls.set(size);
+        }
+        else
+        {
+            readValues(in, size, size + 1);
+        }
+        size++;
+    }
+
+    protected int capacity(final int current, final int required)
+    {
+        return Math.max(Math.max(current * 2, required), INITIAL_CAPACITY);
+    }
+
+    protected abstract void ensureCapacity(int required);
+
+    protected abstract void readValues(BinaryInput in, int from, int to) throws IOException;
+
+    abstract Column build();
+
+    @FunctionalInterface
+    private interface IntReader
+    {
+        int read(BinaryInput input) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface LongReader
+    {
+        long read(BinaryInput input) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface StringReader
+    {
+        String read(BinaryInput input) throws IOException;
+    }
+
+    private static class IntBuilder extends BinaryColumnBuilder
+    {
+        private final IntReader reader;
+        private final IntFunction<Object> boxer;
+        private int[] values = new int[0];
+
+        IntBuilder(final String name, final String type, final boolean nullable, final IntReader reader, final IntFunction<Object> boxer)
+        {
+            super(name, type, nullable);
+            this.reader = reader;
+            this.boxer = boxer;
+        }
+
+        @Override
+        protected void ensureCapacity(final int required)
+        {
+            if (required > values.length)
+            {
+                values = Arrays.copyOf(values, capacity(values.length, required));
+            }
+        }
+
+        @Override
+        protected void readValues(final BinaryInput in, final int from, final int to) throws IOException
+        {
+            for (int i = from; i < to; i++)
+            {
+                values[i] = reader.read(in);
+            }
+        }
+
+        @Override
+        Column build()
+        {
+            return new Column.IntColumn(name, type, values, size, nulls, boxer);
+        }
+    }
+
+    private static class LongBuilder extends BinaryColumnBuilder
+    {
+        private final LongReader reader;
+        private final LongFunction<Object> boxer;
+        private long[] values = new long[0];
+
+        LongBuilder(final String name, final String type, final boolean nullable, final LongReader reader, final LongFunction<Object> boxer)
+        {
+            super(name, type, nullable);
+            this.reader = reader;
+            this.boxer = boxer;
+        }
+
+        @Override
+        protected void ensureCapacity(final int required)
+        {
+            if (required > values.length)
+            {
+                values = Arrays.copyOf(values, capacity(values.length, required));
+            }
+        }
+
+        @Override
+        protected void readValues(final BinaryInput in, final int from, final int to) throws IOException
+        {
+            for (int i = from; i < to; i++)
+            {
+                values[i] = reader.read(in);
+            }
+        }
+
+        @Override
+        Column build()
+        {
+            return new Column.LongColumn(name, type, values, size, nulls, boxer);
+        }
+    }
+
+    private static class DecimalBuilder extends BinaryColumnBuilder
+    {
+        private final LongReader reader;
+        private final int scale;
+        private long[] unscaled = new long[0];
+
+        DecimalBuilder(final String name, final String type, final boolean nullable, final LongReader reader, final int scale)
+        {
+            super(name, type, nullable);
+            this.reader = reader;
+            this.scale = scale;
+        }
+
+        @Override
+        protected void ensureCapacity(final int required)
+        {
+            if (required > unscaled.length)
+            {
+                unscaled = Arrays.copyOf(unscaled, capacity(unscaled.length, required));
+            }
+        }
+
+        @Override
+        protected void readValues(final BinaryInput in, final int from, final int to) throws IOException
+        {
+            for (int i = from; i < to; i++)
+            {
+                unscaled[i] = reader.read(in);
+            }
+        }
+
+        @Override
+        Column build()
+        {
+            return new Column.DecimalColumn(name, type, unscaled, scale, size, nulls);
+        }
+    }
+
+    private static class DoubleBuilder extends BinaryColumnBuilder
+    {
+        private final boolean singlePrecision;
+        private double[] values = new double[0];
+
+        DoubleBuilder(final String name, final String type, final boolean nullable, final boolean singlePrecision)
+        {
+            super(name, type, nullable);
+            this.singlePrecision = singlePrecision;
+        }
+
+        @Override
+        protected void ensureCapacity(final int required)
+        {
+            if (required > values.length)
+            {
+                values = Arrays.copyOf(values, capacity(values.length, required));
+            }
+        }
+
+        @Override
+        protected void readValues(final BinaryInput in, final int from, final int to) throws IOException
+        {
+            for (int i = from; i < to; i++)
+            {
+                values[i] = singlePrecision ? in.readFloat() : in.readDouble();
+            }
+        }
+
+        @Override
+        Column build()
+        {
+            return new Column.DoubleColumn(name, type, values, size, nulls, singlePrecision);
+        }
+    }
+
+    private static class Ipv6Builder extends BinaryColumnBuilder
+    {
+        private long[] high = new long[0];
+        private long[] low = new long[0];
+
+        Ipv6Builder(final String name, final String type, final boolean nullable)
+        {
+            super(name, type, nullable);
+        }
+
+        @Override
+        protected void ensureCapacity(final int required)
+        {
+            if (required > high.length)
+            {
+                high = Arrays.copyOf(high, capacity(high.length, required));
+                low = Arrays.copyOf(low, high.length);
+            }
+        }
+
+        @Override
+        protected void readValues(final BinaryInput in, final int from, final int to) throws IOException
+        {
+            for (int i = from; i < to; i++)
+            {
+                // Network byte order, while readLong is little-endian
+                high[i] = Long.reverseBytes(in.readLong());
+                low[i] = Long.reverseBytes(in.readLong());
+            }
+        }
+
+        @Override
+        Column build()
+        {
+            return new Column.Ipv6Column(name, type, high, low, size, nulls);
+        }
+    }
+
+    private static class WideIntegerBuilder extends BinaryColumnBuilder
+    {
+        private final int width;
+        private final boolean unsigned;
+        private long[] words = new long[0];
+
+        WideIntegerBuilder(final String name, final String type, final boolean nullable, final int width, final boolean unsigned)
+        {
+            super(name, type, nullable);
+            this.width = width;
+            this.unsigned = unsigned;
+        }
+
+        @Override
+        protected void ensureCapacity(final int required)
+        {
+            if (required * width > words.length)
+            {
+                words = Arrays.copyOf(words, capacity(words.length / width, required) * width);
+            }
+        }
+
+        @Override
+        protected void readValues(final BinaryInput in, final int from, final int to) throws IOException
+        {
+            // Little-endian on the wire, the least significant word first
+            final int end = to * width;
+            for (int i = from * width; i < end; i++)
+            {
+                words[i] = in.readLong();
+            }
+        }
+
+        @Override
+        Column build()
+        {
+            return new Column.WideIntegerColumn(name, type, words, width, unsigned, size, nulls);
+        }
+    }
+
+    private static class DictionaryBuilder extends BinaryColumnBuilder
+    {
+        private final StringReader reader;
+        private final StringDictionary dictionary = new StringDictionary();
+        private int[] values = new int[0];
+
+        DictionaryBuilder(final String name, final String type, final boolean nullable, final StringReader reader)
+        {
+            super(name, type, nullable);
+            this.reader = reader;
+        }
+
+        @Override
+        protected void ensureCapacity(final int required)
+        {
+            if (required > values.length)
+            {
+                values = Arrays.copyOf(values, capacity(values.length, required));
+            }
+        }
+
+        @Override
+        protected void readValues(final BinaryInput in, final int from, final int to) throws IOException
+        {
+            for (int i = from; i < to; i++)
+            {
+                values[i] = dictionary.code(reader.read(in));
+            }
+        }
+
+        @Override
+        Column build()
+        {
+            return new Column.StringColumn(name, type, values, size, nulls, dictionary.values());
+        }
+    }
+
+    /**
+     * Composite and less common types, kept as objects. The nulls of a nullable type are part of the decoded values.
+     */
+    private static class ObjectBuilder extends BinaryColumnBuilder
+    {
+        private final ColumnType columnType;
+        private final ZoneId timeZone;
+        private final QueryOptions queryOptions;
+        private BinaryDecoder decoder;
+        private Object[] values = new Object[0];
+
+        ObjectBuilder(final String name, final String type, final ColumnType columnType, final ZoneId timeZone, final QueryOptions queryOptions)
+        {
+            super(name, type, false);
+            this.columnType = columnType;
+            this.timeZone = timeZone;
+            this.queryOptions = queryOptions;
+        }
+
+        @Override
+        void readBlock(final BinaryInput in, final int rows) throws IOException
+        {
+            // Composite values are laid out column-wise within a block
+            ensureCapacity(size + rows);
+            System.arraycopy(NativeReader.readObjects(columnType, in, rows, timeZone, queryOptions), 0, values, size, rows);
+            size += rows;
+        }
+
+        @Override
+        protected void ensureCapacity(final int required)
+        {
+            if (required > values.length)
+            {
+                values = Arrays.copyOf(values, capacity(values.length, required));
+            }
+        }
+
+        @Override
+        protected void readValues(final BinaryInput in, final int from, final int to) throws IOException
+        {
+            if (decoder == null)
+            {
+                decoder = BinaryDecoders.forType(columnType, timeZone, queryOptions);
+            }
+            for (int i = from; i < to; i++)
+            {
+                values[i] = decoder.read(in);
+            }
+        }
+
+        @Override
+        Column build()
+        {
+            return new Column.ObjectColumn(name, type, values, size);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.Inet6Address;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongFunction;
+
+import com.ethlo.clackshack.QueryOptions;
+import com.ethlo.clackshack.model.ColumnType;
+import com.ethlo.clackshack.model.Int128;
+import com.ethlo.clackshack.model.Int256;
+import com.ethlo.clackshack.util.DateTimes;
+import com.ethlo.clackshack.util.IpAddresses;
+import com.ethlo.clackshack.util.UnsignedLongs;
+
+/**
+ * Builds {@link BinaryDecoder}s for the <code>RowBinary</code> family of formats. The Java types produced match the
+ * ones produced by {@link com.ethlo.clackshack.model.DataTypes} for the JSON formats, except for <code>Array</code>,
+ * <code>Map</code> and <code>Tuple</code> which are returned as {@link List} and {@link Map} instances.
+ */
+public class BinaryDecoders
+{
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L};
+
+    /**
+     * Create a decoder for the type
+     *
+     * @param type     The ClickHouse type string, for example <code>Array(Nullable(String))</code>
+     * @param timeZone The time zone used for date-time values when the type does not specify one
+     * @return A decoder for the type
+     */
+    public static BinaryDecoder forType(final String type, final ZoneId timeZone)
+    {
+        return forType(ColumnType.of(type), timeZone);
+    }
+
+    public static BinaryDecoder forType(final ColumnType type, final ZoneId timeZone)
+    {
+        return forType(type, timeZone, QueryOptions.DEFAULT);
+    }
+
+    /**
+     * Create a decoder for a type, honouring the value representation choices of the query options
+     *
+     * @param type         The type
+     * @param timeZone     The time zone used for date-time values when the type does not specify one
+     * @param queryOptions The query options
+     * @return A decoder for the type
+     */
+    public static BinaryDecoder forType(final ColumnType type, final ZoneId timeZone, final QueryOptions queryOptions)
+    {
+        return switch (type.getName())
+        {
+            case "UInt8" -> in -> (short) in.readUnsignedByte();
+            case "Int8" -> BinaryInput::readByte;
+            case "UInt16" -> BinaryInput::readUnsignedShort;
+            case "Int16" -> in -> (int) in.readShort();
+            case "UInt32" -> BinaryInput::readUnsignedInt;
+            case "Int32" -> BinaryInput::readInt;
+            case "UInt64" -> queryOptions.rawUnsignedLongs() ? BinaryInput::readLong : in -> UnsignedLongs.toBigInteger(in.readLong());
+            case "Int64" -> BinaryInput::readLong;
+            case "Int128" -> in -> readInt128(in, false);
+            case "UInt128" -> in -> readInt128(in, true);
+            case "Int256" -> in -> Int256.of(in.readLong(), in.readLong(), in.readLong(), in.readLong());
+            case "UInt256" -> in -> Int256.ofUnsigned(in.readLong(), in.readLong(), in.readLong(), in.readLong());
+            case "Float32" -> BinaryInput::readFloat;
+            case "Float64" -> BinaryInput::readDouble;
+            case "Bool" -> in -> in.readUnsignedByte() != 0;
+            case "String" -> queryOptions.dictionaryStrings() ? interning(BinaryInput::readString) : BinaryInput::readString;
+            case "FixedString" ->
+            {
+                final int length = type.getIntParameter(0);
+                final BinaryDecoder decoder = in -> in.readFixedString(length);
+                yield queryOptions.dictionaryStrings() ? interning(decoder) : decoder;
+            }
+            case "UUID" -> in -> new UUID(in.readLong(), in.readLong());
+            case "IPv4" -> in -> IpAddresses.toInet4Address(in.readInt());
+            case "IPv6" -> BinaryDecoders::readIpv6;
+            case "Date" -> in -> LocalDate.ofEpochDay(in.readUnsignedShort());
+            case "Date32" -> in -> LocalDate.ofEpochDay(in.readInt());
+            case "DateTime" ->
+            {
+                final LongFunction<LocalDateTime> converter = dateTime(type, timeZone);
+                yield in -> converter.apply(in.readUnsignedInt());
+            }
+            case "DateTime64" ->
+            {
+                final LongFunction<LocalDateTime> converter = dateTime64(type, timeZone);
+                yield in -> converter.apply(in.readLong());
+            }
+            case "Decimal", "Decimal32", "Decimal64", "Decimal128", "Decimal256" -> decimal(decimalPrecision(type), decimalScale(type));
+            case "Enum8" ->
+            {
+                final Map<Integer, String> names = enumValues(type);
+                yield in -> names.get((int) in.readByte());
+            }
+            case "Enum16" ->
+            {
+                final Map<Integer, String> names = enumValues(type);
+                yield in -> names.get((int) in.readShort());
+            }
+            case "LowCardinality" -> interning(forType(type.getNestedType(0), timeZone, queryOptions));
+            case "SimpleAggregateFunction" -> forType(type.getNestedType(type.getParameters().size() - 1), timeZone, queryOptions);
+            case "Nullable" ->
+            {
+                final BinaryDecoder nested = forType(type.getNestedType(0), timeZone, queryOptions);
+                yield in -> in.readUnsignedByte() != 0 ? null : nested.read(in);
+            }
+            case "Array" -> array(forType(type.getNestedType(0), timeZone, queryOptions));
+            case "Nested" -> array(tuple(type, timeZone, queryOptions));
+            case "Map" ->
+            {
+                final BinaryDecoder key = forType(type.getNestedType(0), timeZone, queryOptions);
+                final BinaryDecoder value = forType(type.getNestedType(1), timeZone, queryOptions);
+                yield in ->
+                {
+                    final int size = Math.toIntExact(in.readVarInt());
+                    final Map<Object, Object> values = new LinkedHashMap<>();
+                    for (int i = 0; i < size; i++)
+                    {
+                        values.put(key.read(in), value.read(in));
+                    }
+                    return values;
+                };
+            }
+            case "Tuple" -> tuple(type, timeZone, queryOptions);
+            default -> throw new IllegalArgumentException("Unsupported type for binary decoding: " + type);
+        };
+    }
+
+    /**
+     * Share one instance between equal string values read by the decoder
+     */
+    private static BinaryDecoder interning(final BinaryDecoder decoder)
+    {
+        final StringDictionary dictionary = new StringDictionary();
+        return in ->
+        {
+            final Object value = decoder.read(in);
+            return value instanceof String text ? dictionary.intern(text) : value;
+        };
+    }
+
+    private static BinaryDecoder array(final BinaryDecoder element)
+    {
+        return in ->
+        {
+            final int size = Math.toIntExact(in.readVarInt());
+            final List<Object> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++)
+            {
+                values.add(element.read(in));
+            }
+            return values;
+        };
+    }
+
+    private static BinaryDecoder tuple(final ColumnType type, final ZoneId timeZone, final QueryOptions queryOptions)
+    {
+        final BinaryDecoder[] elements = new BinaryDecoder[type.getParameters().size()];
+        for (int i = 0; i < elements.length; i++)
+        {
+            elements[i] = forType(type.getNestedType(i), timeZone, queryOptions);
+        }
+        return in ->
+        {
+            final List<Object> values = new ArrayList<>(elements.length);
+            for (BinaryDecoder element : elements)
+            {
+                values.add(element.read(in));
+            }
+            return values;
+        };
+    }
+
+    /**
+     * Converter from seconds since epoch, for a <code>DateTime([timezone])</code> type
+     */
+    static LongFunction<LocalDateTime> dateTime(final ColumnType type, final ZoneId timeZone)
+    {
+        final ZoneId zone = type.getParameters().isEmpty() ? timeZone : ZoneId.of(type.getStringParameter(0));
+        return seconds -> DateTimes.toLocalDateTime(seconds, 0, zone);
+    }
+
+    /**
+     * Converter from ticks since epoch, for a <code>DateTime64(precision, [timezone])</code> type
+     */
+    static LongFunction<LocalDateTime> dateTime64(final ColumnType type, final ZoneId timeZone)
+    {
+        final int precision = type.getParameters().isEmpty() ? 3 : type.getIntParameter(0);
+        final ZoneId zone = type.getParameters().size() > 1 ? ZoneId.of(type.getStringParameter(1)) : timeZone;
+        final long ticksPerSecond = POWERS_OF_TEN[precision];
+        final long nanosPerTick = POWERS_OF_TEN[9 - precision];
+        return ticks -> DateTimes.toLocalDateTime(Math.floorDiv(ticks, ticksPerSecond), (int) (Math.floorMod(ticks, ticksPerSecond) * nanosPerTick), zone);
+    }
+
+    static int decimalPrecision(final ColumnType type)
+    {
+        return switch (type.getName())
+        {
+            case "Decimal32" -> 9;
+            case "Decimal64" -> 18;
+            case "Decimal128" -> 38;
+            case "Decimal256" -> 76;
+            default -> type.getIntParameter(0);
+        };
+    }
+
+    static int decimalScale(final ColumnType type)
+    {
+        return type.getName().equals("Decimal") ? type.getIntParameter(1) : type.getIntParameter(0);
+    }
+
+    private static BinaryDecoder decimal(final int precision, final int scale)
+    {
+        if (precision <= 9)
+        {
+            return in -> BigDecimal.valueOf(in.readInt(), scale);
+        }
+        else if (precision <= 18)
+        {
+            return in -> BigDecimal.valueOf(in.readLong(), scale);
+        }
+        final int size = precision <= 38 ? 16 : 32;
+        return in -> new BigDecimal(readBigInteger(in, size, true), scale);
+    }
+
+    static Map<Integer, String> enumValues(final ColumnType type)
+    {
+        final Map<Integer, String> names = new HashMap<>();
+        for (String definition : type.getParameters())
+        {
+            final int separator = definition.lastIndexOf('=');
+            final String name = definition.substring(0, separator).trim();
+            names.put(Integer.parseInt(definition.substring(separator + 1).trim()), name.substring(1, name.length() - 1).replace("\\'", "'"));
+        }
+        return names;
+    }
+
+    private static BigInteger readBigInteger(final BinaryInput in, final int size, final boolean signed) throws IOException
+    {
+        // Little-endian on the wire, BigInteger expects big-endian
+        final byte[] data = new byte[size];
+        in.readFully(data);
+        for (int i = 0; i < size / 2; i++)
+        {
+            final byte tmp = data[i];
+            data[i] = data[size - 1 - i];
+            data[size - 1 - i] = tmp;
+        }
+        return signed ? new BigInteger(data) : new BigInteger(1, data);
+    }
+
+    private static Int128 readInt128(final BinaryInput in, final boolean unsigned) throws IOException
+    {
+        // Little-endian on the wire, the low word first
+        final long low = in.readLong();
+        final long high = in.readLong();
+        return unsigned ? Int128.ofUnsigned(high, low) : Int128.of(high, low);
+    }
+
+    private static Inet6Address readIpv6(final BinaryInput in) throws IOException
+    {
+        // Network byte order, while readLong is little-endian
+        final long high = Long.reverseBytes(in.readLong());
+        return IpAddresses.toInet6Address(high, Long.reverseBytes(in.readLong()));
+    }
+}
@@ -0,0 +1,563 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.ethlo.clackshack.model.ColumnType;
+import com.ethlo.clackshack.model.Int128;
+import com.ethlo.clackshack.model.Int256;
+import com.ethlo.clackshack.util.DateTimes;
+import com.ethlo.clackshack.util.IpAddresses;
+import com.ethlo.clackshack.util.UnsignedLongs;
+import com.ethlo.clackshack.util.WideIntegers;
+
+/**
+ * Builds {@link BinaryEncoder}s for the <code>RowBinary</code> format. Each encoder accepts the Java type produced by
+ * the matching {@link BinaryDecoders} decoder, along with common alternatives such as any {@link Number} for numeric
+ * types, text for most scalar types, and arrays or collections for <code>Array</code> and <code>Tuple</code>.
+ */
+public class BinaryEncoders
+{
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+            10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L,
+            10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L};
+    private static final long UINT32_MAX = 0xFFFF_FFFFL;
+    // The supported range of Date32, 1900-01-01 to 2299-12-31
+    private static final long DATE32_MIN_EPOCH_DAY = -25_567;
+    private static final long DATE32_MAX_EPOCH_DAY = 120_529;
+
+    /**
+     * Create an encoder for the type
+     *
+     * @param type     The ClickHouse type string, for example <code>Array(Nullable(String))</code>
+     * @param timeZone The time zone of local date-time values when the type does not specify one
+     * @return An encoder for the type
+     */
+    public static BinaryEncoder forType(final String type, final ZoneId timeZone)
+    {
+        return forType(ColumnType.of(type), timeZone);
+    }
+
+    public static BinaryEncoder forType(final ColumnType type, final ZoneId timeZone)
+    {
+        final BinaryEncoder encoder = switch (type.getName())
+        {
+            case "UInt8" -> (out, value) -> out.writeByte((int) toLong(value, type, 0, 0xFF));
+            case "Int8" -> (out, value) -> out.writeByte((int) toLong(value, type, Byte.MIN_VALUE, Byte.MAX_VALUE));
+            case "UInt16" -> (out, value) -> out.writeShort((int) toLong(value, type, 0, 0xFFFF));
+            case "Int16" -> (out, value) -> out.writeShort((int) toLong(value, type, Short.MIN_VALUE, Short.MAX_VALUE));
+            case "UInt32" -> (out, value) -> out.writeInt((int) toLong(value, type, 0, UINT32_MAX));
+            case "Int32" -> (out, value) -> out.writeInt((int) toLong(value, type, Integer.MIN_VALUE, Integer.MAX_VALUE));
+            case "Int64" -> (out, value) -> out.writeLong(toLong(value, type));
+            case "UInt64" -> (out, value) -> out.writeLong(toUnsignedLong(value, type));
+            case "Int128" -> wide(type, 2, false);
+            case "UInt128" -> wide(type, 2, true);
+            case "Int256" -> wide(type, 4, false);
+            case "UInt256" -> wide(type, 4, true);
+            case "Float32" -> (out, value) -> out.writeFloat(value instanceof CharSequence text ? Float.parseFloat(text.toString()) : toNumber(value, type).floatValue());
+            case "Float64" -> (out, value) -> out.writeDouble(value instanceof CharSequence text ? Double.parseDouble(text.toString()) : toNumber(value, type).doubleValue());
+            case "Bool" -> (out, value) -> out.writeByte(value instanceof Boolean bool ? (bool ? 1 : 0) : (toLong(value, type) != 0 ? 1 : 0));
+            case "String" -> (out, value) -> out.writeBytes(toBytes(value));
+            case "FixedString" ->
+            {
+                final int length = type.getIntParameter(0);
+                yield (out, value) -> out.writeFixedString(toBytes(value), length);
+            }
+            case "UUID" -> (out, value) ->
+            {
+                final UUID uuid = value instanceof UUID u ? u : UUID.fromString(value.toString());
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+            };
+            case "IPv4" -> (out, value) -> out.writeInt(toIpv4(value, type));
+            case "IPv6" -> BinaryEncoders::writeIpv6;
+            case "Date" -> (out, value) -> out.writeShort((int) checkRange(toEpochDay(value, type), 0, 0xFFFF, value, type));
+            case "Date32" -> (out, value) -> out.writeInt((int) checkRange(toEpochDay(value, type), DATE32_MIN_EPOCH_DAY, DATE32_MAX_EPOCH_DAY, value, type));
+            case "DateTime" ->
+            {
+                final ZoneId zone = type.getParameters().isEmpty() ? timeZone : ZoneId.of(type.getStringParameter(0));
+                yield (out, value) -> out.writeInt((int) checkRange(toEpochTicks(value, 0, zone, type), 0, UINT32_MAX, value, type));
+            }
+            case "DateTime64" ->
+            {
+                final int precision = type.getParameters().isEmpty() ? 3 : type.getIntParameter(0);
+                final ZoneId zone = type.getParameters().size() > 1 ? ZoneId.of(type.getStringParameter(1)) : timeZone;
+                yield (out, value) -> out.writeLong(toEpochTicks(value, precision, zone, type));
+            }
+            case "Decimal", "Decimal32", "Decimal64", "Decimal128", "Decimal256" -> decimal(type, BinaryDecoders.decimalPrecision(type), BinaryDecoders.decimalScale(type));
+            case "Enum8" ->
+            {
+                final Map<String, Integer> codes = enumCodes(type);
+                yield (out, value) -> out.writeByte(toEnumCode(value, codes, type, Byte.MIN_VALUE, Byte.MAX_VALUE));
+            }
+            case "Enum16" ->
+            {
+                final Map<String, Integer> codes = enumCodes(type);
+                yield (out, value) -> out.writeShort(toEnumCode(value, codes, type, Short.MIN_VALUE, Short.MAX_VALUE));
+            }
+            case "LowCardinality" -> forType(type.getNestedType(0), timeZone);
+            case "SimpleAggregateFunction" -> forType(type.getNestedType(type.getParameters().size() - 1), timeZone);
+            case "Nullable" ->
+            {
+                final BinaryEncoder nested = forType(type.getNestedType(0), timeZone);
+                yield (out, value) ->
+                {
+                    out.writeByte(value == null ? 1 : 0);
+                    if (value != null)
+                    {
+                        nested.write(out, value);
+                    }
+                };
+            }
+            case "Array" -> array(forType(type.getNestedType(0), timeZone));
+            case "Nested" -> array(tuple(type, timeZone));
+            case "Map" ->
+            {
+                final BinaryEncoder key = forType(type.getNestedType(0), timeZone);
+                final BinaryEncoder val = forType(type.getNestedType(1), timeZone);
+                yield (out, value) ->
+                {
+                    if (!(value instanceof Map<?, ?> map))
+                    {
+                        throw unsupported(value, type);
+                    }
+                    out.writeVarInt(map.size());
+                    for (Map.Entry<?, ?> entry : map.entrySet())
+                    {
+                        key.write(out, entry.getKey());
+                        val.write(out, entry.getValue());
+                    }
+                };
+            }
+            case "Tuple" -> tuple(type, timeZone);
+            default -> throw new IllegalArgumentException("Unsupported type for binary encoding: " + type);
+        };
+
+        if (type.getName().equals("Nullable"))
+        {
+            return encoder;
+        }
+        return (out, value) ->
+        {
+            if (value == null)
+            {
+                throw new IllegalArgumentException("Null value for non-nullable type " + type);
+            }
+            encoder.write(out, value);
+        };
+    }
+
+    private static BinaryEncoder array(final BinaryEncoder element)
+    {
+        return (out, value) ->
+        {
+            if (value instanceof Collection<?> values)
+            {
+                out.writeVarInt(values.size());
+                for (Object v : values)
+                {
+                    element.write(out, v);
+                }
+            }
+            else
+            {
+                final int length = Array.getLength(value);
+                out.writeVarInt(length);
+                for (int i = 0; i < length; i++)
+                {
+                    element.write(out, Array.get(value, i));
+                }
+            }
+        };
+    }
+
+    private static BinaryEncoder tuple(final ColumnType type, final ZoneId timeZone)
+    {
+        final BinaryEncoder[] elements = new BinaryEncoder[type.getParameters().size()];
+        for (int i = 0; i < elements.length; i++)
+        {
+            elements[i] = forType(type.getNestedType(i), timeZone);
+        }
+        return (out, value) ->
+        {
+            final List<?> values = value instanceof List<?> list ? list : value instanceof Object[] array ? Arrays.asList(array) : null;
+            if (values == null || values.size() != elements.length)
+            {
+                throw unsupported(value, type);
+            }
+            for (int i = 0; i < elements.length; i++)
+            {
+                elements[i].write(out, values.get(i));
+            }
+        };
+    }
+
+    private static BinaryEncoder wide(final ColumnType type, final int width, final boolean unsigned)
+    {
+        return (out, value) ->
+        {
+            final long[] words = new long[width];
+            if (value instanceof Int128 int128)
+            {
+                words[0] = int128.getLow();
+                words[1] = int128.getHigh();
+                for (int i = 2; i < width; i++)
+                {
+                    words[i] = !int128.isUnsigned() && int128.getHigh() < 0 ? -1 : 0;
+                }
+            }
+            else if (value instanceof Int256 int256 && width == 4)
+            {
+                for (int i = 0; i < width; i++)
+                {
+                    words[i] = int256.getWord(i);
+                }
+            }
+            else if (value instanceof BigInteger bigInteger)
+            {
+                if (unsigned ? bigInteger.signum() < 0 || bigInteger.bitLength() > width * 64 : bigInteger.bitLength() > width * 64 - 1)
+                {
+                    throw outOfRange(value, type);
+                }
+                for (int i = 0; i < width; i++)
+                {
+                    words[i] = bigInteger.shiftRight(i * 64).longValue();
+                }
+            }
+            else if (value instanceof CharSequence text)
+            {
+                WideIntegers.parse(text, !unsigned, words, 0, width);
+            }
+            else
+            {
+                final long longValue = toLong(value, type, unsigned ? 0 : Long.MIN_VALUE, Long.MAX_VALUE);
+                words[0] = longValue;
+                for (int i = 1; i < width; i++)
+                {
+                    words[i] = longValue < 0 ? -1 : 0;
+                }
+            }
+            for (long word : words)
+            {
+                out.writeLong(word);
+            }
+        };
+    }
+
+    private static BinaryEncoder decimal(final ColumnType type, final int precision, final int scale)
+    {
+        if (precision <= 18)
+        {
+            return (out, value) ->
+            {
+                final long unscaled;
+                if ((value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) && scale < POWERS_OF_TEN.length)
+                {
+                    unscaled = Math.multiplyExact(((Number) value).longValue(), POWERS_OF_TEN[scale]);
+                }
+                else
+                {
+                    unscaled = toBigDecimal(value, type).setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+                }
+
+                if (precision <= 9)
+                {
+                    out.writeInt(Math.toIntExact(unscaled));
+                }
+                else
+                {
+                    out.writeLong(unscaled);
+                }
+            };
+        }
+        final BinaryEncoder wide = wide(type, precision <= 38 ? 2 : 4, false);
+        return (out, value) -> wide.write(out, toBigDecimal(value, type).setScale(scale, RoundingMode.UNNECESSARY).unscaledValue());
+    }
+
+    private static Map<String, Integer> enumCodes(final ColumnType type)
+    {
+        final Map<String, Integer> codes = new HashMap<>();
+        BinaryDecoders.enumValues(type).forEach((code, name) -> codes.put(name, code));
+        return codes;
+    }
+
+    private static int toEnumCode(final Object value, final Map<String, Integer> codes, final ColumnType type, final int min, final int max)
+    {
+        if (value instanceof Number)
+        {
+            return (int) toLong(value, type, min, max);
+        }
+        final String name = value instanceof Enum<?> e ? e.name() : value.toString();
+        final Integer code = codes.get(name);
+        if (code == null)
+        {
+            throw new IllegalArgumentException("Unknown value '" + name + "' for " + type);
+        }
+        return code;
+    }
+
+    private static Number toNumber(final Object value, final ColumnType type)
+    {
+        if (value instanceof Number number)
+        {
+            return number;
+        }
+        else if (value instanceof Boolean bool)
+        {
+            return bool ? 1 : 0;
+        }
+        throw unsupported(value, type);
+    }
+
+    /**
+     * Convert an integral value, rejecting fractions and values outside the range of a <code>long</code>
+     */
+    private static long toLong(final Object value, final ColumnType type)
+    {
+        if (value instanceof CharSequence text)
+        {
+            return Long.parseLong(text.toString());
+        }
+
+        final Number number = toNumber(value, type);
+        if (number instanceof Double || number instanceof Float)
+        {
+            final double d = number.doubleValue();
+            if (Math.rint(d) != d || d < -0x1p63 || d >= 0x1p63)
+            {
+                throw outOfRange(value, type);
+            }
+            return (long) d;
+        }
+        try
+        {
+            if (number instanceof BigDecimal bigDecimal)
+            {
+                return bigDecimal.longValueExact();
+            }
+            else if (number instanceof BigInteger bigInteger)
+            {
+                return bigInteger.longValueExact();
+            }
+        }
+        catch (ArithmeticException exc)
+        {
+            throw outOfRange(value, type);
+        }
+        return number.longValue();
+    }
+
+    private static long toLong(final Object value, final ColumnType type, final long min, final long max)
+    {
+        return checkRange(toLong(value, type), min, max, value, type);
+    }
+
+    /**
+     * Convert a <code>UInt64</code> value, where a negative <code>long</code> is taken as its two's complement bits, as
+     * read with {@link com.ethlo.clackshack.QueryOptions#rawUnsignedLongs()}
+     */
+    private static long toUnsignedLong(final Object value, final ColumnType type)
+    {
+        if (value instanceof CharSequence text)
+        {
+            return UnsignedLongs.parse(text);
+        }
+        else if (value instanceof BigInteger bigInteger)
+        {
+            if (bigInteger.signum() < 0 || bigInteger.bitLength() > 64)
+            {
+                throw outOfRange(value, type);
+            }
+            return bigInteger.longValue();
+        }
+        return toLong(value, type);
+    }
+
+    private static long checkRange(final long converted, final long min, final long max, final Object value, final ColumnType type)
+    {
+        if (converted < min || converted > max)
+        {
+            throw outOfRange(value, type);
+        }
+        return converted;
+    }
+
+    private static BigDecimal toBigDecimal(final Object value, final ColumnType type)
+    {
+        if (value instanceof BigDecimal bigDecimal)
+        {
+            return bigDecimal;
+        }
+        else if (value instanceof BigInteger bigInteger)
+        {
+            return new BigDecimal(bigInteger);
+        }
+        else if (value instanceof Double || value instanceof Float)
+        {
+            return BigDecimal.valueOf(((Number) value).doubleValue());
+        }
+        else if (value instanceof CharSequence text)
+        {
+            return new BigDecimal(text.toString());
+        }
+        return BigDecimal.valueOf(toNumber(value, type).longValue());
+    }
+
+    private static byte[] toBytes(final Object value)
+    {
+        if (value instanceof byte[] bytes)
+        {
+            return bytes;
+        }
+        return (value instanceof Enum<?> e ? e.name() : value.toString()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int toIpv4(final Object value, final ColumnType type)
+    {
+        if (value instanceof Inet4Address address)
+        {
+            final byte[] bytes = address.getAddress();
+            return (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF);
+        }
+        else if (value instanceof CharSequence text)
+        {
+            return IpAddresses.parseIpv4(text);
+        }
+        return (int) toLong(value, type, 0, UINT32_MAX);
+    }
+
+    private static void writeIpv6(final BinaryOutput out, final Object value) throws IOException
+    {
+        if (value instanceof InetAddress address)
+        {
+            final byte[] bytes = address.getAddress();
+            if (bytes.length == 4)
+            {
+                // IPv4-mapped address
+                out.write(new byte[]{0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xFF, (byte) 0xFF});
+            }
+            out.write(bytes);
+            return;
+        }
+
+        final long[] address = new long[2];
+        IpAddresses.parseIpv6(value.toString(), address);
+        // Network byte order, while writeLong is little-endian
+        out.writeLong(Long.reverseBytes(address[0]));
+        out.writeLong(Long.reverseBytes(address[1]));
+    }
+
+    private static long toEpochDay(final Object value, final ColumnType type)
+    {
+        if (value instanceof LocalDate date)
+        {
+            return date.toEpochDay();
+        }
+        else if (value instanceof LocalDateTime dateTime)
+        {
+            return dateTime.toLocalDate().toEpochDay();
+        }
+        else if (value instanceof CharSequence text)
+        {
+            return DateTimes.parseDate(text).toEpochDay();
+        }
+        return toLong(value, type);
+    }
+
+    private static long toEpochTicks(final Object value, final int precision, final ZoneId zone, final ColumnType type)
+    {
+        final long seconds;
+        final int nanos;
+        if (value instanceof LocalDateTime dateTime)
+        {
+            seconds = dateTime.atZone(zone).toEpochSecond();
+            nanos = dateTime.getNano();
+        }
+        else if (value instanceof Instant instant)
+        {
+            seconds = instant.getEpochSecond();
+            nanos = instant.getNano();
+        }
+        else if (value instanceof ZonedDateTime dateTime)
+        {
+            seconds = dateTime.toEpochSecond();
+            nanos = dateTime.getNano();
+        }
+        else if (value instanceof OffsetDateTime dateTime)
+        {
+            seconds = dateTime.toEpochSecond();
+            nanos = dateTime.getNano();
+        }
+        else if (value instanceof Date date)
+        {
+            seconds = Math.floorDiv(date.getTime(), 1000);
+            nanos = Math.floorMod(date.getTime(), 1000) * 1_000_000;
+        }
+        else if (value instanceof CharSequence text)
+        {
+            return precision == 0 ? DateTimes.parseEpochSecond(text, zone) : DateTimes.parseEpochTicks(text, precision, zone);
+        }
+        else
+        {
+            // Numbers are taken as ticks of the precision of the type
+            return toLong(value, type);
+        }
+        try
+        {
+            return Math.addExact(Math.multiplyExact(seconds, POWERS_OF_TEN[precision]), nanos / POWERS_OF_TEN[9 - precision]);
+        }
+        catch (ArithmeticException exc)
+        {
+            throw outOfRange(value, type);
+        }
+    }
+
+    private static IllegalArgumentException outOfRange(final Object value, final ColumnType type)
+    {
+        return new IllegalArgumentException("Value " + value + " is not an integer in the range of " + type);
+    }
+
+    private static IllegalArgumentException unsupported(final Object value, final ColumnType type)
+    {
+        return new IllegalArgumentException("Cannot write value of " + value.getClass().getName() + " as " + type);
+    }
+}
@@ -0,0 +1,233 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered reader of the little-endian primitives used by the ClickHouse binary formats
+ */
+public class BinaryInput implements AutoCloseable
+{
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream inputStream;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+
+    public BinaryInput(final InputStream inputStream)
+    {
+        this(inputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    public BinaryInput(final InputStream inputStream, final int bufferSize)
+    {
+        this.inputStream = inputStream;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Returns true if the end of the stream is reached, blocking until at least one byte is available otherwise
+     *
+     * @return true if there is no more data
+     * @throws IOException If the underlying stream fails
+     */
+    public boolean isEof() throws IOException
+    {
+        return position == limit && !fill();
+    }
+
+    private boolean fill() throws IOException
+    {
+        final int read = inputStream.read(buffer, 0, buffer.length);
+        if (read <= 0)
+        {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private void ensure(final int count) throws IOException
+    {
+        if (limit - position >= count)
+        {
+            return;
+        }
+
+        // Compact the remaining bytes to the start of the buffer and read more
+        final int remaining = limit - position;
+        System.arraycopy(buffer, position, buffer, 0, remaining);
+        position = 0;
+        limit = remaining;
+        while (limit < count)
+        {
+            final int read = inputStream.read(buffer, limit, buffer.length - limit);
+            if (read < 0)
+            {
+                throw new EOFException("Unexpected end of data, needed " + count + " bytes but only " + limit + " available");
+            }
+            limit += read;
+        }
+    }
+
+    public int readUnsignedByte() throws IOException
+    {
+        ensure(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    public byte readByte() throws IOException
+    {
+        ensure(1);
+        return buffer[position++];
+    }
+
+    public short readShort() throws IOException
+    {
+        ensure(2);
+        final int value = (buffer[position] & 0xFF) | (buffer[position + 1] & 0xFF) << 8;
+        position += 2;
+        return (short) value;
+    }
+
+    public int readUnsignedShort() throws IOException
+    {
+        return readShort() & 0xFFFF;
+    }
+
+    public int readInt() throws IOException
+    {
+        ensure(4);
+        final int value = (buffer[position] & 0xFF)
+                | (buffer[position + 1] & 0xFF) << 8
+                | (buffer[position + 2] & 0xFF) << 16
+                | (buffer[position + 3] & 0xFF) << 24;
+        position += 4;
+        return value;
+    }
+
+    public long readUnsignedInt() throws IOException
+    {
+        return readInt() & 0xFFFFFFFFL;
+    }
+
+    public long readLong() throws IOException
+    {
+        ensure(8);
+        long value = 0;
+        for (int i = 7; i >= 0; i--)
+        {
+            value = (value << 8) | (buffer[position + i] & 0xFF);
+        }
+        position += 8;
+        return value;
+    }
+
+    public float readFloat() throws IOException
+    {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    public double readDouble() throws IOException
+    {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    /**
+     * Read an unsigned LEB128 variable length integer, as used for string and collection lengths
+     *
+     * @return The value
+     * @throws IOException If the underlying stream fails
+     */
+    public long readVarInt() throws IOException
+    {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            final int b = readUnsignedByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return result;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    public void readFully(final byte[] target) throws IOException
+    {
+        readFully(target, 0, target.length);
+    }
+
+    public void readFully(final byte[] target, final int offset, final int length) throws IOException
+    {
+        int done = 0;
+        while (done < length)
+        {
+            if (position == limit && !fill())
+            {
+                throw new EOFException("Unexpected end of data, needed " + (length - done) + " more bytes");
+            }
+            final int count = Math.min(length - done, limit - position);
+            System.arraycopy(buffer, position, target, offset + done, count);
+            position += count;
+            done += count;
+        }
+    }
+
+    /**
+     * Read a string prefixed with its length in bytes
+     *
+     * @return The string value
+     * @throws IOException If the underlying stream fails
+     */
+    public String readString() throws IOException
+    {
+        return readFixedString(Math.toIntExact(readVarInt()));
+    }
+
+    public String readFixedString(final int length) throws IOException
+    {
+        if (length <= buffer.length)
+        {
+            ensure(length);
+            final String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        final byte[] data = new byte[length];
+        readFully(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        inputStream.close();
+    }
+}
@@ -0,0 +1,220 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered writer of the little-endian primitives used by the ClickHouse binary formats. The buffer has a fixed size,
+ * so the memory used is constant however much data is written.
+ */
+public class BinaryOutput implements AutoCloseable
+{
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream outputStream;
+    private final byte[] buffer;
+    private int position;
+    private long written;
+
+    public BinaryOutput(final OutputStream outputStream)
+    {
+        this(outputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    public BinaryOutput(final OutputStream outputStream, final int bufferSize)
+    {
+        this.outputStream = outputStream;
+        this.buffer = new byte[Math.max(bufferSize, 16)];
+    }
+
+    private void ensure(final int count) throws IOException
+    {
+        if (buffer.length - position < count)
+        {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException
+    {
+        if (position > 0)
+        {
+            outputStream.write(buffer, 0, position);
+            written += position;
+            position = 0;
+        }
+    }
+
+    public void writeByte(final int value) throws IOException
+    {
+        ensure(1);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeShort(final int value) throws IOException
+    {
+        ensure(2);
+        buffer[position++] = (byte) value;
+        buffer[position++] = (byte) (value >>> 8);
+    }
+
+    public void writeInt(final int value) throws IOException
+    {
+        ensure(4);
+        buffer[position++] = (byte) value;
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 24);
+    }
+
+    public void writeLong(final long value) throws IOException
+    {
+        ensure(8);
+        for (int i = 0; i < 8; i++)
+        {
+            buffer[position++] = (byte) (value >>> (i * 8));
+        }
+    }
+
+    public void writeFloat(final float value) throws IOException
+    {
+        writeInt(Float.floatToRawIntBits(value));
+    }
+
+    public void writeDouble(final double value) throws IOException
+    {
+        writeLong(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Write an unsigned LEB128 variable length integer, as used for string and collection lengths
+     *
+     * @param value The value
+     * @throws IOException If the underlying stream fails
+     */
+    public void writeVarInt(final long value) throws IOException
+    {
+        ensure(10);
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0)
+        {
+            buffer[position++] = (byte) ((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        buffer[position++] = (byte) remaining;
+    }
+
+    public void write(final byte[] data) throws IOException
+    {
+        write(data, 0, data.length);
+    }
+
+    public void write(final byte[] data, final int offset, final int length) throws IOException
+    {
+        if (length > buffer.length - position)
+        {
+            flushBuffer();
+            if (length > buffer.length)
+            {
+                outputStream.write(data, offset, length);
+                written += length;
+                return;
+            }
+        }
+        System.arraycopy(data, offset, buffer, position, length);
+        position += length;
+    }
+
+    /**
+     * Write a string prefixed with its length in bytes
+     *
+     * @param value The string value
+     * @throws IOException If the underlying stream fails
+     */
+    public void writeString(final String value) throws IOException
+    {
+        writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write bytes prefixed with their length
+     *
+     * @param value The bytes
+     * @throws IOException If the underlying stream fails
+     */
+    public void writeBytes(final byte[] value) throws IOException
+    {
+        writeVarInt(value.length);
+        write(value);
+    }
+
+    /**
+     * Write a value of exactly the given length, padded with zero bytes
+     *
+     * @param value  The bytes, at most <code>length</code> long
+     * @param length The length of the field
+     * @throws IOException If the underlying stream fails, or the value is too long
+     */
+    public void writeFixedString(final byte[] value, final int length) throws IOException
+    {
+        if (value.length > length)
+        {
+            throw new IOException("Value of " + value.length + " bytes is too long for FixedString(" + length + ")");
+        }
+        write(value);
+        for (int i = value.length; i < length; i++)
+        {
+            writeByte(0);
+        }
+    }
+
+    /**
+     * The number of bytes written, including those still in the buffer
+     *
+     * @return The number of bytes written
+     */
+    public long getBytesWritten()
+    {
+        return written + position;
+    }
+
+    public void flush() throws IOException
+    {
+        flushBuffer();
+        outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            flushBuffer();
+        }
+        finally
+        {
+            outputStream.close();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.ethlo.clackshack.QueryOptions;
+import com.ethlo.clackshack.model.ColumnConverter;
+import com.ethlo.clackshack.model.DataTypes;
+import com.ethlo.clackshack.model.MetaEntry;
+import com.ethlo.clackshack.model.Row;
+import com.ethlo.clackshack.model.RowSchema;
+import com.ethlo.clackshack.util.JsonUtil;
+import com.ethlo.clackshack.util.UnsignedLongs;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads the <code>JSONCompactEachRowWithNamesAndTypes</code> format, where the first two lines hold the column names
+ * and types, and every subsequent line is a JSON array with the values of one row.
+ */
+public class CompactJsonRowReader implements RowReader
+{
+    public static final String FORMAT_NAME = "JSONCompactEachRowWithNamesAndTypes";
+
+    private final InputStream inputStream;
+    private final JsonParser parser;
+    private final List<MetaEntry> meta;
+    private final RowSchema schema;
+    private final JsonDecoder[] decoders;
+    private JsonToken next;
+
+    public CompactJsonRowReader(final InputStream inputStream)
+    {
+        this(inputStream, QueryOptions.DEFAULT);
+    }
+
+    /**
+     * @param inputStream  The response data
+     * @param queryOptions The options controlling decoding of nested values
+     */
+    public CompactJsonRowReader(final InputStream inputStream, final QueryOptions queryOptions)
+    {
+        this.inputStream = inputStream;
+        this.parser = JsonUtil.createParser(inputStream);
+        try
+        {
+            this.next = parser.nextToken();
+            if (next == null)
+            {
+                this.meta = Collections.emptyList();
+                this.schema = RowSchema.of(meta);
+                this.decoders = new JsonDecoder[0];
+            }
+            else
+            {
+                final String[] names = JsonUtil.readValue(parser, String[].class);
+                parser.nextToken();
+                final String[] types = JsonUtil.readValue(parser, String[].class);
+                this.meta = meta(names, types);
+                this.decoders = decoders(types, queryOptions);
+                this.schema = RowSchema.of(meta);
+                this.next = parser.nextToken();
+            }
+        }
+        catch (IOException exc)
+        {
+            close();
+            throw new UncheckedIOException("Unable to read result header", exc);
+        }
+        catch (RuntimeException exc)
+        {
+            close();
+            throw exc;
+        }
+    }
+
+    @Override
+    public List<MetaEntry> getMeta()
+    {
+        return meta;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return next == JsonToken.START_ARRAY;
+    }
+
+    @Override
+    public Row next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+
+        try
+        {
+            final Row row = readRow(parser, schema, decoders);
+            next = parser.nextToken();
+            return row;
+        }
+        catch (IOException exc)
+        {
+            close();
+            throw new UncheckedIOException("Unable to read row data", exc);
+        }
+    }
+
+    static List<MetaEntry> meta(final String[] names, final String[] types)
+    {
+        final List<MetaEntry> entries = new ArrayList<>(names.length);
+        for (int i = 0; i < names.length; i++)
+        {
+            entries.add(new MetaEntry(names[i], types[i]));
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    static JsonDecoder[] decoders(final String[] types, final QueryOptions queryOptions)
+    {
+        final JsonDecoder[] decoders = new JsonDecoder[types.length];
+        for (int i = 0; i < types.length; i++)
+        {
+            final ColumnConverter converter = ColumnConverter.of(types[i]);
+            if (queryOptions.rawUnsignedLongs() && converter.findDataType() == DataTypes.UINT_64)
+            {
+                decoders[i] = p -> p.currentToken() == JsonToken.VALUE_NULL ? null : UnsignedLongs.parse(p.getText());
+            }
+            else if (StringDictionary.appliesTo(converter, queryOptions))
+            {
+                final StringDictionary dictionary = new StringDictionary();
+                decoders[i] = p -> dictionary.intern((String) converter.read(p));
+            }
+            else
+            {
+                decoders[i] = queryOptions.typedCollections() && JsonDecoders.isComposite(converter.getBaseType()) ? JsonDecoders.forType(types[i]) : converter::read;
+            }
+        }
+        return decoders;
+    }
+
+    /**
+     * Decode one row, with the parser positioned at the start of its array. On return the parser is positioned at
+     * the end of the array.
+     */
+    static Row readRow(final JsonParser parser, final RowSchema schema, final JsonDecoder[] decoders) throws IOException
+    {
+        final Object[] typed = new Object[decoders.length];
+        int index = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY)
+        {
+            if (index < decoders.length)
+            {
+                typed[index] = decoders[index].read(parser);
+            }
+            else
+            {
+                parser.skipChildren();
+            }
+            index++;
+        }
+        return new Row(schema, typed);
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            parser.close();
+            inputStream.close();
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException(exc);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.ethlo.clackshack.TypeConversionException;
+import com.ethlo.clackshack.model.ColumnType;
+import com.ethlo.clackshack.model.DataTypes;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Creates {@link JsonDecoder}s from the parsed type tree, decoding nested values straight from the JSON tokens.
+ * <code>Array</code> of a non-nullable integer or floating point type is decoded to an <code>int[]</code>,
+ * <code>long[]</code> or <code>double[]</code>, other arrays and tuples to a {@link List} and maps to a
+ * {@link LinkedHashMap} with typed keys and values. Types without a known parser are returned as JSON nodes.
+ */
+public class JsonDecoders
+{
+    private static final int MAX_CACHE_SIZE = 10_000;
+    private static final Map<String, JsonDecoder> CACHE = new ConcurrentHashMap<>();
+
+    private JsonDecoders()
+    {
+    }
+
+    /**
+     * Discard all cached decoders, for example after a data type has been replaced. Public as it is called from
+     * {@link DataTypes#addDataType(DataTypes.SimpleDataType)} in another package.
+     */
+    public static void clearCache()
+    {
+        CACHE.clear();
+    }
+
+    /**
+     * Returns the decoder for a type, cached per type string
+     *
+     * @param type The ClickHouse type string
+     * @return The decoder
+     */
+    public static JsonDecoder forType(final String type)
+    {
+        final JsonDecoder cached = CACHE.get(type);
+        if (cached != null)
+        {
+            return cached;
+        }
+
+        final JsonDecoder created = forType(ColumnType.of(type));
+        if (CACHE.size() < MAX_CACHE_SIZE)
+        {
+            CACHE.put(type, created);
+        }
+        return created;
+    }
+
+    /**
+     * Whether the type holds nested values, with any <code>Nullable</code> and <code>LowCardinality</code> wrappers removed
+     *
+     * @param baseType The base type
+     * @return True for <code>Array</code>, <code>Map</code>, <code>Tuple</code> and <code>Nested</code>
+     */
+    public static boolean isComposite(final ColumnType baseType)
+    {
+        return switch (baseType.getName())
+        {
+            case "Array", "Map", "Tuple", "Nested" -> true;
+            default -> false;
+        };
+    }
+
+    public static JsonDecoder forType(final ColumnType type)
+    {
+        return switch (type.getName())
+        {
+            case "Nullable" ->
+            {
+                final JsonDecoder nested = forType(type.getNestedType(0));
+                yield parser -> parser.currentToken() == JsonToken.VALUE_NULL ? null : nested.read(parser);
+            }
+            case "LowCardinality", "SimpleAggregateFunction" -> forType(type.getNestedType(type.getParameters().size() - 1));
+            case "Array" -> array(type.getNestedType(0));
+            case "Nested" -> list(tuple(type));
+            case "Map" -> map(type);
+            case "Tuple" -> tuple(type);
+            default -> scalar(type);
+        };
+    }
+
+    private static JsonDecoder array(final ColumnType element)
+    {
+        return switch (element.getName())
+        {
+            case "Int8", "UInt8", "Int16", "UInt16", "Int32" -> parser ->
+            {
+                expect(parser, JsonToken.START_ARRAY);
+                int[] values = new int[8];
+                int size = 0;
+                while (parser.nextToken() != JsonToken.END_ARRAY)
+                {
+                    if (size == values.length)
+                    {
+                        values = Arrays.copyOf(values, size * 2);
+                    }
+                    values[size++] = parser.currentToken() == JsonToken.VALUE_STRING ? Integer.parseInt(parser.getText()) : parser.getIntValue();
+                }
+                return Arrays.copyOf(values, size);
+            };
+            case "UInt32", "Int64", "UInt64" ->
+            {
+                final boolean unsigned = element.getName().equals("UInt64");
+                yield parser ->
+                {
+                    expect(parser, JsonToken.START_ARRAY);
+                    long[] values = new long[8];
+                    int size = 0;
+                    while (parser.nextToken() != JsonToken.END_ARRAY)
+                    {
+                        if (size == values.length)
+                        {
+                            values = Arrays.copyOf(values, size * 2);
+                        }
+                        if (parser.currentToken() == JsonToken.VALUE_STRING)
+                        {
+                            values[size++] = unsigned ? Long.parseUnsignedLong(parser.getText()) : Long.parseLong(parser.getText());
+                        }
+                        else
+                        {
+                            values[size++] = unsigned ? parser.getBigIntegerValue().longValue() : parser.getLongValue();
+                        }
+                    }
+                    return Arrays.copyOf(values, size);
+                };
+            }
+            case "Float32", "Float64" -> parser ->
+            {
+                expect(parser, JsonToken.START_ARRAY);
+                double[] values = new double[8];
+                int size = 0;
+                while (parser.nextToken() != JsonToken.END_ARRAY)
+                {
+                    if (size == values.length)
+                    {
+                        values = Arrays.copyOf(values, size * 2);
+                    }
+                    // Non-finite values are written as null unless quoted
+                    final JsonToken token = parser.currentToken();
+                    values[size++] = token == JsonToken.VALUE_NULL ? Double.NaN : token == JsonToken.VALUE_STRING ? Double.parseDouble(parser.getText()) : parser.getDoubleValue();
+                }
+                return Arrays.copyOf(values, size);
+            };
+            default -> list(forType(element));
+        };
+    }
+
+    private static JsonDecoder list(final JsonDecoder element)
+    {
+        return parser ->
+        {
+            expect(parser, JsonToken.START_ARRAY);
+            final List<Object> values = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY)
+            {
+                values.add(element.read(parser));
+            }
+            return values;
+        };
+    }
+
+    private static JsonDecoder map(final ColumnType type)
+    {
+        final Function<String, ?> key = keyParser(type.getNestedType(0));
+        final JsonDecoder value = forType(type.getNestedType(1));
+        return parser ->
+        {
+            expect(parser, JsonToken.START_OBJECT);
+            final Map<Object, Object> values = new LinkedHashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME)
+            {
+                final Object mapKey = key.apply(parser.currentName());
+                parser.nextToken();
+                values.put(mapKey, value.read(parser));
+            }
+            return values;
+        };
+    }
+
+    /**
+     * Tuples are written as arrays, or as objects when named tuples are written as objects
+     */
+    private static JsonDecoder tuple(final ColumnType type)
+    {
+        final int size = type.getParameters().size();
+        final JsonDecoder[] elements = new JsonDecoder[size];
+        final Map<String, Integer> names = new HashMap<>();
+        for (int i = 0; i < size; i++)
+        {
+            elements[i] = forType(type.getNestedType(i));
+            final String name = type.getElementName(i);
+            if (name != null)
+            {
+                names.put(name, i);
+            }
+        }
+        return parser ->
+        {
+            final Object[] values = new Object[size];
+            if (parser.currentToken() == JsonToken.START_OBJECT)
+            {
+                while (parser.nextToken() == JsonToken.FIELD_NAME)
+                {
+                    final Integer index = names.get(parser.currentName());
+                    parser.nextToken();
+                    if (index == null)
+                    {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    values[index] = elements[index].read(parser);
+                }
+                return Arrays.asList(values);
+            }
+
+            expect(parser, JsonToken.START_ARRAY);
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY)
+            {
+                if (index < size)
+                {
+                    values[index] = elements[index].read(parser);
+                }
+                else
+                {
+                    parser.skipChildren();
+                }
+                index++;
+            }
+            return Arrays.asList(values);
+        };
+    }
+
+    private static JsonDecoder scalar(final ColumnType type)
+    {
+        final DataTypes.DataType<?> dataType = DataTypes.match(type.getName()).orElse(null);
+        if (dataType instanceof DataTypes.SimpleDataType<?> simpleDataType)
+        {
+            final Function<String, ?> stringParser = simpleDataType.getStringParser();
+            return parser ->
+            {
+                if (parser.currentToken() == JsonToken.VALUE_NULL)
+                {
+                    return null;
+                }
+
+                final String text = parser.getText();
+                try
+                {
+                    return stringParser.apply(text);
+                }
+                catch (Exception exc)
+                {
+                    throw new TypeConversionException(dataType.getName(), text, dataType.getType(), exc);
+                }
+            };
+        }
+        return JsonParser::readValueAsTree;
+    }
+
+    private static Function<String, ?> keyParser(final ColumnType type)
+    {
+        final ColumnType base = type.getName().equals("LowCardinality") ? type.getNestedType(0) : type;
+        return DataTypes.match(base.getName())
+                .filter(DataTypes.SimpleDataType.class::isInstance)
+                .<Function<String, ?>>map(dataType -> ((DataTypes.SimpleDataType<?>) dataType).getStringParser())
+                .orElse(Function.identity());
+    }
+
+    private static void expect(final JsonParser parser, final JsonToken expected) throws IOException
+    {
+        if (parser.currentToken() != expected)
+        {
+            throw new IOException("Expected " + expected + " but found " + parser.currentToken());
+        }
+    }
+}
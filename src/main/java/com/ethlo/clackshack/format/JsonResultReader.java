@@ -0,0 +1,616 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+
+import com.ethlo.clackshack.QueryOptions;
+import com.ethlo.clackshack.TypeConversionException;
+import com.ethlo.clackshack.model.Column;
+import com.ethlo.clackshack.model.ColumnConverter;
+import com.ethlo.clackshack.model.ColumnType;
+import com.ethlo.clackshack.model.DataTypes;
+import com.ethlo.clackshack.model.MetaEntry;
+import com.ethlo.clackshack.model.QueryStatistics;
+import com.ethlo.clackshack.model.ResultSet;
+import com.ethlo.clackshack.model.RowSchema;
+import com.ethlo.clackshack.util.DateTimes;
+import com.ethlo.clackshack.util.Decimals;
+import com.ethlo.clackshack.util.IpAddresses;
+import com.ethlo.clackshack.util.JsonUtil;
+import com.ethlo.clackshack.util.UnsignedLongs;
+import com.ethlo.clackshack.util.WideIntegers;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.exc.InputCoercionException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Reads the <code>JSON</code> format token by token. The <code>meta</code> section is read first, and every value in
+ * <code>data</code> is then converted straight from its token into column storage, without building a JSON tree per
+ * row.
+ */
+public class JsonResultReader
+{
+    public static final String FORMAT_NAME = "JSON";
+
+    private final InputStream inputStream;
+    private final QueryOptions queryOptions;
+    private final ZoneId timeZone;
+    private QueryStatistics statistics;
+    private long rowsBeforeLimitAtLeast;
+
+    public JsonResultReader(final InputStream inputStream)
+    {
+        this(inputStream, QueryOptions.DEFAULT, ZoneOffset.UTC);
+    }
+
+    /**
+     * @param inputStream  The response data
+     * @param queryOptions The options controlling lazy conversion and decoding of nested values
+     * @param timeZone     The time zone of date-time values without an explicit time zone parameter
+     */
+    public JsonResultReader(final InputStream inputStream, final QueryOptions queryOptions, final ZoneId timeZone)
+    {
+        this.inputStream = inputStream;
+        this.queryOptions = queryOptions;
+        this.timeZone = timeZone;
+    }
+
+    /**
+     * Read the full result and close the input
+     *
+     * @return The result
+     */
+    public ResultSet read()
+    {
+        try (final InputStream in = inputStream; final JsonParser parser = JsonUtil.createParser(in))
+        {
+            return read(parser);
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException("Unable to read JSON result", exc);
+        }
+    }
+
+    /**
+     * Read the full result from a parser positioned before the result
+     *
+     * @param parser The parser of the result
+     * @return The result
+     */
+    ResultSet read(final JsonParser parser)
+    {
+        try
+        {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+            {
+                return new ResultSet(Collections.emptyList(), 0);
+            }
+
+            List<MetaEntry> meta = Collections.emptyList();
+            ColumnBuilder[] builders = new ColumnBuilder[0];
+            int size = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME)
+            {
+                final String field = parser.currentName();
+                parser.nextToken();
+                switch (field)
+                {
+                    case "meta" ->
+                    {
+                        meta = Arrays.asList(JsonUtil.readValue(parser, MetaEntry[].class));
+                        builders = new ColumnBuilder[meta.size()];
+                        for (int i = 0; i < builders.length; i++)
+                        {
+                            builders[i] = builder(meta.get(i), queryOptions, timeZone);
+                        }
+                    }
+                    case "data" -> size = readData(parser, RowSchema.of(meta), builders);
+                    case "statistics" -> statistics = JsonUtil.readValue(parser, QueryStatistics.class);
+                    case "rows_before_limit_at_least" -> rowsBeforeLimitAtLeast = parser.getLongValue();
+                    case "exception" -> throw new IOException(parser.getText());
+                    default -> parser.skipChildren();
+                }
+            }
+
+            final List<Column> columns = new ArrayList<>(builders.length);
+            for (final ColumnBuilder builder : builders)
+            {
+                columns.add(builder.build(size));
+            }
+            return new ResultSet(columns, size);
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException("Unable to read JSON result", exc);
+        }
+    }
+
+    /**
+     * The statistics section of the result, available after {@link #read()}
+     *
+     * @return The statistics, or null if none was present
+     */
+    public QueryStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    public long getRowsBeforeLimitAtLeast()
+    {
+        return rowsBeforeLimitAtLeast;
+    }
+
+    private static int readData(final JsonParser parser, final RowSchema schema, final ColumnBuilder[] builders) throws IOException
+    {
+        final boolean[] seen = new boolean[builders.length];
+        int row = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT)
+        {
+            Arrays.fill(seen, false);
+            int expected = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME)
+            {
+                final String name = parser.currentName();
+                // Columns are normally written in meta order, so try the expected position before the lookup
+                final int index = expected < builders.length && schema.getName(expected).equals(name) ? expected : schema.indexOf(name);
+                parser.nextToken();
+                if (index == -1)
+                {
+                    parser.skipChildren();
+                    continue;
+                }
+                builders[index].read(parser, row);
+                seen[index] = true;
+                expected = index + 1;
+            }
+
+            for (int i = 0; i < builders.length; i++)
+            {
+                if (!seen[i])
+                {
+                    builders[i].setNull(row);
+                }
+            }
+            row++;
+        }
+        return row;
+    }
+
+    private static ColumnBuilder builder(final MetaEntry meta, final QueryOptions queryOptions, final ZoneId timeZone)
+    {
+        final ColumnConverter converter = ColumnConverter.of(meta.getType());
+        final DataTypes.DataType<?> dataType = converter.findDataType();
+        if (dataType == DataTypes.INT_8)
+        {
+            return new IntBuilder(meta, converter, v -> (byte) v);
+        }
+        else if (dataType == DataTypes.UINT_8)
+        {
+            return new IntBuilder(meta, converter, v -> (short) v);
+        }
+        else if (dataType == DataTypes.INT_16 || dataType == DataTypes.UINT_16 || dataType == DataTypes.INT_32)
+        {
+            return new IntBuilder(meta, converter, Integer::valueOf);
+        }
+        else if (dataType == DataTypes.UINT_32 || dataType == DataTypes.INT_64)
+        {
+            return new LongBuilder(meta, converter, p -> isText(p) ? Long.parseLong(p.getText()) : p.getLongValue(), Long::valueOf);
+        }
+        else if (dataType == DataTypes.UINT_64)
+        {
+            return new LongBuilder(meta, converter, p -> isText(p) ? Long.parseUnsignedLong(p.getText()) : p.getBigIntegerValue().longValue(), queryOptions.rawUnsignedLongs() ? Long::valueOf : UnsignedLongs::toBigInteger);
+        }
+        else if (queryOptions.scaledDecimals() && (dataType == DataTypes.DECIMAL || dataType == DataTypes.DECIMAL_32 || dataType == DataTypes.DECIMAL_64)
+                && BinaryDecoders.decimalPrecision(converter.getBaseType()) <= 18)
+        {
+            return new DecimalBuilder(meta, converter, BinaryDecoders.decimalScale(converter.getBaseType()));
+        }
+        else if (dataType == DataTypes.INT_128 || dataType == DataTypes.UINT_128)
+        {
+            return new WideIntegerBuilder(meta, converter, 2, dataType == DataTypes.UINT_128);
+        }
+        else if (dataType == DataTypes.INT_256 || dataType == DataTypes.UINT_256)
+        {
+            return new WideIntegerBuilder(meta, converter, 4, dataType == DataTypes.UINT_256);
+        }
+        else if (dataType == DataTypes.DATE_TIME)
+        {
+            // Kept as seconds since epoch, numeric values are written for date_time_output_format=unix_timestamp
+            final ColumnType type = converter.getBaseType();
+            final ZoneId zone = type.getParameters().isEmpty() ? timeZone : ZoneId.of(type.getStringParameter(0));
+            return new LongBuilder(meta, converter, p -> isText(p) ? DateTimes.parseEpochSecond(p.getText(), zone) : p.getLongValue(), BinaryDecoders.dateTime(type, timeZone)::apply);
+        }
+        else if (dataType == DataTypes.DATE_TIME_64)
+        {
+            // Kept as ticks since epoch with the precision of the type
+            final ColumnType type = converter.getBaseType();
+            final int precision = type.getParameters().isEmpty() ? 3 : type.getIntParameter(0);
+            final ZoneId zone = type.getParameters().size() > 1 ? ZoneId.of(type.getStringParameter(1)) : timeZone;
+            return new LongBuilder(meta, converter, p -> isText(p) ? DateTimes.parseEpochTicks(p.getText(), precision, zone) : p.getDecimalValue().movePointRight(precision).longValue(), BinaryDecoders.dateTime64(type, timeZone)::apply);
+        }
+        else if (dataType == DataTypes.IP_V4)
+        {
+            return new IntBuilder(meta, converter, p -> IpAddresses.parseIpv4(p.getText()), IpAddresses::toInet4Address);
+        }
+        else if (dataType == DataTypes.IP_V6)
+        {
+            return new Ipv6Builder(meta, converter);
+        }
+        else if (dataType == DataTypes.FLOAT_32 || dataType == DataTypes.FLOAT_64)
+        {
+            return new DoubleBuilder(meta, converter, dataType == DataTypes.FLOAT_32);
+        }
+        else if (StringDictionary.appliesTo(converter, queryOptions))
+        {
+            return new DictionaryBuilder(meta, converter);
+        }
+        final JsonDecoder decoder = queryOptions.typedCollections() && JsonDecoders.isComposite(converter.getBaseType()) ? JsonDecoders.forType(meta.getType()) : null;
+        return new ObjectBuilder(meta, converter, decoder, queryOptions.lazyConversion());
+    }
+
+    private static boolean isText(final JsonParser parser)
+    {
+        return parser.currentToken() == JsonToken.VALUE_STRING;
+    }
+
+    private abstract static class ColumnBuilder
+    {
+        protected final MetaEntry meta;
+        protected final ColumnConverter converter;
+        protected final BitSet nulls = new BitSet();
+
+        ColumnBuilder(final MetaEntry meta, final ColumnConverter converter)
+        {
+            this.meta = meta;
+            this.converter = converter;
+        }
+
+        void read(final JsonParser parser, final int row) throws IOException
+        {
+            if (parser.currentToken() == JsonToken.VALUE_NULL)
+            {
+                setNull(row);
+                return;
+            }
+
+            try
+            {
+                readValue(parser, row);
+            }
+            catch (IllegalArgumentException | DateTimeException | InputCoercionException exc)
+            {
+                final DataTypes.DataType<?> dataType = converter.getDataType();
+                throw new TypeConversionException(dataType.getName(), parser.getText(), dataType.getType(), exc);
+            }
+        }
+
+        void setNull(final int row)
+        {
+            nulls.set(row);
+        }
+
+        BitSet nulls()
+        {
+            return nulls.isEmpty() ? null : nulls;
+        }
+
+        abstract void readValue(JsonParser parser, int row) throws IOException;
+
+        abstract Column build(int size);
+
+        static int capacity(final int current, final int row)
+        {
+            return Math.max(row + 1, Math.max(16, current * 2));
+        }
+    }
+
+    @FunctionalInterface
+    private interface IntReader
+    {
+        int read(JsonParser parser) throws IOException;
+    }
+
+    private static class IntBuilder extends ColumnBuilder
+    {
+        private final IntReader reader;
+        private final IntFunction<Object> boxer;
+        private int[] values = new int[16];
+
+        IntBuilder(final MetaEntry meta, final ColumnConverter converter, final IntFunction<Object> boxer)
+        {
+            this(meta, converter, p -> isText(p) ? Integer.parseInt(p.getText()) : p.getIntValue(), boxer);
+        }
+
+        IntBuilder(final MetaEntry meta, final ColumnConverter converter, final IntReader reader, final IntFunction<Object> boxer)
+        {
+            super(meta, converter);
+            this.reader = reader;
+            this.boxer = boxer;
+        }
+
+        @Override
+        void readValue(final JsonParser parser, final int row) throws IOException
+        {
+            if (row >= values.length)
+            {
+                values = Arrays.copyOf(values, capacity(values.length, row));
+            }
+            values[row] = reader.read(parser);
+        }
+
+        @Override
+        Column build(final int size)
+        {
+            return new Column.IntColumn(meta.getName(), meta.getType(), Arrays.copyOf(values, size), size, nulls(), boxer);
+        }
+    }
+
+    private static class Ipv6Builder extends ColumnBuilder
+    {
+        private final long[] address = new long[2];
+        private long[] high = new long[16];
+        private long[] low = new long[16];
+
+        Ipv6Builder(final MetaEntry meta, final ColumnConverter converter)
+        {
+            super(meta, converter);
+        }
+
+        @Override
+        void readValue(final JsonParser parser, final int row) throws IOException
+        {
+            if (row >= high.length)
+            {
+                high = Arrays.copyOf(high, capacity(high.length, row));
+                low = Arrays.copyOf(low, high.length);
+            }
+            IpAddresses.parseIpv6(parser.getText(), address);
+            high[row] = address[0];
+            low[row] = address[1];
+        }
+
+        @Override
+        Column build(final int size)
+        {
+            return new Column.Ipv6Column(meta.getName(), meta.getType(), high, low, size, nulls());
+        }
+    }
+
+    private static class DictionaryBuilder extends ColumnBuilder
+    {
+        private final StringDictionary dictionary = new StringDictionary();
+        private int[] codes = new int[16];
+
+        DictionaryBuilder(final MetaEntry meta, final ColumnConverter converter)
+        {
+            super(meta, converter);
+        }
+
+        @Override
+        void readValue(final JsonParser parser, final int row) throws IOException
+        {
+            if (row >= codes.length)
+            {
+                codes = Arrays.copyOf(codes, capacity(codes.length, row));
+            }
+            codes[row] = dictionary.code(parser.getText());
+        }
+
+        @Override
+        Column build(final int size)
+        {
+            return new Column.StringColumn(meta.getName(), meta.getType(), Arrays.copyOf(codes, size), size, nulls(), dictionary.values());
+        }
+    }
+
+    private static class DecimalBuilder extends ColumnBuilder
+    {
+        private final int scale;
+        private long[] unscaled = new long[16];
+
+        DecimalBuilder(final MetaEntry meta, final ColumnConverter converter, final int scale)
+        {
+            super(meta, converter);
+            this.scale = scale;
+        }
+
+        @Override
+        void readValue(final JsonParser parser, final int row) throws IOException
+        {
+            if (row >= unscaled.length)
+            {
+                unscaled = Arrays.copyOf(unscaled, capacity(unscaled.length, row));
+            }
+            unscaled[row] = Decimals.parseUnscaled(parser.getText(), scale);
+        }
+
+        @Override
+        Column build(final int size)
+        {
+            return new Column.DecimalColumn(meta.getName(), meta.getType(), unscaled, scale, size, nulls());
+        }
+    }
+
+    private static class WideIntegerBuilder extends ColumnBuilder
+    {
+        private final int width;
+        private final boolean unsigned;
+        private long[] words;
+
+        WideIntegerBuilder(final MetaEntry meta, final ColumnConverter converter, final int width, final boolean unsigned)
+        {
+            super(meta, converter);
+            this.width = width;
+            this.unsigned = unsigned;
+            this.words = new long[16 * width];
+        }
+
+        @Override
+        void readValue(final JsonParser parser, final int row) throws IOException
+        {
+            if ((row + 1) * width > words.length)
+            {
+                words = Arrays.copyOf(words, capacity(words.length / width, row) * width);
+            }
+            WideIntegers.parse(parser.getText(), !unsigned, words, row * width, width);
+        }
+
+        @Override
+        Column build(final int size)
+        {
+            return new Column.WideIntegerColumn(meta.getName(), meta.getType(), words, width, unsigned, size, nulls());
+        }
+    }
+
+    @FunctionalInterface
+    private interface LongReader
+    {
+        long read(JsonParser parser) throws IOException;
+    }
+
+    private static class LongBuilder extends ColumnBuilder
+    {
+        private final LongReader reader;
+        private final LongFunction<Object> boxer;
+        private long[] values = new long[16];
+
+        LongBuilder(final MetaEntry meta, final ColumnConverter converter, final LongReader reader, final LongFunction<Object> boxer)
+        {
+            super(meta, converter);
+            this.reader = reader;
+            this.boxer = boxer;
+        }
+
+        @Override
+        void readValue(final JsonParser parser, final int row) throws IOException
+        {
+            if (row >= values.length)
+            {
+                values = Arrays.copyOf(values, capacity(values.length, row));
+            }
+            values[row] = reader.read(parser);
+        }
+
+        @Override
+        Column build(final int size)
+        {
+            return new Column.LongColumn(meta.getName(), meta.getType(), Arrays.copyOf(values, size), size, nulls(), boxer);
+        }
+    }
+
+    private static class DoubleBuilder extends ColumnBuilder
+    {
+        private final boolean singlePrecision;
+        private double[] values = new double[16];
+
+        DoubleBuilder(final MetaEntry meta, final ColumnConverter converter, final boolean singlePrecision)
+        {
+            super(meta, converter);
+            this.singlePrecision = singlePrecision;
+        }
+
+        @Override
+        void readValue(final JsonParser parser, final int row) throws IOException
+        {
+            if (row >= values.length)
+            {
+                values = Arrays.copyOf(values, capacity(values.length, row));
+            }
+            values[row] = parser.currentToken() == JsonToken.VALUE_STRING ? Double.parseDouble(parser.getText()) : parser.getDoubleValue();
+        }
+
+        @Override
+        Column build(final int size)
+        {
+            return new Column.DoubleColumn(meta.getName(), meta.getType(), Arrays.copyOf(values, size), size, nulls(), singlePrecision);
+        }
+    }
+
+    private static class ObjectBuilder extends ColumnBuilder
+    {
+        private final JsonDecoder decoder;
+        private final boolean lazyConversion;
+        private Object[] values = new Object[16];
+
+        ObjectBuilder(final MetaEntry meta, final ColumnConverter converter, final JsonDecoder decoder, final boolean lazyConversion)
+        {
+            super(meta, converter);
+            this.decoder = decoder;
+            this.lazyConversion = lazyConversion;
+        }
+
+        @Override
+        void readValue(final JsonParser parser, final int row) throws IOException
+        {
+            if (row >= values.length)
+            {
+                values = Arrays.copyOf(values, capacity(values.length, row));
+            }
+
+            if (lazyConversion)
+            {
+                values[row] = decoder != null ? parser.readValueAsTree() : converter.readRaw(parser);
+            }
+            else
+            {
+                values[row] = decoder != null ? decoder.read(parser) : converter.read(parser);
+            }
+        }
+
+        @Override
+        Column build(final int size)
+        {
+            if (lazyConversion)
+            {
+                return new Column.ObjectColumn(meta.getName(), meta.getType(), Arrays.copyOf(values, size), size, decoder != null ? this::decode : converter::convertRaw);
+            }
+            return new Column.ObjectColumn(meta.getName(), meta.getType(), Arrays.copyOf(values, size), size);
+        }
+
+        private Object decode(final Object raw)
+        {
+            try (final JsonParser parser = JsonUtil.createParser((JsonNode) raw))
+            {
+                parser.nextToken();
+                return decoder.read(parser);
+            }
+            catch (IOException exc)
+            {
+                throw new UncheckedIOException("Unable to decode value of column " + meta.getName(), exc);
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ethlo.clackshack.QueryOptions;
+import com.ethlo.clackshack.model.Column;
+import com.ethlo.clackshack.model.ColumnType;
+import com.ethlo.clackshack.model.ColumnarResultSet;
+
+/**
+ * Reads the <code>Native</code> format into a {@link ColumnarResultSet}. The format consists of blocks, where each block
+ * holds the values of every column in turn, so primitive columns can be read straight into primitive arrays.
+ * <p>
+ * <code>LowCardinality</code> columns are expected to be sent as their plain type, by setting
+ * {@link #LOW_CARDINALITY_SETTING} to 0.
+ */
+public class NativeReader
+{
+    public static final String FORMAT_NAME = "Native";
+    public static final String LOW_CARDINALITY_SETTING = "low_cardinality_allow_in_native_format";
+
+    public static ColumnarResultSet read(final InputStream inputStream, final ZoneId timeZone)
+    {
+        return read(inputStream, timeZone, QueryOptions.DEFAULT);
+    }
+
+    public static ColumnarResultSet read(final InputStream inputStream, final ZoneId timeZone, final QueryOptions queryOptions)
+    {
+        try (final BinaryInput input = new BinaryInput(inputStream))
+        {
+            final List<BinaryColumnBuilder> builders = new ArrayList<>();
+            int rowCount = 0;
+            while (!input.isEof())
+            {
+                final int columnCount = Math.toIntExact(input.readVarInt());
+                final int rows = Math.toIntExact(input.readVarInt());
+                for (int i = 0; i < columnCount; i++)
+                {
+                    final String name = input.readString();
+                    final String type = input.readString();
+                    if (builders.size() <= i)
+                    {
+                        builders.add(BinaryColumnBuilder.of(name, type, ColumnType.parse(type), timeZone, queryOptions));
+                    }
+                    builders.get(i).readBlock(input, rows);
+                }
+                rowCount += rows;
+            }
+
+            final List<Column> columns = new ArrayList<>(builders.size());
+            for (BinaryColumnBuilder builder : builders)
+            {
+                columns.add(builder.build());
+            }
+            return new ColumnarResultSet(columns, rowCount);
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException("Unable to read Native format data", exc);
+        }
+    }
+
+    /**
+     * Read the values of a column with a composite type, which are laid out column-wise even when nested
+     */
+    static Object[] readObjects(final ColumnType type, final BinaryInput in, final int rows, final ZoneId timeZone, final QueryOptions queryOptions) throws IOException
+    {
+        final Object[] result = new Object[rows];
+        switch (type.getName())
+        {
+            case "Nullable" ->
+            {
+                final boolean[] nulls = readNullMap(in, rows);
+                final Object[] values = readObjects(type.getNestedType(0), in, rows, timeZone, queryOptions);
+                for (int i = 0; i < rows; i++)
+                {
+                    result[i] = nulls[i] ? null : values[i];
+                }
+            }
+            case "Array" ->
+            {
+                final long[] offsets = readOffsets(in, rows);
+                final Object[] values = readObjects(type.getNestedType(0), in, rows == 0 ? 0 : Math.toIntExact(offsets[rows - 1]), timeZone, queryOptions);
+                int start = 0;
+                for (int i = 0; i < rows; i++)
+                {
+                    final int end = (int) offsets[i];
+                    result[i] = new ArrayList<>(Arrays.asList(values).subList(start, end));
+                    start = end;
+                }
+            }
+            case "Map" ->
+            {
+                final long[] offsets = readOffsets(in, rows);
+                final int total = rows == 0 ? 0 : Math.toIntExact(offsets[rows - 1]);
+                final Object[] keys = readObjects(type.getNestedType(0), in, total, timeZone, queryOptions);
+                final Object[] values = readObjects(type.getNestedType(1), in, total, timeZone, queryOptions);
+                int start = 0;
+                for (int i = 0; i < rows; i++)
+                {
+                    final int end = (int) offsets[i];
+                    final Map<Object, Object> map = new LinkedHashMap<>();
+                    for (int j = start; j < end; j++)
+                    {
+                        map.put(keys[j], values[j]);
+                    }
+                    result[i] = map;
+                    start = end;
+                }
+            }
+            case "Tuple" ->
+            {
+                final Object[][] elements = new Object[type.getParameters().size()][];
+                for (int e = 0; e < elements.length; e++)
+                {
+                    final String element = type.getParameter(e);
+                    final int space = element.indexOf(' ');
+                    final int parenthesis = element.indexOf('(');
+                    final String elementType = space > 0 && (parenthesis == -1 || space < parenthesis) ? element.substring(space + 1) : element;
+                    elements[e] = readObjects(ColumnType.parse(elementType), in, rows, timeZone, queryOptions);
+                }
+                for (int i = 0; i < rows; i++)
+                {
+                    final List<Object> tuple = new ArrayList<>(elements.length);
+                    for (Object[] element : elements)
+                    {
+                        tuple.add(element[i]);
+                    }
+                    result[i] = tuple;
+                }
+            }
+            case "LowCardinality" -> throw new IllegalArgumentException("LowCardinality in Native format requires " + LOW_CARDINALITY_SETTING + "=0");
+            default ->
+            {
+                // Scalar values have the same layout as in RowBinary
+                final BinaryDecoder decoder = BinaryDecoders.forType(type, timeZone, queryOptions);
+                for (int i = 0; i < rows; i++)
+                {
+                    result[i] = decoder.read(in);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean[] readNullMap(final BinaryInput in, final int rows) throws IOException
+    {
+        final boolean[] nulls = new boolean[rows];
+        for (int i = 0; i < rows; i++)
+        {
+            nulls[i] = in.readUnsignedByte() != 0;
+        }
+        return nulls;
+    }
+
+    private static long[] readOffsets(final BinaryInput in, final int rows) throws IOException
+    {
+        final long[] offsets = new long[rows];
+        for (int i = 0; i < rows; i++)
+        {
+            offsets[i] = in.readLong();
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,206 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.ethlo.clackshack.QueryOptions;
+import com.ethlo.clackshack.model.Column;
+import com.ethlo.clackshack.model.ColumnType;
+import com.ethlo.clackshack.model.MetaEntry;
+import com.ethlo.clackshack.model.ResultSet;
+import com.ethlo.clackshack.model.Row;
+import com.ethlo.clackshack.model.RowSchema;
+
+/**
+ * Reads the <code>RowBinaryWithNamesAndTypes</code> format. The header holds the column names and types, which are used to
+ * create one {@link BinaryDecoder} per column. Values are then read straight from the bytes into Java types, without any
+ * intermediate text representation.
+ */
+public class RowBinaryReader implements RowReader
+{
+    public static final String FORMAT_NAME = "RowBinaryWithNamesAndTypes";
+
+    private final BinaryInput input;
+    private final List<MetaEntry> meta;
+    private final RowSchema schema;
+    private final BinaryDecoder[] decoders;
+    private final ZoneId timeZone;
+    private final QueryOptions queryOptions;
+
+    public RowBinaryReader(final InputStream inputStream, final ZoneId timeZone)
+    {
+        this(inputStream, timeZone, QueryOptions.DEFAULT);
+    }
+
+    public RowBinaryReader(final InputStream inputStream, final ZoneId timeZone, final QueryOptions queryOptions)
+    {
+        this.input = new BinaryInput(inputStream);
+        this.timeZone = timeZone;
+        this.queryOptions = queryOptions;
+        try
+        {
+            if (input.isEof())
+            {
+                this.meta = Collections.emptyList();
+                this.decoders = new BinaryDecoder[0];
+                this.schema = RowSchema.of(meta);
+            }
+            else
+            {
+                final int columnCount = Math.toIntExact(input.readVarInt());
+                final String[] names = new String[columnCount];
+                for (int i = 0; i < columnCount; i++)
+                {
+                    names[i] = input.readString();
+                }
+
+                final List<MetaEntry> entries = new ArrayList<>(columnCount);
+                this.decoders = new BinaryDecoder[columnCount];
+                for (int i = 0; i < columnCount; i++)
+                {
+                    final String type = input.readString();
+                    entries.add(new MetaEntry(names[i], type));
+                    decoders[i] = BinaryDecoders.forType(ColumnType.of(type), timeZone, queryOptions);
+                }
+                this.meta = Collections.unmodifiableList(entries);
+                this.schema = RowSchema.of(meta);
+            }
+        }
+        catch (IOException exc)
+        {
+            close();
+            throw new UncheckedIOException("Unable to read result header", exc);
+        }
+        catch (RuntimeException exc)
+        {
+            close();
+            throw exc;
+        }
+    }
+
+    @Override
+    public List<MetaEntry> getMeta()
+    {
+        return meta;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        try
+        {
+            return decoders.length > 0 && !input.isEof();
+        }
+        catch (IOException exc)
+        {
+            close();
+            throw new UncheckedIOException("Unable to read row data", exc);
+        }
+    }
+
+    @Override
+    public Row next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+
+        try
+        {
+            final Object[] values = new Object[decoders.length];
+            for (int i = 0; i < decoders.length; i++)
+            {
+                values[i] = decoders[i].read(input);
+            }
+            return new Row(schema, values);
+        }
+        catch (IOException exc)
+        {
+            close();
+            throw new UncheckedIOException("Unable to read row data", exc);
+        }
+    }
+
+    /**
+     * Read the remaining rows into a {@link ResultSet}, decoding the values straight into the column storage instead of
+     * creating a {@link Row} per record
+     *
+     * @return The remaining rows
+     */
+    public ResultSet readResultSet()
+    {
+        final BinaryColumnBuilder[] builders = new BinaryColumnBuilder[meta.size()];
+        for (int i = 0; i < builders.length; i++)
+        {
+            final MetaEntry entry = meta.get(i);
+            final ColumnType type = ColumnType.of(entry.getType());
+            // LowCardinality values are sent as their plain type
+            builders[i] = BinaryColumnBuilder.of(entry.getName(), entry.getType(), type.getName().equals("LowCardinality") ? type.getNestedType(0) : type, timeZone, queryOptions);
+        }
+
+        int size = 0;
+        try
+        {
+            while (hasNext())
+            {
+                for (final BinaryColumnBuilder builder : builders)
+                {
+                    builder.readRow(input);
+                }
+                size++;
+            }
+        }
+        catch (IOException exc)
+        {
+            close();
+            throw new UncheckedIOException("Unable to read row data", exc);
+        }
+
+        final List<Column> columns = new ArrayList<>(builders.length);
+        for (final BinaryColumnBuilder builder : builders)
+        {
+            columns.add(builder.build());
+        }
+        return new ResultSet(columns, size);
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            input.close();
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException(exc);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ethlo.clackshack.model.MetaEntry;
+import com.ethlo.clackshack.model.Row;
+import com.ethlo.clackshack.util.BeanProperties;
+
+/**
+ * Writes rows in the <code>RowBinary</code> format, for the columns of an <code>INSERT ... FORMAT RowBinary</code>
+ * statement. A row may be given as an <code>Object[]</code> or {@link List} in column order, a {@link Map} or
+ * {@link Row} keyed by column name, or a record or bean whose component or getter names match the column names,
+ * ignoring case and underscores.
+ */
+public class RowBinaryWriter implements AutoCloseable
+{
+    public static final String FORMAT_NAME = "RowBinary";
+
+    private static final ClassValue<Map<String, MethodHandle>> ACCESSORS = new ClassValue<>()
+    {
+        @Override
+        protected Map<String, MethodHandle> computeValue(final Class<?> type)
+        {
+            return accessors(type);
+        }
+    };
+
+    private final BinaryOutput output;
+    private final String[] names;
+    private final BinaryEncoder[] encoders;
+    private final Map<Class<?>, MethodHandle[]> plans = new IdentityHashMap<>();
+    private final Object[] values;
+    private long rowCount;
+
+    /**
+     * @param outputStream The target of the data
+     * @param columns      The names and types of the columns, in the order of the insert statement
+     * @param timeZone     The time zone of local date-time values when the column type does not specify one
+     */
+    public RowBinaryWriter(final OutputStream outputStream, final List<MetaEntry> columns, final ZoneId timeZone)
+    {
+        this(new BinaryOutput(outputStream), columns, timeZone);
+    }
+
+    /**
+     * @param outputStream The target of the data
+     * @param columns      The names and types of the columns, in the order of the insert statement
+     * @param timeZone     The time zone of local date-time values when the column type does not specify one
+     * @param bufferSize   The size of the write buffer, small when encoding single rows
+     */
+    public RowBinaryWriter(final OutputStream outputStream, final List<MetaEntry> columns, final ZoneId timeZone, final int bufferSize)
+    {
+        this(new BinaryOutput(outputStream, bufferSize), columns, timeZone);
+    }
+
+    private RowBinaryWriter(final BinaryOutput output, final List<MetaEntry> columns, final ZoneId timeZone)
+    {
+        this.output = output;
+        this.names = new String[columns.size()];
+        this.encoders = new BinaryEncoder[columns.size()];
+        for (int i = 0; i < names.length; i++)
+        {
+            names[i] = columns.get(i).getName();
+            encoders[i] = BinaryEncoders.forType(columns.get(i).getType(), timeZone);
+        }
+        this.values = new Object[names.length];
+    }
+
+    /**
+     * Write a row
+     *
+     * @param row The row, see the class description for the supported types
+     */
+    public void write(final Object row)
+    {
+        final Object[] rowValues = toValues(row);
+        try
+        {
+            for (int i = 0; i < encoders.length; i++)
+            {
+                encoders[i].write(output, rowValues[i]);
+            }
+            rowCount++;
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException("Unable to write row " + rowCount, exc);
+        }
+        catch (IllegalArgumentException | ArithmeticException exc)
+        {
+            throw new IllegalArgumentException("Unable to write row " + rowCount + ": " + exc.getMessage(), exc);
+        }
+    }
+
+    public long getRowCount()
+    {
+        return rowCount;
+    }
+
+    public long getBytesWritten()
+    {
+        return output.getBytesWritten();
+    }
+
+    public void flush()
+    {
+        try
+        {
+            output.flush();
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException("Unable to flush rows", exc);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            output.close();
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException("Unable to write rows", exc);
+        }
+    }
+
+    private Object[] toValues(final Object row)
+    {
+        if (row instanceof Object[] array)
+        {
+            checkSize(array.length);
+            return array;
+        }
+        else if (row instanceof List<?> list)
+        {
+            checkSize(list.size());
+            return list.toArray();
+        }
+        else if (row instanceof Map<?, ?> map)
+        {
+            for (int i = 0; i < names.length; i++)
+            {
+                values[i] = map.get(names[i]);
+            }
+            return values;
+        }
+        else if (row instanceof Row r)
+        {
+            for (int i = 0; i < names.length; i++)
+            {
+                values[i] = r.get(names[i]);
+            }
+            return values;
+        }
+
+        final MethodHandle[] accessors = plans.computeIfAbsent(row.getClass(), this::plan);
+        try
+        {
+            for (int i = 0; i < accessors.length; i++)
+            {
+                values[i] = (Object) accessors[i].invokeExact(row);
+            }
+        }
+        catch (RuntimeException | Error exc)
+        {
+            throw exc;
+        }
+        catch (Throwable exc)
+        {
+            throw new IllegalStateException("Unable to read values of " + row.getClass().getName(), exc);
+        }
+        return values;
+    }
+
+    private void checkSize(final int size)
+    {
+        if (size != names.length)
+        {
+            throw new IllegalArgumentException("Expected " + names.length + " values per row, got " + size);
+        }
+    }
+
+    private MethodHandle[] plan(final Class<?> type)
+    {
+        final Map<String, MethodHandle> accessors = ACCESSORS.get(type);
+        final MethodHandle[] plan = new MethodHandle[names.length];
+        for (int i = 0; i < names.length; i++)
+        {
+            plan[i] = accessors.get(BeanProperties.normalize(names[i]));
+            if (plan[i] == null)
+            {
+                throw new IllegalArgumentException("No property matching column " + names[i] + " in " + type.getName());
+            }
+        }
+        return plan;
+    }
+
+    private static Map<String, MethodHandle> accessors(final Class<?> type)
+    {
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        final Map<String, MethodHandle> accessors = new HashMap<>();
+        try
+        {
+            for (final BeanProperties.Property property : BeanProperties.readable(type))
+            {
+                accessors.putIfAbsent(BeanProperties.normalize(property.name()), adapt(lookup.unreflect(property.method())));
+            }
+            return accessors;
+        }
+        catch (ReflectiveOperationException | RuntimeException exc)
+        {
+            throw new IllegalArgumentException("Unable to read values of " + type.getName() + ", it must be a record or have public getters", exc);
+        }
+    }
+
+    private static MethodHandle adapt(final MethodHandle accessor)
+    {
+        return accessor.asType(MethodType.methodType(Object.class, Object.class));
+    }
+}
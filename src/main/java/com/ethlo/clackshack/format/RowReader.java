@@ -0,0 +1,47 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Iterator;
+import java.util.List;
+
+import com.ethlo.clackshack.model.MetaEntry;
+import com.ethlo.clackshack.model.Row;
+
+/**
+ * Incremental reader of rows from a query response. Rows are decoded one at a time as they are requested, so the
+ * response body is never held in memory as a whole.
+ */
+public interface RowReader extends Iterator<Row>, AutoCloseable
+{
+    /**
+     * The column names and types of the result, as reported by ClickHouse before the first row
+     *
+     * @return The column meta-data
+     */
+    List<MetaEntry> getMeta();
+
+    /**
+     * Release the underlying response. Closing before all rows are consumed aborts the transfer.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,110 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ethlo.clackshack.QueryOptions;
+import com.ethlo.clackshack.model.ColumnConverter;
+import com.ethlo.clackshack.model.DataTypes;
+
+/**
+ * Assigns a code to each distinct string of a column, so equal values share one instance
+ */
+final class StringDictionary
+{
+    /**
+     * The number of distinct values kept by {@link #intern(String)}, beyond which values are passed through as they are
+     */
+    static final int MAX_INTERNED = 65_536;
+
+    /**
+     * Whether values of a column are dictionary encoded, which is the case for <code>LowCardinality</code> and
+     * <code>Enum</code> columns, and for all string columns if requested by {@link QueryOptions#dictionaryStrings()}
+     *
+     * @param converter    The converter of the column
+     * @param queryOptions The query options
+     * @return True if the values should be dictionary encoded
+     */
+    static boolean appliesTo(final ColumnConverter converter, final QueryOptions queryOptions)
+    {
+        final DataTypes.DataType<?> dataType = converter.findDataType();
+        if (dataType == DataTypes.ENUM || dataType == DataTypes.ENUM_8 || dataType == DataTypes.ENUM_16)
+        {
+            return true;
+        }
+        return (dataType == DataTypes.STRING || dataType == DataTypes.FIXED_STRING) && (converter.isLowCardinality() || queryOptions.dictionaryStrings());
+    }
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * Returns the code of a value, adding it to the dictionary if not yet present
+     *
+     * @param value The value
+     * @return The index of the value in {@link #values()}
+     */
+    int code(final String value)
+    {
+        Integer code = codes.get(value);
+        if (code == null)
+        {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * Returns the shared instance of a value. Once the dictionary is full, values not already present are returned as they are.
+     *
+     * @param value The value
+     * @return The shared instance equal to the value
+     */
+    String intern(final String value)
+    {
+        if (value == null)
+        {
+            return null;
+        }
+        final Integer code = codes.get(value);
+        if (code != null)
+        {
+            return values.get(code);
+        }
+        if (values.size() < MAX_INTERNED)
+        {
+            codes.put(value, values.size());
+            values.add(value);
+        }
+        return value;
+    }
+
+    List<String> values()
+    {
+        return values;
+    }
+}
@@ -0,0 +1,509 @@
+package com.ethlo.clackshack.model;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ethlo.clackshack.util.BeanProperties;
+
+/**
+ * Maps rows to a Java record through its canonical constructor, or to a class through its no-argument constructor and
+ * setters. Method handles for the class are resolved once per class, and the columns are bound to positions once per
+ * result schema, so mapping a row is an indexed read per property and a single constructor or setter invocation.
+ *
+ * @param <T> The target type
+ */
+final class ClassRowMapper<T> implements RowMapper<T>
+{
+    private static final int MAX_PLANS = 64;
+    private static final ClassValue<ClassRowMapper<?>> MAPPERS = new ClassValue<>()
+    {
+        @Override
+        protected ClassRowMapper<?> computeValue(final Class<?> type)
+        {
+            return new ClassRowMapper<>(type);
+        }
+    };
+
+    private final Class<T> type;
+    private final boolean record;
+    private final MethodHandle constructor;
+    private final List<Property> properties;
+    private final Map<RowSchema, Plan> plans = new ConcurrentHashMap<>();
+
+    private ClassRowMapper(final Class<T> type)
+    {
+        this.type = type;
+        this.record = type.isRecord();
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try
+        {
+            this.properties = new ArrayList<>();
+            final List<BeanProperties.Property> writable = BeanProperties.writable(type);
+            if (record)
+            {
+                final Class<?>[] parameterTypes = new Class<?>[writable.size()];
+                for (int i = 0; i < parameterTypes.length; i++)
+                {
+                    parameterTypes[i] = writable.get(i).type();
+                    properties.add(new Property(writable.get(i).name(), parameterTypes[i], null));
+                }
+                final Constructor<T> canonical = type.getDeclaredConstructor(parameterTypes);
+                canonical.setAccessible(true);
+                this.constructor = lookup.unreflectConstructor(canonical)
+                        .asSpreader(Object[].class, parameterTypes.length)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+            }
+            else
+            {
+                final Constructor<T> noArgs = type.getDeclaredConstructor();
+                noArgs.setAccessible(true);
+                this.constructor = lookup.unreflectConstructor(noArgs).asType(MethodType.methodType(Object.class));
+                for (final BeanProperties.Property property : writable)
+                {
+                    final MethodHandle setter = lookup.unreflect(property.method()).asType(MethodType.methodType(void.class, Object.class, property.type()));
+                    properties.add(new Property(property.name(), property.type(), setter));
+                }
+            }
+        }
+        catch (ReflectiveOperationException | RuntimeException exc)
+        {
+            throw new IllegalArgumentException("Unable to map rows to " + type.getName() + ", it must be a record or have a no-argument constructor", exc);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> ClassRowMapper<T> of(final Class<T> type)
+    {
+        return (ClassRowMapper<T>) MAPPERS.get(type);
+    }
+
+    @Override
+    public T map(final Row row)
+    {
+        final Plan plan = plan(row.getSchema());
+        try
+        {
+            if (record)
+            {
+                final Object[] args = new Object[plan.bindings.length];
+                for (int i = 0; i < args.length; i++)
+                {
+                    args[i] = plan.bindings[i].get(row);
+                }
+                return type.cast((Object) constructor.invokeExact(args));
+            }
+
+            final Object target = (Object) constructor.invokeExact();
+            for (final Binding binding : plan.bindings)
+            {
+                binding.set(target, row);
+            }
+            return type.cast(target);
+        }
+        catch (RuntimeException | Error exc)
+        {
+            throw exc;
+        }
+        catch (Throwable exc)
+        {
+            throw new IllegalStateException("Unable to map row to " + type.getName(), exc);
+        }
+    }
+
+    private Plan plan(final RowSchema schema)
+    {
+        final Plan cached = plans.get(schema);
+        if (cached != null)
+        {
+            return cached;
+        }
+
+        if (plans.size() >= MAX_PLANS)
+        {
+            plans.clear();
+        }
+        final Plan created = new Plan(bind(schema));
+        plans.put(schema, created);
+        return created;
+    }
+
+    private Binding[] bind(final RowSchema schema)
+    {
+        final Map<String, Integer> columns = new HashMap<>();
+        final Set<String> ambiguous = new HashSet<>();
+        for (int i = 0; i < schema.size(); i++)
+        {
+            final String name = BeanProperties.normalize(schema.getName(i));
+            if (columns.putIfAbsent(name, i) != null)
+            {
+                ambiguous.add(name);
+            }
+        }
+
+        final Integer[] indexes = new Integer[properties.size()];
+        final Map<Integer, String> bound = new HashMap<>();
+        int matched = 0;
+        for (int i = 0; i < properties.size(); i++)
+        {
+            final Property property = properties.get(i);
+            final String name = BeanProperties.normalize(property.name);
+            indexes[i] = columns.get(name);
+            if (indexes[i] == null)
+            {
+                continue;
+            }
+
+            if (ambiguous.contains(name))
+            {
+                throw new IllegalArgumentException("Property " + property.name + " of " + type.getName() + " matches more than one column of " + schema);
+            }
+            final String previous = bound.put(indexes[i], property.name);
+            if (previous != null)
+            {
+                throw new IllegalArgumentException("Properties " + previous + " and " + property.name + " of " + type.getName() + " both match column " + schema.getName(indexes[i]));
+            }
+            matched++;
+        }
+
+        if (record && matched < properties.size())
+        {
+            if (matched > 0 || schema.size() != properties.size())
+            {
+                final List<String> unmatched = new ArrayList<>();
+                for (int i = 0; i < indexes.length; i++)
+                {
+                    if (indexes[i] == null)
+                    {
+                        unmatched.add(properties.get(i).name);
+                    }
+                }
+                throw new IllegalArgumentException("Only " + matched + " of the " + properties.size() + " components of " + type.getName() + " match a column of " + schema
+                        + ", no column for " + unmatched);
+            }
+
+            // Bind by position when none of the columns are named after the components
+            for (int i = 0; i < indexes.length; i++)
+            {
+                indexes[i] = i;
+            }
+        }
+
+        final List<Binding> bindings = new ArrayList<>(properties.size());
+        for (int i = 0; i < properties.size(); i++)
+        {
+            if (indexes[i] != null)
+            {
+                bindings.add(Binding.of(properties.get(i), indexes[i], schema.getName(indexes[i])));
+            }
+        }
+        return bindings.toArray(new Binding[0]);
+    }
+
+    private static final class Plan
+    {
+        private final Binding[] bindings;
+
+        private Plan(final Binding[] bindings)
+        {
+            this.bindings = bindings;
+        }
+    }
+
+    private static final class Property
+    {
+        private final String name;
+        private final Class<?> type;
+        private final MethodHandle setter;
+
+        private Property(final String name, final Class<?> type, final MethodHandle setter)
+        {
+            this.name = name;
+            this.type = type;
+            this.setter = setter;
+        }
+    }
+
+    /**
+     * Reads one column of a row in the representation of the target property. Primitive setters are invoked with the
+     * primitive value directly.
+     */
+    private abstract static class Binding
+    {
+        protected final int index;
+        protected final MethodHandle setter;
+
+        Binding(final int index, final MethodHandle setter)
+        {
+            this.index = index;
+            this.setter = setter;
+        }
+
+        static Binding of(final Property property, final int index, final String column)
+        {
+            final Class<?> type = property.type;
+            final MethodHandle setter = property.setter;
+            if (type == long.class)
+            {
+                return new LongBinding(index, setter);
+            }
+            else if (type == int.class)
+            {
+                return new IntBinding(index, setter);
+            }
+            else if (type == double.class)
+            {
+                return new DoubleBinding(index, setter);
+            }
+            else if (type == boolean.class)
+            {
+                return new BooleanBinding(index, setter);
+            }
+            return new ObjectBinding(index, setter, property.type, column);
+        }
+
+        static Object defaultValue(final Class<?> type)
+        {
+            if (!type.isPrimitive())
+            {
+                return null;
+            }
+
+            try
+            {
+                return MethodHandles.zero(type).invoke();
+            }
+            catch (Throwable exc)
+            {
+                throw new IllegalStateException(exc);
+            }
+        }
+
+        static MethodHandle adapt(final MethodHandle setter, final Class<?> type)
+        {
+            return setter == null ? null : setter.asType(MethodType.methodType(void.class, Object.class, type));
+        }
+
+        abstract Object get(Row row);
+
+        abstract void set(Object target, Row row) throws Throwable;
+    }
+
+    private static final class LongBinding extends Binding
+    {
+        LongBinding(final int index, final MethodHandle setter)
+        {
+            super(index, adapt(setter, long.class));
+        }
+
+        @Override
+        Object get(final Row row)
+        {
+            return row.getLong(index);
+        }
+
+        @Override
+        void set(final Object target, final Row row) throws Throwable
+        {
+            setter.invokeExact(target, row.getLong(index));
+        }
+    }
+
+    private static final class IntBinding extends Binding
+    {
+        IntBinding(final int index, final MethodHandle setter)
+        {
+            super(index, adapt(setter, int.class));
+        }
+
+        @Override
+        Object get(final Row row)
+        {
+            return row.getInt(index);
+        }
+
+        @Override
+        void set(final Object target, final Row row) throws Throwable
+        {
+            setter.invokeExact(target, row.getInt(index));
+        }
+    }
+
+    private static final class DoubleBinding extends Binding
+    {
+        DoubleBinding(final int index, final MethodHandle setter)
+        {
+            super(index, adapt(setter, double.class));
+        }
+
+        @Override
+        Object get(final Row row)
+        {
+            return row.getDouble(index);
+        }
+
+        @Override
+        void set(final Object target, final Row row) throws Throwable
+        {
+            setter.invokeExact(target, row.getDouble(index));
+        }
+    }
+
+    private static final class BooleanBinding extends Binding
+    {
+        BooleanBinding(final int index, final MethodHandle setter)
+        {
+            super(index, adapt(setter, boolean.class));
+        }
+
+        @Override
+        Object get(final Row row)
+        {
+            return row.getBoolean(index);
+        }
+
+        @Override
+        void set(final Object target, final Row row) throws Throwable
+        {
+            setter.invokeExact(target, row.getBoolean(index));
+        }
+    }
+
+    private static final class ObjectBinding extends Binding
+    {
+        private final Class<?> type;
+        private final String column;
+        private final Object defaultValue;
+
+        ObjectBinding(final int index, final MethodHandle setter, final Class<?> type, final String column)
+        {
+            super(index, adapt(setter, Object.class));
+            this.type = type;
+            this.column = column;
+            this.defaultValue = defaultValue(type);
+        }
+
+        @Override
+        Object get(final Row row)
+        {
+            final Object value = row.get(index);
+            if (value == null)
+            {
+                return defaultValue;
+            }
+            else if (type == String.class)
+            {
+                return value.toString();
+            }
+            else if (value instanceof Number number && !type.isInstance(value))
+            {
+                return toNumber(number);
+            }
+            else if (!type.isInstance(value) && !type.isPrimitive())
+            {
+                throw new IllegalArgumentException("Column " + column + " with value of type " + value.getClass().getName() + " cannot be mapped to " + type.getName());
+            }
+            return value;
+        }
+
+        /**
+         * Convert to the target type, failing like the primitive accessors of {@link Row} when an integer target cannot
+         * hold the value exactly
+         */
+        private Object toNumber(final Number number)
+        {
+            if (type == Long.class || type == long.class)
+            {
+                return exactLong(number);
+            }
+            else if (type == Integer.class || type == int.class)
+            {
+                return (int) narrow(exactLong(number), Integer.MIN_VALUE, Integer.MAX_VALUE);
+            }
+            else if (type == Double.class || type == double.class)
+            {
+                return number.doubleValue();
+            }
+            else if (type == Float.class || type == float.class)
+            {
+                return number.floatValue();
+            }
+            else if (type == Short.class || type == short.class)
+            {
+                return (short) narrow(exactLong(number), Short.MIN_VALUE, Short.MAX_VALUE);
+            }
+            else if (type == Byte.class || type == byte.class)
+            {
+                return (byte) narrow(exactLong(number), Byte.MIN_VALUE, Byte.MAX_VALUE);
+            }
+            throw new IllegalArgumentException("Column " + column + " with value of type " + number.getClass().getName() + " cannot be mapped to " + type.getName());
+        }
+
+        private long exactLong(final Number number)
+        {
+            if (number instanceof BigInteger bigInteger)
+            {
+                return bigInteger.longValueExact();
+            }
+            else if (number instanceof BigDecimal bigDecimal)
+            {
+                return bigDecimal.longValueExact();
+            }
+            else if (number instanceof Double || number instanceof Float)
+            {
+                final double value = number.doubleValue();
+                if (Math.rint(value) != value || value < -0x1p63 || value >= 0x1p63)
+                {
+                    throw new ArithmeticException("Column " + column + " value " + number + " is not an integer in the range of " + type.getName());
+                }
+                return (long) value;
+            }
+            return number.longValue();
+        }
+
+        private long narrow(final long value, final long min, final long max)
+        {
+            if (value < min || value > max)
+            {
+                throw new ArithmeticException("Column " + column + " value " + value + " overflows " + type.getName());
+            }
+            return value;
+        }
+
+        @Override
+        void set(final Object target, final Row row) throws Throwable
+        {
+            setter.invokeExact(target, get(row));
+        }
+    }
+}
@@ -0,0 +1,601 @@
+package com.ethlo.clackshack.model;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+
+import com.ethlo.clackshack.util.IpAddresses;
+import com.ethlo.clackshack.util.WideIntegers;
+
+/**
+ * A single column of a {@link ColumnarResultSet}. Numeric and temporal values are kept in primitive arrays, strings are
+ * dictionary encoded, and only composite types fall back to an object per cell.
+ */
+public abstract class Column
+{
+    protected final String name;
+    protected final String type;
+    protected final int size;
+    private final BitSet nulls;
+
+    protected Column(final String name, final String type, final int size, final BitSet nulls)
+    {
+        this.name = name;
+        this.type = type;
+        this.size = size;
+        this.nulls = nulls;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getType()
+    {
+        return type;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isNull(final int row)
+    {
+        return nulls != null && nulls.get(row);
+    }
+
+    /**
+     * Returns the value as the same Java type a {@link ResultSet} would hold for this column type
+     *
+     * @param row The row index
+     * @return The boxed value, or null
+     */
+    public abstract Object getObject(int row);
+
+    public long getLong(final int row)
+    {
+        throw unsupported("long");
+    }
+
+    public int getInt(final int row)
+    {
+        return Math.toIntExact(getLong(row));
+    }
+
+    public double getDouble(final int row)
+    {
+        throw unsupported("double");
+    }
+
+    public boolean getBoolean(final int row)
+    {
+        return getLong(row) != 0;
+    }
+
+    public String getString(final int row)
+    {
+        final Object value = getObject(row);
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * Returns the values as a <code>long[]</code>. The backing array is returned directly for <code>long</code> based columns, otherwise a widened copy.
+     *
+     * @return The values of this column
+     */
+    public long[] asLongArray()
+    {
+        final long[] result = new long[size];
+        for (int i = 0; i < size; i++)
+        {
+            result[i] = getLong(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the values as an <code>int[]</code>. The backing array is returned directly for <code>int</code> based columns.
+     *
+     * @return The values of this column
+     */
+    public int[] asIntArray()
+    {
+        final int[] result = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            result[i] = getInt(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the values as a <code>double[]</code>. The backing array is returned directly for floating point columns, otherwise a widened copy.
+     *
+     * @return The values of this column
+     */
+    public double[] asDoubleArray()
+    {
+        final double[] result = new double[size];
+        for (int i = 0; i < size; i++)
+        {
+            result[i] = getDouble(i);
+        }
+        return result;
+    }
+
+    protected UnsupportedOperationException unsupported(final String target)
+    {
+        return new UnsupportedOperationException("Column " + name + " of type " + type + " cannot be read as " + target);
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "{name=" + name + ", type=" + type + ", size=" + size + "}";
+    }
+
+    public static final class LongColumn extends Column
+    {
+        private final long[] values;
+        private final LongFunction<Object> boxer;
+
+        public LongColumn(final String name, final String type, final long[] values, final int size, final BitSet nulls, final LongFunction<Object> boxer)
+        {
+            super(name, type, size, nulls);
+            this.values = values.length == size ? values : Arrays.copyOf(values, size);
+            this.boxer = boxer;
+        }
+
+        @Override
+        public Object getObject(final int row)
+        {
+            return isNull(row) ? null : boxer.apply(values[row]);
+        }
+
+        @Override
+        public long getLong(final int row)
+        {
+            return values[row];
+        }
+
+        @Override
+        public double getDouble(final int row)
+        {
+            return values[row];
+        }
+
+        @Override
+        public long[] asLongArray()
+        {
+            return values;
+        }
+    }
+
+    public static final class IntColumn extends Column
+    {
+        private final int[] values;
+        private final IntFunction<Object> boxer;
+
+        public IntColumn(final String name, final String type, final int[] values, final int size, final BitSet nulls, final IntFunction<Object> boxer)
+        {
+            super(name, type, size, nulls);
+            this.values = values.length == size ? values : Arrays.copyOf(values, size);
+            this.boxer = boxer;
+        }
+
+        @Override
+        public Object getObject(final int row)
+        {
+            return isNull(row) ? null : boxer.apply(values[row]);
+        }
+
+        @Override
+        public long getLong(final int row)
+        {
+            return values[row];
+        }
+
+        @Override
+        public int getInt(final int row)
+        {
+            return values[row];
+        }
+
+        @Override
+        public double getDouble(final int row)
+        {
+            return values[row];
+        }
+
+        @Override
+        public int[] asIntArray()
+        {
+            return values;
+        }
+    }
+
+    public static final class DoubleColumn extends Column
+    {
+        private final double[] values;
+        private final boolean singlePrecision;
+
+        public DoubleColumn(final String name, final String type, final double[] values, final int size, final BitSet nulls, final boolean singlePrecision)
+        {
+            super(name, type, size, nulls);
+            this.values = values.length == size ? values : Arrays.copyOf(values, size);
+            this.singlePrecision = singlePrecision;
+        }
+
+        @Override
+        public Object getObject(final int row)
+        {
+            if (isNull(row))
+            {
+                return null;
+            }
+            return singlePrecision ? (Object) (float) values[row] : (Object) values[row];
+        }
+
+        @Override
+        public long getLong(final int row)
+        {
+            return (long) values[row];
+        }
+
+        @Override
+        public double getDouble(final int row)
+        {
+            return values[row];
+        }
+
+        @Override
+        public double[] asDoubleArray()
+        {
+            return values;
+        }
+    }
+
+    /**
+     * Dictionary encoded strings, where each row holds a code into a list of distinct values
+     */
+    public static final class StringColumn extends Column
+    {
+        private final int[] codes;
+        private final List<String> dictionary;
+
+        public StringColumn(final String name, final String type, final int[] codes, final int size, final BitSet nulls, final List<String> dictionary)
+        {
+            super(name, type, size, nulls);
+            this.codes = codes.length == size ? codes : Arrays.copyOf(codes, size);
+            this.dictionary = Collections.unmodifiableList(dictionary);
+        }
+
+        @Override
+        public Object getObject(final int row)
+        {
+            return getString(row);
+        }
+
+        @Override
+        public String getString(final int row)
+        {
+            return isNull(row) ? null : dictionary.get(codes[row]);
+        }
+
+        /**
+         * The dictionary code of the value in this row
+         *
+         * @param row The row index
+         * @return The index of the value in {@link #getDictionary()}
+         */
+        public int getCode(final int row)
+        {
+            return codes[row];
+        }
+
+        public List<String> getDictionary()
+        {
+            return dictionary;
+        }
+    }
+
+    /**
+     * IPv6 addresses, stored as the high and low 64 bits in network order
+     */
+    public static final class Ipv6Column extends Column
+    {
+        private final long[] high;
+        private final long[] low;
+
+        public Ipv6Column(final String name, final String type, final long[] high, final long[] low, final int size, final BitSet nulls)
+        {
+            super(name, type, size, nulls);
+            this.high = high.length == size ? high : Arrays.copyOf(high, size);
+            this.low = low.length == size ? low : Arrays.copyOf(low, size);
+        }
+
+        @Override
+        public Object getObject(final int row)
+        {
+            return isNull(row) ? null : IpAddresses.toInet6Address(high[row], low[row]);
+        }
+
+        public long getHigh(final int row)
+        {
+            return high[row];
+        }
+
+        public long getLow(final int row)
+        {
+            return low[row];
+        }
+    }
+
+    /**
+     * Decimals of up to 18 digits, stored as unscaled <code>long</code> values with the scale of the column type.
+     * A {@link BigDecimal} is only created when a value is read with {@link #getObject(int)}.
+     */
+    public static final class DecimalColumn extends Column
+    {
+        private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+                10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L,
+                10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L};
+
+        private final long[] unscaled;
+        private final int scale;
+
+        public DecimalColumn(final String name, final String type, final long[] unscaled, final int scale, final int size, final BitSet nulls)
+        {
+            super(name, type, size, nulls);
+            this.unscaled = unscaled.length == size ? unscaled : Arrays.copyOf(unscaled, size);
+            this.scale = scale;
+        }
+
+        @Override
+        public Object getObject(final int row)
+        {
+            return isNull(row) ? null : BigDecimal.valueOf(unscaled[row], scale);
+        }
+
+        /**
+         * Returns the integer part of the value
+         */
+        @Override
+        public long getLong(final int row)
+        {
+            return unscaled[row] / POWERS_OF_TEN[scale];
+        }
+
+        @Override
+        public double getDouble(final int row)
+        {
+            return (double) unscaled[row] / POWERS_OF_TEN[scale];
+        }
+
+        /**
+         * Returns the value multiplied by 10 to the power of the scale
+         *
+         * @param row The row index
+         * @return The unscaled value
+         */
+        public long getUnscaled(final int row)
+        {
+            return unscaled[row];
+        }
+
+        public int getScale()
+        {
+            return scale;
+        }
+
+        /**
+         * Returns the unscaled values. The backing array is returned directly.
+         *
+         * @return The unscaled values of this column
+         */
+        public long[] getUnscaledValues()
+        {
+            return unscaled;
+        }
+    }
+
+    /**
+     * 128 and 256-bit integers, stored as consecutive words per row, the least significant word first
+     */
+    public static final class WideIntegerColumn extends Column
+    {
+        private final long[] words;
+        private final int width;
+        private final boolean unsigned;
+
+        public WideIntegerColumn(final String name, final String type, final long[] words, final int width, final boolean unsigned, final int size, final BitSet nulls)
+        {
+            super(name, type, size, nulls);
+            this.words = words.length == size * width ? words : Arrays.copyOf(words, size * width);
+            this.width = width;
+            this.unsigned = unsigned;
+        }
+
+        @Override
+        public Object getObject(final int row)
+        {
+            if (isNull(row))
+            {
+                return null;
+            }
+            final int offset = row * width;
+            if (width == 2)
+            {
+                return unsigned ? Int128.ofUnsigned(words[offset + 1], words[offset]) : Int128.of(words[offset + 1], words[offset]);
+            }
+            return Int256.of(words, offset, unsigned);
+        }
+
+        /**
+         * Returns the lowest 64 bits
+         */
+        @Override
+        public long getLong(final int row)
+        {
+            return words[row * width];
+        }
+
+        @Override
+        public double getDouble(final int row)
+        {
+            return WideIntegers.toDouble(words, row * width, width, !unsigned);
+        }
+
+        /**
+         * Returns a word of a value
+         *
+         * @param row   The row index
+         * @param index The index of the word, 0 being the least significant
+         * @return The word
+         */
+        public long getWord(final int row, final int index)
+        {
+            return words[row * width + index];
+        }
+
+        public int getWidth()
+        {
+            return width;
+        }
+    }
+
+    public static final class ObjectColumn extends Column
+    {
+        private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+        private static final Object CONVERTED_NULL = new Object();
+
+        private final Object[] values;
+        private final Object[] raw;
+        private final Function<Object, Object> converter;
+
+        public ObjectColumn(final String name, final String type, final Object[] values, final int size)
+        {
+            super(name, type, size, null);
+            this.values = values.length == size ? values : Arrays.copyOf(values, size);
+            this.raw = null;
+            this.converter = null;
+        }
+
+        /**
+         * Create a column that converts its raw values on first access, and keeps the converted value for later reads. The
+         * column may be read from several threads, which may then each convert the same value, but always see a fully
+         * constructed one.
+         *
+         * @param name      The column name
+         * @param type      The ClickHouse type
+         * @param raw       The raw values, where null represents a null value
+         * @param size      The number of values
+         * @param converter Converts a non-null raw value
+         */
+        public ObjectColumn(final String name, final String type, final Object[] raw, final int size, final Function<Object, Object> converter)
+        {
+            super(name, type, size, null);
+            this.values = new Object[size];
+            this.raw = raw.length == size ? raw : Arrays.copyOf(raw, size);
+            this.converter = converter;
+        }
+
+        @Override
+        public boolean isNull(final int row)
+        {
+            return raw != null ? raw[row] == null : values[row] == null;
+        }
+
+        @Override
+        public Object getObject(final int row)
+        {
+            if (raw == null)
+            {
+                return values[row];
+            }
+
+            final Object value = VALUES.getAcquire(values, row);
+            if (value != null)
+            {
+                return value != CONVERTED_NULL ? value : null;
+            }
+            if (raw[row] == null)
+            {
+                return null;
+            }
+            final Object converted = converter.apply(raw[row]);
+            VALUES.setRelease(values, row, converted != null ? converted : CONVERTED_NULL);
+            return converted;
+        }
+
+        @Override
+        public long getLong(final int row)
+        {
+            final Object value = getObject(row);
+            if (value instanceof Number number)
+            {
+                return number.longValue();
+            }
+            else if (value == null)
+            {
+                return 0;
+            }
+            throw unsupported("long");
+        }
+
+        @Override
+        public boolean getBoolean(final int row)
+        {
+            final Object value = getObject(row);
+            if (value instanceof Boolean bool)
+            {
+                return bool;
+            }
+            return getLong(row) != 0;
+        }
+
+        @Override
+        public double getDouble(final int row)
+        {
+            final Object value = getObject(row);
+            if (value instanceof Number number)
+            {
+                return number.doubleValue();
+            }
+            else if (value == null)
+            {
+                return 0;
+            }
+            throw unsupported("double");
+        }
+    }
+}
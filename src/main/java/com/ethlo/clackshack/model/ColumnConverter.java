@@ -0,0 +1,216 @@
+package com.ethlo.clackshack.model;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ethlo.clackshack.TypeConversionException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+
+/**
+ * A conversion plan for one ClickHouse type string. The type string is parsed once into its wrapper flags, base
+ * {@link DataTypes.DataType} and parameters, and the plan is cached so it can be reused for every cell of a column and
+ * across queries returning the same type.
+ */
+public final class ColumnConverter
+{
+    private static final int MAX_CACHE_SIZE = 10_000;
+    private static final Map<String, ColumnConverter> CACHE = new ConcurrentHashMap<>();
+
+    private final String type;
+    private final boolean nullable;
+    private final boolean lowCardinality;
+    private final ColumnType baseType;
+    private final DataTypes.DataType<?> dataType;
+
+    private ColumnConverter(final String type)
+    {
+        this.type = type;
+        ColumnType current = ColumnType.parse(type);
+        boolean nullable = false;
+        boolean lowCardinality = false;
+        while (!current.getParameters().isEmpty() && (current.getName().equals("Nullable") || current.getName().equals("LowCardinality")))
+        {
+            nullable |= current.getName().equals("Nullable");
+            lowCardinality |= current.getName().equals("LowCardinality");
+            current = current.getNestedType(0);
+        }
+        this.nullable = nullable;
+        this.lowCardinality = lowCardinality;
+        this.baseType = current;
+        this.dataType = DataTypes.match(current.getName()).orElse(null);
+    }
+
+    /**
+     * Returns the cached plan for the type, creating it on first use
+     *
+     * @param type The ClickHouse type string
+     * @return The conversion plan
+     */
+    public static ColumnConverter of(final String type)
+    {
+        final ColumnConverter cached = CACHE.get(type);
+        if (cached != null)
+        {
+            return cached;
+        }
+
+        final ColumnConverter created = new ColumnConverter(type);
+        if (CACHE.size() < MAX_CACHE_SIZE)
+        {
+            CACHE.put(type, created);
+        }
+        return created;
+    }
+
+    /**
+     * Discard all cached plans, for example after a data type has been replaced
+     */
+    static void clearCache()
+    {
+        CACHE.clear();
+    }
+
+    public Object convert(final JsonNode value)
+    {
+        if (value == null || value instanceof NullNode)
+        {
+            return null;
+        }
+
+        final DataTypes.DataType<?> type = getDataType();
+        try
+        {
+            return type.getParser().apply(value);
+        }
+        catch (Exception exc)
+        {
+            throw new TypeConversionException(type.getName(), value.toPrettyString(), type.getType(), exc);
+        }
+    }
+
+    /**
+     * Convert the value at the current token of the parser. Scalar values of simple types are parsed directly from the
+     * token text, only composite values are read into a JSON tree first.
+     *
+     * @param parser The parser, positioned at the value
+     * @return The converted value
+     * @throws IOException If the value cannot be read
+     */
+    public Object read(final JsonParser parser) throws IOException
+    {
+        return convertRaw(readRaw(parser));
+    }
+
+    /**
+     * Read the value at the current token of the parser without converting it, for later use with
+     * {@link #convertRaw(Object)}
+     *
+     * @param parser The parser, positioned at the value
+     * @return The token text for scalar values of simple types, a JSON node otherwise, or null
+     * @throws IOException If the value cannot be read
+     */
+    public Object readRaw(final JsonParser parser) throws IOException
+    {
+        final JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL)
+        {
+            return null;
+        }
+        else if (token.isScalarValue() && dataType instanceof DataTypes.SimpleDataType<?>)
+        {
+            return parser.getText();
+        }
+        return parser.readValueAsTree();
+    }
+
+    /**
+     * Convert a value previously returned from {@link #readRaw(JsonParser)}
+     *
+     * @param raw The raw value
+     * @return The converted value
+     */
+    public Object convertRaw(final Object raw)
+    {
+        if (raw instanceof String text)
+        {
+            final DataTypes.SimpleDataType<?> simpleDataType = (DataTypes.SimpleDataType<?>) getDataType();
+            try
+            {
+                return simpleDataType.getStringParser().apply(text);
+            }
+            catch (Exception exc)
+            {
+                throw new TypeConversionException(simpleDataType.getName(), text, simpleDataType.getType(), exc);
+            }
+        }
+        return convert((JsonNode) raw);
+    }
+
+    public String getType()
+    {
+        return type;
+    }
+
+    public boolean isNullable()
+    {
+        return nullable;
+    }
+
+    public boolean isLowCardinality()
+    {
+        return lowCardinality;
+    }
+
+    /**
+     * The type with any <code>Nullable</code> and <code>LowCardinality</code> wrappers removed
+     *
+     * @return The base type and its parameters
+     */
+    public ColumnType getBaseType()
+    {
+        return baseType;
+    }
+
+    /**
+     * The base data type, or null if the type is not known
+     *
+     * @return The data type or null
+     */
+    public DataTypes.DataType<?> findDataType()
+    {
+        return dataType;
+    }
+
+    public DataTypes.DataType<?> getDataType()
+    {
+        if (dataType == null)
+        {
+            throw new IllegalArgumentException("Unknown type: " + baseType.getName());
+        }
+        return dataType;
+    }
+}
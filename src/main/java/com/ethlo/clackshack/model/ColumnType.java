@@ -0,0 +1,297 @@
+package com.ethlo.clackshack.model;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A ClickHouse type string split into its base name and its top-level parameters, for example
+ * <code>DateTime64(3, 'UTC')</code> has the name <code>DateTime64</code> and the parameters <code>3</code> and
+ * <code>'UTC'</code>. Parameters are kept verbatim, and nested types are parsed on first use and kept, so a type
+ * obtained from {@link #of(String)} forms a cached tree, for example
+ * <code>Map(String, Array(Nullable(Decimal(18, 4))))</code>.
+ */
+public class ColumnType
+{
+    private static final int MAX_CACHE_SIZE = 10_000;
+    private static final Map<String, ColumnType> CACHE = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final List<String> parameters;
+    private final ColumnType[] nestedTypes;
+
+    private ColumnType(final String name, final List<String> parameters)
+    {
+        this.name = name;
+        this.parameters = parameters;
+        this.nestedTypes = new ColumnType[parameters.size()];
+    }
+
+    /**
+     * Returns the parsed type, cached per type string
+     *
+     * @param type The ClickHouse type string
+     * @return The parsed type
+     */
+    public static ColumnType of(final String type)
+    {
+        final ColumnType cached = CACHE.get(type);
+        if (cached != null)
+        {
+            return cached;
+        }
+
+        final ColumnType created = parse(type);
+        if (CACHE.size() < MAX_CACHE_SIZE)
+        {
+            CACHE.put(type, created);
+        }
+        return created;
+    }
+
+    public static ColumnType parse(final String type)
+    {
+        final String trimmed = Objects.requireNonNull(type, "type cannot be null").trim();
+        final int start = trimmed.indexOf('(');
+        if (start == -1)
+        {
+            return new ColumnType(trimmed, Collections.emptyList());
+        }
+
+        final int end = findClosingParenthesis(trimmed, start);
+        if (end == -1)
+        {
+            throw new IllegalArgumentException("Unbalanced parentheses in type: " + type);
+        }
+        return new ColumnType(trimmed.substring(0, start).trim(), splitParameters(trimmed.substring(start + 1, end)));
+    }
+
+    private static int findClosingParenthesis(final String value, final int start)
+    {
+        int depth = 0;
+        boolean quoted = false;
+        for (int i = start; i < value.length(); i++)
+        {
+            final char c = value.charAt(i);
+            if (quoted)
+            {
+                if (c == '\\')
+                {
+                    i++;
+                }
+                else if (c == '\'')
+                {
+                    quoted = false;
+                }
+            }
+            else if (c == '\'')
+            {
+                quoted = true;
+            }
+            else if (c == '(')
+            {
+                depth++;
+            }
+            else if (c == ')' && --depth == 0)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<String> splitParameters(final String value)
+    {
+        final List<String> result = new ArrayList<>();
+        int depth = 0;
+        boolean quoted = false;
+        int last = 0;
+        for (int i = 0; i < value.length(); i++)
+        {
+            final char c = value.charAt(i);
+            if (quoted)
+            {
+                if (c == '\\')
+                {
+                    i++;
+                }
+                else if (c == '\'')
+                {
+                    quoted = false;
+                }
+            }
+            else if (c == '\'')
+            {
+                quoted = true;
+            }
+            else if (c == '(')
+            {
+                depth++;
+            }
+            else if (c == ')')
+            {
+                depth--;
+            }
+            else if (c == ',' && depth == 0)
+            {
+                result.add(value.substring(last, i).trim());
+                last = i + 1;
+            }
+        }
+
+        final String tail = value.substring(last).trim();
+        if (!tail.isEmpty() || !result.isEmpty())
+        {
+            result.add(tail);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public List<String> getParameters()
+    {
+        return parameters;
+    }
+
+    public String getParameter(final int index)
+    {
+        if (index >= parameters.size())
+        {
+            throw new IllegalArgumentException("Type " + this + " has no parameter at index " + index);
+        }
+        return parameters.get(index);
+    }
+
+    /**
+     * Parse the parameter at the given index as a type, as used by for example <code>Nullable</code> and <code>Array</code>.
+     * The element name of a <code>Tuple</code> or <code>Nested</code> element is not part of the type.
+     *
+     * @param index The parameter index
+     * @return The nested type
+     */
+    public ColumnType getNestedType(final int index)
+    {
+        ColumnType nested = nestedTypes[index];
+        if (nested == null)
+        {
+            final String parameter = getParameter(index);
+            nested = of(hasElementNames() ? stripElementName(parameter) : parameter);
+            nestedTypes[index] = nested;
+        }
+        return nested;
+    }
+
+    /**
+     * The name of an element of a named <code>Tuple</code> or a <code>Nested</code> type
+     *
+     * @param index The parameter index
+     * @return The element name, or null if the element is not named
+     */
+    public String getElementName(final int index)
+    {
+        if (!hasElementNames())
+        {
+            return null;
+        }
+
+        final String parameter = getParameter(index);
+        final int split = elementNameEnd(parameter);
+        if (split == -1)
+        {
+            return null;
+        }
+        final String elementName = parameter.substring(0, split).trim();
+        return elementName.startsWith("`") && elementName.endsWith("`") && elementName.length() > 1 ? elementName.substring(1, elementName.length() - 1) : elementName;
+    }
+
+    private boolean hasElementNames()
+    {
+        return name.equals("Tuple") || name.equals("Nested");
+    }
+
+    private static String stripElementName(final String element)
+    {
+        final int split = elementNameEnd(element);
+        return split == -1 ? element : element.substring(split).trim();
+    }
+
+    /**
+     * The end of a leading element name, which is separated from the type by whitespace before any parenthesis
+     */
+    private static int elementNameEnd(final String element)
+    {
+        if (element.startsWith("`"))
+        {
+            final int end = element.indexOf('`', 1);
+            return end == -1 ? -1 : end + 1;
+        }
+
+        for (int i = 0; i < element.length(); i++)
+        {
+            final char c = element.charAt(i);
+            if (c == '(')
+            {
+                return -1;
+            }
+            else if (Character.isWhitespace(c))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int getIntParameter(final int index)
+    {
+        return Integer.parseInt(getParameter(index));
+    }
+
+    /**
+     * Returns the parameter at the index with surrounding single quotes removed, as used for time zone names
+     *
+     * @param index The parameter index
+     * @return The unquoted parameter value
+     */
+    public String getStringParameter(final int index)
+    {
+        final String value = getParameter(index);
+        if (value.length() >= 2 && value.charAt(0) == '\'' && value.charAt(value.length() - 1) == '\'')
+        {
+            return value.substring(1, value.length() - 1).replace("\\'", "'");
+        }
+        return value;
+    }
+
+    @Override
+    public String toString()
+    {
+        return parameters.isEmpty() ? name : name + "(" + String.join(", ", parameters) + ")";
+    }
+}
@@ -0,0 +1,164 @@
+package com.ethlo.clackshack.model;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A query result stored column by column in primitive arrays, as decoded from the ClickHouse <code>Native</code> format.
+ * This avoids one boxed object per cell for analytic results, and allows whole columns to be handed to vectorised code
+ * through for example {@link Column#asDoubleArray()}.
+ */
+public class ColumnarResultSet
+{
+    private final List<Column> columns;
+    private final Map<String, Integer> columnIndex;
+    private final int size;
+
+    public ColumnarResultSet(final List<Column> columns, final int size)
+    {
+        this.columns = Collections.unmodifiableList(columns);
+        this.size = size;
+        this.columnIndex = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++)
+        {
+            columnIndex.put(columns.get(i).getName(), i);
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public int getColumnCount()
+    {
+        return columns.size();
+    }
+
+    public List<Column> getColumns()
+    {
+        return columns;
+    }
+
+    public List<MetaEntry> getMeta()
+    {
+        final List<MetaEntry> meta = new ArrayList<>(columns.size());
+        for (Column column : columns)
+        {
+            meta.add(new MetaEntry(column.getName(), column.getType()));
+        }
+        return meta;
+    }
+
+    public Column column(final int columnIndex)
+    {
+        return columns.get(columnIndex);
+    }
+
+    public Column column(final String columnName)
+    {
+        return columns.get(getColumnIndex(columnName));
+    }
+
+    public int getColumnIndex(final String columnName)
+    {
+        final Integer index = columnIndex.get(columnName);
+        if (index == null)
+        {
+            throw new IllegalArgumentException("No column with name " + columnName + " found");
+        }
+        return index;
+    }
+
+    public boolean isNull(final int row, final int column)
+    {
+        return columns.get(column).isNull(row);
+    }
+
+    public long getLong(final int row, final int column)
+    {
+        return columns.get(column).getLong(row);
+    }
+
+    public long getLong(final int row, final String column)
+    {
+        return column(column).getLong(row);
+    }
+
+    public int getInt(final int row, final int column)
+    {
+        return columns.get(column).getInt(row);
+    }
+
+    public int getInt(final int row, final String column)
+    {
+        return column(column).getInt(row);
+    }
+
+    public double getDouble(final int row, final int column)
+    {
+        return columns.get(column).getDouble(row);
+    }
+
+    public double getDouble(final int row, final String column)
+    {
+        return column(column).getDouble(row);
+    }
+
+    public String getString(final int row, final int column)
+    {
+        return columns.get(column).getString(row);
+    }
+
+    public String getString(final int row, final String column)
+    {
+        return column(column).getString(row);
+    }
+
+    public Object getObject(final int row, final int column)
+    {
+        return columns.get(column).getObject(row);
+    }
+
+    public Object getObject(final int row, final String column)
+    {
+        return column(column).getObject(row);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ColumnarResultSet{" +
+                "size=" + size +
+                ", columns=" + columns +
+                '}';
+    }
+}
@@ -26,17 +26,17 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.Inet4Address;
 import java.net.Inet6Address;
-import java.net.InetAddress;
-import java.net.UnknownHostException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import com.ethlo.clackshack.format.JsonDecoders;
+import com.ethlo.clackshack.util.DateTimes;
+import com.ethlo.clackshack.util.IpAddresses;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -55,45 +55,24 @@ public class DataTypes
     public static final SimpleDataType<BigInteger> UINT_64 = new SimpleDataType<>("UInt64", BigInteger.class, BigInteger::new);
     public static final SimpleDataType<Long> INT_64 = new SimpleDataType<>("Int64", Long.class, Long::valueOf);
 
-    public static final SimpleDataType<Inet4Address> IP_V4 = new SimpleDataType<>("IPv4", Inet4Address.class, value ->
-    {
-        try
-        {
-            return (Inet4Address) InetAddress.getByName(value);
-        }
-        catch (UnknownHostException e)
-        {
-            throw new IllegalArgumentException(e);
-        }
-    });
+    public static final SimpleDataType<Int128> INT_128 = new SimpleDataType<>("Int128", Int128.class, Int128::parse);
+    public static final SimpleDataType<Int128> UINT_128 = new SimpleDataType<>("UInt128", Int128.class, Int128::parseUnsigned);
+    public static final SimpleDataType<Int256> INT_256 = new SimpleDataType<>("Int256", Int256.class, Int256::parse);
+    public static final SimpleDataType<Int256> UINT_256 = new SimpleDataType<>("UInt256", Int256.class, Int256::parseUnsigned);
 
-    public static final SimpleDataType<Inet6Address> IP_V6 = new SimpleDataType<>("IPv6", Inet6Address.class, value ->
-    {
-        try
-        {
-            return (Inet6Address) InetAddress.getByName(value);
-        }
-        catch (UnknownHostException e)
-        {
-            throw new IllegalArgumentException(e);
-        }
-    });
+    public static final SimpleDataType<Inet4Address> IP_V4 = new SimpleDataType<>("IPv4", Inet4Address.class, value -> IpAddresses.toInet4Address(IpAddresses.parseIpv4(value)));
 
-    public static final SimpleDataType<LocalDateTime> DATE_TIME_64 =
-            new SimpleDataType<>("DateTime64", LocalDateTime.class, value ->
-                    LocalDateTime.parse(value, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS"))
-            );
+    public static final SimpleDataType<Inet6Address> IP_V6 = new SimpleDataType<>("IPv6", Inet6Address.class, IpAddresses::toInet6Address);
+
+    public static final SimpleDataType<LocalDateTime> DATE_TIME_64 = new SimpleDataType<>("DateTime64", LocalDateTime.class, DateTimes::parseDateTime);
 
     public static final SimpleDataType<String> ENUM = new SimpleDataType<>("Enum", String.class, value -> value);
     public static final SimpleDataType<String> ENUM_8 = new SimpleDataType<>("Enum8", String.class, value -> value);
     public static final SimpleDataType<String> ENUM_16 = new SimpleDataType<>("Enum16", String.class, value -> value);
 
-    public static final SimpleDataType<LocalDateTime> DATE_TIME =
-            new SimpleDataType<>("DateTime", LocalDateTime.class, value ->
-                    LocalDateTime.parse(value, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))
-            );
+    public static final SimpleDataType<LocalDateTime> DATE_TIME = new SimpleDataType<>("DateTime", LocalDateTime.class, DateTimes::parseDateTime);
 
-    public static final SimpleDataType<LocalDate> DATE = new SimpleDataType<>("Date", LocalDate.class, LocalDate::parse);
+    public static final SimpleDataType<LocalDate> DATE = new SimpleDataType<>("Date", LocalDate.class, DateTimes::parseDate);
 
     public static final SimpleDataType<String> STRING = new SimpleDataType<>("String", String.class, value -> value);
     public static final SimpleDataType<String> FIXED_STRING = new SimpleDataType<>("FixedString", String.class, value -> value);
@@ -149,6 +128,8 @@ public class DataTypes
     public static void addDataType(final SimpleDataType<?> dataType)
     {
         TYPES.put(dataType.getName(), dataType);
+        ColumnConverter.clearCache();
+        JsonDecoders.clearCache();
     }
 
     public static class DataType<R>
@@ -182,9 +163,22 @@ public class DataTypes
 
     public static class SimpleDataType<R> extends DataType<R>
     {
+        private final Function<String, R> stringParser;
+
         public SimpleDataType(final String name, final Class<R> type, final Function<String, R> parser)
         {
             super(name, type, n -> parser.apply(n.asText()));
+            this.stringParser = parser;
+        }
+
+        /**
+         * The parser for the textual representation of a value, usable without a JSON node
+         *
+         * @return The string parser
+         */
+        public Function<String, R> getStringParser()
+        {
+            return stringParser;
         }
     }
 }
@@ -0,0 +1,155 @@
+package com.ethlo.clackshack.model;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.math.BigInteger;
+
+import com.ethlo.clackshack.util.WideIntegers;
+
+/**
+ * A 128-bit integer value of the <code>Int128</code> or <code>UInt128</code> types, held as two <code>long</code>s
+ */
+public final class Int128 extends Number implements Comparable<Int128>
+{
+    private static final long serialVersionUID = 1L;
+
+    private final long high;
+    private final long low;
+    private final boolean unsigned;
+
+    private Int128(final long high, final long low, final boolean unsigned)
+    {
+        this.high = high;
+        this.low = low;
+        this.unsigned = unsigned;
+    }
+
+    public static Int128 of(final long high, final long low)
+    {
+        return new Int128(high, low, false);
+    }
+
+    public static Int128 ofUnsigned(final long high, final long low)
+    {
+        return new Int128(high, low, true);
+    }
+
+    public static Int128 parse(final String text)
+    {
+        return parse(text, false);
+    }
+
+    public static Int128 parseUnsigned(final String text)
+    {
+        return parse(text, true);
+    }
+
+    private static Int128 parse(final String text, final boolean unsigned)
+    {
+        final long[] words = new long[2];
+        WideIntegers.parse(text, !unsigned, words, 0, 2);
+        return new Int128(words[1], words[0], unsigned);
+    }
+
+    public long getHigh()
+    {
+        return high;
+    }
+
+    public long getLow()
+    {
+        return low;
+    }
+
+    public boolean isUnsigned()
+    {
+        return unsigned;
+    }
+
+    public BigInteger toBigInteger()
+    {
+        return WideIntegers.toBigInteger(words(), 0, 2, !unsigned);
+    }
+
+    /**
+     * Returns the lowest 64 bits
+     */
+    @Override
+    public long longValue()
+    {
+        return low;
+    }
+
+    @Override
+    public int intValue()
+    {
+        return (int) low;
+    }
+
+    @Override
+    public float floatValue()
+    {
+        return (float) doubleValue();
+    }
+
+    @Override
+    public double doubleValue()
+    {
+        return WideIntegers.toDouble(words(), 0, 2, !unsigned);
+    }
+
+    @Override
+    public int compareTo(final Int128 other)
+    {
+        return WideIntegers.compare(words(), other.words(), unsigned);
+    }
+
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (!(o instanceof Int128 other))
+        {
+            return false;
+        }
+        return high == other.high && low == other.low && unsigned == other.unsigned;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(high) * 31 + Long.hashCode(low);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toBigInteger().toString();
+    }
+
+    private long[] words()
+    {
+        return new long[]{low, high};
+    }
+}
@@ -0,0 +1,184 @@
+package com.ethlo.clackshack.model;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.math.BigInteger;
+
+import com.ethlo.clackshack.util.WideIntegers;
+
+/**
+ * A 256-bit integer value of the <code>Int256</code> or <code>UInt256</code> types, held as four <code>long</code>s
+ */
+public final class Int256 extends Number implements Comparable<Int256>
+{
+    private static final long serialVersionUID = 1L;
+
+    private final long word0;
+    private final long word1;
+    private final long word2;
+    private final long word3;
+    private final boolean unsigned;
+
+    private Int256(final long word0, final long word1, final long word2, final long word3, final boolean unsigned)
+    {
+        this.word0 = word0;
+        this.word1 = word1;
+        this.word2 = word2;
+        this.word3 = word3;
+        this.unsigned = unsigned;
+    }
+
+    /**
+     * Create a signed value
+     *
+     * @param words The four words, least significant first
+     * @return The value
+     */
+    public static Int256 of(final long... words)
+    {
+        return of(words, 0, false);
+    }
+
+    /**
+     * Create an unsigned value
+     *
+     * @param words The four words, least significant first
+     * @return The value
+     */
+    public static Int256 ofUnsigned(final long... words)
+    {
+        return of(words, 0, true);
+    }
+
+    static Int256 of(final long[] words, final int offset, final boolean unsigned)
+    {
+        return new Int256(words[offset], words[offset + 1], words[offset + 2], words[offset + 3], unsigned);
+    }
+
+    public static Int256 parse(final String text)
+    {
+        return parse(text, false);
+    }
+
+    public static Int256 parseUnsigned(final String text)
+    {
+        return parse(text, true);
+    }
+
+    private static Int256 parse(final String text, final boolean unsigned)
+    {
+        final long[] words = new long[4];
+        WideIntegers.parse(text, !unsigned, words, 0, 4);
+        return of(words, 0, unsigned);
+    }
+
+    /**
+     * Returns a word of the value
+     *
+     * @param index The index of the word, 0 being the least significant
+     * @return The word
+     */
+    public long getWord(final int index)
+    {
+        return switch (index)
+        {
+            case 0 -> word0;
+            case 1 -> word1;
+            case 2 -> word2;
+            case 3 -> word3;
+            default -> throw new IndexOutOfBoundsException(index);
+        };
+    }
+
+    public boolean isUnsigned()
+    {
+        return unsigned;
+    }
+
+    public BigInteger toBigInteger()
+    {
+        return WideIntegers.toBigInteger(words(), 0, 4, !unsigned);
+    }
+
+    /**
+     * Returns the lowest 64 bits
+     */
+    @Override
+    public long longValue()
+    {
+        return word0;
+    }
+
+    @Override
+    public int intValue()
+    {
+        return (int) word0;
+    }
+
+    @Override
+    public float floatValue()
+    {
+        return (float) doubleValue();
+    }
+
+    @Override
+    public double doubleValue()
+    {
+        return WideIntegers.toDouble(words(), 0, 4, !unsigned);
+    }
+
+    @Override
+    public int compareTo(final Int256 other)
+    {
+        return WideIntegers.compare(words(), other.words(), unsigned);
+    }
+
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (!(o instanceof Int256 other))
+        {
+            return false;
+        }
+        return word0 == other.word0 && word1 == other.word1 && word2 == other.word2 && word3 == other.word3 && unsigned == other.unsigned;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return ((Long.hashCode(word3) * 31 + Long.hashCode(word2)) * 31 + Long.hashCode(word1)) * 31 + Long.hashCode(word0);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toBigInteger().toString();
+    }
+
+    private long[] words()
+    {
+        return new long[]{word0, word1, word2, word3};
+    }
+}
@@ -23,6 +23,7 @@ package com.ethlo.clackshack.model;
 
 import java.util.Objects;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -33,14 +34,37 @@ public class QueryProgress
     final private long readRows;
     final private long readBytes;
     final private long totalRowsToRead;
+    final private long writtenRows;
+    final private long bytesSent;
 
+    public QueryProgress(long readRows, long readBytes, long totalRowsToRead)
+    {
+        this(readRows, readBytes, totalRowsToRead, 0, 0);
+    }
+
+    @JsonCreator
     public QueryProgress(@JsonProperty("read_rows") long readRows,
                          @JsonProperty("read_bytes") long readBytes,
-                         @JsonProperty("total_rows_to_read") long totalRowsToRead)
+                         @JsonProperty("total_rows_to_read") long totalRowsToRead,
+                         @JsonProperty("written_rows") long writtenRows)
+    {
+        this(readRows, readBytes, totalRowsToRead, writtenRows, 0);
+    }
+
+    /**
+     * @param readRows        The number of rows read
+     * @param readBytes       The number of bytes read
+     * @param totalRowsToRead The estimated total number of rows to read
+     * @param writtenRows     The number of rows written, as reported by ClickHouse when a query completes
+     * @param bytesSent       The number of bytes of insert data sent so far
+     */
+    public QueryProgress(long readRows, long readBytes, long totalRowsToRead, long writtenRows, long bytesSent)
     {
         this.readRows = readRows;
         this.readBytes = readBytes;
         this.totalRowsToRead = Math.max(totalRowsToRead, readRows);
+        this.writtenRows = writtenRows;
+        this.bytesSent = bytesSent;
     }
 
     public double getPercentDone()
@@ -67,6 +91,16 @@ public class QueryProgress
         return totalRowsToRead;
     }
 
+    public long getWrittenRows()
+    {
+        return writtenRows;
+    }
+
+    public long getBytesSent()
+    {
+        return bytesSent;
+    }
+
     @Override
     public String toString()
     {
@@ -74,6 +108,8 @@ public class QueryProgress
                 "readRows=" + readRows +
                 ", readBytes=" + readBytes +
                 ", totalRowsToRead=" + totalRowsToRead +
+                ", writtenRows=" + writtenRows +
+                ", bytesSent=" + bytesSent +
                 '}';
     }
 
@@ -83,12 +119,12 @@ public class QueryProgress
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         QueryProgress that = (QueryProgress) o;
-        return readRows == that.readRows && readBytes == that.readBytes && totalRowsToRead == that.totalRowsToRead;
+        return readRows == that.readRows && readBytes == that.readBytes && totalRowsToRead == that.totalRowsToRead && writtenRows == that.writtenRows && bytesSent == that.bytesSent;
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(readRows, readBytes, totalRowsToRead);
+        return Objects.hash(readRows, readBytes, totalRowsToRead, writtenRows, bytesSent);
     }
 }
@@ -21,68 +21,173 @@ package com.ethlo.clackshack.model;
  */
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import com.ethlo.clackshack.TypeConversionException;
+import com.ethlo.clackshack.util.UnsignedLongs;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.NullNode;
 
+/**
+ * A query result. Values are stored column by column, with the built-in integer and floating point types kept in
+ * primitive arrays, so they can be read through for example {@link #getLong(int, String)} or {@link Row#getLong(String)}
+ * without any per-cell allocation. Rows are lightweight views over the column storage.
+ */
 public class ResultSet implements Iterable<Row>
 {
-    private static final Logger logger = LoggerFactory.getLogger(ResultSet.class);
-    private static final Pattern NULLABLE_PATTERN = Pattern.compile("^([a-zA-Z0-9]+).*\\)");
-    private static final Pattern LOW_CARDINALIY_PATTERN = Pattern.compile("^LowCardinality\\((.*)\\)$");
-
-    private final List<Row> data;
+    private final RowSchema schema;
+    private final Column[] columns;
+    private final int size;
 
     public ResultSet(QueryResult result)
     {
-        final Map<String, String> entryTypes = getEntryTypes(result.getMeta());
+        this.schema = RowSchema.of(result.getMeta());
+        this.size = result.getQueryData().size();
+        this.columns = new Column[schema.size()];
+        for (int i = 0; i < columns.length; i++)
+        {
+            final MetaEntry meta = result.getMeta().get(i);
+            columns[i] = toColumn(meta, ColumnConverter.of(meta.getType()), result.getQueryData());
+        }
+    }
 
-        this.data = new ArrayList<>(result.getRows());
-        for (Map<String, JsonNode> rowData : result.getQueryData())
+    /**
+     * Create a result from already decoded columns
+     *
+     * @param columns The columns, all holding the same number of values
+     * @param size    The number of rows
+     */
+    public ResultSet(final List<Column> columns, final int size)
+    {
+        final List<MetaEntry> meta = new ArrayList<>(columns.size());
+        for (final Column column : columns)
         {
-            final Map<String, Object> typed = new LinkedHashMap<>();
-            for (Map.Entry<String, JsonNode> e : rowData.entrySet())
+            meta.add(new MetaEntry(column.getName(), column.getType()));
+        }
+        this.schema = RowSchema.of(meta);
+        this.columns = columns.toArray(new Column[0]);
+        this.size = size;
+    }
+
+    /**
+     * Create a result from rows sharing the same schema
+     *
+     * @param rows The rows of the result
+     */
+    public ResultSet(final List<Row> rows)
+    {
+        this.schema = rows.isEmpty() ? RowSchema.of(Collections.emptyList()) : rows.get(0).getSchema();
+        this.size = rows.size();
+        this.columns = new Column[schema.size()];
+        for (int c = 0; c < columns.length; c++)
+        {
+            final Object[] values = new Object[size];
+            for (int r = 0; r < size; r++)
             {
-                typed.put(e.getKey(), convertType(entryTypes.get(e.getKey()), e.getValue()));
+                values[r] = rows.get(r).get(c);
             }
-            data.add(new Row(typed));
+            columns[c] = new Column.ObjectColumn(schema.getName(c), schema.getColumns().get(c).getType(), values, size);
         }
     }
 
-    public static Object convertType(final String chType, final JsonNode value)
+    private static Column toColumn(final MetaEntry meta, final ColumnConverter converter, final List<Map<String, JsonNode>> data)
     {
-        if (value == null || value instanceof NullNode)
+        final int size = data.size();
+        final DataTypes.DataType<?> dataType = converter.findDataType();
+        final BitSet nulls = converter.isNullable() ? new BitSet() : null;
+        final String name = meta.getName();
+        try
         {
-            return null;
+            if (dataType == DataTypes.INT_8 || dataType == DataTypes.UINT_8 || dataType == DataTypes.INT_16 || dataType == DataTypes.UINT_16 || dataType == DataTypes.INT_32)
+            {
+                final int[] values = new int[size];
+                for (int r = 0; r < size; r++)
+                {
+                    final JsonNode node = data.get(r).get(name);
+                    if (isNull(node, nulls, r))
+                    {
+                        continue;
+                    }
+                    values[r] = node.isNumber() ? node.intValue() : Integer.parseInt(node.asText());
+                }
+                return new Column.IntColumn(name, meta.getType(), values, size, nulls, dataType == DataTypes.INT_8 ? v -> (byte) v : dataType == DataTypes.UINT_8 ? v -> (short) v : Integer::valueOf);
+            }
+            else if (dataType == DataTypes.INT_64 || dataType == DataTypes.UINT_32 || dataType == DataTypes.UINT_64)
+            {
+                final boolean unsigned = dataType == DataTypes.UINT_64;
+                final long[] values = new long[size];
+                for (int r = 0; r < size; r++)
+                {
+                    final JsonNode node = data.get(r).get(name);
+                    if (isNull(node, nulls, r))
+                    {
+                        continue;
+                    }
+                    if (node.isNumber())
+                    {
+                        values[r] = unsigned ? node.bigIntegerValue().longValue() : node.longValue();
+                    }
+                    else
+                    {
+                        values[r] = unsigned ? Long.parseUnsignedLong(node.asText()) : Long.parseLong(node.asText());
+                    }
+                }
+                return new Column.LongColumn(name, meta.getType(), values, size, nulls, unsigned ? UnsignedLongs::toBigInteger : Long::valueOf);
+            }
+            else if (dataType == DataTypes.FLOAT_32 || dataType == DataTypes.FLOAT_64)
+            {
+                final double[] values = new double[size];
+                for (int r = 0; r < size; r++)
+                {
+                    final JsonNode node = data.get(r).get(name);
+                    if (isNull(node, nulls, r))
+                    {
+                        continue;
+                    }
+                    values[r] = node.isNumber() ? node.doubleValue() : Double.parseDouble(node.asText());
+                }
+                return new Column.DoubleColumn(name, meta.getType(), values, size, nulls, dataType == DataTypes.FLOAT_32);
+            }
+        }
+        catch (NumberFormatException exc)
+        {
+            throw new TypeConversionException(dataType.getName(), exc.getMessage(), dataType.getType(), exc);
         }
 
-        final String lowCardinalityStripped = stripLowCardinality(chType);
-        final String nullableStripped = stripNullable(lowCardinalityStripped);
-        final String baseType = stripParameters(nullableStripped);
-
-        logger.trace("Type: {}", baseType);
-        final DataTypes.DataType<?> type = findType(baseType);
-        try
+        final Object[] values = new Object[size];
+        for (int r = 0; r < size; r++)
         {
-            return type.getParser().apply(value);
+            values[r] = converter.convert(data.get(r).get(name));
         }
-        catch (Exception exc)
+        return new Column.ObjectColumn(name, meta.getType(), values, size);
+    }
+
+    private static boolean isNull(final JsonNode node, final BitSet nulls, final int row)
+    {
+        if (node == null || node instanceof NullNode)
         {
-            throw new TypeConversionException(type.getName(), value.toPrettyString(), type.getType(), exc);
+            if (nulls != null)
+            {
+                nulls.set(row);
+            }
+            return true;
         }
+        return false;
+    }
+
+    public static Object convertType(final String chType, final JsonNode value)
+    {
+        return ColumnConverter.of(chType).convert(value);
     }
 
     public static DataTypes.DataType<?> findType(String baseType)
@@ -90,77 +195,134 @@ public class ResultSet implements Iterable<Row>
         return DataTypes.match(baseType).orElseThrow(() -> new IllegalArgumentException("Unknown type: " + baseType));
     }
 
-    private static String stripParameters(final String nullableStripped)
+    public RowSchema getSchema()
     {
-        final Matcher nullableMatcher = NULLABLE_PATTERN.matcher(nullableStripped);
-        if (nullableMatcher.find())
-        {
-            return nullableMatcher.group(1);
-        }
-        else
-        {
-            return nullableStripped;
-        }
+        return schema;
     }
 
-    private static String stripNullable(final String chType)
+    public <T> T get(int rowIndex, int columnIndex, Class<T> type)
     {
-        final Pattern nullablePattern = Pattern.compile("^Nullable\\((.*)\\)$");
-        final Matcher nullableMatcher = nullablePattern.matcher(chType);
-        if (nullableMatcher.find())
-        {
-            return nullableMatcher.group(1);
-        }
-        else
-        {
-            return chType;
-        }
+        return type.cast(column(columnIndex).getObject(checkRow(rowIndex)));
     }
 
-    private static String stripLowCardinality(final String chType)
+    public boolean isNull(final int rowIndex, final int columnIndex)
     {
-        final Matcher nullableMatcher = LOW_CARDINALIY_PATTERN.matcher(chType);
-        if (nullableMatcher.find())
-        {
-            return nullableMatcher.group(1);
-        }
-        else
-        {
-            return chType;
-        }
+        return column(columnIndex).isNull(checkRow(rowIndex));
     }
 
-    public <T> T get(int rowIndex, int columnIndex, Class<T> type)
+    public boolean isNull(final int rowIndex, final String column)
+    {
+        return column(column).isNull(checkRow(rowIndex));
+    }
+
+    public long getLong(final int rowIndex, final int columnIndex)
+    {
+        return column(columnIndex).getLong(checkRow(rowIndex));
+    }
+
+    public long getLong(final int rowIndex, final String column)
+    {
+        return column(column).getLong(checkRow(rowIndex));
+    }
+
+    public int getInt(final int rowIndex, final int columnIndex)
+    {
+        return column(columnIndex).getInt(checkRow(rowIndex));
+    }
+
+    public int getInt(final int rowIndex, final String column)
+    {
+        return column(column).getInt(checkRow(rowIndex));
+    }
+
+    public double getDouble(final int rowIndex, final int columnIndex)
+    {
+        return column(columnIndex).getDouble(checkRow(rowIndex));
+    }
+
+    public double getDouble(final int rowIndex, final String column)
     {
-        return getRow(rowIndex).get(columnIndex, type);
+        return column(column).getDouble(checkRow(rowIndex));
     }
 
-    private Map<String, String> getEntryTypes(final List<MetaEntry> meta)
+    public boolean getBoolean(final int rowIndex, final int columnIndex)
     {
-        final Map<String, String> entryTypes = new LinkedHashMap<>();
-        for (final MetaEntry m : meta)
+        return column(columnIndex).getBoolean(checkRow(rowIndex));
+    }
+
+    public boolean getBoolean(final int rowIndex, final String column)
+    {
+        return column(column).getBoolean(checkRow(rowIndex));
+    }
+
+    public Column column(final int columnIndex)
+    {
+        return columns[columnIndex];
+    }
+
+    /**
+     * The storage of a column, for example to read IPv6 addresses as primitives from a {@link Column.Ipv6Column}
+     *
+     * @param column The column name
+     * @return The column
+     */
+    public Column column(final String column)
+    {
+        final int index = schema.indexOf(column);
+        if (index == -1)
         {
-            entryTypes.put(m.getName(), m.getType());
+            throw new IllegalArgumentException("No column with name " + column + " found");
         }
-        return entryTypes;
+        return columns[index];
+    }
+
+    private int checkRow(final int rowIndex)
+    {
+        if (rowIndex < 0 || rowIndex > size - 1)
+        {
+            throw new ArrayIndexOutOfBoundsException(rowIndex);
+        }
+        return rowIndex;
     }
 
     @Override
     public Iterator<Row> iterator()
     {
-        return data.iterator();
+        return new Iterator<>()
+        {
+            private int index;
+
+            @Override
+            public boolean hasNext()
+            {
+                return index < size;
+            }
+
+            @Override
+            public Row next()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+                return new ColumnarRow(schema, columns, index++);
+            }
+        };
     }
 
     @Override
     public void forEach(final Consumer<? super Row> action)
     {
-        data.forEach(action);
+        for (int i = 0; i < size; i++)
+        {
+            action.accept(new ColumnarRow(schema, columns, i));
+        }
     }
 
     @Override
     public Spliterator<Row> spliterator()
     {
-        return data.spliterator();
+        return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
     }
 
     @Override
@@ -173,22 +335,18 @@ public class ResultSet implements Iterable<Row>
 
     public int size()
     {
-        return data.size();
+        return size;
     }
 
     public Row getRow(final int rowIndex)
     {
-        if (rowIndex < 0 || rowIndex > data.size() - 1)
-        {
-            throw new ArrayIndexOutOfBoundsException(rowIndex);
-        }
-        return data.get(rowIndex);
+        return new ColumnarRow(schema, columns, checkRow(rowIndex));
     }
 
     public List<Map<String, Object>> asMap()
     {
         final List<Map<String, Object>> result = new ArrayList<>(size());
-        for (Row row : data)
+        for (Row row : this)
         {
             result.add(row.asMap());
         }
@@ -197,11 +355,94 @@ public class ResultSet implements Iterable<Row>
 
     public boolean isEmpty()
     {
-        return data.isEmpty();
+        return size == 0;
+    }
+
+    /**
+     * Map every row to an instance of a record or class, see {@link RowMapper#of(Class)}
+     *
+     * @param type The target type
+     * @param <T>  The target type
+     * @return The mapped rows
+     */
+    public <T> List<T> map(final Class<T> type)
+    {
+        return map(RowMapper.of(type));
+    }
+
+    public <T> List<T> map(final RowMapper<T> mapper)
+    {
+        final List<T> result = new ArrayList<>(size);
+        if (mapper instanceof ClassRowMapper)
+        {
+            // The class mapper does not retain the row, so a single cursor is moved over the columns
+            final ColumnarRow cursor = new ColumnarRow(schema, columns, 0);
+            for (int i = 0; i < size; i++)
+            {
+                cursor.index = i;
+                result.add(mapper.map(cursor));
+            }
+            return result;
+        }
+
+        for (int i = 0; i < size; i++)
+        {
+            result.add(mapper.map(new ColumnarRow(schema, columns, i)));
+        }
+        return result;
     }
 
     public Stream<Row> stream()
     {
-        return data.stream();
+        return IntStream.range(0, size).mapToObj(i -> new ColumnarRow(schema, columns, i));
+    }
+
+    private static final class ColumnarRow extends Row
+    {
+        private final Column[] columns;
+        private int index;
+
+        private ColumnarRow(final RowSchema schema, final Column[] columns, final int index)
+        {
+            super(schema);
+            this.columns = columns;
+            this.index = index;
+        }
+
+        @Override
+        public Object get(final int columnIndex)
+        {
+            return columns[columnIndex].getObject(index);
+        }
+
+        @Override
+        public boolean isNull(final int columnIndex)
+        {
+            return columns[columnIndex].isNull(index);
+        }
+
+        @Override
+        public long getLong(final int columnIndex)
+        {
+            return columns[columnIndex].getLong(index);
+        }
+
+        @Override
+        public int getInt(final int columnIndex)
+        {
+            return columns[columnIndex].getInt(index);
+        }
+
+        @Override
+        public double getDouble(final int columnIndex)
+        {
+            return columns[columnIndex].getDouble(index);
+        }
+
+        @Override
+        public boolean getBoolean(final int columnIndex)
+        {
+            return columns[columnIndex].getBoolean(index);
+        }
     }
 }
@@ -20,72 +20,267 @@ package com.ethlo.clackshack.model;
  * #L%
  */
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
+/**
+ * A single result row. The column layout is held by a {@link RowSchema} shared between all rows of a result, so each row
+ * only carries its values. Rows of a {@link ResultSet} are views over its column storage.
+ * <p>
+ * The primitive accessors such as {@link #getLong(String)} return 0 or false for null values, use {@link #isNull(String)}
+ * to tell them apart.
+ */
 public class Row
 {
-    private final Map<String, Object> delegate;
+    private final RowSchema schema;
+    private final Object[] values;
+    private Map<String, Object> mapView;
+
+    public Row(final RowSchema schema, final Object[] values)
+    {
+        if (schema.size() != values.length)
+        {
+            throw new IllegalArgumentException("Expected " + schema.size() + " values, got " + values.length);
+        }
+        this.schema = schema;
+        this.values = values;
+    }
 
     public Row(final Map<String, Object> delegate)
     {
-        this.delegate = delegate;
+        this(RowSchema.ofNames(new ArrayList<>(delegate.keySet())), delegate.values().toArray());
+    }
+
+    /**
+     * For rows backed by other storage, which must override {@link #get(int)} and the primitive accessors
+     *
+     * @param schema The column layout
+     */
+    protected Row(final RowSchema schema)
+    {
+        this.schema = schema;
+        this.values = null;
+    }
+
+    public RowSchema getSchema()
+    {
+        return schema;
     }
 
     public int size()
     {
-        return delegate.size();
+        return schema.size();
     }
 
     public boolean isEmpty()
     {
-        return delegate.isEmpty();
+        return schema.size() == 0;
     }
 
     public Object get(final String column)
     {
-        return delegate.get(column);
+        final int index = schema.indexOf(column);
+        return index != -1 ? get(index) : null;
+    }
+
+    public Object get(final int columnIndex)
+    {
+        return values[columnIndex];
     }
 
     public <T> T get(final int columnIndex, final Class<T> type)
     {
-        final List<Object> columns = new LinkedList<>(delegate.values());
-        final Object val = columns.get(columnIndex);
-        return type.cast(val);
+        return type.cast(get(columnIndex));
     }
 
     public <T> T get(final String columnName, final Class<T> type)
     {
-        final Object val = Optional.ofNullable(delegate.get(columnName)).orElseThrow(() -> new IllegalArgumentException("No column with name " + columnName + " found"));
+        final Object val = Optional.ofNullable(get(columnName)).orElseThrow(() -> new IllegalArgumentException("No column with name " + columnName + " found"));
         return type.cast(val);
     }
 
+    public boolean isNull(final int columnIndex)
+    {
+        return get(columnIndex) == null;
+    }
+
+    public boolean isNull(final String column)
+    {
+        return isNull(indexOf(column));
+    }
+
+    public long getLong(final int columnIndex)
+    {
+        final Object value = get(columnIndex);
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+
+    public long getLong(final String column)
+    {
+        return getLong(indexOf(column));
+    }
+
+    public int getInt(final int columnIndex)
+    {
+        return Math.toIntExact(getLong(columnIndex));
+    }
+
+    public int getInt(final String column)
+    {
+        return getInt(indexOf(column));
+    }
+
+    public double getDouble(final int columnIndex)
+    {
+        final Object value = get(columnIndex);
+        return value != null ? ((Number) value).doubleValue() : 0;
+    }
+
+    public double getDouble(final String column)
+    {
+        return getDouble(indexOf(column));
+    }
+
+    public boolean getBoolean(final int columnIndex)
+    {
+        final Object value = get(columnIndex);
+        if (value instanceof Boolean bool)
+        {
+            return bool;
+        }
+        return value != null && ((Number) value).longValue() != 0;
+    }
+
+    public boolean getBoolean(final String column)
+    {
+        return getBoolean(indexOf(column));
+    }
+
+    protected int indexOf(final String column)
+    {
+        final int index = schema.indexOf(column);
+        if (index == -1)
+        {
+            throw new IllegalArgumentException("No column with name " + column + " found");
+        }
+        return index;
+    }
+
     @Override
     public boolean equals(final Object o)
     {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        final Row row = (Row) o;
-        return Objects.equals(delegate, row.delegate);
+        if (!(o instanceof Row row)) return false;
+        if (!Objects.equals(schema, row.schema)) return false;
+        for (int i = 0; i < schema.size(); i++)
+        {
+            if (!Objects.equals(get(i), row.get(i)))
+            {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(delegate);
+        int result = schema.hashCode();
+        for (int i = 0; i < schema.size(); i++)
+        {
+            result = 31 * result + Objects.hashCode(get(i));
+        }
+        return result;
     }
 
     @Override
     public String toString()
     {
-        return delegate.toString();
+        return asMap().toString();
     }
 
+    /**
+     * A read-only map view of this row, in column order. The view is created on first use and does not copy the values.
+     * Earlier versions returned a mutable map, copy the view, for example into a {@link java.util.LinkedHashMap}, where a
+     * mutable map is needed.
+     *
+     * @return The row as a map from column name to value
+     */
     public Map<String, Object> asMap()
     {
-        return delegate;
+        if (mapView == null)
+        {
+            mapView = new MapView();
+        }
+        return mapView;
+    }
+
+    private final class MapView extends AbstractMap<String, Object>
+    {
+        private final int[] keyIndexes = schema.keyIndexes();
+
+        @Override
+        public int size()
+        {
+            return keyIndexes.length;
+        }
+
+        @Override
+        public boolean containsKey(final Object key)
+        {
+            return key instanceof String name && schema.indexOf(name) != -1;
+        }
+
+        @Override
+        public Object get(final Object key)
+        {
+            return key instanceof String name ? Row.this.get(name) : null;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet()
+        {
+            return new AbstractSet<>()
+            {
+                @Override
+                public Iterator<Entry<String, Object>> iterator()
+                {
+                    return new Iterator<>()
+                    {
+                        private int index;
+
+                        @Override
+                        public boolean hasNext()
+                        {
+                            return index < keyIndexes.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next()
+                        {
+                            if (!hasNext())
+                            {
+                                throw new NoSuchElementException();
+                            }
+                            final int current = keyIndexes[index++];
+                            return new SimpleImmutableEntry<>(schema.getName(current), Row.this.get(current));
+                        }
+                    };
+                }
+
+                @Override
+                public int size()
+                {
+                    return keyIndexes.length;
+                }
+            };
+        }
     }
 }
@@ -0,0 +1,48 @@
+package com.ethlo.clackshack.model;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Maps a result row to an object
+ *
+ * @param <T> The target type
+ */
+@FunctionalInterface
+public interface RowMapper<T>
+{
+    /**
+     * Returns a mapper for a Java record or a class with a no-argument constructor and setters. The binding of the
+     * class is resolved once, and columns are matched to record components or setters by name, ignoring case and
+     * underscores. Every component of a record must match a column, unless none of them do and there are as many columns
+     * as components, in which case they are bound by position. Integer targets that cannot hold a value exactly fail with
+     * an {@link ArithmeticException}.
+     *
+     * @param type The target type
+     * @param <T>  The target type
+     * @return The mapper
+     */
+    static <T> RowMapper<T> of(final Class<T> type)
+    {
+        return ClassRowMapper.of(type);
+    }
+
+    T map(Row row);
+}
@@ -0,0 +1,131 @@
+package com.ethlo.clackshack.model;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The immutable column layout shared by all {@link Row}s of a result, mapping column names to value indexes
+ */
+public final class RowSchema
+{
+    private final List<MetaEntry> columns;
+    private final String[] names;
+    private final Map<String, Integer> indexes;
+    private final int[] keyIndexes;
+
+    private RowSchema(final List<MetaEntry> columns)
+    {
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        this.names = new String[columns.size()];
+        this.indexes = new HashMap<>(columns.size() * 2);
+        for (int i = 0; i < names.length; i++)
+        {
+            names[i] = columns.get(i).getName();
+            indexes.put(names[i], i);
+        }
+        this.keyIndexes = Arrays.stream(names).distinct().mapToInt(indexes::get).toArray();
+    }
+
+    public static RowSchema of(final List<MetaEntry> columns)
+    {
+        return new RowSchema(columns);
+    }
+
+    /**
+     * A schema with the given column names and no type information
+     *
+     * @param names The column names
+     * @return The schema
+     */
+    public static RowSchema ofNames(final List<String> names)
+    {
+        final List<MetaEntry> columns = new ArrayList<>(names.size());
+        for (String name : names)
+        {
+            columns.add(new MetaEntry(name, null));
+        }
+        return new RowSchema(columns);
+    }
+
+    public int size()
+    {
+        return names.length;
+    }
+
+    /**
+     * The index of the column
+     *
+     * @param name The column name
+     * @return The index, or -1 if there is no such column
+     */
+    public int indexOf(final String name)
+    {
+        final Integer index = indexes.get(name);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * The index of the last column for each distinct name, ordered by the first occurrence of the name. This is the
+     * layout of a map built by putting every column in order, where a duplicate name keeps its place and the last value wins.
+     *
+     * @return The key indexes, not to be modified
+     */
+    int[] keyIndexes()
+    {
+        return keyIndexes;
+    }
+
+    public String getName(final int index)
+    {
+        return names[index];
+    }
+
+    public List<MetaEntry> getColumns()
+    {
+        return columns;
+    }
+
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(names, ((RowSchema) o).names);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(names);
+    }
+
+    @Override
+    public String toString()
+    {
+        return Arrays.toString(names);
+    }
+}
@@ -0,0 +1,35 @@
+package com.ethlo.clackshack.model;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * The types of columns to insert into, and the time zone the server applies to date-time values without an explicit
+ * time zone parameter
+ *
+ * @param columns  The columns, in the requested order
+ * @param timeZone The server time zone
+ */
+public record TableDescription(List<MetaEntry> columns, ZoneId timeZone)
+{
+}
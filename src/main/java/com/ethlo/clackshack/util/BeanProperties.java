@@ -0,0 +1,124 @@
+package com.ethlo.clackshack.util;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Discovers the properties of records and classes, so that rows are read into and written from objects with the same
+ * matching of property names to column names
+ */
+public final class BeanProperties
+{
+    private BeanProperties()
+    {
+    }
+
+    /**
+     * A property of a record or class
+     *
+     * @param name   The name of the record component, or the name of the getter or setter without its prefix
+     * @param type   The type of the property
+     * @param method The record component accessor, getter or setter, or null for a record component to be set
+     *               through the canonical constructor
+     */
+    public record Property(String name, Class<?> type, Method method)
+    {
+    }
+
+    /**
+     * The name used to match a property to a column, ignoring case and underscores, so that <code>userId</code> and
+     * <code>user_id</code> match
+     *
+     * @param name The property or column name
+     * @return The normalized name
+     */
+    public static String normalize(final String name)
+    {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The readable properties: the components of a record, with their accessors, or the public getters of a class
+     *
+     * @param type The record or class
+     * @return The properties, record components in declaration order
+     */
+    public static List<Property> readable(final Class<?> type)
+    {
+        final List<Property> properties = new ArrayList<>();
+        if (type.isRecord())
+        {
+            for (final RecordComponent component : type.getRecordComponents())
+            {
+                final Method accessor = component.getAccessor();
+                accessor.setAccessible(true);
+                properties.add(new Property(component.getName(), component.getType(), accessor));
+            }
+            return properties;
+        }
+
+        for (final Method method : type.getMethods())
+        {
+            final String name = method.getName();
+            final int prefix = name.startsWith("get") ? 3 : name.startsWith("is") && method.getReturnType() == boolean.class ? 2 : 0;
+            if (prefix > 0 && name.length() > prefix && method.getParameterCount() == 0 && !Modifier.isStatic(method.getModifiers()) && method.getDeclaringClass() != Object.class)
+            {
+                properties.add(new Property(name.substring(prefix), method.getReturnType(), method));
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * The writable properties: the components of a record, in the order of the canonical constructor and without a
+     * method, or the public setters of a class
+     *
+     * @param type The record or class
+     * @return The properties
+     */
+    public static List<Property> writable(final Class<?> type)
+    {
+        final List<Property> properties = new ArrayList<>();
+        if (type.isRecord())
+        {
+            for (final RecordComponent component : type.getRecordComponents())
+            {
+                properties.add(new Property(component.getName(), component.getType(), null));
+            }
+            return properties;
+        }
+
+        for (final Method method : type.getMethods())
+        {
+            if (method.getName().length() > 3 && method.getName().startsWith("set") && method.getParameterCount() == 1 && !Modifier.isStatic(method.getModifiers()))
+            {
+                properties.add(new Property(method.getName().substring(3), method.getParameterTypes()[0], method));
+            }
+        }
+        return properties;
+    }
+}
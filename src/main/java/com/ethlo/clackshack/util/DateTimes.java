@@ -0,0 +1,270 @@
+package com.ethlo.clackshack.util;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+
+/**
+ * Parsing of the fixed-layout ClickHouse date and time text, <code>yyyy-MM-dd</code> and
+ * <code>yyyy-MM-dd HH:mm:ss[.fffffffff]</code>, without formatters. Epoch values are calculated arithmetically, so
+ * no objects are allocated for zones with a fixed offset.
+ */
+public final class DateTimes
+{
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final long DAYS_0000_TO_1970 = 719_528;
+    private static final int[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000, 1_000_000_000};
+
+    private DateTimes()
+    {
+    }
+
+    public static LocalDate parseDate(final CharSequence text)
+    {
+        checkLength(text, 10, 10);
+        if (text.charAt(4) != '-' || text.charAt(7) != '-')
+        {
+            throw new DateTimeException("Invalid date: " + text);
+        }
+        return LocalDate.of(year(text), month(text), day(text));
+    }
+
+    public static LocalDateTime parseDateTime(final CharSequence text)
+    {
+        checkDateTime(text);
+        return LocalDateTime.of(year(text), month(text), day(text), hour(text), minute(text), second(text), nanos(text));
+    }
+
+    /**
+     * Parse a <code>DateTime</code> value
+     *
+     * @param text The date-time text
+     * @param zone The time zone of the value
+     * @return The seconds since epoch
+     */
+    public static long parseEpochSecond(final CharSequence text, final ZoneId zone)
+    {
+        checkDateTime(text);
+        return localEpochSecond(text) - offsetSeconds(text, zone);
+    }
+
+    /**
+     * Parse a <code>DateTime64</code> value. Fractional digits beyond the precision are truncated.
+     *
+     * @param text      The date-time text
+     * @param precision The number of fractional digits of a tick, 0 to 9
+     * @param zone      The time zone of the value
+     * @return The ticks since epoch
+     */
+    public static long parseEpochTicks(final CharSequence text, final int precision, final ZoneId zone)
+    {
+        final long seconds = parseEpochSecond(text, zone);
+        return seconds * POWERS_OF_TEN[precision] + nanos(text) / POWERS_OF_TEN[9 - precision];
+    }
+
+    public static Instant parseInstant(final CharSequence text, final ZoneId zone)
+    {
+        return Instant.ofEpochSecond(parseEpochSecond(text, zone), nanos(text));
+    }
+
+    /**
+     * Convert a point in time to the local date-time in a zone
+     *
+     * @param epochSecond The seconds since epoch
+     * @param nanos       The nanosecond of the second
+     * @param zone        The time zone
+     * @return The local date-time
+     */
+    public static LocalDateTime toLocalDateTime(final long epochSecond, final int nanos, final ZoneId zone)
+    {
+        final ZoneOffset fixed = fixedOffset(zone);
+        if (fixed != null)
+        {
+            return LocalDateTime.ofEpochSecond(epochSecond, nanos, fixed);
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond, nanos), zone);
+    }
+
+    private static long offsetSeconds(final CharSequence text, final ZoneId zone)
+    {
+        final ZoneOffset fixed = fixedOffset(zone);
+        if (fixed != null)
+        {
+            return fixed.getTotalSeconds();
+        }
+        return zone.getRules().getOffset(parseDateTime(text)).getTotalSeconds();
+    }
+
+    private static ZoneOffset fixedOffset(final ZoneId zone)
+    {
+        if (zone instanceof ZoneOffset offset)
+        {
+            return offset;
+        }
+        final ZoneRules rules = zone.getRules();
+        return rules.isFixedOffset() ? rules.getOffset(Instant.EPOCH) : null;
+    }
+
+    private static long localEpochSecond(final CharSequence text)
+    {
+        final int year = year(text);
+        final int month = month(text);
+        final int day = day(text);
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month))
+        {
+            throw new DateTimeException("Invalid date: " + text);
+        }
+
+        final int hour = hour(text);
+        final int minute = minute(text);
+        final int second = second(text);
+        if (hour > 23 || minute > 59 || second > 59)
+        {
+            throw new DateTimeException("Invalid time: " + text);
+        }
+        return epochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+    }
+
+    /**
+     * Same calculation as {@link LocalDate#toEpochDay()}
+     */
+    private static long epochDay(final int year, final int month, final int day)
+    {
+        final long y = year;
+        long total = 365 * y;
+        if (y >= 0)
+        {
+            total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        }
+        else
+        {
+            total -= y / -4 - y / -100 + y / -400;
+        }
+        total += (367L * month - 362) / 12;
+        total += day - 1;
+        if (month > 2)
+        {
+            total--;
+            if (!isLeapYear(year))
+            {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    private static boolean isLeapYear(final int year)
+    {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(final int year, final int month)
+    {
+        return switch (month)
+        {
+            case 2 -> isLeapYear(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    private static void checkDateTime(final CharSequence text)
+    {
+        checkLength(text, 19, 29);
+        final char separator = text.charAt(10);
+        if (text.charAt(4) != '-' || text.charAt(7) != '-' || (separator != ' ' && separator != 'T') || text.charAt(13) != ':' || text.charAt(16) != ':')
+        {
+            throw new DateTimeException("Invalid date-time: " + text);
+        }
+        if (text.length() > 19 && (text.charAt(19) != '.' || text.length() == 20))
+        {
+            throw new DateTimeException("Invalid fraction of second: " + text);
+        }
+    }
+
+    private static void checkLength(final CharSequence text, final int min, final int max)
+    {
+        if (text.length() < min || text.length() > max)
+        {
+            throw new DateTimeException("Invalid length of date-time: " + text);
+        }
+    }
+
+    private static int year(final CharSequence text)
+    {
+        return digits(text, 0, 4);
+    }
+
+    private static int month(final CharSequence text)
+    {
+        return digits(text, 5, 7);
+    }
+
+    private static int day(final CharSequence text)
+    {
+        return digits(text, 8, 10);
+    }
+
+    private static int hour(final CharSequence text)
+    {
+        return digits(text, 11, 13);
+    }
+
+    private static int minute(final CharSequence text)
+    {
+        return digits(text, 14, 16);
+    }
+
+    private static int second(final CharSequence text)
+    {
+        return digits(text, 17, 19);
+    }
+
+    private static int nanos(final CharSequence text)
+    {
+        if (text.length() <= 20)
+        {
+            return 0;
+        }
+        return digits(text, 20, text.length()) * POWERS_OF_TEN[29 - text.length()];
+    }
+
+    private static int digits(final CharSequence text, final int start, final int end)
+    {
+        int value = 0;
+        for (int i = start; i < end; i++)
+        {
+            final int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9)
+            {
+                throw new DateTimeException("Unexpected character at index " + i + ": " + text);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,95 @@
+package com.ethlo.clackshack.util;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Parsing of decimal text into an unscaled <code>long</code> at a fixed scale, without going through {@link java.math.BigDecimal}
+ */
+public final class Decimals
+{
+    private Decimals()
+    {
+    }
+
+    /**
+     * Parse decimal text, such as <code>-12.5</code>, into its value multiplied by 10 to the power of the scale
+     *
+     * @param text  The decimal text
+     * @param scale The number of fractional digits of the result
+     * @return The unscaled value, <code>-125000</code> for the example above at scale 4
+     */
+    public static long parseUnscaled(final CharSequence text, final int scale)
+    {
+        final int length = text.length();
+        int index = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+'))
+        {
+            negative = text.charAt(0) == '-';
+            index++;
+        }
+
+        // Accumulated as a negative number, which has the larger range
+        long result = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        try
+        {
+            for (; index < length; index++)
+            {
+                final char c = text.charAt(index);
+                if (c == '.' && fractionDigits < 0)
+                {
+                    fractionDigits = 0;
+                    continue;
+                }
+                final int digit = c - '0';
+                if (digit < 0 || digit > 9)
+                {
+                    throw new NumberFormatException("Invalid decimal: " + text);
+                }
+                digits++;
+                if (fractionDigits >= 0 && ++fractionDigits > scale)
+                {
+                    if (digit != 0)
+                    {
+                        throw new NumberFormatException("Decimal has more than " + scale + " fractional digits: " + text);
+                    }
+                    continue;
+                }
+                result = Math.subtractExact(Math.multiplyExact(result, 10), digit);
+            }
+            if (digits == 0)
+            {
+                throw new NumberFormatException("Invalid decimal: " + text);
+            }
+            for (int i = Math.max(fractionDigits, 0); i < scale; i++)
+            {
+                result = Math.multiplyExact(result, 10);
+            }
+            return negative ? result : Math.negateExact(result);
+        }
+        catch (ArithmeticException exc)
+        {
+            throw new NumberFormatException("Decimal out of range: " + text);
+        }
+    }
+}
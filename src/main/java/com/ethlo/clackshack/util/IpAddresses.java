@@ -0,0 +1,243 @@
+package com.ethlo.clackshack.util;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Parsing of IPv4 and IPv6 address text into primitive values, without going through the resolver of
+ * {@link InetAddress#getByName(String)}. An IPv4 address is an <code>int</code>, and an IPv6 address is two
+ * <code>long</code>s holding the high and low 64 bits in network order.
+ */
+public final class IpAddresses
+{
+    private IpAddresses()
+    {
+    }
+
+    /**
+     * Parse a dotted-quad IPv4 address
+     *
+     * @param text The address text
+     * @return The address as an int, the first octet in the highest byte
+     */
+    public static int parseIpv4(final CharSequence text)
+    {
+        return parseIpv4(text, 0, text.length());
+    }
+
+    /**
+     * Parse an IPv6 address, with support for <code>::</code> compression and an embedded IPv4 address in the last 32 bits
+     *
+     * @param text   The address text
+     * @param target Array of at least 2 elements receiving the high and low 64 bits
+     */
+    public static void parseIpv6(final CharSequence text, final long[] target)
+    {
+        final int length = text.length();
+        long high = 0;
+        long low = 0;
+        long tailHigh = 0;
+        long tailLow = 0;
+        int groups = 0;
+        int compressedAt = -1;
+        int index = 0;
+        if (length >= 2 && text.charAt(0) == ':' && text.charAt(1) == ':')
+        {
+            compressedAt = 0;
+            index = 2;
+        }
+
+        while (index < length)
+        {
+            int end = index;
+            int value = 0;
+            int digit;
+            while (end < length && end - index < 4 && (digit = Character.digit(text.charAt(end), 16)) >= 0)
+            {
+                value = (value << 4) | digit;
+                end++;
+            }
+
+            final int count;
+            if (end < length && text.charAt(end) == '.')
+            {
+                // Embedded IPv4 address, which is always last
+                final int ipv4 = parseIpv4(text, index, length);
+                value = ipv4;
+                count = 2;
+                end = length;
+            }
+            else if (end == index)
+            {
+                throw invalid(text);
+            }
+            else
+            {
+                count = 1;
+            }
+
+            for (int i = count - 1; i >= 0; i--)
+            {
+                final int group = count == 2 ? (value >>> (16 * i)) & 0xFFFF : value;
+                if (groups >= 8)
+                {
+                    throw invalid(text);
+                }
+                else if (compressedAt == -1)
+                {
+                    if (groups < 4)
+                    {
+                        high |= (long) group << (16 * (3 - groups));
+                    }
+                    else
+                    {
+                        low |= (long) group << (16 * (7 - groups));
+                    }
+                }
+                else
+                {
+                    tailHigh = (tailHigh << 16) | (tailLow >>> 48);
+                    tailLow = (tailLow << 16) | group;
+                }
+                groups++;
+            }
+
+            if (end == length)
+            {
+                break;
+            }
+            else if (text.charAt(end) != ':')
+            {
+                throw invalid(text);
+            }
+            else if (end + 1 < length && text.charAt(end + 1) == ':')
+            {
+                if (compressedAt != -1)
+                {
+                    throw invalid(text);
+                }
+                compressedAt = groups;
+                index = end + 2;
+            }
+            else if (end + 1 == length)
+            {
+                throw invalid(text);
+            }
+            else
+            {
+                index = end + 1;
+            }
+        }
+
+        if (compressedAt == -1 ? groups != 8 : groups > 7)
+        {
+            throw invalid(text);
+        }
+        target[0] = high | tailHigh;
+        target[1] = low | tailLow;
+    }
+
+    public static Inet4Address toInet4Address(final int address)
+    {
+        final byte[] bytes = {(byte) (address >>> 24), (byte) (address >>> 16), (byte) (address >>> 8), (byte) address};
+        try
+        {
+            return (Inet4Address) InetAddress.getByAddress(bytes);
+        }
+        catch (UnknownHostException e)
+        {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    public static Inet6Address toInet6Address(final long high, final long low)
+    {
+        final byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++)
+        {
+            bytes[i] = (byte) (high >>> (56 - 8 * i));
+            bytes[8 + i] = (byte) (low >>> (56 - 8 * i));
+        }
+        try
+        {
+            return Inet6Address.getByAddress(null, bytes, -1);
+        }
+        catch (UnknownHostException e)
+        {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    public static Inet6Address toInet6Address(final CharSequence text)
+    {
+        final long[] address = new long[2];
+        parseIpv6(text, address);
+        return toInet6Address(address[0], address[1]);
+    }
+
+    private static int parseIpv4(final CharSequence text, final int start, final int end)
+    {
+        int address = 0;
+        int octets = 0;
+        int index = start;
+        while (index < end)
+        {
+            int value = 0;
+            final int octetStart = index;
+            while (index < end && index - octetStart < 3 && text.charAt(index) >= '0' && text.charAt(index) <= '9')
+            {
+                value = value * 10 + (text.charAt(index) - '0');
+                index++;
+            }
+
+            if (index == octetStart || value > 255 || octets == 4)
+            {
+                throw invalid(text);
+            }
+            address = (address << 8) | value;
+            octets++;
+
+            if (index < end)
+            {
+                if (text.charAt(index) != '.' || index + 1 == end)
+                {
+                    throw invalid(text);
+                }
+                index++;
+            }
+        }
+
+        if (octets != 4)
+        {
+            throw invalid(text);
+        }
+        return address;
+    }
+
+    private static IllegalArgumentException invalid(final CharSequence text)
+    {
+        return new IllegalArgumentException("Invalid IP address: " + text);
+    }
+}
@@ -21,9 +21,11 @@ package com.ethlo.clackshack.util;
  */
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -64,6 +66,52 @@ public class JsonUtil
         }
     }
 
+    public static JsonParser createParser(JsonNode node)
+    {
+        return mapper.treeAsTokens(node);
+    }
+
+    public static JsonParser createParser(InputStream inputStream)
+    {
+        try
+        {
+            return mapper.createParser(inputStream);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Unable to create JSON parser", e);
+        }
+    }
+
+    /**
+     * Create a parser that is fed with chunks of data as they arrive, see {@link com.fasterxml.jackson.core.async.ByteBufferFeeder}
+     *
+     * @return A non-blocking parser
+     */
+    public static JsonParser createNonBlockingParser()
+    {
+        try
+        {
+            return mapper.getFactory().createNonBlockingByteBufferParser();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Unable to create JSON parser", e);
+        }
+    }
+
+    public static <T> T readValue(final JsonParser parser, Class<T> type)
+    {
+        try
+        {
+            return mapper.readValue(parser, type);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Unable to parse JSON", e);
+        }
+    }
+
     public static String prettyString(final Object object)
     {
         try
@@ -31,6 +31,38 @@ import com.ethlo.clackshack.model.QueryParam;
 public class QueryUtil
 {
     private static final Pattern PATTERN = Pattern.compile("(?:'[^']*'|\"[^\"]*\")|(?<!['\"]):\\w+");
+    private static final Pattern FORMAT_NAME = Pattern.compile("\\w+");
+
+    /**
+     * Quote a table or column name with backticks, escaping backslashes and backticks within it. The name is taken as
+     * is, so a name containing a dot is a single identifier rather than a database and a table.
+     *
+     * @param name The name to quote
+     * @return The quoted identifier
+     */
+    public static String quoteIdentifier(final String name)
+    {
+        if (name == null || name.isEmpty())
+        {
+            throw new IllegalArgumentException("Identifier must not be empty");
+        }
+        return "`" + name.replace("\\", "\\\\").replace("`", "\\`") + "`";
+    }
+
+    /**
+     * Check that a data format name, such as <code>CSV</code>, is a plain word
+     *
+     * @param format The format name
+     * @return The format name
+     */
+    public static String checkFormatName(final String format)
+    {
+        if (format == null || !FORMAT_NAME.matcher(format).matches())
+        {
+            throw new IllegalArgumentException("Invalid format name: " + format);
+        }
+        return format;
+    }
 
     public static String format(String format, List<QueryParam> values)
     {
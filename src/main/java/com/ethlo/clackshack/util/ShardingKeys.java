@@ -0,0 +1,47 @@
+package com.ethlo.clackshack.util;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Client side versions of ClickHouse hash functions commonly used as sharding keys
+ */
+public class ShardingKeys
+{
+    private ShardingKeys()
+    {
+    }
+
+    /**
+     * The ClickHouse <code>intHash64</code> function
+     *
+     * @param value The value to hash, taken as unsigned
+     * @return The hash, to be taken as unsigned
+     */
+    public static long intHash64(long value)
+    {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
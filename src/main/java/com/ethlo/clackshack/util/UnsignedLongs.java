@@ -0,0 +1,63 @@
+package com.ethlo.clackshack.util;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.math.BigInteger;
+
+/**
+ * Helpers for unsigned 64-bit values carried in a <code>long</code>
+ */
+public class UnsignedLongs
+{
+    public static BigInteger toBigInteger(final long value)
+    {
+        if (value >= 0)
+        {
+            return BigInteger.valueOf(value);
+        }
+        return BigInteger.valueOf(value >>> 1).shiftLeft(1).or(BigInteger.valueOf(value & 1));
+    }
+
+    public static String toString(final long value)
+    {
+        return Long.toUnsignedString(value);
+    }
+
+    public static long parse(final CharSequence text)
+    {
+        return Long.parseUnsignedLong(text, 0, text.length(), 10);
+    }
+
+    public static int compare(final long a, final long b)
+    {
+        return Long.compareUnsigned(a, b);
+    }
+
+    public static double toDouble(final long value)
+    {
+        if (value >= 0)
+        {
+            return value;
+        }
+        // Halve with the lowest bit kept for correct rounding, then double
+        return ((value >>> 1) | (value & 1)) * 2.0;
+    }
+}
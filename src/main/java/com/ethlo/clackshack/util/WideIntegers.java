@@ -0,0 +1,214 @@
+package com.ethlo.clackshack.util;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.math.BigInteger;
+
+/**
+ * Arithmetic on fixed-width integers of 128 or 256 bits held in consecutive <code>long</code> words, the least
+ * significant word first, which is also the order of the words in the binary formats of ClickHouse.
+ */
+public final class WideIntegers
+{
+    private WideIntegers()
+    {
+    }
+
+    /**
+     * Parse decimal text into a two's complement value
+     *
+     * @param text   The decimal text, optionally with a leading sign
+     * @param signed Whether the target type is signed
+     * @param target The array receiving the words
+     * @param offset The index of the least significant word in the target
+     * @param width  The number of words
+     */
+    public static void parse(final CharSequence text, final boolean signed, final long[] target, final int offset, final int width)
+    {
+        final int length = text.length();
+        int index = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+'))
+        {
+            negative = text.charAt(0) == '-';
+            index++;
+        }
+        if (index == length)
+        {
+            throw new NumberFormatException("Invalid integer: " + text);
+        }
+
+        for (int i = 0; i < width; i++)
+        {
+            target[offset + i] = 0;
+        }
+        for (; index < length; index++)
+        {
+            final int digit = text.charAt(index) - '0';
+            if (digit < 0 || digit > 9)
+            {
+                throw new NumberFormatException("Invalid integer: " + text);
+            }
+            long carry = digit;
+            for (int i = 0; i < width; i++)
+            {
+                final long word = target[offset + i];
+                final long high = Math.multiplyHigh(word, 10) + ((word >> 63) & 10);
+                final long low = word * 10 + carry;
+                carry = Long.compareUnsigned(low, word * 10) < 0 ? high + 1 : high;
+                target[offset + i] = low;
+            }
+            if (carry != 0)
+            {
+                throw new NumberFormatException("Integer out of range: " + text);
+            }
+        }
+
+        final boolean topBit = target[offset + width - 1] < 0;
+        if (negative)
+        {
+            if (!signed && !isZero(target, offset, width))
+            {
+                throw new NumberFormatException("Negative value for unsigned integer: " + text);
+            }
+            if (topBit && !isMinValue(target, offset, width))
+            {
+                throw new NumberFormatException("Integer out of range: " + text);
+            }
+            negate(target, offset, width);
+        }
+        else if (signed && topBit)
+        {
+            throw new NumberFormatException("Integer out of range: " + text);
+        }
+    }
+
+    /**
+     * Convert the words to a {@link BigInteger}
+     *
+     * @param words  The words
+     * @param offset The index of the least significant word
+     * @param width  The number of words
+     * @param signed Whether the value is signed
+     * @return The value
+     */
+    public static BigInteger toBigInteger(final long[] words, final int offset, final int width, final boolean signed)
+    {
+        final byte[] data = new byte[width * 8 + (signed ? 0 : 1)];
+        int position = data.length;
+        for (int i = 0; i < width; i++)
+        {
+            long word = words[offset + i];
+            for (int b = 0; b < 8; b++)
+            {
+                data[--position] = (byte) word;
+                word >>>= 8;
+            }
+        }
+        return new BigInteger(data);
+    }
+
+    /**
+     * Compare two values of the same width
+     *
+     * @param a        The first value, least significant word first
+     * @param b        The second value, least significant word first
+     * @param unsigned Whether to compare as unsigned values
+     * @return A negative number, zero or a positive number as the first value is less than, equal to or greater than the second
+     */
+    public static int compare(final long[] a, final long[] b, final boolean unsigned)
+    {
+        final int last = a.length - 1;
+        if (a[last] != b[last])
+        {
+            return unsigned ? Long.compareUnsigned(a[last], b[last]) : Long.compare(a[last], b[last]);
+        }
+        for (int i = last - 1; i >= 0; i--)
+        {
+            if (a[i] != b[i])
+            {
+                return Long.compareUnsigned(a[i], b[i]);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * The approximate value as a double
+     *
+     * @param words  The words
+     * @param offset The index of the least significant word
+     * @param width  The number of words
+     * @param signed Whether the value is signed
+     * @return The nearest double, ignoring rounding of the lower words
+     */
+    public static double toDouble(final long[] words, final int offset, final int width, final boolean signed)
+    {
+        if (signed && words[offset + width - 1] < 0)
+        {
+            final long[] magnitude = new long[width];
+            System.arraycopy(words, offset, magnitude, 0, width);
+            negate(magnitude, 0, width);
+            return -toDouble(magnitude, 0, width, false);
+        }
+        double result = 0;
+        for (int i = width - 1; i >= 0; i--)
+        {
+            result = result * 0x1p64 + UnsignedLongs.toDouble(words[offset + i]);
+        }
+        return result;
+    }
+
+    private static void negate(final long[] words, final int offset, final int width)
+    {
+        long carry = 1;
+        for (int i = 0; i < width; i++)
+        {
+            final long value = ~words[offset + i] + carry;
+            carry = carry != 0 && value == 0 ? 1 : 0;
+            words[offset + i] = value;
+        }
+    }
+
+    private static boolean isZero(final long[] words, final int offset, final int width)
+    {
+        for (int i = 0; i < width; i++)
+        {
+            if (words[offset + i] != 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isMinValue(final long[] words, final int offset, final int width)
+    {
+        for (int i = 0; i < width - 1; i++)
+        {
+            if (words[offset + i] != 0)
+            {
+                return false;
+            }
+        }
+        return words[offset + width - 1] == Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,149 @@
+package com.ethlo.clackshack;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ethlo.clackshack.model.ResultSet;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class AsyncQueryTest
+{
+    private static final String RESULT = """
+            {"meta": [{"name": "number", "type": "UInt64"}, {"name": "s", "type": "String"}],
+             "data": [%s],
+             "rows": 1000,
+             "statistics": {"elapsed": 0.001, "rows_read": 1000, "bytes_read": 8000}}""".formatted(
+            String.join(",", IntStream.range(0, 1000).mapToObj(i -> "{\"number\": \"" + i + "\", \"s\": \"value " + i + "\"}").toList()));
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch aborted = new CountDownLatch(1);
+    private HttpServer server;
+    private ClackShack clackShack;
+
+    @BeforeEach
+    void start() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        clackShack = new ClackShackImpl("http://127.0.0.1:" + server.getAddress().getPort(), null, Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void stop()
+    {
+        clackShack.close();
+        server.stop(0);
+    }
+
+    @Test
+    void testQueryAsync() throws ExecutionException, InterruptedException, TimeoutException
+    {
+        final List<CompletableFuture<ResultSet>> futures = IntStream.range(0, 20).mapToObj(i -> clackShack.queryAsync("SELECT number, toString(number) AS s FROM numbers(1000)")).toList();
+        for (CompletableFuture<ResultSet> future : futures)
+        {
+            final ResultSet resultSet = future.get(10, TimeUnit.SECONDS);
+            assertThat(resultSet.size()).isEqualTo(1000);
+            assertThat(resultSet.getLong(999, "number")).isEqualTo(999L);
+            assertThat(resultSet.getRow(5).get("s")).isEqualTo("value 5");
+        }
+    }
+
+    @Test
+    void testQueryAsyncError()
+    {
+        assertThatThrownBy(() -> clackShack.queryAsync("SELECT error").get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(ClickHouseException.class);
+    }
+
+    @Test
+    void testCancelAbortsRequest() throws InterruptedException
+    {
+        final CompletableFuture<ResultSet> future = clackShack.queryAsync("SELECT slow");
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(future.cancel(true)).isTrue();
+        assertThat(aborted.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException
+    {
+        final String query = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add(ClackShackImpl.CLICKHOUSE_TIMEZONE_HEADER_NAME, "UTC");
+        if (query.contains("error"))
+        {
+            exchange.getResponseHeaders().add(ClackShackImpl.CLICKHOUSE_EXCEPTION_CODE_HEADER_NAME, "47");
+            final byte[] body = "Code: 47. DB::Exception: Missing columns: 'error' (version 24.1.1)".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(404, body.length);
+            exchange.getResponseBody().write(body);
+        }
+        else if (query.contains("slow"))
+        {
+            exchange.sendResponseHeaders(200, 0);
+            final OutputStream out = exchange.getResponseBody();
+            try
+            {
+                out.write("{\"meta\": [".getBytes(StandardCharsets.UTF_8));
+                started.countDown();
+                for (int i = 0; i < 100; i++)
+                {
+                    out.flush();
+                    Thread.sleep(100);
+                    out.write(' ');
+                }
+            }
+            catch (IOException exc)
+            {
+                aborted.countDown();
+            }
+            catch (InterruptedException exc)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        else
+        {
+            final byte[] body = RESULT.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+        exchange.close();
+    }
+}
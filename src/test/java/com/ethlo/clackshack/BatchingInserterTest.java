@@ -0,0 +1,224 @@
+package com.ethlo.clackshack;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.ethlo.clackshack.model.MetaEntry;
+import com.ethlo.clackshack.model.TableDescription;
+
+public class BatchingInserterTest
+{
+    private static final int ROW_SIZE = Long.BYTES;
+
+    @Test
+    void testFlushBySizeFromManyThreads() throws InterruptedException
+    {
+        final RecordingClient client = new RecordingClient();
+        final ExecutorService producers = Executors.newFixedThreadPool(8);
+        try (final BatchingInserter inserter = new BatchingInserter(client, "events", List.of("id"), BatchOptions.create().maxRows(1_000).maxDelay(Duration.ofMinutes(1))))
+        {
+            for (int t = 0; t < 8; t++)
+            {
+                producers.execute(() ->
+                {
+                    for (long i = 0; i < 2_500; i++)
+                    {
+                        inserter.add(new Object[]{i});
+                    }
+                });
+            }
+            producers.shutdown();
+            assertThat(producers.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+            inserter.flush();
+
+            assertThat(inserter.getQueueDepth()).isZero();
+            assertThat(inserter.getStatistics().getInsertedRows()).isEqualTo(20_000);
+            assertThat(inserter.getStatistics().getMaxFlushLatency()).isPositive();
+        }
+        assertThat(client.batches).allSatisfy(size -> assertThat(size).isBetween(1L, 1_000L * ROW_SIZE));
+        assertThat(client.batches.stream().mapToLong(Long::longValue).sum()).isEqualTo(20_000L * ROW_SIZE);
+    }
+
+    @Test
+    void testFlushByDelay() throws InterruptedException
+    {
+        final RecordingClient client = new RecordingClient();
+        try (final BatchingInserter inserter = new BatchingInserter(client, "events", List.of("id"), BatchOptions.create().maxDelay(Duration.ofMillis(20))))
+        {
+            inserter.add(List.of(1L));
+            inserter.add(List.of(2L));
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (inserter.getStatistics().getInsertedRows() < 2 && System.nanoTime() < deadline)
+            {
+                Thread.sleep(5);
+            }
+            assertThat(inserter.getStatistics().getInsertedRows()).isEqualTo(2);
+            assertThat(client.batches).containsExactly(2L * ROW_SIZE);
+        }
+    }
+
+    @Test
+    void testDropWhenFull() throws InterruptedException
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+        final RecordingClient client = new RecordingClient(release);
+        final BatchOptions options = BatchOptions.create().maxRows(5).maxPendingRows(10).flushThreads(1).overflowPolicy(BatchOptions.OverflowPolicy.DROP);
+        try (final BatchingInserter inserter = new BatchingInserter(client, "events", List.of("id"), options))
+        {
+            int accepted = 0;
+            for (long i = 0; i < 20; i++)
+            {
+                accepted += inserter.add(new Object[]{i}) ? 1 : 0;
+            }
+            assertThat(accepted).isEqualTo(10);
+            assertThat(inserter.getStatistics().getDroppedRows()).isEqualTo(10);
+            release.countDown();
+            inserter.flush();
+            assertThat(inserter.getStatistics().getInsertedRows()).isEqualTo(10);
+        }
+    }
+
+    @Test
+    void testInvalidRowIsRejectedByCaller()
+    {
+        final RecordingClient client = new RecordingClient();
+        try (final BatchingInserter inserter = new BatchingInserter(client, "events", List.of("id"), BatchOptions.create()))
+        {
+            assertThatThrownBy(() -> inserter.add(new Object[]{"x"})).isInstanceOf(IllegalArgumentException.class);
+            inserter.add(new Object[]{1L});
+        }
+        assertThat(client.batches).containsExactly((long) ROW_SIZE);
+    }
+
+    @Test
+    void testEncoderIsNotReusedAfterFailedRow()
+    {
+        final RecordingClient client = new RecordingClient();
+        try (final BatchingInserter inserter = new BatchingInserter(client, "events", List.of("name", "id"), BatchOptions.create()))
+        {
+            // The name is encoded before the id is rejected, and must not end up in the batch
+            assertThatThrownBy(() -> inserter.add(new Object[]{"a", "x"})).isInstanceOf(IllegalArgumentException.class);
+            inserter.add(new Object[]{"b", 2L});
+        }
+        assertThat(client.data).containsExactly(new byte[]{1, 'b', 2, 0, 0, 0, 0, 0, 0, 0});
+    }
+
+    @Test
+    void testFailedInsertIsReported()
+    {
+        final RecordingClient client = new RecordingClient();
+        client.fail = true;
+        final BatchingInserter inserter = new BatchingInserter(client, "events", List.of("id"), BatchOptions.create());
+        inserter.add(new Object[]{1L});
+        assertThatThrownBy(inserter::flush).isInstanceOf(UncheckedIOException.class);
+        assertThat(inserter.getStatistics().getFailedRows()).isEqualTo(1);
+        client.fail = false;
+        inserter.close();
+    }
+
+    @Test
+    void testFailedBackgroundInsertIsReportedByFlush() throws InterruptedException
+    {
+        final RecordingClient client = new RecordingClient();
+        client.fail = true;
+        final BatchingInserter inserter = new BatchingInserter(client, "events", List.of("id"), BatchOptions.create().maxRows(2));
+        inserter.add(new Object[]{1L});
+        inserter.add(new Object[]{2L});
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (inserter.getStatistics().getFailedRows() < 2 && System.nanoTime() < deadline)
+        {
+            Thread.sleep(5);
+        }
+        assertThat(inserter.getStatistics().getFailedRows()).isEqualTo(2);
+
+        assertThatThrownBy(inserter::flush).isInstanceOf(UncheckedIOException.class).hasMessageContaining("Connection refused");
+        client.fail = false;
+        inserter.flush();
+        inserter.close();
+    }
+
+    private static class RecordingClient extends StubClackShack
+    {
+        private final List<Long> batches = new ArrayList<>();
+        private final List<byte[]> data = new ArrayList<>();
+        private final CountDownLatch release;
+        private volatile boolean fail;
+
+        RecordingClient()
+        {
+            this(new CountDownLatch(0));
+        }
+
+        RecordingClient(final CountDownLatch release)
+        {
+            this.release = release;
+        }
+
+        @Override
+        public TableDescription describe(final String table, final List<String> columns, final QueryOptions queryOptions)
+        {
+            return new TableDescription(columns.stream().map(column -> new MetaEntry(column, column.equals("id") ? "UInt64" : "String")).toList(), ZoneOffset.UTC);
+        }
+
+        @Override
+        public long insert(final String table, final List<String> columns, final String format, final InputStream data, final QueryOptions queryOptions)
+        {
+            try (data)
+            {
+                assertThat(release.await(10, TimeUnit.SECONDS)).isTrue();
+                final byte[] bytes = data.readAllBytes();
+                if (fail)
+                {
+                    throw new UncheckedIOException(new IOException("Connection refused"));
+                }
+                synchronized (batches)
+                {
+                    batches.add((long) bytes.length);
+                    this.data.add(bytes);
+                }
+                return bytes.length;
+            }
+            catch (IOException exc)
+            {
+                throw new UncheckedIOException(exc);
+            }
+            catch (InterruptedException exc)
+            {
+                throw new IllegalStateException(exc);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ethlo.clackshack;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+public class ClientOptionsTest
+{
+    @Test
+    void testWithersReturnNewOptions()
+    {
+        final ClientOptions options = ClientOptions.create().virtualThreads(true).maxConnections(8).maxQueuedRequests(16);
+        assertThat(options.virtualThreads()).isTrue();
+        assertThat(options.maxConnections()).isEqualTo(8);
+        assertThat(options.maxQueuedRequests()).isEqualTo(16);
+        assertThat(ClientOptions.create()).isSameAs(ClientOptions.DEFAULT);
+        assertThat(ClientOptions.DEFAULT.virtualThreads()).isFalse();
+        assertThat(ClientOptions.DEFAULT.maxConnections()).isEqualTo(64);
+    }
+
+    @Test
+    void testLimitsMustBePositive()
+    {
+        assertThatThrownBy(() -> ClientOptions.create().maxConnections(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ClientOptions.create().maxConnections(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ClientOptions.create().maxQueuedRequests(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(ClientOptions.create().maxConnections(1).maxQueuedRequests(1).maxConnections()).isEqualTo(1);
+    }
+
+    @Test
+    void testVirtualThreadsFallBackWhenUnsupported()
+    {
+        // Ignored with a warning before Java 21, and used otherwise
+        try (final ClackShack clackShack = new ClackShackImpl("http://127.0.0.1:1", null, Duration.ofSeconds(1), ClientOptions.create().virtualThreads(true)))
+        {
+            assertThat(clackShack).isNotNull();
+        }
+    }
+}
@@ -25,17 +25,29 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigInteger;
 import java.net.Inet4Address;
 import java.net.Inet6Address;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
 import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
@@ -46,6 +58,7 @@ import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 
 import com.clickhouse.jdbc.ClickHouseDriver;
+import com.ethlo.clackshack.model.ColumnarResultSet;
 import com.ethlo.clackshack.model.QueryProgress;
 import com.ethlo.clackshack.model.ResultSet;
 import com.ethlo.clackshack.model.Row;
@@ -267,6 +280,180 @@ public class ClientTest
         }
     }
 
+    @Test
+    public void testQueryStream()
+    {
+        try (final ClackShack clackShack = new ClackShackImpl(baseUrl);
+             final Stream<Row> rows = clackShack.queryStream("SELECT number from numbers(1000000)"))
+        {
+            assertThat(rows.mapToLong(r -> r.get("number", BigInteger.class).longValue()).sum()).isEqualTo(499999500000L);
+        }
+    }
+
+    @Test
+    public void testQueryPublisher() throws InterruptedException
+    {
+        try (final ClackShack clackShack = new ClackShackImpl(baseUrl))
+        {
+            final AtomicLong sum = new AtomicLong();
+            final CountDownLatch done = new CountDownLatch(1);
+            clackShack.queryPublisher("SELECT number from numbers(1000000)").subscribe(new Flow.Subscriber<>()
+            {
+                private Flow.Subscription subscription;
+
+                @Override
+                public void onSubscribe(final Flow.Subscription subscription)
+                {
+                    this.subscription = subscription;
+                    subscription.request(1000);
+                }
+
+                @Override
+                public void onNext(final Row row)
+                {
+                    sum.addAndGet(row.getLong("number"));
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onError(final Throwable throwable)
+                {
+                    logger.error("Query failed", throwable);
+                }
+
+                @Override
+                public void onComplete()
+                {
+                    done.countDown();
+                }
+            });
+            assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+            assertThat(sum.get()).isEqualTo(499999500000L);
+        }
+    }
+
+    @Test
+    public void testRowBinaryResult()
+    {
+        try (final ClackShack clackShack = new ClackShackImpl(baseUrl))
+        {
+            final ResultSet resultSet = clackShack.query("SELECT number, toString(number) as str from numbers(100000)", QueryOptions.create()
+                    .resultFormat(ResultFormat.ROW_BINARY));
+            assertThat(resultSet.size()).isEqualTo(100_000);
+            assertThat(resultSet.getRow(99_999).get("str")).isEqualTo("99999");
+        }
+    }
+
+    @Test
+    public void testColumnarResult()
+    {
+        try (final ClackShack clackShack = new ClackShackImpl(baseUrl))
+        {
+            final ColumnarResultSet result = clackShack.queryColumnar("SELECT number, toFloat64(number) / 2 as half from numbers(100000)");
+            assertThat(result.size()).isEqualTo(100_000);
+            assertThat(result.getLong(99_999, "number")).isEqualTo(99_999L);
+            assertThat(result.column("half").asDoubleArray()[3]).isEqualTo(1.5D);
+        }
+    }
+
+    @Test
+    public void testStreamingInsert()
+    {
+        try (final ClackShack clackShack = new ClackShackImpl(baseUrl))
+        {
+            clackShack.query("DROP TABLE IF EXISTS insert_test");
+            clackShack.query("CREATE TABLE insert_test (id UInt64, name LowCardinality(String), created DateTime) ENGINE = Memory");
+            final long inserted = clackShack.insert("insert_test", List.of("id", "name", "created"),
+                    LongStream.range(0, 200_000).mapToObj(i -> new Object[]{i, "name" + (i % 10), LocalDateTime.of(2024, 1, 1, 0, 0)}));
+            assertThat(inserted).isEqualTo(200_000);
+            assertThat(clackShack.query("SELECT count() AS c, uniqExact(name) AS n FROM insert_test").getLong(0, "c")).isEqualTo(200_000L);
+            clackShack.query("DROP TABLE insert_test");
+        }
+    }
+
+    @Test
+    public void testCompressedInsert()
+    {
+        try (final ClackShack clackShack = new ClackShackImpl(baseUrl))
+        {
+            clackShack.query("DROP TABLE IF EXISTS compressed_insert_test");
+            clackShack.query("CREATE TABLE compressed_insert_test (id UInt64, name String) ENGINE = Memory");
+            final QueryOptions options = QueryOptions.create().requestCompression(Compression.GZIP);
+            final long inserted = clackShack.insert("compressed_insert_test", List.of("id", "name"),
+                    LongStream.range(0, 100_000).mapToObj(i -> new Object[]{i, "a text heavy value " + (i % 100)}).iterator(), options);
+            assertThat(inserted).isEqualTo(100_000);
+            assertThat(clackShack.query("SELECT count() AS c FROM compressed_insert_test", options).getLong(0, "c")).isEqualTo(100_000L);
+            clackShack.query("DROP TABLE compressed_insert_test");
+        }
+    }
+
+    @Test
+    public void testCompressedResponse()
+    {
+        try (final ClackShack clackShack = new ClackShackImpl(baseUrl))
+        {
+            for (Compression compression : List.of(Compression.GZIP, Compression.DEFLATE))
+            {
+                final QueryOptions options = QueryOptions.create().responseCompression(compression).compressionLevel(1);
+                assertThat(clackShack.query("SELECT number, toString(number) AS s FROM numbers(100000)", options).size()).isEqualTo(100_000);
+                try (final Stream<Row> rows = clackShack.queryStream("SELECT number FROM numbers(100000)", List.of(), options))
+                {
+                    assertThat(rows.count()).isEqualTo(100_000);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInsertFromFile() throws IOException
+    {
+        final Path file = Files.createTempFile("clackshack", ".csv");
+        try (final ClackShack clackShack = new ClackShackImpl(baseUrl))
+        {
+            try (final BufferedWriter writer = Files.newBufferedWriter(file))
+            {
+                for (int i = 0; i < 100_000; i++)
+                {
+                    writer.write(i + ",\"name " + i + "\"\n");
+                }
+            }
+            clackShack.query("DROP TABLE IF EXISTS file_insert_test");
+            clackShack.query("CREATE TABLE file_insert_test (id UInt64, name String) ENGINE = Memory");
+
+            final List<QueryProgress> progressList = new LinkedList<>();
+            final long sent = clackShack.insertFrom("file_insert_test", "CSV", file, QueryOptions.create().progressListener(progressList::add));
+            assertThat(sent).isEqualTo(Files.size(file));
+            assertThat(progressList).isNotEmpty();
+            assertThat(progressList.get(progressList.size() - 1).getBytesSent()).isEqualTo(sent);
+            assertThat(progressList.get(progressList.size() - 1).getWrittenRows()).isEqualTo(100_000);
+            assertThat(clackShack.query("SELECT count() AS c FROM file_insert_test").getLong(0, "c")).isEqualTo(100_000L);
+
+            clackShack.insertFrom("file_insert_test", "CSV", Files.newInputStream(file), QueryOptions.create().requestCompression(Compression.GZIP));
+            assertThat(clackShack.query("SELECT count() AS c FROM file_insert_test").getLong(0, "c")).isEqualTo(200_000L);
+            clackShack.query("DROP TABLE file_insert_test");
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testBatchingInsert()
+    {
+        try (final ClackShack clackShack = new ClackShackImpl(baseUrl))
+        {
+            clackShack.query("DROP TABLE IF EXISTS batch_test");
+            clackShack.query("CREATE TABLE batch_test (id UInt64, name String) ENGINE = Memory");
+            try (final BatchingInserter inserter = new BatchingInserter(clackShack, "batch_test", List.of("id", "name"), BatchOptions.create().maxRows(10_000)))
+            {
+                LongStream.range(0, 50_000).parallel().forEach(i -> inserter.add(new Object[]{i, "name" + i}));
+            }
+            assertThat(clackShack.query("SELECT count() AS c FROM batch_test").getLong(0, "c")).isEqualTo(50_000L);
+            clackShack.query("DROP TABLE batch_test");
+        }
+    }
+
     @Test
     public void testLargerRequestSet()
     {
@@ -0,0 +1,116 @@
+package com.ethlo.clackshack;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.jupiter.api.Test;
+
+public class CompressionTest
+{
+    private static final byte[] DATA = "SELECT 'a fairly repetitive query text' ".repeat(1_000).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testGzipRoundTrip() throws IOException
+    {
+        final byte[] compressed = compress(Compression.GZIP);
+        assertThat(compressed.length).isLessThan(DATA.length / 10);
+        try (final InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed)))
+        {
+            assertThat(in.readAllBytes()).isEqualTo(DATA);
+        }
+    }
+
+    @Test
+    void testDeflateRoundTrip() throws IOException
+    {
+        final byte[] compressed = compress(Compression.DEFLATE);
+        assertThat(compressed.length).isLessThan(DATA.length / 10);
+        try (final InputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed)))
+        {
+            assertThat(in.readAllBytes()).isEqualTo(DATA);
+        }
+    }
+
+    @Test
+    void testNoneIsPassThrough() throws IOException
+    {
+        assertThat(compress(Compression.NONE)).isEqualTo(DATA);
+        assertThat(Compression.NONE.getEncoding()).isNull();
+        assertThat(Compression.GZIP.getEncoding()).isEqualTo("gzip");
+    }
+
+    @Test
+    void testDecompressRoundTrip() throws IOException
+    {
+        for (Compression compression : Compression.values())
+        {
+            final ByteArrayOutputStream target = new ByteArrayOutputStream();
+            try (final OutputStream out = compression.compress(target, 1))
+            {
+                out.write(DATA);
+            }
+            try (final InputStream in = compression.decompress(new ByteArrayInputStream(target.toByteArray())))
+            {
+                assertThat(in.readAllBytes()).isEqualTo(DATA);
+            }
+        }
+    }
+
+    @Test
+    void testForEncoding()
+    {
+        assertThat(Compression.forEncoding(null)).isEqualTo(Compression.NONE);
+        assertThat(Compression.forEncoding("identity")).isEqualTo(Compression.NONE);
+        assertThat(Compression.forEncoding("GZIP")).isEqualTo(Compression.GZIP);
+        assertThat(Compression.forEncoding("deflate")).isEqualTo(Compression.DEFLATE);
+        assertThatThrownBy(() -> Compression.forEncoding("br")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testCompressionLevelIsValidated()
+    {
+        assertThat(QueryOptions.create().compressionLevel(9).compressionLevel()).contains(9);
+        assertThatThrownBy(() -> QueryOptions.create().compressionLevel(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private byte[] compress(final Compression compression) throws IOException
+    {
+        final ByteArrayOutputStream target = new ByteArrayOutputStream();
+        try (final OutputStream out = compression.compress(target))
+        {
+            for (int offset = 0; offset < DATA.length; offset += 1000)
+            {
+                out.write(DATA, offset, Math.min(1000, DATA.length - offset));
+            }
+        }
+        return target.toByteArray();
+    }
+}
@@ -0,0 +1,133 @@
+package com.ethlo.clackshack;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Inserts against a server that stops reading the request body, which must time out rather than wait forever
+ */
+public class InsertTimeoutTest
+{
+    private static final int SIZE = 64 * 1024 * 1024;
+
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private HttpServer server;
+    private ClackShack clackShack;
+
+    @BeforeEach
+    void start() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        clackShack = new ClackShackImpl("http://127.0.0.1:" + server.getAddress().getPort(), null, Duration.ofSeconds(1));
+    }
+
+    @AfterEach
+    void stop()
+    {
+        stopped.countDown();
+        clackShack.close();
+        server.stop(0);
+    }
+
+    @Test
+    @Timeout(30)
+    void testStalledStreamInsertTimesOut()
+    {
+        assertThatThrownBy(() -> clackShack.insert("events", List.of(), "RowBinary", new Zeros(SIZE), QueryOptions.DEFAULT))
+                .isInstanceOf(QueryTimeoutException.class);
+    }
+
+    @Test
+    @Timeout(30)
+    void testStalledFileInsertTimesOut(@TempDir final Path dir) throws IOException
+    {
+        final Path file = Files.createFile(dir.resolve("events.bin"));
+        try (final RandomAccessFile out = new RandomAccessFile(file.toFile(), "rw"))
+        {
+            out.setLength(SIZE);
+        }
+        assertThatThrownBy(() -> clackShack.insertFrom("events", "RowBinary", file, QueryOptions.DEFAULT))
+                .isInstanceOf(QueryTimeoutException.class);
+    }
+
+    private void handle(final HttpExchange exchange)
+    {
+        // Never read the body, so the upload stalls once the socket buffers are full
+        try
+        {
+            stopped.await();
+        }
+        catch (InterruptedException exc)
+        {
+            Thread.currentThread().interrupt();
+        }
+        exchange.close();
+    }
+
+    private static class Zeros extends InputStream
+    {
+        private int remaining;
+
+        Zeros(final int size)
+        {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read()
+        {
+            return remaining-- > 0 ? 0 : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len)
+        {
+            if (remaining <= 0)
+            {
+                return -1;
+            }
+            final int count = Math.min(len, remaining);
+            remaining -= count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.ethlo.clackshack;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ethlo.clackshack.format.CompactJsonRowReader;
+import com.ethlo.clackshack.model.Row;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class QueryPublisherTest
+{
+    private static final String HEADER = "[\"number\", \"s\"]\n[\"UInt64\", \"String\"]\n";
+    private static final long LARGE_RESULT_ROWS = 2_000_000;
+
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final CountDownLatch aborted = new CountDownLatch(1);
+    private HttpServer server;
+    private ClackShack clackShack;
+
+    @BeforeEach
+    void start() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        clackShack = new ClackShackImpl("http://127.0.0.1:" + server.getAddress().getPort(), null, Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void stop()
+    {
+        clackShack.close();
+        server.stop(0);
+    }
+
+    @Test
+    void testPublishesRowsOnDemand() throws InterruptedException
+    {
+        final RecordingSubscriber subscriber = new RecordingSubscriber(1);
+        clackShack.queryPublisher("SELECT number, toString(number) AS s FROM numbers(1000)").subscribe(subscriber);
+        assertThat(subscriber.done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.error.get()).isNull();
+        assertThat(subscriber.rows).hasSize(1000);
+        assertThat(subscriber.rows.get(999).getLong("number")).isEqualTo(999L);
+        assertThat(subscriber.rows.get(5).get("s")).isEqualTo("value 5");
+    }
+
+    @Test
+    void testSlowSubscriberSlowsDownTransfer() throws InterruptedException
+    {
+        final RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        clackShack.queryPublisher("SELECT large").subscribe(subscriber);
+        subscriber.subscription.get().request(10);
+
+        // Without further demand the server is held back by the TCP window rather than the result being buffered
+        Thread.sleep(1000);
+        final long written = bytesWritten.get();
+        Thread.sleep(500);
+        assertThat(bytesWritten.get()).isEqualTo(written);
+        assertThat(written).isLessThan(LARGE_RESULT_ROWS * 10);
+        assertThat(subscriber.rows).hasSize(10);
+
+        subscriber.subscription.get().request(100);
+        Thread.sleep(200);
+        assertThat(subscriber.rows).hasSize(110);
+
+        subscriber.subscription.get().cancel();
+        assertThat(aborted.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.done.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testError() throws InterruptedException
+    {
+        final RecordingSubscriber subscriber = new RecordingSubscriber(1);
+        clackShack.queryPublisher("SELECT error").subscribe(subscriber);
+        assertThat(subscriber.done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.error.get()).isInstanceOf(ClickHouseException.class);
+        assertThat(subscriber.rows).isEmpty();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException
+    {
+        final String query = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        assertThat(exchange.getRequestURI().getQuery()).contains(CompactJsonRowReader.FORMAT_NAME);
+        exchange.getResponseHeaders().add(ClackShackImpl.CLICKHOUSE_TIMEZONE_HEADER_NAME, "UTC");
+        if (query.contains("error"))
+        {
+            exchange.getResponseHeaders().add(ClackShackImpl.CLICKHOUSE_EXCEPTION_CODE_HEADER_NAME, "47");
+            final byte[] body = "Code: 47. DB::Exception: Missing columns: 'error' (version 24.1.1)".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(404, body.length);
+            exchange.getResponseBody().write(body);
+        }
+        else
+        {
+            final long count = query.contains("large") ? LARGE_RESULT_ROWS : 1000;
+            exchange.sendResponseHeaders(200, 0);
+            final OutputStream out = exchange.getResponseBody();
+            try
+            {
+                out.write(HEADER.getBytes(StandardCharsets.UTF_8));
+                for (long i = 0; i < count; i++)
+                {
+                    final byte[] line = ("[\"" + i + "\", \"value " + i + "\"]\n").getBytes(StandardCharsets.UTF_8);
+                    out.write(line);
+                    bytesWritten.addAndGet(line.length);
+                }
+            }
+            catch (IOException exc)
+            {
+                aborted.countDown();
+            }
+        }
+        exchange.close();
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<Row>
+    {
+        private final long batchSize;
+        private final List<Row> rows = new CopyOnWriteArrayList<>();
+        private final AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        RecordingSubscriber(final long batchSize)
+        {
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription)
+        {
+            this.subscription.set(subscription);
+            if (batchSize > 0)
+            {
+                subscription.request(batchSize);
+            }
+        }
+
+        @Override
+        public void onNext(final Row row)
+        {
+            rows.add(row);
+            if (batchSize > 0)
+            {
+                subscription.get().request(batchSize);
+            }
+        }
+
+        @Override
+        public void onError(final Throwable throwable)
+        {
+            error.set(throwable);
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete()
+        {
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.ethlo.clackshack;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.ethlo.clackshack.format.JsonResultReader;
+import com.ethlo.clackshack.model.ResultSet;
+import com.ethlo.clackshack.model.Row;
+import com.ethlo.clackshack.model.RowMapper;
+import com.ethlo.clackshack.model.RowSchema;
+
+public class RowMapperTest
+{
+    private static final String BODY = """
+            {"meta": [{"name": "user_id", "type": "UInt64"}, {"name": "name", "type": "String"},
+                      {"name": "score", "type": "Nullable(Float64)"}, {"name": "day", "type": "Date"}, {"name": "level", "type": "UInt8"}],
+             "data": [{"user_id": "1", "name": "one", "score": 0.5, "day": "2024-01-31", "level": 3},
+                      {"user_id": "2", "name": "two", "score": null, "day": "2024-02-01", "level": 4}]}""";
+
+    @Test
+    void testMapToRecord()
+    {
+        final List<User> users = read().map(User.class);
+        assertThat(users).containsExactly(
+                new User(1, "one", 0.5D, LocalDate.parse("2024-01-31"), (short) 3),
+                new User(2, "two", null, LocalDate.parse("2024-02-01"), (short) 4));
+    }
+
+    @Test
+    void testMapToBean()
+    {
+        final List<UserBean> users = read().map(UserBean.class);
+        assertThat(users).hasSize(2);
+        assertThat(users.get(0).userId).isEqualTo(BigInteger.ONE);
+        assertThat(users.get(0).name).isEqualTo("one");
+        assertThat(users.get(0).score).isEqualTo(0.5D);
+        assertThat(users.get(1).score).isEqualTo(0D);
+        assertThat(users.get(1).level).isEqualTo(4);
+    }
+
+    @Test
+    void testMapSingleRow()
+    {
+        final ResultSet resultSet = read();
+        assertThat(RowMapper.of(User.class).map(resultSet.getRow(1)).userId()).isEqualTo(2L);
+        assertThat(resultSet.map(row -> row.get("name", String.class))).containsExactly("one", "two");
+    }
+
+    @Test
+    void testMapByPositionWhenNoNameMatches()
+    {
+        final Row row = new Row(RowSchema.ofNames(List.of("x", "y")), new Object[]{1L, 2L});
+        assertThat(RowMapper.of(Pair.class).map(row)).isEqualTo(new Pair(1, 2));
+    }
+
+    @Test
+    void testPartialNameMatchIsRejected()
+    {
+        final Row row = new Row(RowSchema.ofNames(List.of("b", "x")), new Object[]{1L, 2L});
+        assertThatThrownBy(() -> RowMapper.of(Pair.class).map(row))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Only 1 of the 2 components");
+    }
+
+    @Test
+    void testUnmatchedComponentIsRejected()
+    {
+        // One column fewer than components, with a misspelled name
+        final Row row = new Row(RowSchema.ofNames(List.of("user_id", "nmae", "score", "day")), new Object[]{1L, "one", 0.5D, LocalDate.parse("2024-01-31")});
+        assertThatThrownBy(() -> RowMapper.of(User.class).map(row))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("no column for [name, level]");
+    }
+
+    @Test
+    void testIntegerOverflowIsRejected()
+    {
+        final Row row = new Row(RowSchema.ofNames(List.of("boxed", "primitive", "small")), new Object[]{3_000_000_000L, 1L, 1L});
+        assertThatThrownBy(() -> RowMapper.of(Counters.class).map(row)).isInstanceOf(ArithmeticException.class);
+        assertThat(RowMapper.of(Counters.class).map(new Row(row.getSchema(), new Object[]{7L, 8L, 9L}))).isEqualTo(new Counters(7, 8, (short) 9));
+
+        final Row primitive = new Row(row.getSchema(), new Object[]{1L, 3_000_000_000L, 1L});
+        assertThatThrownBy(() -> RowMapper.of(Counters.class).map(primitive)).isInstanceOf(ArithmeticException.class);
+        final Row small = new Row(row.getSchema(), new Object[]{1L, 1L, 40_000L});
+        assertThatThrownBy(() -> RowMapper.of(Counters.class).map(small)).isInstanceOf(ArithmeticException.class);
+        final Row fraction = new Row(row.getSchema(), new Object[]{1.5D, 1L, 1L});
+        assertThatThrownBy(() -> RowMapper.of(Counters.class).map(fraction)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void testDuplicateNameMatchIsRejected()
+    {
+        final Row row = new Row(RowSchema.ofNames(List.of("foo_bar", "other")), new Object[]{1L, 2L});
+        assertThatThrownBy(() -> RowMapper.of(Duplicate.class).map(row))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("both match column foo_bar");
+    }
+
+    @Test
+    void testAlternatingSchemas()
+    {
+        final Row byName = new Row(RowSchema.ofNames(List.of("b", "a")), new Object[]{2L, 1L});
+        final Row byPosition = new Row(RowSchema.ofNames(List.of("x", "y")), new Object[]{3L, 4L});
+        for (int i = 0; i < 3; i++)
+        {
+            assertThat(RowMapper.of(Pair.class).map(byName)).isEqualTo(new Pair(1, 2));
+            assertThat(RowMapper.of(Pair.class).map(byPosition)).isEqualTo(new Pair(3, 4));
+        }
+    }
+
+    private ResultSet read()
+    {
+        return new JsonResultReader(new ByteArrayInputStream(BODY.getBytes(StandardCharsets.UTF_8))).read();
+    }
+
+    private record User(long userId, String name, Double score, LocalDate day, short level)
+    {
+    }
+
+    private record Counters(Integer boxed, int primitive, Short small)
+    {
+    }
+
+    private record Pair(long a, long b)
+    {
+    }
+
+    private record Duplicate(long fooBar, long foo_bar)
+    {
+    }
+
+    public static class UserBean
+    {
+        private BigInteger userId;
+        private String name;
+        private double score;
+        private int level;
+
+        public void setUserId(final BigInteger userId)
+        {
+            this.userId = userId;
+        }
+
+        public void setName(final String name)
+        {
+            this.name = name;
+        }
+
+        public void setScore(final double score)
+        {
+            this.score = score;
+        }
+
+        public void setLevel(final int level)
+        {
+            this.level = level;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.ethlo.clackshack;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.ethlo.clackshack.util.ShardingKeys;
+
+public class ShardedInserterTest
+{
+    private static final ClusterTopology TOPOLOGY = ClusterTopology.of(
+            ClusterTopology.Shard.of(1, "http://a1", "http://a2"),
+            ClusterTopology.Shard.of(2, "http://b1"));
+
+    @Test
+    void testShardSelectionByWeight()
+    {
+        assertThat(TOPOLOGY.shardOf(0)).isEqualTo(0);
+        assertThat(TOPOLOGY.shardOf(1)).isEqualTo(1);
+        assertThat(TOPOLOGY.shardOf(2)).isEqualTo(1);
+        assertThat(TOPOLOGY.shardOf(3)).isEqualTo(0);
+        // 2^64 - 1 is divisible by 3
+        assertThat(TOPOLOGY.shardOf(-1L)).isEqualTo(0);
+    }
+
+    @Test
+    void testInsertIsPartitionedAcrossShards()
+    {
+        final Map<String, List<Object>> inserted = new ConcurrentHashMap<>();
+        try (final ShardedInserter<Long> inserter = new ShardedInserter<>(TOPOLOGY, "events_local", List.of("id"), ShardingKeys::intHash64, QueryOptions.DEFAULT, endpoint -> new RecordingClient(endpoint, inserted, Set.of())))
+        {
+            final List<Long> rows = LongStream.range(0, 3_000).boxed().toList();
+            assertThat(inserter.insert(rows)).isEqualTo(3_000);
+        }
+
+        assertThat(inserted.keySet()).containsExactlyInAnyOrder("http://a1", "http://b1");
+        assertThat(inserted.get("http://a1")).allSatisfy(row -> assertThat(TOPOLOGY.shardOf(ShardingKeys.intHash64((Long) row))).isEqualTo(0));
+        assertThat(inserted.get("http://b1")).allSatisfy(row -> assertThat(TOPOLOGY.shardOf(ShardingKeys.intHash64((Long) row))).isEqualTo(1));
+        assertThat(inserted.get("http://a1").size()).isBetween(800, 1_200);
+    }
+
+    @Test
+    void testFailoverToNextReplica()
+    {
+        final Map<String, List<Object>> inserted = new ConcurrentHashMap<>();
+        try (final ShardedInserter<Long> inserter = new ShardedInserter<>(TOPOLOGY, "events_local", List.of("id"), key -> key, QueryOptions.DEFAULT, endpoint -> new RecordingClient(endpoint, inserted, Set.of("http://a1"))))
+        {
+            assertThat(inserter.insert(List.of(0L, 1L, 2L, 3L))).isEqualTo(4);
+            assertThat(inserter.insert(List.of(6L))).isEqualTo(1);
+        }
+        assertThat(inserted.get("http://a2")).containsExactly(0L, 3L, 6L);
+        assertThat(inserted.get("http://b1")).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void testFailedShardIsReported()
+    {
+        final Map<String, List<Object>> inserted = new ConcurrentHashMap<>();
+        try (final ShardedInserter<Long> inserter = new ShardedInserter<>(TOPOLOGY, "events_local", List.of("id"), key -> key, QueryOptions.DEFAULT, endpoint -> new RecordingClient(endpoint, inserted, Set.of("http://b1"))))
+        {
+            assertThatThrownBy(() -> inserter.insert(List.of(0L, 1L))).isInstanceOf(UncheckedIOException.class);
+        }
+        assertThat(inserted.get("http://a1")).containsExactly(0L);
+    }
+
+    private static class RecordingClient extends StubClackShack
+    {
+        private final String endpoint;
+        private final Map<String, List<Object>> inserted;
+        private final Set<String> failing;
+
+        RecordingClient(final String endpoint, final Map<String, List<Object>> inserted, final Set<String> failing)
+        {
+            this.endpoint = endpoint;
+            this.inserted = inserted;
+            this.failing = failing;
+        }
+
+        @Override
+        public long insert(final String table, final List<String> columns, final Iterator<?> rows, final QueryOptions queryOptions)
+        {
+            if (failing.contains(endpoint))
+            {
+                throw new UncheckedIOException(new IOException("Connection refused: " + endpoint));
+            }
+            final List<Object> received = new ArrayList<>();
+            rows.forEachRemaining(received::add);
+            inserted.computeIfAbsent(endpoint, e -> new ArrayList<>()).addAll(received);
+            return received.size();
+        }
+    }
+}
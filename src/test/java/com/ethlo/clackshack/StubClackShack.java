@@ -0,0 +1,92 @@
+package com.ethlo.clackshack;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+
+import com.ethlo.clackshack.model.ColumnarResultSet;
+import com.ethlo.clackshack.model.QueryParam;
+import com.ethlo.clackshack.model.ResultSet;
+import com.ethlo.clackshack.model.Row;
+import com.ethlo.clackshack.model.TableDescription;
+
+/**
+ * Client that supports nothing, for tests to override what they use
+ */
+public abstract class StubClackShack implements ClackShack
+{
+    @Override
+    public ResultSet query(final String query, final List<QueryParam> params, final QueryOptions queryOptions)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<Row> queryStream(final String query, final List<QueryParam> params, final QueryOptions queryOptions)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<ResultSet> queryAsync(final String query, final List<QueryParam> params, final QueryOptions queryOptions)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Flow.Publisher<Row> queryPublisher(final String query, final List<QueryParam> params, final QueryOptions queryOptions)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ColumnarResultSet queryColumnar(final String query, final List<QueryParam> params, final QueryOptions queryOptions)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public TableDescription describe(final String table, final List<String> columns, final QueryOptions queryOptions)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long insert(final String table, final List<String> columns, final Iterator<?> rows, final QueryOptions queryOptions)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long insert(final String table, final List<String> columns, final String format, final InputStream data, final QueryOptions queryOptions)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close()
+    {
+    }
+}
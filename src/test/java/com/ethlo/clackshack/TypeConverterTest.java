@@ -22,10 +22,14 @@ package com.ethlo.clackshack;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.math.BigInteger;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+import com.ethlo.clackshack.model.ColumnConverter;
+import com.ethlo.clackshack.model.ColumnType;
 import com.ethlo.clackshack.model.DataTypes;
+import com.ethlo.clackshack.model.QueryResult;
 
 import com.fasterxml.jackson.databind.node.NullNode;
 
@@ -81,6 +85,24 @@ public class TypeConverterTest
         assertThat(ResultSet.convertType(DataTypes.INT_32.getName(), NullNode.getInstance())).isNull();
     }
 
+    @Test
+    void testConverterPlanIsCached()
+    {
+        final ColumnConverter converter = ColumnConverter.of("LowCardinality(Nullable(String))");
+        assertThat(ColumnConverter.of("LowCardinality(Nullable(String))")).isSameAs(converter);
+        assertThat(converter.isNullable()).isTrue();
+        assertThat(converter.isLowCardinality()).isTrue();
+        assertThat(converter.getDataType()).isSameAs(DataTypes.STRING);
+    }
+
+    @Test
+    void testConverterPlanParameters()
+    {
+        final ColumnConverter converter = ColumnConverter.of("Nullable(Decimal(18, 4))");
+        assertThat(converter.getDataType()).isSameAs(DataTypes.DECIMAL);
+        assertThat(converter.getBaseType().getParameters()).containsExactly("18", "4");
+    }
+
     @Test
     void testArrayLowCardinalityNullableStringParsing()
     {
@@ -97,6 +119,36 @@ public class TypeConverterTest
         verify(new ExpectedFormat("Map(LowCardinality(String), String)", input, input));
     }
 
+    @Test
+    void testNestedTypeTree()
+    {
+        final ColumnType type = ColumnType.of("Map(String, Tuple(`a b` Array(Nullable(Decimal(18, 4))), UInt8))");
+        assertThat(ColumnType.of("Map(String, Tuple(`a b` Array(Nullable(Decimal(18, 4))), UInt8))")).isSameAs(type);
+        final ColumnType tuple = type.getNestedType(1);
+        assertThat(tuple.getElementName(0)).isEqualTo("a b");
+        assertThat(tuple.getElementName(1)).isNull();
+        assertThat(tuple.getNestedType(0).getNestedType(0).getNestedType(0).getParameters()).containsExactly("18", "4");
+        assertThat(tuple.getNestedType(1).getName()).isEqualTo("UInt8");
+    }
+
+    @Test
+    void testPrimitiveAccessors()
+    {
+        final QueryResult result = JsonUtil.readJson("""
+                {"meta": [{"name": "a", "type": "UInt64"}, {"name": "b", "type": "Nullable(Float64)"}, {"name": "c", "type": "Int8"}],
+                 "data": [{"a": "18446744073709551615", "b": 1.5, "c": -3}, {"a": "7", "b": null, "c": 4}],
+                 "rows": 2}""", QueryResult.class);
+        final ResultSet resultSet = new ResultSet(result);
+        assertThat(resultSet.getLong(0, "a")).isEqualTo(-1L);
+        assertThat(resultSet.get(0, 0, Object.class)).isEqualTo(new BigInteger("18446744073709551615"));
+        assertThat(resultSet.getDouble(0, "b")).isEqualTo(1.5D);
+        assertThat(resultSet.isNull(1, "b")).isTrue();
+        assertThat(resultSet.getRow(1).getDouble("b")).isEqualTo(0D);
+        assertThat(resultSet.getRow(1).get("b")).isNull();
+        assertThat(resultSet.getRow(0).getInt("c")).isEqualTo(-3);
+        assertThat(resultSet.getRow(0).get("c")).isEqualTo((byte) -3);
+    }
+
     private void verify(final ExpectedFormat format)
     {
         try
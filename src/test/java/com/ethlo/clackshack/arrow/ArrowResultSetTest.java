@@ -0,0 +1,80 @@
+package com.ethlo.clackshack.arrow;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.junit.jupiter.api.Test;
+
+class ArrowResultSetTest
+{
+    @Test
+    void testReadBatches() throws Exception
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final BufferAllocator allocator = new RootAllocator();
+             final BigIntVector vector = new BigIntVector("number", allocator);
+             final VectorSchemaRoot root = new VectorSchemaRoot(List.of(vector));
+             final ArrowStreamWriter writer = new ArrowStreamWriter(root, null, out))
+        {
+            writer.start();
+            for (int batch = 0; batch < 2; batch++)
+            {
+                vector.allocateNew(3);
+                for (int i = 0; i < 3; i++)
+                {
+                    vector.set(i, batch * 3L + i);
+                }
+                root.setRowCount(3);
+                writer.writeBatch();
+            }
+            writer.end();
+        }
+
+        long sum = 0;
+        int batches = 0;
+        try (final ArrowResultSet result = new ArrowResultSet(new ByteArrayInputStream(out.toByteArray())))
+        {
+            assertThat(result.getSchema().getFields()).hasSize(1);
+            while (result.loadNextBatch())
+            {
+                batches++;
+                final BigIntVector numbers = (BigIntVector) result.getVectorSchemaRoot().getVector("number");
+                for (int i = 0; i < numbers.getValueCount(); i++)
+                {
+                    sum += numbers.get(i);
+                }
+            }
+        }
+
+        assertThat(batches).isEqualTo(2);
+        assertThat(sum).isEqualTo(15);
+    }
+}
@@ -0,0 +1,232 @@
+package com.ethlo.clackshack.benchmark;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ch.qos.logback.classic.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+
+import com.ethlo.clackshack.ClackShack;
+import com.ethlo.clackshack.ClackShackImpl;
+import com.ethlo.clackshack.ClientOptions;
+import com.ethlo.clackshack.model.ResultSet;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs waves of concurrent blocking {@link ClackShack#query(String, java.util.Map)} calls against a local stand-in
+ * server that answers every query with a small result after a fixed delay. The score is the time per wave, and the
+ * throughput and latency percentiles of the individual queries are printed after every iteration.
+ * <p>
+ * With <code>virtualThreads</code> enabled, the callers, the stand-in server and the HTTP client all run on virtual
+ * threads, which requires Java 21 or later; on earlier versions those runs fail rather than measure platform threads
+ * under the wrong label. The fork traces virtual threads that are pinned while blocking, and lets the stand-in server
+ * keep all connections open. Run the main method from the test classpath, for example from the IDE, with an open file
+ * limit above twice the concurrency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Djdk.tracePinnedThreads=short", "-Dsun.net.httpserver.maxIdleConnections=20000"})
+public class ConcurrentQueryBenchmark
+{
+    private static final Duration SERVER_LATENCY = Duration.ofMillis(10);
+    private static final byte[] RESULT = """
+            {"meta": [{"name": "number", "type": "UInt64"}, {"name": "s", "type": "String"}],
+             "data": [{"number": "1", "s": "one"}, {"number": "2", "s": "two"}],
+             "rows": 2}""".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"1000", "10000"})
+    private int concurrency;
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ExecutorService callers;
+    private ClackShack clackShack;
+    private final List<long[]> latencies = new ArrayList<>();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicReference<RuntimeException> firstFailure = new AtomicReference<>();
+    private long elapsed;
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(ConcurrentQueryBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup(Level.Trial)
+    public void start() throws IOException
+    {
+        // The test configuration logs every query, which would dominate the measurement
+        ((Logger) LoggerFactory.getLogger("com.ethlo.clackshack")).setLevel(ch.qos.logback.classic.Level.INFO);
+
+        serverExecutor = newExecutor(virtualThreads);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), concurrency);
+        server.setExecutor(serverExecutor);
+        server.createContext("/", this::handle);
+        server.start();
+
+        callers = newExecutor(virtualThreads);
+        final ClientOptions clientOptions = ClientOptions.create()
+                .virtualThreads(virtualThreads)
+                .maxConnections(concurrency)
+                .maxQueuedRequests(concurrency);
+        clackShack = new ClackShackImpl("http://127.0.0.1:" + server.getAddress().getPort(), null, Duration.ofSeconds(60), clientOptions);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop()
+    {
+        clackShack.close();
+        callers.shutdownNow();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Setup(Level.Iteration)
+    public void reset()
+    {
+        latencies.clear();
+        failures.set(0);
+        firstFailure.set(null);
+        elapsed = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void report()
+    {
+        final long[] all = latencies.stream().flatMapToLong(Arrays::stream).filter(latency -> latency >= 0).sorted().toArray();
+        if (all.length == 0)
+        {
+            return;
+        }
+        System.out.printf("%nconcurrency=%d virtualThreads=%s: %.0f queries/s, p50=%.1f ms, p99=%.1f ms, p99.9=%.1f ms, max=%.1f ms, failures=%d%n",
+                concurrency, virtualThreads, all.length / (elapsed / 1e9),
+                percentile(all, 0.5), percentile(all, 0.99), percentile(all, 0.999), all[all.length - 1] / 1e6, failures.get());
+        Optional.ofNullable(firstFailure.get()).ifPresent(exc -> System.out.println("First failure: " + exc));
+    }
+
+    @Benchmark
+    public void wave() throws InterruptedException
+    {
+        final long[] wave = new long[concurrency];
+        final CountDownLatch done = new CountDownLatch(concurrency);
+        final long start = System.nanoTime();
+        for (int i = 0; i < concurrency; i++)
+        {
+            final int index = i;
+            callers.execute(() ->
+            {
+                final long queryStart = System.nanoTime();
+                try
+                {
+                    final ResultSet resultSet = clackShack.query("SELECT number, toString(number) AS s FROM numbers(2)");
+                    wave[index] = resultSet.size() == 2 ? System.nanoTime() - queryStart : -1;
+                }
+                catch (RuntimeException exc)
+                {
+                    wave[index] = -1;
+                    failures.incrementAndGet();
+                    firstFailure.compareAndSet(null, exc);
+                }
+                finally
+                {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        elapsed += System.nanoTime() - start;
+        latencies.add(wave);
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException
+    {
+        exchange.getRequestBody().readAllBytes();
+        try
+        {
+            Thread.sleep(SERVER_LATENCY.toMillis());
+        }
+        catch (InterruptedException exc)
+        {
+            Thread.currentThread().interrupt();
+        }
+        exchange.getResponseHeaders().add(ClackShackImpl.CLICKHOUSE_TIMEZONE_HEADER_NAME, "UTC");
+        exchange.sendResponseHeaders(200, RESULT.length);
+        exchange.getResponseBody().write(RESULT);
+        exchange.close();
+    }
+
+    private static double percentile(final long[] sorted, final double percentile)
+    {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+    }
+
+    private static ExecutorService newExecutor(final boolean virtualThreads)
+    {
+        if (virtualThreads)
+        {
+            try
+            {
+                // Java 21 and later, while the project is built for Java 17
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            }
+            catch (ReflectiveOperationException exc)
+            {
+                throw new IllegalStateException("Virtual threads require Java 21 or later, running " + Runtime.version(), exc);
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+}
@@ -0,0 +1,101 @@
+package com.ethlo.clackshack.benchmark;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.ethlo.clackshack.util.DateTimes;
+
+/**
+ * Compares the previous formatter based date-time parsing with {@link DateTimes}. Run the main method from the test
+ * classpath, for example from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateTimeParsingBenchmark
+{
+    private static final ZoneId ZONE = ZoneId.of("Europe/Oslo");
+
+    private final String dateTime = "2024-07-01 14:30:00";
+    private final String dateTime64 = "2024-07-01 14:30:00.123";
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder().include(DateTimeParsingBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Benchmark
+    public LocalDateTime formatterDateTime()
+    {
+        return LocalDateTime.parse(dateTime, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+    }
+
+    @Benchmark
+    public LocalDateTime formatterDateTime64()
+    {
+        return LocalDateTime.parse(dateTime64, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS"));
+    }
+
+    @Benchmark
+    public LocalDateTime parseDateTime()
+    {
+        return DateTimes.parseDateTime(dateTime);
+    }
+
+    @Benchmark
+    public LocalDateTime parseDateTime64()
+    {
+        return DateTimes.parseDateTime(dateTime64);
+    }
+
+    @Benchmark
+    public long parseEpochSecondUtc()
+    {
+        return DateTimes.parseEpochSecond(dateTime, ZoneOffset.UTC);
+    }
+
+    @Benchmark
+    public long parseEpochTicksZone()
+    {
+        return DateTimes.parseEpochTicks(dateTime64, 3, ZONE);
+    }
+}
@@ -0,0 +1,79 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+import com.ethlo.clackshack.QueryOptions;
+import com.ethlo.clackshack.model.ResultSet;
+
+class AsyncJsonResultReaderTest
+{
+    @Test
+    void testReadResultInSmallChunks()
+    {
+        final String body = """
+                {
+                  "meta": [{"name": "id", "type": "UInt64"}, {"name": "score", "type": "Nullable(Float64)"},
+                           {"name": "day", "type": "Date"}, {"name": "price", "type": "Decimal(18, 4)"}, {"name": "name", "type": "String"}],
+                  "data": [{"id": "18446744073709551615", "score": 0.5, "day": "2024-01-31", "price": 12.3456, "name": "\\u00e6\\u00f8\\u00e5 ok"},
+                           {"id": "2", "score": null, "day": "2024-02-01", "price": -1, "name": "æøå"}],
+                  "rows": 2,
+                  "statistics": {"elapsed": 0.001, "rows_read": 2, "bytes_read": 64}
+                }""";
+
+        final byte[] data = body.getBytes(StandardCharsets.UTF_8);
+        final AsyncJsonResultReader reader = new AsyncJsonResultReader(QueryOptions.DEFAULT, ZoneOffset.UTC);
+        for (int offset = 0; offset < data.length; offset += 7)
+        {
+            reader.feed(ByteBuffer.wrap(data, offset, Math.min(7, data.length - offset)));
+        }
+        final ResultSet resultSet = reader.finish();
+
+        assertThat(resultSet.size()).isEqualTo(2);
+        assertThat(resultSet.getRow(0).get("id")).isEqualTo(new BigInteger("18446744073709551615"));
+        assertThat(resultSet.getDouble(0, "score")).isEqualTo(0.5D);
+        assertThat(resultSet.isNull(1, "score")).isTrue();
+        assertThat(resultSet.getRow(1).get("day")).isEqualTo(LocalDate.parse("2024-02-01"));
+        assertThat(resultSet.getRow(0).get("price", BigDecimal.class)).isEqualByComparingTo("12.3456");
+        assertThat(resultSet.getRow(0).get("name")).isEqualTo("æøå ok");
+        assertThat(resultSet.getRow(1).get("name")).isEqualTo("æøå");
+        assertThat(reader.getStatistics().getRowsRead()).isEqualTo(2);
+    }
+
+    @Test
+    void testTruncatedResult()
+    {
+        final AsyncJsonResultReader reader = new AsyncJsonResultReader(QueryOptions.DEFAULT, ZoneOffset.UTC);
+        reader.feed(ByteBuffer.wrap("{\"meta\": [{\"name\": \"id\", \"type\": \"UInt8\"}], \"data\": [{\"id\": 1".getBytes(StandardCharsets.UTF_8)));
+        assertThatThrownBy(reader::finish).isInstanceOf(UncheckedIOException.class);
+    }
+}
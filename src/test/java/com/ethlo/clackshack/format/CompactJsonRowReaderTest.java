@@ -0,0 +1,87 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.ethlo.clackshack.model.Row;
+
+class CompactJsonRowReaderTest
+{
+    @Test
+    void testReadRows()
+    {
+        final String body = """
+                ["number","name"]
+                ["UInt64","Nullable(String)"]
+                ["1","one"]
+                ["2",null]
+                """;
+
+        final List<Row> rows = new ArrayList<>();
+        try (final CompactJsonRowReader reader = new CompactJsonRowReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))))
+        {
+            assertThat(reader.getMeta()).hasSize(2);
+            reader.forEachRemaining(rows::add);
+        }
+
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0).get("number")).isEqualTo(BigInteger.ONE);
+        assertThat(rows.get(0).get("name")).isEqualTo("one");
+        assertThat(rows.get(1).get("name")).isNull();
+    }
+
+    @Test
+    void testLowCardinalityValuesAreShared()
+    {
+        final String body = """
+                ["country"]
+                ["LowCardinality(String)"]
+                ["NO"]
+                ["NO"]
+                """;
+
+        final List<Row> rows = new ArrayList<>();
+        try (final CompactJsonRowReader reader = new CompactJsonRowReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))))
+        {
+            reader.forEachRemaining(rows::add);
+        }
+        assertThat(rows.get(1).get("country")).isEqualTo("NO").isSameAs(rows.get(0).get("country"));
+    }
+
+    @Test
+    void testEmptyBody()
+    {
+        try (final CompactJsonRowReader reader = new CompactJsonRowReader(new ByteArrayInputStream(new byte[0])))
+        {
+            assertThat(reader.getMeta()).isEmpty();
+            assertThat(reader.hasNext()).isFalse();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.ethlo.clackshack.QueryOptions;
+import com.ethlo.clackshack.TypeConversionException;
+import com.ethlo.clackshack.model.Column;
+import com.ethlo.clackshack.model.DataTypes;
+import com.ethlo.clackshack.model.Int128;
+import com.ethlo.clackshack.model.ResultSet;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+class JsonResultReaderTest
+{
+    @Test
+    void testReadResult()
+    {
+        final String body = """
+                {
+                  "meta": [{"name": "id", "type": "UInt64"}, {"name": "score", "type": "Nullable(Float64)"},
+                           {"name": "day", "type": "Date"}, {"name": "tags", "type": "Array(String)"}],
+                  "data": [{"id": "18446744073709551615", "score": 0.5, "day": "2024-01-31", "tags": ["a", "b"]},
+                           {"score": null, "id": "2", "tags": [], "day": "2024-02-01", "extra": {"x": 1}}],
+                  "rows": 2,
+                  "rows_before_limit_at_least": 10,
+                  "statistics": {"elapsed": 0.001, "rows_read": 2, "bytes_read": 64}
+                }""";
+
+        final JsonResultReader reader = new JsonResultReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        final ResultSet resultSet = reader.read();
+        assertThat(resultSet.size()).isEqualTo(2);
+        assertThat(resultSet.getRow(0).get("id")).isEqualTo(new BigInteger("18446744073709551615"));
+        assertThat(resultSet.getLong(1, "id")).isEqualTo(2L);
+        assertThat(resultSet.getDouble(0, "score")).isEqualTo(0.5D);
+        assertThat(resultSet.isNull(1, "score")).isTrue();
+        assertThat(resultSet.getRow(1).get("day")).isEqualTo(LocalDate.parse("2024-02-01"));
+        assertThat(((ArrayNode) resultSet.getRow(0).get("tags"))).hasSize(2);
+        assertThat(reader.getStatistics().getRowsRead()).isEqualTo(2);
+        assertThat(reader.getRowsBeforeLimitAtLeast()).isEqualTo(10);
+    }
+
+    @Test
+    void testLazyConversion()
+    {
+        final String body = """
+                {"meta": [{"name": "id", "type": "UInt32"}, {"name": "ip", "type": "Nullable(UUID)"}, {"name": "day", "type": "Date"}],
+                 "data": [{"id": 1, "ip": "d5e2c6a8-5d4f-4a6b-9f0e-8d1c2b3a4f5e", "day": "not-a-date"}, {"id": 2, "ip": null, "day": "2024-02-01"}]}""";
+
+        final ResultSet resultSet = new JsonResultReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), QueryOptions.DEFAULT.lazyConversion(true), ZoneOffset.UTC).read();
+        assertThat(resultSet.getLong(1, "id")).isEqualTo(2L);
+        assertThat(resultSet.isNull(1, "ip")).isTrue();
+        final Object ip = resultSet.getRow(0).get("ip");
+        assertThat(ip).isInstanceOf(UUID.class);
+        assertThat(resultSet.getRow(0).get("ip")).isSameAs(ip);
+        assertThat(resultSet.getRow(1).get("day")).isEqualTo(LocalDate.parse("2024-02-01"));
+        assertThatThrownBy(() -> resultSet.getRow(0).get("day")).isInstanceOf(TypeConversionException.class);
+    }
+
+    @Test
+    void testDateTimeWithPrecisionAndTimeZone()
+    {
+        final String body = """
+                {"meta": [{"name": "ts", "type": "DateTime64(6, 'Europe/Oslo')"}, {"name": "dt", "type": "DateTime"}],
+                 "data": [{"ts": "2024-07-01 14:30:00.123456", "dt": "2024-07-01 14:30:00"}]}""";
+
+        final ResultSet resultSet = new JsonResultReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), QueryOptions.DEFAULT, ZoneId.of("Europe/Oslo")).read();
+        assertThat(resultSet.getLong(0, "ts")).isEqualTo(1719837000123456L);
+        assertThat(resultSet.getRow(0).get("ts")).isEqualTo(LocalDateTime.parse("2024-07-01T14:30:00.123456"));
+        assertThat(resultSet.getLong(0, "dt")).isEqualTo(1719837000L);
+        assertThat(resultSet.getRow(0).get("dt")).isEqualTo(LocalDateTime.parse("2024-07-01T14:30:00"));
+    }
+
+    @Test
+    void testTypedCollections()
+    {
+        final String body = """
+                {"meta": [{"name": "ids", "type": "Array(UInt32)"}, {"name": "amounts", "type": "Array(Nullable(Decimal(18, 4)))"},
+                          {"name": "tags", "type": "Map(String, Array(UInt32))"}, {"name": "point", "type": "Tuple(x Float64, label String)"},
+                          {"name": "nested", "type": "Array(Array(String))"}],
+                 "data": [{"ids": [1, 2, 3], "amounts": ["1.5000", null], "tags": {"a": [7]}, "point": {"label": "p", "x": 0.5}, "nested": [["a"], []]}]}""";
+
+        for (final boolean lazy : new boolean[]{false, true})
+        {
+            final QueryOptions options = QueryOptions.DEFAULT.typedCollections(true).lazyConversion(lazy);
+            final ResultSet resultSet = new JsonResultReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), options, ZoneOffset.UTC).read();
+            assertThat((long[]) resultSet.getRow(0).get("ids")).containsExactly(1L, 2L, 3L);
+            assertThat(resultSet.getRow(0).get("amounts")).isEqualTo(Arrays.asList(new BigDecimal("1.5000"), null));
+            final Map<?, ?> tags = (Map<?, ?>) resultSet.getRow(0).get("tags");
+            assertThat(tags.keySet()).isEqualTo(Set.of("a"));
+            assertThat((long[]) tags.get("a")).containsExactly(7L);
+            assertThat(resultSet.getRow(0).get("point")).isEqualTo(List.of(0.5D, "p"));
+            assertThat(resultSet.getRow(0).get("nested")).isEqualTo(List.of(List.of("a"), List.of()));
+        }
+    }
+
+    @Test
+    void testOverriddenTypeIsUsedInCachedCollections()
+    {
+        final String body = """
+                {"meta": [{"name": "labels", "type": "Array(String)"}],
+                 "data": [{"labels": ["a", "b"]}]}""";
+        final QueryOptions options = QueryOptions.DEFAULT.typedCollections(true);
+
+        assertThat(new JsonResultReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), options, ZoneOffset.UTC).read().getRow(0).get("labels")).isEqualTo(List.of("a", "b"));
+        try
+        {
+            DataTypes.addDataType(new DataTypes.SimpleDataType<>("String", String.class, value -> value.toUpperCase(Locale.ROOT)));
+            assertThat(new JsonResultReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), options, ZoneOffset.UTC).read().getRow(0).get("labels")).isEqualTo(List.of("A", "B"));
+        }
+        finally
+        {
+            DataTypes.addDataType(DataTypes.STRING);
+        }
+    }
+
+    @Test
+    void testWideIntegers()
+    {
+        final String body = """
+                {"meta": [{"name": "id", "type": "UInt64"}, {"name": "hash", "type": "UInt128"}, {"name": "big", "type": "Nullable(Int256)"}],
+                 "data": [{"id": "18446744073709551615", "hash": "340282366920938463463374607431768211455", "big": "-5"},
+                          {"id": "3", "hash": "18446744073709551616", "big": null}]}""";
+
+        final ResultSet resultSet = new JsonResultReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), QueryOptions.DEFAULT.rawUnsignedLongs(true), ZoneOffset.UTC).read();
+        assertThat(resultSet.getRow(0).get("id")).isEqualTo(-1L);
+        assertThat(resultSet.getRow(1).get("id")).isEqualTo(3L);
+        assertThat(resultSet.getRow(0).get("hash")).isEqualTo(Int128.ofUnsigned(-1, -1));
+        assertThat(resultSet.getRow(1).get("hash", Int128.class).getHigh()).isEqualTo(1L);
+        assertThat(resultSet.getRow(0).get("big").toString()).isEqualTo("-5");
+        assertThat(resultSet.getLong(0, "big")).isEqualTo(-5L);
+        assertThat(resultSet.isNull(1, "big")).isTrue();
+    }
+
+    @Test
+    void testScaledDecimals()
+    {
+        final String body = """
+                {"meta": [{"name": "amount", "type": "Nullable(Decimal(18, 4))"}, {"name": "big", "type": "Decimal(38, 2)"}],
+                 "data": [{"amount": -12.5, "big": "1.25"}, {"amount": null, "big": "2"}]}""";
+
+        final ResultSet resultSet = new JsonResultReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), QueryOptions.DEFAULT.scaledDecimals(true), ZoneOffset.UTC).read();
+        final Column.DecimalColumn amount = (Column.DecimalColumn) resultSet.column("amount");
+        assertThat(amount.getScale()).isEqualTo(4);
+        assertThat(amount.getUnscaled(0)).isEqualTo(-125_000L);
+        assertThat(resultSet.getRow(0).get("amount")).isEqualTo(new BigDecimal("-12.5000"));
+        assertThat(resultSet.getDouble(0, "amount")).isEqualTo(-12.5D);
+        assertThat(resultSet.isNull(1, "amount")).isTrue();
+        assertThat(resultSet.getRow(1).get("big")).isEqualTo(new BigDecimal("2"));
+    }
+
+    @Test
+    void testDictionaryEncodedStrings()
+    {
+        final String body = """
+                {"meta": [{"name": "country", "type": "LowCardinality(Nullable(String))"}, {"name": "event", "type": "Enum8('view' = 1, 'click' = 2)"}, {"name": "name", "type": "String"}],
+                 "data": [{"country": "NO", "event": "view", "name": "a"}, {"country": null, "event": "click", "name": "b"}, {"country": "NO", "event": "view", "name": "a"}]}""";
+
+        final ResultSet resultSet = new JsonResultReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))).read();
+        final Column.StringColumn country = (Column.StringColumn) resultSet.column("country");
+        assertThat(country.getDictionary()).containsExactly("NO");
+        assertThat(country.getCode(2)).isEqualTo(country.getCode(0));
+        assertThat(resultSet.isNull(1, "country")).isTrue();
+        assertThat(resultSet.getRow(2).get("country")).isSameAs(resultSet.getRow(0).get("country"));
+        assertThat(((Column.StringColumn) resultSet.column("event")).getDictionary()).containsExactly("view", "click");
+        assertThat(resultSet.column("name")).isInstanceOf(Column.ObjectColumn.class);
+
+        final ResultSet all = new JsonResultReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), QueryOptions.DEFAULT.dictionaryStrings(true), ZoneOffset.UTC).read();
+        assertThat(((Column.StringColumn) all.column("name")).getDictionary()).containsExactly("a", "b");
+    }
+
+    @Test
+    void testEmptyBody()
+    {
+        assertThat(new JsonResultReader(new ByteArrayInputStream(new byte[0])).read().isEmpty()).isTrue();
+        assertThat(new JsonResultReader(new ByteArrayInputStream(new byte[0])).read().asMap()).isEqualTo(List.of());
+    }
+}
@@ -0,0 +1,133 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.ethlo.clackshack.model.Column;
+import com.ethlo.clackshack.model.ColumnarResultSet;
+
+class NativeReaderTest
+{
+    @Test
+    void testReadBlocks()
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeBlock(out, new double[]{1.5, 2.5}, new Long[]{10L, null}, new String[]{"a", "b"}, new int[][]{{1, 2}, {}});
+        writeBlock(out, new double[]{3.5}, new Long[]{30L}, new String[]{"a"}, new int[][]{{3}});
+
+        final ColumnarResultSet result = NativeReader.read(new ByteArrayInputStream(out.toByteArray()), ZoneOffset.UTC);
+
+        assertThat(result.size()).isEqualTo(3);
+        assertThat(result.column("x").asDoubleArray()).containsExactly(1.5, 2.5, 3.5);
+        assertThat(result.getLong(0, "n")).isEqualTo(10L);
+        assertThat(result.isNull(1, 1)).isTrue();
+        assertThat(result.getObject(2, "n")).isEqualTo(30L);
+        assertThat(result.getString(2, "s")).isEqualTo("a");
+        assertThat(((Column.StringColumn) result.column("s")).getDictionary()).containsExactly("a", "b");
+        assertThat(result.getObject(0, "arr")).isEqualTo(List.of(1L, 2L));
+        assertThat(result.getObject(1, "arr")).isEqualTo(List.of());
+        assertThat(result.getObject(2, "arr")).isEqualTo(List.of(3L));
+    }
+
+    private static void writeBlock(ByteArrayOutputStream out, double[] x, Long[] n, String[] s, int[][] arr)
+    {
+        writeVarInt(out, 4);
+        writeVarInt(out, x.length);
+
+        writeString(out, "x");
+        writeString(out, "Float64");
+        for (double v : x)
+        {
+            writeLong(out, Double.doubleToLongBits(v));
+        }
+
+        writeString(out, "n");
+        writeString(out, "Nullable(Int64)");
+        for (Long v : n)
+        {
+            out.write(v == null ? 1 : 0);
+        }
+        for (Long v : n)
+        {
+            writeLong(out, v == null ? 0 : v);
+        }
+
+        writeString(out, "s");
+        writeString(out, "String");
+        for (String v : s)
+        {
+            writeString(out, v);
+        }
+
+        writeString(out, "arr");
+        writeString(out, "Array(UInt32)");
+        long offset = 0;
+        for (int[] v : arr)
+        {
+            offset += v.length;
+            writeLong(out, offset);
+        }
+        for (int[] v : arr)
+        {
+            for (int e : v)
+            {
+                for (int i = 0; i < 4; i++)
+                {
+                    out.write(e >>> (i * 8));
+                }
+            }
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, long value)
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value)
+    {
+        final byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, data.length);
+        out.writeBytes(data);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value)
+    {
+        for (int i = 0; i < 8; i++)
+        {
+            out.write((int) (value >>> (i * 8)));
+        }
+    }
+}
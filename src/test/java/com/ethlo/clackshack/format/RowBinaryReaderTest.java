@@ -0,0 +1,180 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.ethlo.clackshack.model.Column;
+import com.ethlo.clackshack.model.ResultSet;
+import com.ethlo.clackshack.model.Row;
+
+class RowBinaryReaderTest
+{
+    private static final String[] NAMES = {"id", "name", "day", "ts", "ip", "amount", "tags"};
+
+    @Test
+    void testReadRows() throws Exception
+    {
+        final List<Row> rows = new ArrayList<>();
+        try (final RowBinaryReader reader = new RowBinaryReader(new ByteArrayInputStream(twoRows()), ZoneOffset.UTC))
+        {
+            assertThat(reader.getMeta()).hasSize(NAMES.length);
+            reader.forEachRemaining(rows::add);
+        }
+
+        assertThat(rows).hasSize(2);
+        final Row first = rows.get(0);
+        assertThat(first.get("id")).isEqualTo(new BigInteger("18446744073709551615"));
+        assertThat(first.get("name")).isEqualTo("first");
+        assertThat(first.get("day")).isEqualTo(LocalDate.parse("2010-01-31"));
+        assertThat(first.get("ts")).isEqualTo(LocalDateTime.parse("2010-01-31T02:03:04.123456"));
+        assertThat(first.get("ip")).isEqualTo(InetAddress.getByName("10.0.0.1"));
+        assertThat(first.get("amount")).isEqualTo(new BigDecimal("12.3456"));
+        assertThat(first.get("tags")).isEqualTo(List.of("a", "b"));
+
+        final Row second = rows.get(1);
+        assertThat(second.get("name")).isNull();
+        assertThat(second.get("amount")).isEqualTo(new BigDecimal("-0.0005"));
+        assertThat(second.get("tags")).isEqualTo(List.of());
+    }
+
+    @Test
+    void testReadResultSet()
+    {
+        final List<Map<String, Object>> expected = new ArrayList<>();
+        try (final RowBinaryReader reader = new RowBinaryReader(new ByteArrayInputStream(twoRows()), ZoneOffset.UTC))
+        {
+            reader.forEachRemaining(row -> expected.add(row.asMap()));
+        }
+
+        try (final RowBinaryReader reader = new RowBinaryReader(new ByteArrayInputStream(twoRows()), ZoneOffset.UTC))
+        {
+            final ResultSet resultSet = reader.readResultSet();
+            assertThat(resultSet.asMap()).isEqualTo(expected);
+            assertThat(resultSet.getLong(0, "id")).isEqualTo(-1L);
+            assertThat(resultSet.isNull(1, "name")).isTrue();
+            assertThat(resultSet.column("id")).isInstanceOf(Column.LongColumn.class);
+            assertThat(resultSet.column("name")).isInstanceOf(Column.StringColumn.class);
+            assertThat(resultSet.column("amount")).isInstanceOf(Column.DecimalColumn.class);
+        }
+    }
+
+    @Test
+    void testReadEmptyResultSet()
+    {
+        try (final RowBinaryReader reader = new RowBinaryReader(new ByteArrayInputStream(new byte[0]), ZoneOffset.UTC))
+        {
+            assertThat(reader.readResultSet().isEmpty()).isTrue();
+        }
+    }
+
+    private static byte[] twoRows()
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final String[] types = {"UInt64", "Nullable(String)", "Date", "DateTime64(6, 'UTC')", "IPv4", "Decimal(18, 4)", "Array(LowCardinality(String))"};
+        writeVarInt(out, NAMES.length);
+        for (String name : NAMES)
+        {
+            writeString(out, name);
+        }
+        for (String type : types)
+        {
+            writeString(out, type);
+        }
+
+        // Row 1
+        writeLong(out, -1L);
+        out.write(0);
+        writeString(out, "first");
+        writeShort(out, 14640);
+        writeLong(out, 1_264_903_384_123_456L);
+        writeInt(out, 0x0A000001);
+        writeLong(out, 123_456L);
+        writeVarInt(out, 2);
+        writeString(out, "a");
+        writeString(out, "b");
+
+        // Row 2
+        writeLong(out, 2L);
+        out.write(1);
+        writeShort(out, 0);
+        writeLong(out, 0);
+        writeInt(out, 0);
+        writeLong(out, -5L);
+        writeVarInt(out, 0);
+
+        return out.toByteArray();
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, long value)
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value)
+    {
+        final byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, data.length);
+        out.writeBytes(data);
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value)
+    {
+        out.write(value);
+        out.write(value >>> 8);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value)
+    {
+        for (int i = 0; i < 4; i++)
+        {
+            out.write(value >>> (i * 8));
+        }
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value)
+    {
+        for (int i = 0; i < 8; i++)
+        {
+            out.write((int) (value >>> (i * 8)));
+        }
+    }
+}
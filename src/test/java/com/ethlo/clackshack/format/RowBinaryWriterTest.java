@@ -0,0 +1,201 @@
+package com.ethlo.clackshack.format;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.ethlo.clackshack.model.Int128;
+import com.ethlo.clackshack.model.MetaEntry;
+import com.ethlo.clackshack.model.Row;
+
+class RowBinaryWriterTest
+{
+    private static final List<MetaEntry> COLUMNS = List.of(
+            new MetaEntry("id", "UInt64"),
+            new MetaEntry("event_type", "LowCardinality(String)"),
+            new MetaEntry("amount", "Decimal(18, 4)"),
+            new MetaEntry("created", "DateTime64(3)"),
+            new MetaEntry("day", "Date"),
+            new MetaEntry("tags", "Array(Nullable(String))"),
+            new MetaEntry("attributes", "Map(String, Int32)"),
+            new MetaEntry("ip", "IPv6"),
+            new MetaEntry("uuid", "Nullable(UUID)"),
+            new MetaEntry("hash", "UInt128"),
+            new MetaEntry("kind", "Enum8('a' = 1, 'b' = 2)"),
+            new MetaEntry("pair", "Tuple(Int16, Float64)"));
+
+    record Event(long id, String eventType, BigDecimal amount, LocalDateTime created, LocalDate day, List<String> tags,
+                 Map<String, Integer> attributes, String ip, UUID uuid, Int128 hash, String kind, Object[] pair)
+    {
+    }
+
+    @Test
+    void testRoundTrip() throws IOException
+    {
+        final UUID uuid = UUID.randomUUID();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeHeader(out, COLUMNS);
+        try (final RowBinaryWriter writer = new RowBinaryWriter(out, COLUMNS, ZoneOffset.UTC))
+        {
+            writer.write(new Event(-1, "click", new BigDecimal("12.5"), LocalDateTime.parse("2024-01-31T10:11:12.345"), LocalDate.parse("2024-01-31"),
+                    Arrays.asList("a", null), Map.of("x", 1), "2001:db8::1", uuid, Int128.ofUnsigned(1, 2), "b", new Object[]{(short) 3, 0.5}));
+            writer.write(new Object[]{7, "view", 3, "2024-02-01 00:00:00.000", "2024-02-01", List.of(), Map.of(), InetAddress.getByName("10.0.0.1"), null, "5", 1, List.of(4, 1.5)});
+            assertThat(writer.getRowCount()).isEqualTo(2);
+        }
+
+        final List<Row> rows = new ArrayList<>();
+        try (final RowBinaryReader reader = new RowBinaryReader(new ByteArrayInputStream(out.toByteArray()), ZoneOffset.UTC))
+        {
+            reader.forEachRemaining(rows::add);
+        }
+
+        final Row first = rows.get(0);
+        assertThat(first.getLong("id")).isEqualTo(-1L);
+        assertThat(first.get("event_type")).isEqualTo("click");
+        assertThat(first.get("amount")).isEqualTo(new BigDecimal("12.5000"));
+        assertThat(first.get("created")).isEqualTo(LocalDateTime.parse("2024-01-31T10:11:12.345"));
+        assertThat(first.get("day")).isEqualTo(LocalDate.parse("2024-01-31"));
+        assertThat(first.get("tags")).isEqualTo(Arrays.asList("a", null));
+        assertThat(first.get("attributes")).isEqualTo(Map.of("x", 1));
+        assertThat(first.get("ip")).isEqualTo(InetAddress.getByName("2001:db8::1"));
+        assertThat(first.get("uuid")).isEqualTo(uuid);
+        assertThat(first.get("hash")).isEqualTo(Int128.ofUnsigned(1, 2));
+        assertThat(first.get("kind")).isEqualTo("b");
+        assertThat(first.get("pair")).isEqualTo(List.of(3, 0.5));
+
+        final Row second = rows.get(1);
+        assertThat(second.getLong("id")).isEqualTo(7L);
+        assertThat(second.get("amount")).isEqualTo(new BigDecimal("3.0000"));
+        assertThat(second.get("day")).isEqualTo(LocalDate.parse("2024-02-01"));
+        assertThat(second.get("ip", InetAddress.class).getHostAddress()).isEqualTo("0:0:0:0:0:ffff:a00:1");
+        assertThat(second.get("uuid")).isNull();
+        assertThat(second.get("hash", Int128.class).getLow()).isEqualTo(5L);
+        assertThat(second.get("kind")).isEqualTo("a");
+    }
+
+    @Test
+    void testInvalidRows()
+    {
+        final RowBinaryWriter writer = new RowBinaryWriter(new ByteArrayOutputStream(), List.of(new MetaEntry("id", "UInt32"), new MetaEntry("name", "String")), ZoneOffset.UTC);
+        assertThatThrownBy(() -> writer.write(new Object[]{1})).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> writer.write(new Object[]{1, null})).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("non-nullable");
+        assertThatThrownBy(() -> writer.write(Map.of("id", UUID.randomUUID(), "name", "x"))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testOutOfRangeValuesAreRejected()
+    {
+        assertRejected("UInt8", 300);
+        assertRejected("Int8", 128);
+        assertRejected("UInt16", -1);
+        assertRejected("Int16", 40_000L);
+        assertRejected("UInt32", -1);
+        assertRejected("UInt32", 4_294_967_296L);
+        assertRejected("Int32", "2147483648");
+        assertRejected("UInt64", new BigInteger("18446744073709551616"));
+        assertRejected("UInt64", BigInteger.ONE.negate());
+        assertRejected("Int64", new BigInteger("9223372036854775808"));
+        assertRejected("UInt128", -1L);
+        assertRejected("Int128", BigInteger.ONE.shiftLeft(127));
+        assertRejected("Enum8('a' = 1)", 200);
+        assertRejected("IPv4", -1L);
+        assertRejected("Date", LocalDate.parse("2150-01-01"));
+        assertRejected("Date", LocalDate.parse("1969-12-31"));
+        assertRejected("Date32", LocalDate.parse("1899-12-31"));
+        assertRejected("DateTime", LocalDateTime.parse("1969-12-31T23:59:59"));
+        assertRejected("DateTime", LocalDateTime.parse("2106-02-07T06:28:16"));
+        assertRejected("DateTime64(9)", LocalDateTime.parse("2300-01-01T00:00:00"));
+    }
+
+    @Test
+    void testFractionsAreRejectedForIntegerTypes()
+    {
+        assertRejected("Int32", 1.5D);
+        assertRejected("Int64", new BigDecimal("2.5"));
+        assertRejected("UInt8", Double.NaN);
+        assertRejected("Int64", Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    void testRangeLimitsAreAccepted() throws IOException
+    {
+        final List<MetaEntry> columns = List.of(new MetaEntry("a", "UInt8"), new MetaEntry("b", "Int8"), new MetaEntry("c", "UInt32"), new MetaEntry("d", "UInt64"),
+                new MetaEntry("e", "Int64"), new MetaEntry("f", "Date"), new MetaEntry("g", "DateTime"));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeHeader(out, columns);
+        try (final RowBinaryWriter writer = new RowBinaryWriter(out, columns, ZoneOffset.UTC))
+        {
+            writer.write(new Object[]{255, -128, 4_294_967_295L, new BigInteger("18446744073709551615"), 2.0D, LocalDate.parse("2149-06-06"), LocalDateTime.parse("2106-02-07T06:28:15")});
+        }
+        try (final RowBinaryReader reader = new RowBinaryReader(new ByteArrayInputStream(out.toByteArray()), ZoneOffset.UTC))
+        {
+            final Row row = reader.next();
+            assertThat(row.get("a")).isEqualTo((short) 255);
+            assertThat(row.get("b")).isEqualTo((byte) -128);
+            assertThat(row.getLong("c")).isEqualTo(4_294_967_295L);
+            assertThat(row.get("d")).isEqualTo(new BigInteger("18446744073709551615"));
+            assertThat(row.getLong("e")).isEqualTo(2L);
+            assertThat(row.get("f")).isEqualTo(LocalDate.parse("2149-06-06"));
+            assertThat(row.get("g")).isEqualTo(LocalDateTime.parse("2106-02-07T06:28:15"));
+        }
+    }
+
+    private static void assertRejected(final String type, final Object value)
+    {
+        final RowBinaryWriter writer = new RowBinaryWriter(new ByteArrayOutputStream(), List.of(new MetaEntry("value", type)), ZoneOffset.UTC);
+        assertThatThrownBy(() -> writer.write(new Object[]{value}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(type.substring(0, type.contains("(") ? type.indexOf('(') : type.length()));
+    }
+
+    private static void writeHeader(final ByteArrayOutputStream out, final List<MetaEntry> columns) throws IOException
+    {
+        final BinaryOutput header = new BinaryOutput(out);
+        header.writeVarInt(columns.size());
+        for (MetaEntry column : columns)
+        {
+            header.writeString(column.getName());
+        }
+        for (MetaEntry column : columns)
+        {
+            header.writeString(column.getType());
+        }
+        header.flush();
+    }
+}
@@ -0,0 +1,50 @@
+package com.ethlo.clackshack.model;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class ColumnTest
+{
+    @Test
+    void testLazyObjectColumnConvertsOnce()
+    {
+        final AtomicInteger conversions = new AtomicInteger();
+        final Column column = new Column.ObjectColumn("value", "String", new Object[]{"a", "", null}, 3, raw ->
+        {
+            conversions.incrementAndGet();
+            return ((String) raw).isEmpty() ? null : ((String) raw).toUpperCase();
+        });
+
+        for (int i = 0; i < 2; i++)
+        {
+            assertThat(column.getObject(0)).isEqualTo("A");
+            assertThat(column.getObject(1)).isNull();
+            assertThat(column.getObject(2)).isNull();
+        }
+        assertThat(conversions).hasValue(2);
+        assertThat(column.isNull(2)).isTrue();
+    }
+}
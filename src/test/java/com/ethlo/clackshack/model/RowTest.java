@@ -0,0 +1,129 @@
+package com.ethlo.clackshack.model;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class RowTest
+{
+    private final RowSchema schema = RowSchema.of(List.of(new MetaEntry("id", "UInt32"), new MetaEntry("name", "String"), new MetaEntry("score", "Nullable(Float64)")));
+
+    @Test
+    void testSchema()
+    {
+        assertThat(schema.size()).isEqualTo(3);
+        assertThat(schema.indexOf("name")).isEqualTo(1);
+        assertThat(schema.indexOf("missing")).isEqualTo(-1);
+        assertThat(schema.getName(2)).isEqualTo("score");
+        assertThat(schema.getColumns().get(0).getType()).isEqualTo("UInt32");
+        assertThat(schema).hasToString("[id, name, score]");
+        assertThatThrownBy(() -> schema.getColumns().add(new MetaEntry("other", "String"))).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void testSchemaEqualityIsByNames()
+    {
+        final RowSchema names = RowSchema.ofNames(List.of("id", "name", "score"));
+        assertThat(names).isEqualTo(schema).hasSameHashCodeAs(schema);
+        assertThat(names.getColumns().get(0).getType()).isNull();
+        assertThat(RowSchema.ofNames(List.of("name", "id", "score"))).isNotEqualTo(schema);
+    }
+
+    @Test
+    void testGetByIndex()
+    {
+        final Row row = new Row(schema, new Object[]{7L, "seven", null});
+        assertThat(row.get(0, Long.class)).isEqualTo(7L);
+        assertThat(row.get(1, String.class)).isEqualTo("seven");
+        assertThat(row.get(2, Double.class)).isNull();
+        assertThat(row.get("name")).isEqualTo("seven");
+        assertThat(row.get("missing")).isNull();
+        assertThatThrownBy(() -> row.get(1, Long.class)).isInstanceOf(ClassCastException.class);
+        assertThatThrownBy(() -> row.get(3)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void testValuesMustMatchSchema()
+    {
+        assertThatThrownBy(() -> new Row(schema, new Object[]{7L})).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testAsMapIsReadOnlyViewInColumnOrder()
+    {
+        final Row row = new Row(schema, new Object[]{7L, "seven", null});
+        final Map<String, Object> map = row.asMap();
+        assertThat(map.keySet()).containsExactly("id", "name", "score");
+        assertThat(map).containsEntry("id", 7L).containsEntry("score", null).doesNotContainKey("missing");
+        assertThat(map).isEqualTo(expected());
+        assertThat(row.asMap()).isSameAs(map);
+        assertThatThrownBy(() -> map.put("id", 8L)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> map.remove("id")).isInstanceOf(UnsupportedOperationException.class);
+
+        final Map<String, Object> copy = new LinkedHashMap<>(map);
+        copy.put("id", 8L);
+        assertThat(row.get("id")).isEqualTo(7L);
+    }
+
+    @Test
+    void testAsMapWithDuplicateNamesKeepsLastValue()
+    {
+        final Row row = new Row(RowSchema.ofNames(List.of("a", "b", "a")), new Object[]{1L, 2L, 3L});
+        final Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("a", 1L);
+        expected.put("b", 2L);
+        expected.put("a", 3L);
+
+        final Map<String, Object> map = row.asMap();
+        assertThat(map).hasSize(2).containsEntry("a", 3L).containsEntry("b", 2L);
+        assertThat(map.keySet()).containsExactly("a", "b");
+        assertThat(map.entrySet()).hasSize(2);
+        assertThat(map).isEqualTo(expected);
+        assertThat(expected).isEqualTo(map);
+        assertThat(map.hashCode()).isEqualTo(expected.hashCode());
+        assertThat(new LinkedHashMap<>(map)).isEqualTo(expected);
+    }
+
+    @Test
+    void testFromMap()
+    {
+        final Row row = new Row(expected());
+        assertThat(row.getSchema()).isEqualTo(schema);
+        assertThat(row.get(1, String.class)).isEqualTo("seven");
+        assertThat(row.asMap()).isEqualTo(expected());
+    }
+
+    private static Map<String, Object> expected()
+    {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", 7L);
+        map.put("name", "seven");
+        map.put("score", null);
+        return map;
+    }
+}
@@ -0,0 +1,62 @@
+package com.ethlo.clackshack.util;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+public class DateTimesTest
+{
+    @Test
+    void parseDateTime()
+    {
+        assertThat(DateTimes.parseDate("2024-02-29")).isEqualTo(LocalDate.parse("2024-02-29"));
+        assertThat(DateTimes.parseDateTime("2024-02-29 23:59:58")).isEqualTo(LocalDateTime.parse("2024-02-29T23:59:58"));
+        assertThat(DateTimes.parseDateTime("2024-02-29 23:59:58.123456")).isEqualTo(LocalDateTime.parse("2024-02-29T23:59:58.123456"));
+        assertThatThrownBy(() -> DateTimes.parseDateTime("2023-02-29 00:00:00")).isInstanceOf(DateTimeException.class);
+        assertThatThrownBy(() -> DateTimes.parseDateTime("2023-02-28 00:00")).isInstanceOf(DateTimeException.class);
+    }
+
+    @Test
+    void parseEpoch()
+    {
+        final ZoneId oslo = ZoneId.of("Europe/Oslo");
+        for (final String text : new String[]{"1969-12-31 23:59:59", "1970-01-01 00:00:00", "2024-07-01 12:30:00", "1900-03-01 00:00:01"})
+        {
+            final LocalDateTime expected = LocalDateTime.parse(text.replace(' ', 'T'));
+            assertThat(DateTimes.parseEpochSecond(text, ZoneOffset.UTC)).isEqualTo(expected.toEpochSecond(ZoneOffset.UTC));
+            assertThat(DateTimes.parseEpochSecond(text, oslo)).isEqualTo(expected.atZone(oslo).toEpochSecond());
+        }
+
+        assertThat(DateTimes.parseEpochTicks("2024-07-01 12:30:00.123456", 6, ZoneOffset.UTC)).isEqualTo(1719837000123456L);
+        assertThat(DateTimes.parseEpochTicks("2024-07-01 12:30:00.123456", 3, ZoneOffset.UTC)).isEqualTo(1719837000123L);
+        assertThat(DateTimes.parseInstant("2024-07-01 14:30:00.5", oslo).toString()).isEqualTo("2024-07-01T12:30:00.500Z");
+        assertThat(DateTimes.toLocalDateTime(1719837000L, 5, oslo)).isEqualTo(LocalDateTime.parse("2024-07-01T14:30:00.000000005"));
+    }
+}
@@ -0,0 +1,50 @@
+package com.ethlo.clackshack.util;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+public class DecimalsTest
+{
+    @Test
+    void parseUnscaled()
+    {
+        for (final String text : new String[]{"0", "1", "-1", "12.5", "-12.5", "0.0001", "-0.0001", "123456789.1234", "922337203685477.5807", "-922337203685477.5808", "7.10000"})
+        {
+            assertThat(Decimals.parseUnscaled(text, 4)).as(text).isEqualTo(new BigDecimal(text).setScale(4).unscaledValue().longValueExact());
+        }
+        assertThat(Decimals.parseUnscaled("42", 0)).isEqualTo(42);
+    }
+
+    @Test
+    void parseUnscaledInvalid()
+    {
+        for (final String text : new String[]{"", "-", ".", "1.2.3", "1e5", "0.00001", "922337203685477.5808", "abc"})
+        {
+            assertThatThrownBy(() -> Decimals.parseUnscaled(text, 4)).as(text).isInstanceOf(NumberFormatException.class);
+        }
+    }
+}
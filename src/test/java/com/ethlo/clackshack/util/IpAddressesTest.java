@@ -0,0 +1,83 @@
+package com.ethlo.clackshack.util;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+public class IpAddressesTest
+{
+    @Test
+    void parseIpv4() throws UnknownHostException
+    {
+        for (final String text : new String[]{"0.0.0.0", "10.0.0.1", "192.168.255.7", "255.255.255.255"})
+        {
+            assertThat(IpAddresses.parseIpv4(text)).isEqualTo(ByteBuffer.wrap(InetAddress.getByName(text).getAddress()).getInt());
+            assertThat(IpAddresses.toInet4Address(IpAddresses.parseIpv4(text))).isEqualTo(InetAddress.getByName(text));
+        }
+
+        for (final String text : new String[]{"", "1.2.3", "1.2.3.4.5", "256.1.1.1", "1..2.3", "1.2.3.", "a.b.c.d"})
+        {
+            assertThatThrownBy(() -> IpAddresses.parseIpv4(text)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void parseIpv6() throws UnknownHostException
+    {
+        final long[] address = new long[2];
+        for (final String text : new String[]{"::", "::1", "2001:db8::8a2e:370:7334", "2001:0db8:85a3:0000:0000:8a2e:0370:7334", "fe80::", "1:2:3:4:5:6:7::", "::ffff:192.168.1.1", "ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff"})
+        {
+            IpAddresses.parseIpv6(text, address);
+            final ByteBuffer expected = ByteBuffer.wrap(toBytes(text));
+            assertThat(address[0]).as(text).isEqualTo(expected.getLong());
+            assertThat(address[1]).as(text).isEqualTo(expected.getLong());
+            assertThat(IpAddresses.toInet6Address(text).getAddress()).isEqualTo(toBytes(text));
+        }
+
+        for (final String text : new String[]{"", ":", ":::", "1::2::3", "1:2:3:4:5:6:7", "1:2:3:4:5:6:7:8:9", "12345::", "1:", "::g"})
+        {
+            assertThatThrownBy(() -> IpAddresses.parseIpv6(text, address)).as(text).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private static byte[] toBytes(final String text) throws UnknownHostException
+    {
+        final byte[] bytes = InetAddress.getByName(text).getAddress();
+        if (bytes.length == 16)
+        {
+            return bytes;
+        }
+
+        // IPv4-mapped addresses are returned as IPv4 by InetAddress
+        final byte[] mapped = new byte[16];
+        mapped[10] = (byte) 0xFF;
+        mapped[11] = (byte) 0xFF;
+        System.arraycopy(bytes, 0, mapped, 12, 4);
+        return mapped;
+    }
+}
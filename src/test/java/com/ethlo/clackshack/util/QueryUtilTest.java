@@ -21,6 +21,7 @@ package com.ethlo.clackshack.util;
  */
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.util.List;
 
@@ -69,4 +70,21 @@ class QueryUtilTest
                 GROUP BY `event_time`
                 ORDER BY `event_time`""");
     }
+
+    @Test
+    void testQuoteIdentifier()
+    {
+        assertThat(QueryUtil.quoteIdentifier("events")).isEqualTo("`events`");
+        assertThat(QueryUtil.quoteIdentifier("my-table.v2")).isEqualTo("`my-table.v2`");
+        assertThat(QueryUtil.quoteIdentifier("a`; DROP TABLE b; --")).isEqualTo("`a\\`; DROP TABLE b; --`");
+        assertThat(QueryUtil.quoteIdentifier("back\\slash")).isEqualTo("`back\\\\slash`");
+        assertThatThrownBy(() -> QueryUtil.quoteIdentifier("")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testCheckFormatName()
+    {
+        assertThat(QueryUtil.checkFormatName("CSVWithNames")).isEqualTo("CSVWithNames");
+        assertThatThrownBy(() -> QueryUtil.checkFormatName("CSV; DROP TABLE b")).isInstanceOf(IllegalArgumentException.class);
+    }
 }
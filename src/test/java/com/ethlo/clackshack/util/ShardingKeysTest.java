@@ -0,0 +1,35 @@
+package com.ethlo.clackshack.util;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class ShardingKeysTest
+{
+    @Test
+    void testIntHash64()
+    {
+        assertThat(ShardingKeys.intHash64(0)).isZero();
+        assertThat(UnsignedLongs.toString(ShardingKeys.intHash64(1))).isEqualTo("12994781566227106604");
+        assertThat(UnsignedLongs.toString(ShardingKeys.intHash64(42))).isEqualTo("9297814886316923340");
+    }
+}
@@ -0,0 +1,77 @@
+package com.ethlo.clackshack.util;
+
+/*-
+ * #%L
+ * ClackShack
+ * %%
+ * Copyright (C) 2021 - 2024 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.ethlo.clackshack.model.Int128;
+import com.ethlo.clackshack.model.Int256;
+
+public class WideIntegersTest
+{
+    @Test
+    void parseInt128()
+    {
+        final BigInteger min = BigInteger.ONE.shiftLeft(127).negate();
+        final BigInteger max = BigInteger.ONE.shiftLeft(127).subtract(BigInteger.ONE);
+        for (final BigInteger value : new BigInteger[]{BigInteger.ZERO, BigInteger.ONE, BigInteger.ONE.negate(), min, max, new BigInteger("-18446744073709551617")})
+        {
+            final Int128 parsed = Int128.parse(value.toString());
+            assertThat(parsed.toBigInteger()).isEqualTo(value);
+            assertThat(parsed.toString()).isEqualTo(value.toString());
+            assertThat(parsed.doubleValue()).isEqualTo(value.doubleValue());
+        }
+        assertThatThrownBy(() -> Int128.parse(max.add(BigInteger.ONE).toString())).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> Int128.parse(min.subtract(BigInteger.ONE).toString())).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> Int128.parse("12a")).isInstanceOf(NumberFormatException.class);
+    }
+
+    @Test
+    void parseUnsigned()
+    {
+        final BigInteger max128 = BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE);
+        assertThat(Int128.parseUnsigned(max128.toString()).toBigInteger()).isEqualTo(max128);
+        assertThat(Int128.parseUnsigned(max128.toString())).isEqualTo(Int128.ofUnsigned(-1, -1));
+        assertThatThrownBy(() -> Int128.parseUnsigned("-1")).isInstanceOf(NumberFormatException.class);
+
+        final BigInteger max256 = BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE);
+        assertThat(Int256.parseUnsigned(max256.toString()).toBigInteger()).isEqualTo(max256);
+        assertThatThrownBy(() -> Int256.parseUnsigned(max256.add(BigInteger.ONE).toString())).isInstanceOf(NumberFormatException.class);
+        assertThat(Int256.parse("-1")).isEqualTo(Int256.of(-1, -1, -1, -1));
+    }
+
+    @Test
+    void compare()
+    {
+        assertThat(Int128.parse("-1").compareTo(Int128.parse("1"))).isNegative();
+        assertThat(Int128.parseUnsigned("340282366920938463463374607431768211455").compareTo(Int128.parseUnsigned("1"))).isPositive();
+        assertThat(Int256.parse("18446744073709551616").compareTo(Int256.parse("18446744073709551615"))).isPositive();
+        assertThat(UnsignedLongs.compare(-1L, 1L)).isPositive();
+        assertThat(UnsignedLongs.toString(-1L)).isEqualTo("18446744073709551615");
+        assertThat(UnsignedLongs.parse("18446744073709551615")).isEqualTo(-1L);
+        assertThat(UnsignedLongs.toDouble(-1L)).isEqualTo(new BigInteger("18446744073709551615").doubleValue());
+    }
+}